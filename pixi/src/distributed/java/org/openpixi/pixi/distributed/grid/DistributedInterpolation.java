@@ -4,6 +4,7 @@ import org.openpixi.pixi.distributed.SharedDataManager;
 import org.openpixi.pixi.parallel.particleaccess.ParticleAction;
 import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticlePool;
 import org.openpixi.pixi.physics.grid.Grid;
 import org.openpixi.pixi.physics.grid.Interpolation;
 import org.openpixi.pixi.physics.grid.InterpolatorAlgorithm;
@@ -34,6 +35,12 @@ public class DistributedInterpolation extends Interpolation {
 
 	private ParticleIterator particleIterator;
 
+	/**
+	 * Slots of the particles which left, for the arriving particles. The slots of the
+	 * other nodes would collide with the local ones (see Particle.getSlot()).
+	 */
+	private ParticlePool slots;
+
 	private InterpolateToInsideParticle interpolateToInsideParticle = new InterpolateToInsideParticle();
 	private InterpolateToOutsideParticle interpolateToOutsideParticle = new InterpolateToOutsideParticle();
 	private InterpolateToGrid interpolateToGrid = new InterpolateToGrid();
@@ -67,10 +74,15 @@ public class DistributedInterpolation extends Interpolation {
 		sharedDataManager.startExchangeOfParticles();		
 		grid.resetCurrent();
 
+		if (slots == null) {
+			slots = new ParticlePool(firstFreeSlot(localParticles));
+		}
+
 		// Remove leaving particles
 		List<Particle> leavingParticles = sharedDataManager.getLeavingParticles();
 		for (Particle leavingParticle: leavingParticles) {
 			localParticles.remove(leavingParticle);
+			slots.release(leavingParticle);
 		}
 		
 		this.grid = grid;
@@ -81,10 +93,16 @@ public class DistributedInterpolation extends Interpolation {
 
 		// Interpolate arriving particles
 		List<Particle> arrivingParticles = sharedDataManager.getArrivingParticles();
+		for (Particle arrivingParticle: arrivingParticles) {
+			arrivingParticle.setSlot(slots.acquireSlot());
+		}
 		particleIterator.execute(arrivingParticles, interpolateToGrid);
 
-		// Interpolate ghost particles
+		// Interpolate ghost particles, they are only copies
 		List<Particle> ghostParticles = sharedDataManager.getGhostParticles();
+		for (Particle ghostParticle: ghostParticles) {
+			ghostParticle.setSlot(Particle.NO_SLOT);
+		}
 		particleIterator.execute(ghostParticles, interpolateToGrid);
 
 		// Add arriving particles to the list of local particles
@@ -94,6 +112,15 @@ public class DistributedInterpolation extends Interpolation {
 	}
 
 
+	private int firstFreeSlot(List<Particle> particles) {
+		int firstFreeSlot = 0;
+		for (Particle p: particles) {
+			firstFreeSlot = Math.max(firstFreeSlot, p.getSlot() + 1);
+		}
+		return firstFreeSlot;
+	}
+
+
 	/**
 	 * When interpolating to particles we need also the cells from our neighbors.
 	 * Similarly as with interpolateToGrid() we interleave the communication and computation.
@@ -148,4 +148,22 @@ public class DistributedParticleBoundaries implements ParticleBoundaries {
 		int boundaryRegion = boundaryRegions.getRegion(particle.getX(), particle.getY());
 		boundaryMap[boundaryRegion].apply(solver, force, particle, timeStep);
 	}
+
+
+	public void applyOnRange(List<Particle> particles, int from, int to,
+			Solver solver, Force force, double timeStep) {
+		// Particles in the border regions have to be handled as well.
+		for (int i = from; i < to; i++) {
+			applyOnParticleCenter(solver, force, particles.get(i), timeStep);
+		}
+	}
+
+
+	public void removeAbsorbed(List<Particle> particles) {
+		// There are no absorbing boundaries in the distributed simulation.
+	}
+
+	public int getNumRemoved() {
+		return 0;
+	}
 }
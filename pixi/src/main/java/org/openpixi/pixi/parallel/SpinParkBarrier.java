@@ -0,0 +1,70 @@
+package org.openpixi.pixi.parallel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reusable barrier for a fixed number of parties which are identified by their index.
+ *
+ * A waiting thread first spins on the generation counter, which catches the short gaps
+ * between the phases of a simulation step without involving the scheduler. Only if the
+ * other parties take longer than that, it parks until the last party arrives.
+ */
+public class SpinParkBarrier {
+
+	/** Spinning only helps if the other parties run on other processors at the same time */
+	private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 14 : 0;
+
+	private final int parties;
+	private final AtomicInteger arrived = new AtomicInteger();
+	private volatile int generation;
+	/** Parked threads indexed by the party index */
+	private final AtomicReferenceArray<Thread> parked;
+
+	public SpinParkBarrier(int parties) {
+		this.parties = parties;
+		this.parked = new AtomicReferenceArray<Thread>(parties);
+	}
+
+	/**
+	 * Waits until all parties have called await() for the current generation.
+	 */
+	public void await(int partyIdx) {
+		int currentGeneration = generation;
+		if (arrived.incrementAndGet() == parties) {
+			arrived.set(0);
+			generation = currentGeneration + 1;
+			for (int i = 0; i < parties; i++) {
+				Thread thread = parked.getAndSet(i, null);
+				if (thread != null) {
+					LockSupport.unpark(thread);
+				}
+			}
+			return;
+		}
+
+		for (int i = 0; i < SPINS; i++) {
+			if (generation != currentGeneration) {
+				return;
+			}
+		}
+
+		// The generation is checked again after registering, so a release
+		// in between can not be missed. The thread registers again after every
+		// wakeup because a late release of the previous generation may have
+		// cleared its entry.
+		Thread current = Thread.currentThread();
+		while (true) {
+			parked.set(partyIdx, current);
+			if (generation != currentGeneration) {
+				break;
+			}
+			LockSupport.park(this);
+			if (generation != currentGeneration) {
+				break;
+			}
+		}
+		parked.compareAndSet(partyIdx, current, null);
+	}
+}
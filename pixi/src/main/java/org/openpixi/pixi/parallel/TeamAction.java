@@ -0,0 +1,11 @@
+package org.openpixi.pixi.parallel;
+
+/**
+ * Work which is executed by every member of a WorkerTeam.
+ */
+public interface TeamAction {
+	/**
+	 * Called once by each member of the team with its index (0 to numOfThreads - 1).
+	 */
+	void execute(int threadIdx, int numOfThreads);
+}
@@ -0,0 +1,110 @@
+package org.openpixi.pixi.parallel;
+
+/**
+ * Fixed team of threads which live for the whole run and execute TeamActions together.
+ *
+ * The thread calling run() is member 0 of the team, the others are started once in the
+ * constructor. Starting and finishing an action is one round trip through a SpinParkBarrier,
+ * so a phase of the simulation step costs neither task objects nor a submission to an
+ * executor queue. Several phases can also run inside one action, separated by sync().
+ */
+public class WorkerTeam {
+
+	private final int numOfThreads;
+	private final SpinParkBarrier barrier;
+	private final Thread[] workers;
+
+	/* Exposed to the workers, written by member 0 before the start barrier. */
+	private TeamAction action;
+	private volatile boolean running;
+	private volatile boolean terminated;
+	private volatile Throwable failure;
+
+	public WorkerTeam(int numOfThreads) {
+		if (numOfThreads < 1) {
+			throw new RuntimeException("Invalid number of threads: " + numOfThreads);
+		}
+		this.numOfThreads = numOfThreads;
+		this.barrier = new SpinParkBarrier(numOfThreads);
+		this.workers = new Thread[numOfThreads - 1];
+		for (int i = 1; i < numOfThreads; i++) {
+			workers[i - 1] = new Thread(new Worker(i), "pixi-worker-" + i);
+			workers[i - 1].setDaemon(true);
+			workers[i - 1].start();
+		}
+	}
+
+	public int getNumOfThreads() {
+		return numOfThreads;
+	}
+
+	/**
+	 * Executes the action on all members of the team and returns when all have finished.
+	 */
+	public void run(TeamAction action) {
+		if (terminated) {
+			throw new RuntimeException("The worker team has been terminated.");
+		}
+		if (running) {
+			throw new RuntimeException("The worker team is already running an action.");
+		}
+		running = true;
+		this.action = action;
+		failure = null;
+
+		barrier.await(0);
+		try {
+			action.execute(0, numOfThreads);
+		} catch (Throwable t) {
+			failure = t;
+		}
+		barrier.await(0);
+
+		this.action = null;
+		running = false;
+		if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+	}
+
+	/**
+	 * Barrier between two phases inside of an action. Has to be called by all members.
+	 */
+	public void sync(int threadIdx) {
+		barrier.await(threadIdx);
+	}
+
+	/**
+	 * Stops the worker threads. Is idempotent.
+	 */
+	public void terminate() {
+		if (!terminated) {
+			terminated = true;
+			barrier.await(0);
+		}
+	}
+
+	private class Worker implements Runnable {
+
+		private int threadIdx;
+
+		private Worker(int threadIdx) {
+			this.threadIdx = threadIdx;
+		}
+
+		public void run() {
+			while (true) {
+				barrier.await(threadIdx);
+				if (terminated) {
+					return;
+				}
+				try {
+					action.execute(threadIdx, numOfThreads);
+				} catch (Throwable t) {
+					failure = t;
+				}
+				barrier.await(threadIdx);
+			}
+		}
+	}
+}
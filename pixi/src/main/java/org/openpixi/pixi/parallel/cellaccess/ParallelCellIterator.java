@@ -1,15 +1,12 @@
 package org.openpixi.pixi.parallel.cellaccess;
 
+import org.openpixi.pixi.parallel.TeamAction;
+import org.openpixi.pixi.parallel.WorkerTeam;
 import org.openpixi.pixi.physics.grid.Grid;
 import org.openpixi.pixi.physics.util.IntBox;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-
 /**
- * Executes action upon cells in parallel using threads.
+ * Executes action upon cells in parallel using the threads of a WorkerTeam.
  * Can iterate also through extra cells based on the boolean parameter
  * includeExtraCells in constructor.
  */
@@ -21,26 +18,19 @@ public class ParallelCellIterator extends CellIterator {
 	private CellAction action;
 	int numOfCells;
 
-	private List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
-	private ExecutorService threadExecutor;
+	private Task task = new Task();
+	private WorkerTeam team;
 
 
-	public ParallelCellIterator(int numOfThreads, ExecutorService threadExecutor) {
-		this.threadExecutor = threadExecutor;
-		for (int i = 0; i < numOfThreads; ++i) {
-			tasks.add(new Task(i, numOfThreads));
-		}
+	public ParallelCellIterator(WorkerTeam team) {
+		this.team = team;
 	}
 
 
 	public void execute(Grid grid, CellAction action) {
 		this.grid = grid;
 		this.action = action;
-		try {
-			threadExecutor.invokeAll(tasks);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		}
+		team.run(task);
 	}
 
 
@@ -58,22 +48,13 @@ public class ParallelCellIterator extends CellIterator {
 	}
 */
 
-	private class Task implements Callable<Object> {
-
-		private int threadIdx;
-		private int numOfThreads;
-
-		private Task(int threadIdx, int numOfThreads) {
-			this.threadIdx = threadIdx;
-			this.numOfThreads = numOfThreads;
-		}
+	private class Task implements TeamAction {
 
-        public Object call() throws Exception {
+        public void execute(int threadIdx, int numOfThreads) {
             for (int cellIdx = threadIdx; cellIdx < numOfCells; cellIdx += numOfThreads) {
                 int[] pos = convertCellIndexToPosition(cellIdx, dimensions);
                 action.execute(grid, pos[0], pos[1], pos[2]);
             }
-            return null;
         }
 
         private int[] convertCellIndexToPosition(int ci, IntBox dimensions)
@@ -1,19 +1,16 @@
 package org.openpixi.pixi.parallel.particleaccess;
 
+import org.openpixi.pixi.parallel.TeamAction;
+import org.openpixi.pixi.parallel.WorkerTeam;
 import org.openpixi.pixi.physics.particles.Particle;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 
 /**
- * Executes action upon particles in parallel using threads.
+ * Executes action upon particles in parallel using the threads of a WorkerTeam.
  *
- * Why do we use Callable interface instead of Runnable?
- * - Because we want to use the invokeAll() method of ExecutorService.
- * Why do we want to use the invokeAll() method and not the execute() or submit() method?
- * - Because execute() and submit() do not wait for the tasks to finish.
+ * The team runs the same task on each of its threads and returns when all of them are done.
+ * The tasks are created once, so a call does not allocate anything.
  */
 public class ParallelParticleIterator implements ParticleIterator {
 
@@ -21,43 +18,53 @@ public class ParallelParticleIterator implements ParticleIterator {
 	   since they can to be passed to them as method arguments */
 	private ParticleAction action;
 	private List<Particle> particles;
+	private RangeAction rangeAction;
+	private int size;
 
-	private List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
-	private ExecutorService threadExecutor;
+	private Task task = new Task();
+	private RangeTask rangeTask = new RangeTask();
+	private WorkerTeam team;
 
-	public ParallelParticleIterator(int numOfThreads, ExecutorService threadExecutor) {
-		this.threadExecutor = threadExecutor;
-		for (int i = 0; i < numOfThreads; ++i) {
-			tasks.add(new Task(i, numOfThreads));
-		}
+	public ParallelParticleIterator(WorkerTeam team) {
+		this.team = team;
 	}
 
 	public void execute(List<Particle> particles, ParticleAction action) {
 		this.action = action;
 		this.particles = particles;
 
-		try {
-			threadExecutor.invokeAll(tasks);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		}
+		team.run(task);
 	}
 
-	private class Task implements Callable<Object> {
+	/**
+	 * Unlike the particle action, which strides through the particles, each thread gets
+	 * one contiguous block of indices here.
+	 */
+	public void execute(int size, RangeAction action) {
+		this.rangeAction = action;
+		this.size = size;
 
-		private int threadIdx;
-		private int numOfThreads;
+		team.run(rangeTask);
+	}
 
-		private Task(int threadIdx, int numOfThreads) {
-			this.threadIdx = threadIdx;
-			this.numOfThreads = numOfThreads;
-		}
+	private class Task implements TeamAction {
 
-		public Object call() throws Exception {
+		public void execute(int threadIdx, int numOfThreads) {
 			for (int particleIdx = threadIdx; particleIdx < particles.size(); particleIdx += numOfThreads) {
 				action.execute(particles.get(particleIdx));
 			}
-			return null;
+		}
+	}
+
+	private class RangeTask implements TeamAction {
+
+		public void execute(int threadIdx, int numOfThreads) {
+			int blockSize = (size + numOfThreads - 1) / numOfThreads;
+			int from = threadIdx * blockSize;
+			int to = Math.min(size, from + blockSize);
+			if (from < to) {
+				rangeAction.execute(from, to);
+			}
 		}
 	}
 }
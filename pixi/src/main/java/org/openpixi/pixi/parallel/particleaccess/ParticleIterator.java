@@ -11,7 +11,11 @@ import java.util.List;
  *  which can work upon the particles in parallel.
  *
  *  Each implementation calls the ParticleAction.execute() method on each particle.
+ *  Alternatively, the indices 0 to size - 1 can be split into contiguous ranges
+ *  which are passed to RangeAction.execute().
  */
 public interface ParticleIterator {
 	void execute(List<Particle> particles, ParticleAction action);
+
+	void execute(int size, RangeAction action);
 }
@@ -0,0 +1,12 @@
+package org.openpixi.pixi.parallel.particleaccess;
+
+/**
+ * Counterpart of ParticleAction for operations which work upon a contiguous range of
+ * particle indices at once (e.g. batched solvers).
+ */
+public interface RangeAction {
+	/**
+	 * Works upon the particles with the indices from (inclusive) to to (exclusive).
+	 */
+	void execute(int from, int to);
+}
@@ -14,4 +14,8 @@ public class SequentialParticleIterator implements ParticleIterator {
 			action.execute(particle);
 		}
 	}
+
+	public void execute(int size, RangeAction action) {
+		action.execute(0, size);
+	}
 }
@@ -0,0 +1,329 @@
+package org.openpixi.pixi.physics;
+
+import org.openpixi.pixi.parallel.particleaccess.ParticleAction;
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.physics.fields.CrankNicolsonSolver;
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.grid.CloudInCell;
+import org.openpixi.pixi.physics.grid.Grid;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaries;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.solver.CrankNicolson;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Energy conserving implicit PIC step (Crank-Nicolson in time for particles and field).
+ *
+ * The unknown of the step is the electric field E(t+dt). For a given E(t+dt) the particle
+ * orbits are solved with the fields (E(t) + E(t+dt))/2 (CrankNicolson), their midpoint
+ * current is deposited and Ampere's law gives a new E(t+dt) (CrankNicolsonSolver). The
+ * difference of the two fields is the residual, which is driven to zero with a
+ * Jacobian-free Newton-Krylov method: the Newton systems are solved with GMRES, where the
+ * products of the Jacobian with a vector are finite differences of the residual.
+ *
+ * The gather uses CloudInCell and the deposit its transpose, so the total energy is
+ * conserved up to the tolerance of the Newton iteration. The step is therefore not
+ * limited by the plasma frequency or by finite grid heating, only by accuracy.
+ * B is kept constant. Only two dimensional grids are supported.
+ */
+public class ImplicitStep {
+
+	/** Newton iteration stops when the residual is reduced by this factor */
+	private static final double NEWTON_TOLERANCE = 1.e-10;
+	/** Residual (relative to the field) below which the field counts as converged */
+	private static final double ABSOLUTE_TOLERANCE = 1.e-14;
+	private static final int MAX_NEWTON_ITERATIONS = 20;
+	/** Maximum dimension of the Krylov space of one GMRES solve */
+	private static final int KRYLOV_DIMENSION = 30;
+	/** GMRES stops when the residual of the Newton system is reduced by this factor */
+	private static final double KRYLOV_TOLERANCE = 1.e-4;
+	/** The orbit iteration stops when the relative change of the velocity drops below this */
+	private static final double ORBIT_TOLERANCE = 1.e-14;
+	private static final int MAX_ORBIT_ITERATIONS = 50;
+
+	private CrankNicolson particleSolver = new CrankNicolson();
+	private CrankNicolsonSolver fieldSolver = new CrankNicolsonSolver();
+	private CloudInCell interpolator = new CloudInCell();
+	private ParticleIterator particleIterator;
+	private ParticleBoundaries boundaries;
+
+	/* These are set in each step to enable the inner classes to read them. */
+	private Grid grid;
+	private Force force;
+	private double timeStep;
+
+	private StoreState storeState = new StoreState();
+	private Orbit orbit = new Orbit();
+
+	/** Newton iterations of the last step */
+	private int newtonIterations;
+
+	/* Fields as vectors (Ex and Ey of each cell) */
+	private double[] eOld;
+	private double[] e;
+	private double[] r;
+	private double[] b;
+	private double[] delta;
+	private double[] ePerturbed;
+	private double[] rPerturbed;
+	/* GMRES workspace */
+	private double[][] krylov;
+	private double[][] hessenberg;
+	private double[] cs;
+	private double[] sn;
+	private double[] g;
+	private double[] coefficients;
+
+	public ImplicitStep(Settings settings, Grid grid, ParticleBoundaries boundaries) {
+		if (grid.getNumCellsZ() > 1) {
+			throw new RuntimeException("The implicit scheme is only implemented for two dimensional grids.");
+		}
+		this.particleIterator = settings.getParticleIterator();
+		this.boundaries = boundaries;
+		fieldSolver.initializeIterator(settings.getCellIterator(),
+				grid.getNumCellsX(), grid.getNumCellsY(), grid.getNumCellsZ());
+	}
+
+	public CrankNicolson getParticleSolver() {
+		return particleSolver;
+	}
+
+	public int getNewtonIterations() {
+		return newtonIterations;
+	}
+
+	/**
+	 * Advances particles and electric field by one time step.
+	 * @param grid before the update: E(t); after the update: E(t+dt)
+	 */
+	public void step(List<Particle> particles, Grid grid, Force force, double timeStep) {
+		this.grid = grid;
+		this.force = force;
+		this.timeStep = timeStep;
+		allocate(2 * grid.getNumCellsX() * grid.getNumCellsY());
+
+		grid.storeFields();
+		readField(eOld);
+		particleIterator.execute(particles, storeState);
+
+		System.arraycopy(eOld, 0, e, 0, e.length);
+		residual(particles, e, r);
+		double tolerance = NEWTON_TOLERANCE * norm(r) + ABSOLUTE_TOLERANCE * (1 + norm(eOld));
+		newtonIterations = 0;
+		while (norm(r) > tolerance && newtonIterations < MAX_NEWTON_ITERATIONS) {
+			for (int i = 0; i < r.length; i++) {
+				b[i] = -r[i];
+			}
+			gmres(particles, b, delta);
+			for (int i = 0; i < e.length; i++) {
+				e[i] += delta[i];
+			}
+			residual(particles, e, r);
+			newtonIterations++;
+		}
+
+		// The last residual evaluation left the particles at the midpoint of their orbits.
+		writeField(e);
+		for (Particle p : particles) {
+			particleSolver.finish(p, timeStep);
+		}
+		boundaries.applyOnRange(particles, 0, particles.size(), particleSolver, force, timeStep);
+		boundaries.removeAbsorbed(particles);
+	}
+
+	/**
+	 * r = field - (field obtained from the particle orbits in the given field).
+	 */
+	private void residual(List<Particle> particles, double[] field, double[] r) {
+		for (int i = 0; i < field.length; i++) {
+			r[i] = 0.5 * (eOld[i] + field[i]);
+		}
+		writeField(r);
+		particleIterator.execute(particles, orbit);
+
+		grid.resetCurrent();
+		for (Particle p : particles) {
+			interpolator.interpolateCurrentDensity(p, grid);
+		}
+		fieldSolver.step(grid, timeStep);
+
+		readField(r);
+		for (int i = 0; i < field.length; i++) {
+			r[i] = field[i] - r[i];
+		}
+	}
+
+	/**
+	 * Solves J x = b approximately, where J is the Jacobian of the residual at e.
+	 * Expects r to hold the residual at e.
+	 */
+	private void gmres(List<Particle> particles, double[] b, double[] x) {
+		Arrays.fill(x, 0);
+		double beta = norm(b);
+		if (beta == 0) {
+			return;
+		}
+		for (int i = 0; i < b.length; i++) {
+			krylov[0][i] = b[i] / beta;
+		}
+		Arrays.fill(g, 0);
+		g[0] = beta;
+
+		int m = 0;
+		while (m < KRYLOV_DIMENSION) {
+			double[] w = krylov[m + 1];
+			jacobianTimes(particles, krylov[m], w);
+
+			// Modified Gram-Schmidt
+			for (int i = 0; i <= m; i++) {
+				double h = dot(w, krylov[i]);
+				hessenberg[i][m] = h;
+				for (int k = 0; k < w.length; k++) {
+					w[k] -= h * krylov[i][k];
+				}
+			}
+			double subdiagonal = norm(w);
+			hessenberg[m + 1][m] = subdiagonal;
+			if (subdiagonal != 0) {
+				for (int k = 0; k < w.length; k++) {
+					w[k] /= subdiagonal;
+				}
+			}
+
+			// Givens rotations reduce the Hessenberg matrix to upper triangular form
+			for (int i = 0; i < m; i++) {
+				double h0 = hessenberg[i][m];
+				double h1 = hessenberg[i + 1][m];
+				hessenberg[i][m] = cs[i] * h0 + sn[i] * h1;
+				hessenberg[i + 1][m] = -sn[i] * h0 + cs[i] * h1;
+			}
+			double denominator = Math.hypot(hessenberg[m][m], subdiagonal);
+			if (denominator == 0) {
+				cs[m] = 1;
+				sn[m] = 0;
+			} else {
+				cs[m] = hessenberg[m][m] / denominator;
+				sn[m] = subdiagonal / denominator;
+			}
+			hessenberg[m][m] = denominator;
+			hessenberg[m + 1][m] = 0;
+			g[m + 1] = -sn[m] * g[m];
+			g[m] = cs[m] * g[m];
+			m++;
+
+			if (Math.abs(g[m]) <= KRYLOV_TOLERANCE * beta || subdiagonal == 0) {
+				break;
+			}
+		}
+
+		// Back substitution
+		for (int i = m - 1; i >= 0; i--) {
+			double sum = g[i];
+			for (int k = i + 1; k < m; k++) {
+				sum -= hessenberg[i][k] * coefficients[k];
+			}
+			coefficients[i] = hessenberg[i][i] == 0 ? 0 : sum / hessenberg[i][i];
+		}
+		for (int i = 0; i < m; i++) {
+			for (int k = 0; k < x.length; k++) {
+				x[k] += coefficients[i] * krylov[i][k];
+			}
+		}
+	}
+
+	/**
+	 * out = J v as a finite difference of the residual at e (r holds the residual at e).
+	 */
+	private void jacobianTimes(List<Particle> particles, double[] v, double[] out) {
+		double epsilon = Math.sqrt(Math.ulp(1.0)) * (1 + norm(e)) / norm(v);
+		for (int i = 0; i < e.length; i++) {
+			ePerturbed[i] = e[i] + epsilon * v[i];
+		}
+		residual(particles, ePerturbed, rPerturbed);
+		for (int i = 0; i < out.length; i++) {
+			out[i] = (rPerturbed[i] - r[i]) / epsilon;
+		}
+	}
+
+	private void readField(double[] field) {
+		int i = 0;
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				field[i++] = grid.getEx(x, y);
+				field[i++] = grid.getEy(x, y);
+			}
+		}
+	}
+
+	private void writeField(double[] field) {
+		int i = 0;
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				grid.setEx(x, y, field[i++]);
+				grid.setEy(x, y, field[i++]);
+			}
+		}
+	}
+
+	private void allocate(int n) {
+		if (e != null && e.length == n) {
+			return;
+		}
+		eOld = new double[n];
+		e = new double[n];
+		r = new double[n];
+		b = new double[n];
+		delta = new double[n];
+		ePerturbed = new double[n];
+		rPerturbed = new double[n];
+		krylov = new double[KRYLOV_DIMENSION + 1][n];
+		hessenberg = new double[KRYLOV_DIMENSION + 1][KRYLOV_DIMENSION];
+		cs = new double[KRYLOV_DIMENSION];
+		sn = new double[KRYLOV_DIMENSION];
+		g = new double[KRYLOV_DIMENSION + 1];
+		coefficients = new double[KRYLOV_DIMENSION];
+	}
+
+	private static double dot(double[] a, double[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	private static double norm(double[] a) {
+		return Math.sqrt(dot(a, a));
+	}
+
+	private class StoreState implements ParticleAction {
+		public void execute(Particle particle) {
+			particleSolver.storeState(particle);
+		}
+	}
+
+	/**
+	 * Solves the midpoint orbit of a particle in the fields currently on the grid.
+	 */
+	private class Orbit implements ParticleAction {
+		public void execute(Particle particle) {
+			particleSolver.start(particle, timeStep);
+			for (int k = 0; k < MAX_ORBIT_ITERATIONS; k++) {
+				interpolator.interpolateToParticle(particle, grid);
+				double vx = particle.getVx();
+				double vy = particle.getVy();
+				double vz = particle.getVz();
+				particleSolver.step(particle, force, timeStep);
+				double change = Math.abs(particle.getVx() - vx) + Math.abs(particle.getVy() - vy)
+						+ Math.abs(particle.getVz() - vz);
+				double speed = Math.abs(particle.getVx()) + Math.abs(particle.getVy())
+						+ Math.abs(particle.getVz());
+				if (change <= ORBIT_TOLERANCE * speed) {
+					break;
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package org.openpixi.pixi.physics;
 
+import org.openpixi.pixi.physics.fields.CurrentFilter;
 import org.openpixi.pixi.physics.fields.PoissonSolver;
 import org.openpixi.pixi.physics.grid.Grid;
 import org.openpixi.pixi.physics.grid.Interpolation;
@@ -14,7 +15,17 @@ import java.util.List;
 public class ParticleGridInitializer {
 	public void initialize(Interpolation interpolation, PoissonSolver poissonSolver,
 	                       List<Particle> particles, Grid grid) {
+		initialize(interpolation, new CurrentFilter(), poissonSolver, particles, grid);
+	}
+
+	/**
+	 * Same as above but smooths the charge density with the given filter
+	 * before the initial fields are calculated.
+	 */
+	public void initialize(Interpolation interpolation, CurrentFilter filter,
+	                       PoissonSolver poissonSolver, List<Particle> particles, Grid grid) {
 		interpolation.interpolateChargedensity(particles, grid);
+		filter.filterCharge(grid);
 		poissonSolver.solve(grid);
 	}
 }
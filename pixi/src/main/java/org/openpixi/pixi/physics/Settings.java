@@ -1,6 +1,7 @@
 package org.openpixi.pixi.physics;
 
 import org.openpixi.pixi.diagnostics.methods.Diagnostics;
+import org.openpixi.pixi.parallel.WorkerTeam;
 import org.openpixi.pixi.parallel.cellaccess.CellIterator;
 import org.openpixi.pixi.parallel.cellaccess.ParallelCellIterator;
 import org.openpixi.pixi.parallel.cellaccess.SequentialCellIterator;
@@ -9,6 +10,8 @@ import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
 import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
 import org.openpixi.pixi.physics.collision.algorithms.CollisionAlgorithm;
 import org.openpixi.pixi.physics.collision.detectors.Detector;
+import org.openpixi.pixi.physics.fields.BinomialFilter;
+import org.openpixi.pixi.physics.fields.CurrentFilter;
 import org.openpixi.pixi.physics.fields.FieldSolver;
 import org.openpixi.pixi.physics.fields.PoissonSolver;
 import org.openpixi.pixi.physics.fields.PoissonSolverFFTPeriodic;
@@ -18,7 +21,9 @@ import org.openpixi.pixi.physics.force.Force;
 import org.openpixi.pixi.physics.grid.CloudInCell;
 import org.openpixi.pixi.physics.grid.GridBoundaryType;
 import org.openpixi.pixi.physics.grid.InterpolatorAlgorithm;
+import org.openpixi.pixi.physics.movement.Subcycling;
 import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.ParticleInjector;
 import org.openpixi.pixi.physics.particles.Particle;
 import org.openpixi.pixi.physics.particles.ParticleFactory.PositionDistribution;
 import org.openpixi.pixi.physics.particles.ParticleFactory.VelocityDistribution;
@@ -26,14 +31,16 @@ import org.openpixi.pixi.physics.solver.Euler;
 import org.openpixi.pixi.physics.solver.Solver;
 import org.openpixi.pixi.physics.solver.relativistic.LeapFrogRelativistic;
 import org.openpixi.pixi.physics.util.ClassCopier;
+import org.openpixi.pixi.physics.particles.CellGeometry;
 import org.openpixi.pixi.physics.particles.ParticleFactory;
 import org.openpixi.pixi.physics.particles.ParticleLoader;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.particles.ParticleMixedPrecision;
+import org.openpixi.pixi.physics.particles.Species;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import static org.openpixi.pixi.physics.GeneralBoundaryType.Hardwall;
 import static org.openpixi.pixi.physics.GeneralBoundaryType.Periodic;
 import org.openpixi.pixi.physics.grid.ChargeConservingCIC;
@@ -66,6 +73,9 @@ public class Settings {
 	private int spectrumStep = 300;
 	private String filePath = "default";
 	private GeneralBoundaryType boundaryType = GeneralBoundaryType.Periodic;
+	// Particle boundary of single faces (see SimpleParticleBoundaries), null where the boundary type applies
+	private ParticleBoundaryType[] particleBoundaryFaces = new ParticleBoundaryType[6];
+	private List<ParticleInjector> particleInjectors = new ArrayList<ParticleInjector>();
 	private InterpolatorAlgorithm interpolator = new ChargeConservingCIC();
 	//private InterpolatorAlgorithm interpolator = new CloudInCell();
 	// Grid related settings
@@ -78,6 +88,15 @@ public class Settings {
 	private FieldSolver gridSolver = new SimpleSolver();
 	private PoissonSolver poissonSolver = new PoissonSolverFFTPeriodic();
 	private boolean useGrid = true;
+	// Number of binomial filter passes applied to the current (0 switches the filter off)
+	private int filterPasses = 0;
+	private boolean filterCompensated = false;
+	private boolean filterCharge = false;
+	private boolean mixedPrecision = false;
+	// Solve the Poisson equation for E every step instead of advancing Maxwell's equations
+	private boolean electrostatic = false;
+	// Advance particles and field with the energy conserving implicit scheme
+	private boolean implicit = false;
 	private boolean relativistic = true;
 	private double eps0 = 1.0/(4*Math.PI);
 	private double mu0 = 4*Math.PI;
@@ -94,7 +113,10 @@ public class Settings {
 	private List<Particle> particles = new ArrayList<Particle>();
 	private Detector collisionDetector = new Detector();
 	private CollisionAlgorithm collisionResolver = new CollisionAlgorithm();
+	// Resolve collisions in conflict free batches with the particle iterator
+	private boolean parallelCollisions = false;
 	private Solver particleSolver = new LeapFrogRelativistic(speedOfLight);
+	private Subcycling subcycling = new Subcycling();
 	private List<Force> forces = new ArrayList<Force>();
 	// Diagnostics related settings
 	/**
@@ -107,9 +129,9 @@ public class Settings {
 	// Parallel (threaded) version settings
 	private int numOfThreads = 1;
 	/* The creation and start of the new threads is expensive. Therefore, in the parallel
-	 * simulation we use ExecutorService which is maintaining a fixed number of threads running
-	 * all the time and assigns work to the threads on the fly according to demand. */
-	private ExecutorService threadsExecutor;
+	 * simulation we use a WorkerTeam whose threads live for the whole run and are handed
+	 * each phase of the step through a barrier. */
+	private WorkerTeam workerTeam;
 	// Distributed version settings
 	private int numOfNodes = 1;
 	private String iplServer = "localhost";
@@ -190,6 +212,10 @@ public class Settings {
 		return collisionResolver;
 	}
 
+	public boolean getParallelCollisions() {
+		return parallelCollisions;
+	}
+
 	public FieldSolver getGridSolver() {
 		/*
 		 * For the distributed tests to pass we need to create new grid solver so that the two
@@ -246,6 +272,38 @@ public class Settings {
 		return useGrid;
 	}
 
+	public int getFilterPasses() {
+		return filterPasses;
+	}
+
+	public boolean getFilterCompensated() {
+		return filterCompensated;
+	}
+
+	public boolean getFilterCharge() {
+		return filterCharge;
+	}
+
+	public boolean getMixedPrecision() {
+		return mixedPrecision;
+	}
+
+	public boolean getElectrostatic() {
+		return electrostatic;
+	}
+
+	public boolean getImplicit() {
+		return implicit;
+	}
+
+	public Subcycling getSubcycling() {
+		return subcycling;
+	}
+
+	public int getNumOfThreads() {
+		return numOfThreads;
+	}
+
 	public String getIplPool() {
 		return iplPool;
 	}
@@ -276,6 +334,17 @@ public class Settings {
 		return combinedForce;
 	}
 
+	/**
+	 * Build the filter which smooths the deposited current.
+	 * Every simulation gets its own filter as the filter keeps its own buffers and cell iterator.
+	 */
+	public CurrentFilter getCurrentFilter() {
+		if (filterPasses == 0) {
+			return new CurrentFilter();
+		}
+		return new BinomialFilter(filterPasses, filterCompensated, filterCharge, getCellIterator());
+	}
+
 	private List<ParticleFactory> defaultParticleFactories() {
 		// Random seed
 		long seed = (long) Math.random();
@@ -309,12 +378,13 @@ public class Settings {
 
 	/**
 	 * If no particles are specified creates random particles.
+	 * In mixed precision mode the mobile particles are converted to ParticleMixedPrecision.
 	 *
 	 * !!! IMPORTANT !!! Always returns deep copy of the actual particle list!
 	 */
 	public List<Particle> getParticles() {
 		if (particles.size() == 0) {
-			this.particles = (new ParticleLoader()).load(defaultParticleFactories(),
+			this.particles = (new ParticleLoader(getParticleIterator())).load(defaultParticleFactories(),
 					simulationWidth, simulationHeight, simulationDepth);
 		}
 
@@ -323,8 +393,16 @@ public class Settings {
 
 	private List<Particle> cloneParticles() {
 		List<Particle> copy = new ArrayList<Particle>();
+		CellGeometry geometry = null;
 		for (Particle p : particles) {
-			copy.add(p.copy());
+			if (mixedPrecision && p instanceof ParticleFull) {
+				if (geometry == null) {
+					geometry = new CellGeometry(getCellWidth(), getCellHeight(), getCellDepth());
+				}
+				copy.add(new ParticleMixedPrecision(p, geometry));
+			} else {
+				copy.add(p.copy());
+			}
 		}
 		return copy;
 	}
@@ -351,11 +429,22 @@ public class Settings {
 		}
 	}
 
+	/**
+	 * @return the particle boundary of the face, null if the boundary type applies
+	 */
+	public ParticleBoundaryType getParticleBoundaryFace(int face) {
+		return particleBoundaryFaces[face];
+	}
+
+	public List<ParticleInjector> getParticleInjectors() {
+		return particleInjectors;
+	}
+
 	public ParticleIterator getParticleIterator() {
 		if (numOfThreads == 1) {
 			return new SequentialParticleIterator();
 		} else if (numOfThreads > 1) {
-			return new ParallelParticleIterator(numOfThreads, getThreadsExecutor());
+			return new ParallelParticleIterator(getWorkerTeam());
 		} else {
 			throw new RuntimeException("Invalid number of threads: " + numOfThreads);
 		}
@@ -365,20 +454,20 @@ public class Settings {
 		if (numOfThreads == 1) {
 			return new SequentialCellIterator();
 		} else if (numOfThreads > 1) {
-			return new ParallelCellIterator(numOfThreads, getThreadsExecutor());
+			return new ParallelCellIterator(getWorkerTeam());
 		} else {
 			throw new RuntimeException("Invalid number of threads: " + numOfThreads);
 		}
 	}
 
 	/**
-	 * Create threads executor on the fly according to demand.
+	 * Create worker team on the fly according to demand.
 	 */
-	private ExecutorService getThreadsExecutor() {
-		if (threadsExecutor == null) {
-			threadsExecutor = Executors.newFixedThreadPool(numOfThreads);
+	private WorkerTeam getWorkerTeam() {
+		if (workerTeam == null) {
+			workerTeam = new WorkerTeam(numOfThreads);
 		}
-		return threadsExecutor;
+		return workerTeam;
 	}
 
 	//----------------------------------------------------------------------------------------------
@@ -465,6 +554,29 @@ public class Settings {
 		this.collisionResolver = collisionResolver;
 	}
 
+	/**
+	 * Resolves the collision pairs in parallel batches of pairs without common particles.
+	 * Pairs sharing a particle may then be resolved in a different order.
+	 */
+	public void setParallelCollisions(boolean parallelCollisions) {
+		this.parallelCollisions = parallelCollisions;
+	}
+
+	/**
+	 * Overrides the particle boundary of a single face,
+	 * e.g. SimpleParticleBoundaries.X_MAX.
+	 */
+	public void setParticleBoundaryFace(int face, ParticleBoundaryType type) {
+		particleBoundaryFaces[face] = type;
+	}
+
+	/**
+	 * The face of the injector should be an injecting particle boundary.
+	 */
+	public void addParticleInjector(ParticleInjector injector) {
+		particleInjectors.add(injector);
+	}
+
 	public void setGridSolver(FieldSolver gridSolver) {
 		this.gridSolver = gridSolver;
 	}
@@ -550,6 +662,46 @@ public class Settings {
 		this.useGrid = useGrid;
 	}
 
+	public void setFilterPasses(int filterPasses) {
+		this.filterPasses = filterPasses;
+	}
+
+	public void setFilterCompensated(boolean filterCompensated) {
+		this.filterCompensated = filterCompensated;
+	}
+
+	public void setFilterCharge(boolean filterCharge) {
+		this.filterCharge = filterCharge;
+	}
+
+	public void setMixedPrecision(boolean mixedPrecision) {
+		this.mixedPrecision = mixedPrecision;
+	}
+
+	/**
+	 * In electrostatic mode the charge density is deposited every step and E is
+	 * obtained from the Poisson solver. B is not updated.
+	 */
+	public void setElectrostatic(boolean electrostatic) {
+		this.electrostatic = electrostatic;
+	}
+
+	/**
+	 * In implicit mode particles and electric field are advanced together with the energy
+	 * conserving Crank-Nicolson scheme (see ImplicitStep). The particle solver, the field
+	 * solver and the subcycling of the settings are not used then.
+	 */
+	public void setImplicit(boolean implicit) {
+		this.implicit = implicit;
+	}
+
+	/**
+	 * Pushes the particles of the species only every n-th time step (with n times the time step).
+	 */
+	public void setSubcycles(Species species, int n) {
+		subcycling.setSubcycles(species, n);
+	}
+
 	public void setIplPool(String iplPool) {
 		this.iplPool = iplPool;
 	}
@@ -582,13 +734,13 @@ public class Settings {
 
 	/**
 	 * Has to be called every time numOfThreads is set to a value higher than 1!
-	 * Terminates the threads used by executor service. Is idempotent (can be
+	 * Terminates the threads of the worker team. Is idempotent (can be
 	 * called multiple times without side-effects).
 	 */
 	public void terminateThreads() {
-		if (threadsExecutor != null) {
-			threadsExecutor.shutdown();
-			threadsExecutor = null;
+		if (workerTeam != null) {
+			workerTeam.terminate();
+			workerTeam = null;
 		}
 	}
 }
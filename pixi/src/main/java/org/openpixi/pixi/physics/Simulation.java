@@ -23,20 +23,33 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.FileWriter;
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
 import org.openpixi.pixi.physics.collision.algorithms.CollisionAlgorithm;
 import org.openpixi.pixi.physics.collision.detectors.Detector;
+import org.openpixi.pixi.physics.fields.CurrentFilter;
 import org.openpixi.pixi.physics.fields.PoissonSolver;
 import org.openpixi.pixi.physics.force.Force;
 import org.openpixi.pixi.physics.force.CombinedForce;
+import org.openpixi.pixi.physics.force.InteractionForce;
 import org.openpixi.pixi.physics.force.SimpleGridForce;
 import org.openpixi.pixi.physics.force.relativistic.SimpleGridForceRelativistic;
+import org.openpixi.pixi.physics.grid.ChargeConservingCIC;
 import org.openpixi.pixi.physics.grid.Grid;
 import org.openpixi.pixi.physics.grid.Interpolation;
-import org.openpixi.pixi.physics.grid.LocalInterpolation;
+import org.openpixi.pixi.physics.grid.ShapeFactorCache;
+import org.openpixi.pixi.physics.pipeline.PipelineBuilder;
 import org.openpixi.pixi.physics.movement.ParticleMover;
+import org.openpixi.pixi.physics.movement.Subcycling;
 import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaries;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.ParticleInjector;
 import org.openpixi.pixi.physics.movement.boundary.SimpleParticleBoundaries;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticlePool;
+import org.openpixi.pixi.physics.particles.SpeciesTable;
+import org.openpixi.pixi.physics.solver.AdaptiveSubstepping;
+import org.openpixi.pixi.physics.solver.Solver;
+import org.openpixi.pixi.physics.solver.relativistic.BorisRelativistic3D;
 import org.openpixi.pixi.physics.util.DoubleBox;
 
 import java.util.ArrayList;
@@ -85,12 +98,22 @@ public class Simulation {
 	public ArrayList<Particle> particles;
 	public CombinedForce f;
 	private ParticleMover mover;
+	/** Boundaries of the mover, they tell how many particles were absorbed */
+	private ParticleBoundaries particleBoundaries;
+	/** Bring new particles in after each push */
+	private List<ParticleInjector> particleInjectors = new ArrayList<ParticleInjector>();
+	/** Species of the particles of this simulation */
+	private SpeciesTable speciesTable = new SpeciesTable();
 	/**
 	 * Grid for dynamic field calculation
 	 */
 	public Grid grid;
 	public Detector detector;
 	public CollisionAlgorithm collisionalgorithm;
+	/** Resolves the collisions in parallel batches (null to resolve them sequentially) */
+	private ParticleIterator collisionIterator;
+	/** Updates the interaction forces */
+	private ParticleIterator interactionIterator;
 	/**
 	 * We can turn on or off the effect of the grid on particles by adding or
 	 * removing this force from the total force.
@@ -105,10 +128,35 @@ public class Simulation {
 	 * solver for the electrostatic poisson equation
 	 */
 	private PoissonSolver poisolver;
+	/**
+	 * smooths the deposited current before the field update
+	 */
+	private CurrentFilter filter;
+	/**
+	 * the fields are obtained from the charge density via the poisson solver
+	 * instead of the maxwell equations
+	 */
+	private boolean electrostatic = false;
+	/**
+	 * advances particles and fields with the implicit scheme (null in the explicit simulation)
+	 */
+	private ImplicitStep implicitStep;
 
 	public Interpolation getInterpolation() {
 		return interpolation;
 	}
+
+	/**
+	 * Describes the implementations the per-particle stages of step() use.
+	 */
+	public String getStepDescription() {
+		if (implicitStep != null) {
+			return "implicit Crank-Nicolson step, "
+					+ implicitStep.getNewtonIterations() + " Newton iterations in the last step";
+		}
+		return "interpolation: " + interpolation.getDescription()
+				+ ", push: " + mover.getPushDescription(f);
+	}
 	
 	public int getIterations() {
 		return iterations;
@@ -130,10 +178,24 @@ public class Simulation {
 		return speedOfLight;
 	}
 
+	public SpeciesTable getSpeciesTable() {
+		return speciesTable;
+	}
+
 	public ParticleMover getParticleMover() {
 		return mover;
 	}
 
+	/**
+	 * The solver which advances the particles in step().
+	 */
+	public Solver getParticleSolver() {
+		if (implicitStep != null) {
+			return implicitStep.getParticleSolver();
+		}
+		return mover.getSolver();
+	}
+
 	/**
 	 * Constructor for non distributed simulation.
 	 */
@@ -150,18 +212,43 @@ public class Simulation {
 		relativistic = settings.getRelativistic();
 		eps0 = settings.getEps0();
 		mu0 = settings.getMu0();
+		electrostatic = settings.getElectrostatic();
 
 		// TODO make particles a generic list
 		particles = (ArrayList<Particle>) settings.getParticles();
+		assignSlots(settings);
+		registerSpecies();
 		f = settings.getForce();
 
-		ParticleBoundaries particleBoundaries = new SimpleParticleBoundaries(
-				new DoubleBox(0, width, 0, height),								//Has to be changed!!!
-				settings.getParticleBoundary());
+		SimpleParticleBoundaries particleBoundaries;
+		if (settings.getGridCellsZ() > 1) {
+			particleBoundaries = new SimpleParticleBoundaries(
+					new DoubleBox(0, width, 0, height), 0, depth, settings.getParticleBoundary());
+		} else {
+			particleBoundaries = new SimpleParticleBoundaries(
+					new DoubleBox(0, width, 0, height), settings.getParticleBoundary());
+		}
+		for (int face = 0; face < SimpleParticleBoundaries.NUM_OF_FACES; face++) {
+			if (settings.getParticleBoundaryFace(face) != null) {
+				particleBoundaries.setFaceType(face, settings.getParticleBoundaryFace(face));
+			}
+		}
+		checkOpenFaces(settings, particleBoundaries);
+		// Absorbed particles are injected again with their slots.
+		ParticlePool particlePool = new ParticlePool(particles.size());
+		particleBoundaries.setParticlePool(particlePool);
+		particleInjectors = settings.getParticleInjectors();
+		for (ParticleInjector injector : particleInjectors) {
+			injector.initialize(width, height, (settings.getGridCellsZ() > 1) ? depth : 0, particlePool);
+			injector.registerSpecies(speciesTable);
+		}
+		Subcycling subcycling = settings.getSubcycling().forSpecies(speciesTable);
 		mover = new ParticleMover(
 				settings.getParticleSolver(),
 				particleBoundaries,
 				settings.getParticleIterator());
+		mover.setSubcycling(subcycling);
+		this.particleBoundaries = particleBoundaries;
 
 		grid = new Grid(settings);
 		if (settings.useGrid()) {
@@ -169,16 +256,28 @@ public class Simulation {
 		} else {
 			turnGridForceOff();
 		}
+		checkForces(settings.getParticleSolver());
 
 		poisolver = settings.getPoissonSolver();
-		interpolation = new LocalInterpolation(
-				settings.getInterpolator(), settings.getParticleIterator());
-		particleGridInitializer.initialize(interpolation, poisolver, particles, grid);
+		filter = settings.getCurrentFilter();
+		interpolation = PipelineBuilder.createInterpolation(settings);
+		interpolation.setSubcycling(subcycling);
+		particleGridInitializer.initialize(interpolation, filter, poisolver, particles, grid);
 
 		detector = settings.getCollisionDetector();
 		collisionalgorithm = settings.getCollisionAlgorithm();
+		if (settings.getParallelCollisions()) {
+			collisionIterator = settings.getParticleIterator();
+		}
+		interactionIterator = settings.getParticleIterator();
 
-		prepareAllParticles();
+		if (settings.getImplicit()) {
+			// Positions and velocities stay at the same time, so there is nothing to prepare.
+			implicitStep = new ImplicitStep(settings, grid, particleBoundaries);
+		} else {
+			updateInteractionForces();
+			prepareAllParticles();
+		}
 		
 		clearFile();
 	}
@@ -208,14 +307,26 @@ public class Simulation {
 		this.relativistic = settings.getRelativistic();
 		this.eps0 = settings.getEps0();
 		this.mu0 = settings.getMu0();
+		if (settings.getElectrostatic()) {
+			// The poisson solver needs the charge density of the whole grid.
+			throw new RuntimeException("Electrostatic mode is not supported in the distributed simulation.");
+		}
+		if (settings.getImplicit()) {
+			throw new RuntimeException("The implicit scheme is not supported in the distributed simulation.");
+		}
 
 		this.particles = (ArrayList<Particle>) particles;
+		assignSlots(settings);
+		registerSpecies();
 		f = settings.getForce();
 
+		Subcycling subcycling = settings.getSubcycling().forSpecies(speciesTable);
 		mover = new ParticleMover(
 				settings.getParticleSolver(),
 				particleBoundaries,
 				settings.getParticleIterator());
+		mover.setSubcycling(subcycling);
+		this.particleBoundaries = particleBoundaries;
 
 		this.grid = grid;
 		if (settings.useGrid()) {
@@ -223,17 +334,101 @@ public class Simulation {
 		} else {
 			turnGridForceOff();
 		}
+		checkForces(settings.getParticleSolver());
 
 		this.interpolation = interpolation;
+		this.interpolation.setSubcycling(subcycling);
+		this.filter = settings.getCurrentFilter();
 
 		detector = settings.getCollisionDetector();
 		collisionalgorithm = settings.getCollisionAlgorithm();
+		if (settings.getParallelCollisions()) {
+			collisionIterator = settings.getParticleIterator();
+		}
+		interactionIterator = settings.getParticleIterator();
 
+		updateInteractionForces();
 		prepareAllParticles();
 		
 		clearFile();
 	}
 
+	/**
+	 * Gives every particle its own slot in the per-particle side storage.
+	 * The shape factors cached for the old slots are dropped.
+	 */
+	private void assignSlots(Settings settings) {
+		for (int i = 0; i < particles.size(); i++) {
+			particles.get(i).setSlot(i);
+		}
+		if (settings.getInterpolator() instanceof ChargeConservingCIC) {
+			ShapeFactorCache shapeFactors =
+					((ChargeConservingCIC) settings.getInterpolator()).getShapeFactorCache();
+			if (shapeFactors != null) {
+				shapeFactors.invalidateAll();
+			}
+		}
+	}
+
+	/**
+	 * Absorbed and injected particles deposit no current in the step in which they cross
+	 * the face, so the charge conserving current would leave their charge on the grid.
+	 * Only the modes in which the field does not depend on the continuity of the deposited
+	 * charge accept such faces.
+	 */
+	private static void checkOpenFaces(Settings settings, SimpleParticleBoundaries particleBoundaries) {
+		if (settings.getElectrostatic() || settings.getImplicit()
+				|| !(settings.getInterpolator() instanceof ChargeConservingCIC)) {
+			return;
+		}
+		for (int face = 0; face < SimpleParticleBoundaries.NUM_OF_FACES; face++) {
+			ParticleBoundaryType type = particleBoundaries.getFaceType(face);
+			if (type == ParticleBoundaryType.Absorbing || type == ParticleBoundaryType.Injecting) {
+				throw new RuntimeException("Absorbing and injecting particle boundaries need the "
+						+ "electrostatic or the implicit mode or the CloudInCell interpolator.");
+			}
+		}
+	}
+
+	/**
+	 * BorisRelativistic3D reads the fields from the particle and ignores the force passed to
+	 * it, so any other force would silently be dropped.
+	 */
+	private void checkForces(Solver solver) {
+		if (solver instanceof AdaptiveSubstepping) {
+			solver = ((AdaptiveSubstepping) solver).getSolver();
+		}
+		if (!(solver instanceof BorisRelativistic3D)) {
+			return;
+		}
+		for (Force force : f.forces) {
+			if (!(force instanceof SimpleGridForceRelativistic || force instanceof SimpleGridForce)) {
+				throw new RuntimeException("BorisRelativistic3D only supports the force of the grid, "
+						+ "not " + force.getClass().getSimpleName() + ".");
+			}
+		}
+	}
+
+	/**
+	 * Lets the particles with the same constants share one species of the table.
+	 */
+	private void registerSpecies() {
+		for (Particle p : particles) {
+			speciesTable.register(p);
+		}
+	}
+
+	/**
+	 * Prepares the forces between the particles for the current positions.
+	 */
+	private void updateInteractionForces() {
+		for (Force force : f.forces) {
+			if (force instanceof InteractionForce) {
+				((InteractionForce) force).update(particles, interactionIterator);
+			}
+		}
+	}
+
 	public void turnGridForceOn() {
 		if (!usingGridForce) {
 			if(relativistic == true) {
@@ -267,15 +462,78 @@ public class Simulation {
 			writeToFile(tstep*tottime);
 			if( (tottime % specstep) == 0) writeSpecFile(tottime);
 		}
-		particlePush();
+		updateInteractionForces();
+		if (implicitStep != null) {
+			implicitStep.step(particles, grid, f, tstep);
+		} else {
+			particlePush();
+		}
+		int numInjected = injectParticles();
+		if (particleBoundaries.getNumRemoved() > 0 || numInjected > 0) {
+			particlesChanged();
+		}
 		detector.run();
-		collisionalgorithm.collide(detector.getOverlappedPairs(), f, mover.getSolver(), tstep);
-		interpolation.interpolateToGrid(particles, grid, tstep);
-		grid.updateGrid(tstep);
+		if (collisionIterator != null) {
+			collisionalgorithm.collide(detector.getOverlappedPairs(), particles, f,
+					getParticleSolver(), tstep, collisionIterator);
+		} else {
+			collisionalgorithm.collide(detector.getOverlappedPairs(), particles, f,
+					getParticleSolver(), tstep);
+		}
+		if (implicitStep != null) {
+			// The field was advanced together with the particles.
+		} else if (electrostatic) {
+			solveElectrostatic();
+		} else {
+			interpolation.interpolateToGrid(particles, grid, tstep);
+			filter.filterCurrent(grid);
+			grid.updateGrid(tstep);
+		}
 
 		tottime++;
 	}
 
+	/**
+	 * Adds the particles of the injectors. In the explicit simulation they are prepared
+	 * like the initial particles.
+	 * @return number of added particles
+	 */
+	private int injectParticles() {
+		int numInjected = 0;
+		for (ParticleInjector injector : particleInjectors) {
+			int first = particles.size();
+			if (injector.inject(particles, tstep) > 0 && implicitStep == null) {
+				mover.prepare(particles.subList(first, particles.size()), f, tstep);
+			}
+			numInjected += particles.size() - first;
+		}
+		return numInjected;
+	}
+
+	/**
+	 * Particles were removed or added, so the indices into the particle list which the
+	 * interaction forces and the collision detector keep may refer to other particles.
+	 */
+	private void particlesChanged() {
+		detector.reset(particles);
+		for (Force force : f.forces) {
+			if (force instanceof InteractionForce) {
+				((InteractionForce) force).invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Replaces the current deposition and the maxwell solver in electrostatic mode.
+	 * E follows from the charge density at the new particle positions, B is left untouched.
+	 */
+	private void solveElectrostatic() {
+		interpolation.interpolateChargedensity(particles, grid);
+		filter.filterCharge(grid);
+		grid.storeFields();
+		poisolver.solve(grid);
+	}
+
 	/**
 	 * Whether the simulation should continue.
 	 * @return
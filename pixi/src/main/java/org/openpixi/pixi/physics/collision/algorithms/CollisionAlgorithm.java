@@ -1,21 +1,104 @@
 package org.openpixi.pixi.physics.collision.algorithms;
 
-import java.util.ArrayList;
+import java.util.List;
 
-import org.openpixi.pixi.physics.*;
-import org.openpixi.pixi.physics.collision.util.Pair;
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.RangeAction;
+import org.openpixi.pixi.physics.collision.util.PairBuffer;
+import org.openpixi.pixi.physics.collision.util.PairColoring;
 import org.openpixi.pixi.physics.force.Force;
 import org.openpixi.pixi.physics.particles.Particle;
 import org.openpixi.pixi.physics.solver.Solver;
 
+/**
+ * Resolves the collisions of the pairs found by a detector. Subclasses implement
+ * doCollision(); this class does not change the particles.
+ */
 public class CollisionAlgorithm {
 	
+	private PairColoring coloring = new PairColoring();
+	private ResolveBatch resolveBatch = new ResolveBatch();
+	
 	public CollisionAlgorithm() {
 		
 	}
 	
-	public void collide(ArrayList<Pair<Particle, Particle>> parlist, Force f, Solver s, double step) {
+	public void collide(PairBuffer pairs, List<Particle> particles, Force f, Solver s, double step) {
+		
+		for(int i = 0; i < pairs.size(); i++) {
+			resolve(particles.get(pairs.getFirst(i)), particles.get(pairs.getSecond(i)), f, s, step);
+		}
+	}
+	
+	/**
+	 * Resolves the pairs in parallel. The pairs are split into batches in which every
+	 * particle appears at most once (see PairColoring); the batches are resolved one after
+	 * the other, the pairs of a batch in parallel. The result does not depend on the number
+	 * of threads, but pairs which share a particle may be resolved in a different order
+	 * than in collide().
+	 */
+	public void collide(PairBuffer pairs, List<Particle> particles, Force f, Solver s, double step,
+			ParticleIterator particleIterator) {
+		
+		coloring.color(pairs, particles.size());
+		resolveBatch.pairs = pairs;
+		resolveBatch.particles = particles;
+		resolveBatch.force = f;
+		resolveBatch.solver = s;
+		resolveBatch.step = step;
+		for (int batch = 0; batch < coloring.getNumBatches(); batch++) {
+			resolveBatch.offset = coloring.getBatchStart(batch);
+			particleIterator.execute(coloring.getBatchSize(batch), resolveBatch);
+		}
+		resolveBatch.particles = null;
+	}
+	
+	/**
+	 * Changes velocities (and positions) of two overlapping particles.
+	 * The velocities are given at the same time as the positions.
+	 */
+	protected void doCollision(Particle p1, Particle p2) {
+		
+	}
+	
+	/**
+	 * Whether the two particles touch. Only x and y are taken into account.
+	 */
+	protected boolean touch(Particle p1, Particle p2) {
+		
+		double distanceSquare = ((p1.getX() - p2.getX()) * (p1.getX() - p2.getX()) + (p1.getY() - p2.getY()) * (p1.getY() - p2.getY()));
+		return distanceSquare <= ((p1.getRadius() + p2.getRadius()) * (p1.getRadius() + p2.getRadius()));
+	}
+	
+	private void resolve(Particle p1, Particle p2, Force f, Solver s, double step) {
+		
+		if(touch(p1, p2)) {
+			s.complete(p1, f, step);
+			s.complete(p2, f, step);
+			doCollision(p1, p2);
+			s.prepare(p1, f, step);
+			s.prepare(p2, f, step);
+		}
+	}
+	
+	private class ResolveBatch implements RangeAction {
+		
+		/* Set before each batch */
+		private PairBuffer pairs;
+		private List<Particle> particles;
+		private Force force;
+		private Solver solver;
+		private double step;
+		/** Position of the batch in the order of the coloring */
+		private int offset;
 		
+		public void execute(int from, int to) {
+			for (int k = from; k < to; k++) {
+				int pair = coloring.getPair(offset + k);
+				resolve(particles.get(pairs.getFirst(pair)), particles.get(pairs.getSecond(pair)),
+						force, solver, step);
+			}
+		}
 	}
 
 }
@@ -0,0 +1,340 @@
+package org.openpixi.pixi.physics.collision.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.RangeAction;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.collision.util.PairBuffer;
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.Species;
+import org.openpixi.pixi.physics.solver.Solver;
+import org.openpixi.pixi.physics.util.StreamRandom;
+
+/**
+ * Binary Coulomb collisions after Takizuka and Abe (J. Comput. Phys. 25, 205 (1977)).
+ *
+ * In every step the particles of each cell are paired at random. The relative velocity
+ * u of a pair is rotated by the angle theta, where tan(theta/2) is normally distributed
+ * with the variance
+ *
+ * &lt;tan^2(theta/2)&gt; = q1^2 q2^2 n lnLambda dt / (8 pi eps0^2 m12^2 u^3),
+ *
+ * m12 is the reduced mass. The particles of one species are paired among each other and
+ * n is the number of particles of the species per volume in the cell; if their number is
+ * odd, the first three collide with each other with half of the time step. For each pair
+ * of species every particle of the more numerous one collides with one of the other, whose
+ * particles collide several times, and n is the lower density n_L of the two species.
+ * Momentum and kinetic energy of every pair are conserved exactly. Particles without mass
+ * do not take part.
+ *
+ * The pairs of the detector are not used, the cost is O(N) per step. The random numbers
+ * of a cell come from their own stream derived from the seed, the step and the cell, so
+ * the result does not depend on the number of threads. The velocities are treated as
+ * non-relativistic.
+ */
+public class CoulombCollision extends CollisionAlgorithm {
+
+	private double coulombLogarithm;
+	private double eps0;
+	private long seed;
+
+	private int numCellsX;
+	private int numCellsY;
+	private int numCellsZ;
+	private double cellWidth;
+	private double cellHeight;
+	private double cellDepth;
+
+	/** Number of the current step, selects the random streams */
+	private long stepCount;
+
+	/*
+	 * Particles sorted by cell and species; set in each step for the inner class. The group
+	 * of a particle is cell * number of species + species, groupStart[group] is the position
+	 * of its first particle in sortedParticles.
+	 */
+	private List<Particle> particles;
+	private Force force;
+	private Solver solver;
+	private double timeStep;
+	private int numCells;
+	private List<Species> species = new ArrayList<Species>();
+	private int[] particleCell = new int[0];
+	private int[] particleSpecies = new int[0];
+	private int[] sortedParticles = new int[0];
+	private int[] groupStart = new int[0];
+
+	/** Random numbers of each thread, moved to the stream of the cell before it collides */
+	private ThreadLocal<StreamRandom> random = new ThreadLocal<StreamRandom>() {
+		@Override
+		protected StreamRandom initialValue() {
+			return new StreamRandom(0, 0);
+		}
+	};
+
+	private CollideCells collideCells = new CollideCells();
+
+	public CoulombCollision(Settings settings, double coulombLogarithm, long seed) {
+		this.coulombLogarithm = coulombLogarithm;
+		this.seed = seed;
+		this.eps0 = settings.getEps0();
+		this.numCellsX = settings.getGridCellsX();
+		this.numCellsY = settings.getGridCellsY();
+		this.numCellsZ = settings.getGridCellsZ();
+		this.cellWidth = settings.getCellWidth();
+		this.cellHeight = settings.getCellHeight();
+		this.cellDepth = settings.getCellDepth();
+		this.numCells = numCellsX * numCellsY * numCellsZ;
+	}
+
+	public double getCoulombLogarithm() {
+		return coulombLogarithm;
+	}
+
+	@Override
+	public void collide(PairBuffer pairs, List<Particle> particles, Force f, Solver s, double step) {
+		sortByCell(particles, f, s, step);
+		collideCells.execute(0, numCells);
+		finishStep();
+	}
+
+	@Override
+	public void collide(PairBuffer pairs, List<Particle> particles, Force f, Solver s, double step,
+			ParticleIterator particleIterator) {
+		sortByCell(particles, f, s, step);
+		particleIterator.execute(numCells, collideCells);
+		finishStep();
+	}
+
+	/**
+	 * Counting sort of the indices of the particles with mass by cell and species.
+	 */
+	private void sortByCell(List<Particle> particles, Force f, Solver s, double step) {
+		this.particles = particles;
+		this.force = f;
+		this.solver = s;
+		this.timeStep = step;
+
+		int n = particles.size();
+		if (particleCell.length < n) {
+			particleCell = new int[n];
+			particleSpecies = new int[n];
+			sortedParticles = new int[n];
+		}
+		species.clear();
+		for (int i = 0; i < n; i++) {
+			Particle p = particles.get(i);
+			if (!(p.getMass() > 0)) {
+				particleCell[i] = -1;
+				continue;
+			}
+			int x = clamp((int) Math.floor(p.getX() / cellWidth), numCellsX);
+			int y = clamp((int) Math.floor(p.getY() / cellHeight), numCellsY);
+			int z = clamp((int) Math.floor(p.getZ() / cellDepth), numCellsZ);
+			particleCell[i] = (x * numCellsY + y) * numCellsZ + z;
+			particleSpecies[i] = speciesNumber(p.getSpecies());
+		}
+
+		int numSpecies = species.size();
+		int numGroups = numCells * numSpecies;
+		if (groupStart.length < numGroups + 1) {
+			groupStart = new int[numGroups + 1];
+		}
+		for (int group = 0; group <= numGroups; group++) {
+			groupStart[group] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			if (particleCell[i] >= 0) {
+				groupStart[particleCell[i] * numSpecies + particleSpecies[i] + 1]++;
+			}
+		}
+		for (int group = 0; group < numGroups; group++) {
+			groupStart[group + 1] += groupStart[group];
+		}
+		for (int i = 0; i < n; i++) {
+			if (particleCell[i] >= 0) {
+				// groupStart[g] temporarily points to the next free entry of group g
+				sortedParticles[groupStart[particleCell[i] * numSpecies + particleSpecies[i]]++] = i;
+			}
+		}
+		for (int group = numGroups; group > 0; group--) {
+			groupStart[group] = groupStart[group - 1];
+		}
+		groupStart[0] = 0;
+	}
+
+	/**
+	 * Number of the species in this step. Particles which were set up without a species
+	 * table have species of their own, these are told apart by their constants.
+	 */
+	private int speciesNumber(Species s) {
+		for (int k = 0; k < species.size(); k++) {
+			if (species.get(k) == s) {
+				return k;
+			}
+		}
+		for (int k = 0; k < species.size(); k++) {
+			if (species.get(k).hasSameConstants(s)) {
+				return k;
+			}
+		}
+		species.add(s);
+		return species.size() - 1;
+	}
+
+	private void finishStep() {
+		particles = null;
+		stepCount++;
+	}
+
+	private static int clamp(int index, int numCells) {
+		return Math.max(0, Math.min(numCells - 1, index));
+	}
+
+	/**
+	 * Pairs and collides the particles of one cell.
+	 */
+	private void collideCell(int cell) {
+		int numSpecies = species.size();
+		int firstGroup = cell * numSpecies;
+		if (groupStart[firstGroup + numSpecies] - groupStart[firstGroup] < 2) {
+			return;
+		}
+		StreamRandom random = this.random.get();
+		random.setStream(seed, stepCount * numCells + cell);
+
+		// Random pairing: shuffle the particles of each species (Fisher-Yates)
+		for (int group = firstGroup; group < firstGroup + numSpecies; group++) {
+			int start = groupStart[group];
+			for (int i = groupStart[group + 1] - start - 1; i > 0; i--) {
+				int k = random.nextInt(i + 1);
+				int tmp = sortedParticles[start + i];
+				sortedParticles[start + i] = sortedParticles[start + k];
+				sortedParticles[start + k] = tmp;
+			}
+		}
+
+		double volume = cellWidth * cellHeight * cellDepth;
+		for (int group = firstGroup; group < firstGroup + numSpecies; group++) {
+			collideWithin(groupStart[group], groupStart[group + 1] - groupStart[group], volume, random);
+		}
+		for (int group1 = firstGroup; group1 < firstGroup + numSpecies; group1++) {
+			for (int group2 = group1 + 1; group2 < firstGroup + numSpecies; group2++) {
+				collideBetween(group1, group2, volume, random);
+			}
+		}
+	}
+
+	/**
+	 * Collides the particles of one species in a cell with each other.
+	 */
+	private void collideWithin(int start, int count, double volume, StreamRandom random) {
+		if (count < 2) {
+			return;
+		}
+		double density = count / volume;
+		int first = 0;
+		if (count % 2 == 1) {
+			double halfStep = 0.5 * timeStep;
+			scatter(start, start + 1, density, halfStep, random);
+			scatter(start + 1, start + 2, density, halfStep, random);
+			scatter(start, start + 2, density, halfStep, random);
+			first = 3;
+		}
+		for (int i = first; i < count; i += 2) {
+			scatter(start + i, start + i + 1, density, timeStep, random);
+		}
+	}
+
+	/**
+	 * Collides the particles of two species in a cell with each other.
+	 */
+	private void collideBetween(int group1, int group2, double volume, StreamRandom random) {
+		int count1 = groupStart[group1 + 1] - groupStart[group1];
+		int count2 = groupStart[group2 + 1] - groupStart[group2];
+		if (count1 == 0 || count2 == 0) {
+			return;
+		}
+		int larger = (count1 >= count2) ? group1 : group2;
+		int smaller = (count1 >= count2) ? group2 : group1;
+		int largerCount = Math.max(count1, count2);
+		int smallerCount = Math.min(count1, count2);
+		double density = smallerCount / volume;
+		for (int i = 0; i < largerCount; i++) {
+			scatter(groupStart[larger] + i, groupStart[smaller] + i % smallerCount,
+					density, timeStep, random);
+		}
+	}
+
+	/**
+	 * Rotates the relative velocity of the particles at the given positions of the sorted list.
+	 */
+	private void scatter(int position1, int position2, double density, double dt, StreamRandom random) {
+		Particle p1 = particles.get(sortedParticles[position1]);
+		Particle p2 = particles.get(sortedParticles[position2]);
+		double m1 = p1.getMass();
+		double m2 = p2.getMass();
+
+		solver.complete(p1, force, timeStep);
+		solver.complete(p2, force, timeStep);
+
+		double ux = p1.getVx() - p2.getVx();
+		double uy = p1.getVy() - p2.getVy();
+		double uz = p1.getVz() - p2.getVz();
+		double u = Math.sqrt(ux * ux + uy * uy + uz * uz);
+		// The random numbers are drawn even if u = 0, so that the streams stay aligned.
+		double gauss = random.nextGaussian();
+		double phi = 2 * Math.PI * random.nextDouble();
+
+		if (u > 0) {
+			double m12 = m1 * m2 / (m1 + m2);
+			double q1q2 = p1.getCharge() * p2.getCharge();
+			double variance = q1q2 * q1q2 * density * coulombLogarithm * dt
+					/ (8 * Math.PI * eps0 * eps0 * m12 * m12 * u * u * u);
+			double delta = gauss * Math.sqrt(variance);
+			double sinTheta = 2 * delta / (1 + delta * delta);
+			double oneMinusCosTheta = 2 * delta * delta / (1 + delta * delta);
+			double cosPhi = Math.cos(phi);
+			double sinPhi = Math.sin(phi);
+
+			double uPerp = Math.sqrt(ux * ux + uy * uy);
+			double dux;
+			double duy;
+			double duz;
+			if (uPerp > 0) {
+				dux = (ux / uPerp) * uz * sinTheta * cosPhi - (uy / uPerp) * u * sinTheta * sinPhi
+						- ux * oneMinusCosTheta;
+				duy = (uy / uPerp) * uz * sinTheta * cosPhi + (ux / uPerp) * u * sinTheta * sinPhi
+						- uy * oneMinusCosTheta;
+				duz = -uPerp * sinTheta * cosPhi - uz * oneMinusCosTheta;
+			} else {
+				dux = u * sinTheta * cosPhi;
+				duy = u * sinTheta * sinPhi;
+				duz = -u * oneMinusCosTheta;
+			}
+
+			double f1 = m2 / (m1 + m2);
+			double f2 = m1 / (m1 + m2);
+			p1.setVx(p1.getVx() + f1 * dux);
+			p1.setVy(p1.getVy() + f1 * duy);
+			p1.setVz(p1.getVz() + f1 * duz);
+			p2.setVx(p2.getVx() - f2 * dux);
+			p2.setVy(p2.getVy() - f2 * duy);
+			p2.setVz(p2.getVz() - f2 * duz);
+		}
+
+		solver.prepare(p1, force, timeStep);
+		solver.prepare(p2, force, timeStep);
+	}
+
+	private class CollideCells implements RangeAction {
+		public void execute(int fromCell, int toCell) {
+			for (int cell = fromCell; cell < toCell; cell++) {
+				collideCell(cell);
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package org.openpixi.pixi.physics.collision.algorithms;
+
+import org.openpixi.pixi.physics.particles.Particle;
+
+/**
+ * Elastic collision of two spheres in 3D. The overlap is removed along the line between
+ * the centers and the velocity components along this line are exchanged as in a head-on
+ * collision, the perpendicular components stay. Momentum and kinetic energy are conserved.
+ */
+public class ElasticCollision3D extends CollisionAlgorithm {
+
+	public ElasticCollision3D() {
+
+		super();
+	}
+
+	@Override
+	protected boolean touch(Particle p1, Particle p2) {
+
+		double dx = p1.getX() - p2.getX();
+		double dy = p1.getY() - p2.getY();
+		double dz = p1.getZ() - p2.getZ();
+		double radii = p1.getRadius() + p2.getRadius();
+		return dx * dx + dy * dy + dz * dz <= radii * radii;
+	}
+
+	@Override
+	protected void doCollision(Particle p1, Particle p2) {
+
+		double dx = p1.getX() - p2.getX();
+		double dy = p1.getY() - p2.getY();
+		double dz = p1.getZ() - p2.getZ();
+		double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		if (distance == 0) {
+			// No direction defined
+			return;
+		}
+
+		//unit vector from p2 to p1
+		double nx = dx / distance;
+		double ny = dy / distance;
+		double nz = dz / distance;
+
+		double m1 = p1.getMass();
+		double m2 = p2.getMass();
+
+		//moving the balls apart, weighted with the mass of the other ball
+		double overlap = p1.getRadius() + p2.getRadius() - distance;
+		double shift1 = overlap * m2 / (m1 + m2);
+		double shift2 = overlap * m1 / (m1 + m2);
+		p1.setX(p1.getX() + shift1 * nx);
+		p1.setY(p1.getY() + shift1 * ny);
+		p1.setZ(p1.getZ() + shift1 * nz);
+		p2.setX(p2.getX() - shift2 * nx);
+		p2.setY(p2.getY() - shift2 * ny);
+		p2.setZ(p2.getZ() - shift2 * nz);
+
+		//relative velocity along the normal; only approaching balls collide
+		double vn = (p1.getVx() - p2.getVx()) * nx + (p1.getVy() - p2.getVy()) * ny
+				+ (p1.getVz() - p2.getVz()) * nz;
+		if (vn >= 0) {
+			return;
+		}
+
+		double dv1 = -2 * m2 / (m1 + m2) * vn;
+		double dv2 = 2 * m1 / (m1 + m2) * vn;
+		p1.setVx(p1.getVx() + dv1 * nx);
+		p1.setVy(p1.getVy() + dv1 * ny);
+		p1.setVz(p1.getVz() + dv1 * nz);
+		p2.setVx(p2.getVx() + dv2 * nx);
+		p2.setVy(p2.getVy() + dv2 * ny);
+		p2.setVz(p2.getVz() + dv2 * nz);
+	}
+}
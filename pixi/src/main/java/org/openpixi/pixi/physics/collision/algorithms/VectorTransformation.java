@@ -1,11 +1,6 @@
 package org.openpixi.pixi.physics.collision.algorithms;
 
-import java.util.ArrayList;
-
-import org.openpixi.pixi.physics.collision.util.Pair;
-import org.openpixi.pixi.physics.force.Force;
 import org.openpixi.pixi.physics.particles.Particle;
-import org.openpixi.pixi.physics.solver.Solver;
 
 public class VectorTransformation extends CollisionAlgorithm{
 	
@@ -14,7 +9,8 @@ public class VectorTransformation extends CollisionAlgorithm{
 		super();
 	}		
 		
-	private void doCollision(Particle p1, Particle p2) {
+	@Override
+	protected void doCollision(Particle p1, Particle p2) {
 		
 		//distance between the particles
 		double distance = Math.sqrt((p1.getX() - p2.getX()) * (p1.getX() - p2.getX()) + (p1.getY() - p2.getY()) * (p1.getY() - p2.getY()));
@@ -57,21 +53,4 @@ public class VectorTransformation extends CollisionAlgorithm{
 		
 		p2.setVy(v2TY - dnY * ((p2.getMass() - p1.getMass()) * Math.sqrt(v2NX * v2NX + v2NY * v2NY) + 2 * p1.getMass() * Math.sqrt(v1NX * v1NX + v1NY * v1NY)) / (p1.getMass() + p2.getMass()));
 	}
-	
-	public void collide(ArrayList<Pair<Particle, Particle>> pairs, Force f, Solver s, double step) {
-		
-		for(int i = 0; i < pairs.size(); i++) {
-			Particle p1 = (Particle) pairs.get(i).getFirst();
-			Particle p2 = (Particle) pairs.get(i).getSecond();
-		
-			double distanceSquare = ((p1.getX() - p2.getX()) * (p1.getX() - p2.getX()) + (p1.getY() - p2.getY()) * (p1.getY() - p2.getY()));
-			if(distanceSquare <= ((p1.getRadius() + p2.getRadius()) * (p1.getRadius() + p2.getRadius()))) {
-				s.complete(p1, f, step);
-				s.complete(p2, f, step);
-				doCollision(p1, p2);
-				s.prepare(p1, f, step);
-				s.prepare(p2, f, step);
-			}
-		}
-	}
 }
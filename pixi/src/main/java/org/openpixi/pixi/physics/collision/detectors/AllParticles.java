@@ -1,16 +1,10 @@
 package org.openpixi.pixi.physics.collision.detectors;
 
 import java.util.ArrayList;
-import org.openpixi.pixi.physics.*;
-import org.openpixi.pixi.physics.collision.util.Pair;
 import org.openpixi.pixi.physics.particles.Particle;
 
 public class AllParticles extends Detector{
 	
-	private ArrayList<Pair<Particle, Particle>> overlappedPairs = new ArrayList<Pair<Particle, Particle>>();
-	
-	private ArrayList<Particle> particlelist = new ArrayList<Particle>();
-	
 	public AllParticles(ArrayList<Particle> parlist) {
 		particlelist.clear();
 		
@@ -22,6 +16,7 @@ public class AllParticles extends Detector{
 	}
 	
 	public void run() {
+		overlappedPairs.clear();
 		for(int i = 0; i < (particlelist.size() - 1); i++)
 		{
 			Particle p1 = (Particle) particlelist.get(i);
@@ -35,18 +30,12 @@ public class AllParticles extends Detector{
 					
 					if(Math.abs(p1.getY() - p2.getY()) <= (p1.getRadius() + p2.getRadius())) {
 						
-						Pair<Particle, Particle> pair = new Pair<Particle, Particle>(p1, p2);
-						overlappedPairs.add(pair);
+						overlappedPairs.add(i, k);
 					}					
 				}
 			}
 			
 		}
 	}
-	
-	public ArrayList<Pair<Particle, Particle>> getOverlappedPairs() {
-		
-		return overlappedPairs;
-	}
 
 }
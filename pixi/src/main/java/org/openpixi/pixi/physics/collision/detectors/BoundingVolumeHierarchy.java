@@ -0,0 +1,400 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openpixi.pixi.physics.particles.Particle;
+
+/**
+ * 3D detector based on a dynamic tree of axis aligned bounding boxes.
+ *
+ * Every particle is a leaf of a balanced binary tree whose inner nodes hold the union of
+ * the boxes of their children. The box of a leaf is enlarged by a margin around the
+ * particle. In each run only the leaves whose particle has left its enlarged box are
+ * removed and inserted again, the rest of the tree is kept. Then the tree is queried with
+ * the box of every particle. Insertion chooses the sibling with the smallest increase of
+ * surface area and rebalances by rotations (as in Box2D), so the tree stays O(log N) deep
+ * and a run costs O(N log N).
+ *
+ * Two particles are reported if their boxes overlap in x, y and z.
+ */
+public class BoundingVolumeHierarchy extends Detector {
+
+	private static final int NULL_NODE = -1;
+
+	/** The boxes of the leaves are enlarged by this factor times the radius on each side */
+	private double margin;
+
+	/* Nodes; the box of node n is box[6n] to box[6n+5] (min x, y, z, max x, y, z) */
+	private double[] box;
+	private int[] parent;
+	private int[] child1;
+	private int[] child2;
+	/** Leaves have height 0 */
+	private int[] height;
+	private int root = NULL_NODE;
+
+	/** Nodes which are not in use */
+	private int[] freeNodes;
+	private int numFreeNodes;
+
+	/** Particle of each leaf, NULL_NODE for inner nodes */
+	private int[] leafParticle;
+	/** Leaf of each particle */
+	private int[] particleLeaf;
+
+	private int[] stack = new int[64];
+
+	public BoundingVolumeHierarchy(ArrayList<Particle> parlist) {
+		this(parlist, 0.5);
+	}
+
+	public BoundingVolumeHierarchy(ArrayList<Particle> parlist, double margin) {
+		this.margin = margin;
+		reset(parlist);
+	}
+
+	/**
+	 * Builds the tree from scratch. The node arrays only grow.
+	 */
+	@Override
+	public void reset(List<Particle> particles) {
+		super.reset(particles);
+
+		int n = particlelist.size();
+		int capacity = Math.max(1, 2 * n - 1);
+		if (box == null || parent.length < capacity) {
+			box = new double[6 * capacity];
+			parent = new int[capacity];
+			child1 = new int[capacity];
+			child2 = new int[capacity];
+			height = new int[capacity];
+			leafParticle = new int[capacity];
+			freeNodes = new int[capacity];
+		} else {
+			capacity = parent.length;
+		}
+		root = NULL_NODE;
+		numFreeNodes = 0;
+		for (int node = capacity - 1; node >= 0; node--) {
+			freeNodes[numFreeNodes++] = node;
+		}
+
+		if (particleLeaf == null || particleLeaf.length < n) {
+			particleLeaf = new int[n];
+		}
+		for (int i = 0; i < n; i++) {
+			int leaf = allocateNode();
+			leafParticle[leaf] = i;
+			particleLeaf[i] = leaf;
+			setLeafBox(leaf, particlelist.get(i));
+			insertLeaf(leaf);
+		}
+	}
+
+	public void run() {
+		overlappedPairs.clear();
+		int n = particlelist.size();
+
+		// Incremental refit
+		for (int i = 0; i < n; i++) {
+			Particle p = particlelist.get(i);
+			int leaf = particleLeaf[i];
+			if (!containsParticle(leaf, p)) {
+				removeLeaf(leaf);
+				setLeafBox(leaf, p);
+				insertLeaf(leaf);
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			query(i);
+		}
+	}
+
+	/** Height of the tree, 0 for a single leaf */
+	public int getHeight() {
+		return root == NULL_NODE ? 0 : height[root];
+	}
+
+	/**
+	 * Adds the pairs (i, k) with k &gt; i whose boxes overlap.
+	 */
+	private void query(int i) {
+		if (root == NULL_NODE) {
+			return;
+		}
+		Particle p1 = particlelist.get(i);
+		double r = p1.getRadius();
+		double minX = p1.getX() - r;
+		double minY = p1.getY() - r;
+		double minZ = p1.getZ() - r;
+		double maxX = p1.getX() + r;
+		double maxY = p1.getY() + r;
+		double maxZ = p1.getZ() + r;
+
+		int stackSize = 0;
+		stack[stackSize++] = root;
+		while (stackSize > 0) {
+			int node = stack[--stackSize];
+			int b = 6 * node;
+			if (box[b] > maxX || box[b + 1] > maxY || box[b + 2] > maxZ
+					|| box[b + 3] < minX || box[b + 4] < minY || box[b + 5] < minZ) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				int k = leafParticle[node];
+				if (k > i) {
+					// The box of the leaf is enlarged, compare the particles themselves.
+					Particle p2 = particlelist.get(k);
+					double radii = r + p2.getRadius();
+					if (Math.abs(p1.getX() - p2.getX()) <= radii
+							&& Math.abs(p1.getY() - p2.getY()) <= radii
+							&& Math.abs(p1.getZ() - p2.getZ()) <= radii) {
+						overlappedPairs.add(i, k);
+					}
+				}
+			} else {
+				if (stackSize + 2 > stack.length) {
+					int[] newStack = new int[2 * stack.length];
+					System.arraycopy(stack, 0, newStack, 0, stackSize);
+					stack = newStack;
+				}
+				stack[stackSize++] = child1[node];
+				stack[stackSize++] = child2[node];
+			}
+		}
+	}
+
+	private boolean isLeaf(int node) {
+		return leafParticle[node] != NULL_NODE;
+	}
+
+	private int allocateNode() {
+		int node = freeNodes[--numFreeNodes];
+		parent[node] = NULL_NODE;
+		child1[node] = NULL_NODE;
+		child2[node] = NULL_NODE;
+		height[node] = 0;
+		leafParticle[node] = NULL_NODE;
+		return node;
+	}
+
+	private void freeNode(int node) {
+		freeNodes[numFreeNodes++] = node;
+	}
+
+	private void setLeafBox(int leaf, Particle p) {
+		double extent = (1 + margin) * p.getRadius();
+		int b = 6 * leaf;
+		box[b] = p.getX() - extent;
+		box[b + 1] = p.getY() - extent;
+		box[b + 2] = p.getZ() - extent;
+		box[b + 3] = p.getX() + extent;
+		box[b + 4] = p.getY() + extent;
+		box[b + 5] = p.getZ() + extent;
+	}
+
+	private boolean containsParticle(int leaf, Particle p) {
+		double r = p.getRadius();
+		int b = 6 * leaf;
+		return box[b] <= p.getX() - r && box[b + 1] <= p.getY() - r && box[b + 2] <= p.getZ() - r
+				&& box[b + 3] >= p.getX() + r && box[b + 4] >= p.getY() + r && box[b + 5] >= p.getZ() + r;
+	}
+
+	/** Sets the box of the target to the union of the boxes of a and b. */
+	private void setUnion(int target, int a, int b) {
+		int t = 6 * target;
+		int ia = 6 * a;
+		int ib = 6 * b;
+		for (int d = 0; d < 3; d++) {
+			box[t + d] = Math.min(box[ia + d], box[ib + d]);
+			box[t + 3 + d] = Math.max(box[ia + 3 + d], box[ib + 3 + d]);
+		}
+	}
+
+	/** Half of the surface area of the box of the node */
+	private double area(int node) {
+		int b = 6 * node;
+		double dx = box[b + 3] - box[b];
+		double dy = box[b + 4] - box[b + 1];
+		double dz = box[b + 5] - box[b + 2];
+		return dx * dy + dy * dz + dz * dx;
+	}
+
+	/** Half of the surface area of the union of the boxes of a and b */
+	private double unionArea(int a, int b) {
+		int ia = 6 * a;
+		int ib = 6 * b;
+		double dx = Math.max(box[ia + 3], box[ib + 3]) - Math.min(box[ia], box[ib]);
+		double dy = Math.max(box[ia + 4], box[ib + 4]) - Math.min(box[ia + 1], box[ib + 1]);
+		double dz = Math.max(box[ia + 5], box[ib + 5]) - Math.min(box[ia + 2], box[ib + 2]);
+		return dx * dy + dy * dz + dz * dx;
+	}
+
+	private void insertLeaf(int leaf) {
+		if (root == NULL_NODE) {
+			root = leaf;
+			parent[leaf] = NULL_NODE;
+			return;
+		}
+
+		// Find the best sibling
+		int index = root;
+		while (!isLeaf(index)) {
+			double area = area(index);
+			double combinedArea = unionArea(index, leaf);
+			// Cost of creating a new parent for this node and the new leaf
+			double cost = 2 * combinedArea;
+			// Minimum cost of pushing the leaf further down the tree
+			double inheritanceCost = 2 * (combinedArea - area);
+			double cost1 = descendCost(child1[index], leaf) + inheritanceCost;
+			double cost2 = descendCost(child2[index], leaf) + inheritanceCost;
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? child1[index] : child2[index];
+		}
+		int sibling = index;
+
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		setUnion(newParent, leaf, sibling);
+		height[newParent] = height[sibling] + 1;
+		if (oldParent != NULL_NODE) {
+			replaceChild(oldParent, sibling, newParent);
+		} else {
+			root = newParent;
+		}
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+
+		refit(parent[leaf]);
+	}
+
+	private double descendCost(int child, int leaf) {
+		if (isLeaf(child)) {
+			return unionArea(child, leaf);
+		}
+		return unionArea(child, leaf) - area(child);
+	}
+
+	private void removeLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL_NODE;
+			return;
+		}
+		int oldParent = parent[leaf];
+		int grandParent = parent[oldParent];
+		int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+		if (grandParent != NULL_NODE) {
+			replaceChild(grandParent, oldParent, sibling);
+			parent[sibling] = grandParent;
+			freeNode(oldParent);
+			refit(grandParent);
+		} else {
+			root = sibling;
+			parent[sibling] = NULL_NODE;
+			freeNode(oldParent);
+		}
+	}
+
+	private void replaceChild(int node, int oldChild, int newChild) {
+		if (child1[node] == oldChild) {
+			child1[node] = newChild;
+		} else {
+			child2[node] = newChild;
+		}
+	}
+
+	/** Rebalances and updates boxes and heights from the node up to the root. */
+	private void refit(int node) {
+		while (node != NULL_NODE) {
+			node = balance(node);
+			height[node] = 1 + Math.max(height[child1[node]], height[child2[node]]);
+			setUnion(node, child1[node], child2[node]);
+			node = parent[node];
+		}
+	}
+
+	/**
+	 * Rotates the higher child up if the heights of the children differ by more than one.
+	 * @return the node which took the place of a
+	 */
+	private int balance(int a) {
+		if (isLeaf(a) || height[a] < 2) {
+			return a;
+		}
+		int b = child1[a];
+		int c = child2[a];
+		int balance = height[c] - height[b];
+
+		if (balance > 1) {
+			// Rotate c up
+			int f = child1[c];
+			int g = child2[c];
+			child1[c] = a;
+			parent[c] = parent[a];
+			parent[a] = c;
+			if (parent[c] != NULL_NODE) {
+				replaceChild(parent[c], a, c);
+			} else {
+				root = c;
+			}
+			if (height[f] > height[g]) {
+				child2[c] = f;
+				child2[a] = g;
+				parent[g] = a;
+				setUnion(a, b, g);
+				setUnion(c, a, f);
+				height[a] = 1 + Math.max(height[b], height[g]);
+				height[c] = 1 + Math.max(height[a], height[f]);
+			} else {
+				child2[c] = g;
+				child2[a] = f;
+				parent[f] = a;
+				setUnion(a, b, f);
+				setUnion(c, a, g);
+				height[a] = 1 + Math.max(height[b], height[f]);
+				height[c] = 1 + Math.max(height[a], height[g]);
+			}
+			return c;
+		}
+
+		if (balance < -1) {
+			// Rotate b up
+			int d = child1[b];
+			int e = child2[b];
+			child1[b] = a;
+			parent[b] = parent[a];
+			parent[a] = b;
+			if (parent[b] != NULL_NODE) {
+				replaceChild(parent[b], a, b);
+			} else {
+				root = b;
+			}
+			if (height[d] > height[e]) {
+				child2[b] = d;
+				child1[a] = e;
+				parent[e] = a;
+				setUnion(a, c, e);
+				setUnion(b, a, d);
+				height[a] = 1 + Math.max(height[c], height[e]);
+				height[b] = 1 + Math.max(height[a], height[d]);
+			} else {
+				child2[b] = e;
+				child1[a] = d;
+				parent[d] = a;
+				setUnion(a, c, d);
+				setUnion(b, a, e);
+				height[a] = 1 + Math.max(height[c], height[d]);
+				height[b] = 1 + Math.max(height[a], height[e]);
+			}
+			return b;
+		}
+		return a;
+	}
+}
@@ -1,13 +1,23 @@
 package org.openpixi.pixi.physics.collision.detectors;
 
 import java.util.ArrayList;
+import java.util.List;
 
-import org.openpixi.pixi.physics.collision.util.Pair;
+import org.openpixi.pixi.physics.collision.util.PairBuffer;
 import org.openpixi.pixi.physics.particles.Particle;
 
+/**
+ * Finds the pairs of particles which might collide. The pairs are stored as indices into
+ * getParticles() and are replaced in every run. The detectors keep the particles of the
+ * simulation in their order, so the indices also refer to the particle list of the
+ * simulation as long as reset() is called whenever particles are removed or added.
+ * This detector finds no pairs.
+ */
 public class Detector {
 	
-	public ArrayList<Pair<Particle, Particle>> overlappedPairs;// = new ArrayList<Pair<Particle2D, Particle2D>>();
+	protected PairBuffer overlappedPairs = new PairBuffer();
+	
+	protected ArrayList<Particle> particlelist = new ArrayList<Particle>();
 	
 	public Detector() {
 
@@ -18,8 +28,27 @@ public class Detector {
 		
 	}
 	
-	public ArrayList<Pair<Particle, Particle>> getOverlappedPairs() {
+	/**
+	 * Starts over with the given particles, e.g. after particles were removed from or
+	 * added to the list of the simulation. The pairs found so far are dropped.
+	 */
+	public void reset(List<Particle> particles) {
+		if (particles != particlelist) {
+			particlelist.clear();
+			particlelist.addAll(particles);
+		}
+		overlappedPairs.clear();
+	}
+	
+	public PairBuffer getOverlappedPairs() {
 		return overlappedPairs;
 	}
 
+	/**
+	 * The particles to which the indices of the overlapped pairs refer.
+	 */
+	public ArrayList<Particle> getParticles() {
+		return particlelist;
+	}
+
 }
@@ -1,153 +1,348 @@
 package org.openpixi.pixi.physics.collision.detectors;
 
-import org.openpixi.pixi.physics.*;
-import org.openpixi.pixi.physics.collision.util.*;
 import org.openpixi.pixi.physics.particles.Particle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
-import java.util.Map.Entry;
 
+/**
+ * Sweep and prune: the begin and end points of the bounding boxes are kept sorted along
+ * both axes. Since the particles move only little per step, the lists are almost sorted and
+ * insertion sort is fast. Every swap of a begin point with an end point changes the number
+ * of axes on which the two boxes overlap; boxes which overlap on both axes are reported.
+ *
+ * The end points are stored in primitive arrays and the overlap counts in an open addressing
+ * hash map whose long keys are built from the indices of the two particles. A step
+ * therefore does not allocate once the arrays are large enough.
+ *
+ * The pairs are identified by the indices of the particles, so the detector has to be
+ * reset whenever particles are removed from or added to the list.
+ */
 public class SweepAndPrune extends Detector{
-	
-	private ArrayList<Pair<Particle, Particle>> overlappedPairs = new ArrayList<Pair<Particle, Particle>>();
-
-	private ArrayList<BoundingBox> boxlist = new ArrayList<BoundingBox>();
-	
-	private ArrayList<SweepParticle> axisX = new ArrayList<SweepParticle>();
-	private ArrayList<SweepParticle> axisY = new ArrayList<SweepParticle>();
-	
-	private ArrayList<Pair<BoundingBox, BoundingBox>> overlaps = new ArrayList<Pair<BoundingBox, BoundingBox>>();
-	
-	//private ArrayList<Pair<Particle2D, Particle2D>> overlappedPairs = new ArrayList<Pair<Particle2D, Particle2D>>();
-	
-	private Map<Pair<BoundingBox, BoundingBox>, OverlapCounter> overlapCounter = 
-			new HashMap<Pair<BoundingBox, BoundingBox>, OverlapCounter>();
-	
+
+	private static final long EMPTY = -1L;
+
+	/* Bounding boxes, updated once per run */
+	private double[] xMin;
+	private double[] xMax;
+	private double[] yMin;
+	private double[] yMax;
+
+	/*
+	 * End points along the two axes. An end point is encoded as 2 * particle index + 1 for
+	 * the begin and 2 * particle index for the end of the box.
+	 */
+	private int[] axisX;
+	private int[] axisY;
+	private double[] valuesX;
+	private double[] valuesY;
+	/* Number of end points on each axis, twice the number of particles */
+	private int numPoints;
+
+	/* Particles whose box is open during the sweep of reset(), and their place in active */
+	private int[] active;
+	private int[] activePosition;
+
+	/* Open addressing hash map (linear probing) from pair key to overlap count */
+	private long[] keys;
+	private int[] counts;
+	private int size;
+
 	//constructor
 	public SweepAndPrune(ArrayList<Particle> parlist) {
-		
-		boxlist.clear();
-		axisX.clear();
-		axisY.clear();
-		overlaps.clear();
+
+		reset(parlist);
+	}
+
+	/**
+	 * Starts over with the given particles. The arrays only grow. The end points are sorted
+	 * from scratch and the overlap counts are rebuilt with a single sweep along each axis.
+	 */
+	@Override
+	public void reset(List<Particle> particles) {
+
+		super.reset(particles);
+
+		int n = particlelist.size();
+		numPoints = 2 * n;
+		if (xMin == null || xMin.length < n) {
+			int capacity = (xMin == null) ? n : Math.max(n, 2 * xMin.length);
+			xMin = new double[capacity];
+			xMax = new double[capacity];
+			yMin = new double[capacity];
+			yMax = new double[capacity];
+			axisX = new int[2 * capacity];
+			axisY = new int[2 * capacity];
+			valuesX = new double[2 * capacity];
+			valuesY = new double[2 * capacity];
+			active = new int[capacity];
+			activePosition = new int[capacity];
+		}
+
+		allocateMap(16);
+		updateBoxes();
+		rebuildAxis(axisX, valuesX, xMin, xMax);
+		rebuildAxis(axisY, valuesY, yMin, yMax);
+	}
+
+	public void run() {
+
+		updateBoxes();
+
+		//sorting the axes lists
+		updateValues(axisX, valuesX, xMin, xMax);
+		sortList(axisX, valuesX);
+		updateValues(axisY, valuesY, yMin, yMax);
+		sortList(axisY, valuesY);
+
+		// Pairs which do not overlap on any axis any more are forgotten.
+		int slot = 0;
+		while (slot < keys.length) {
+			if (keys[slot] != EMPTY && counts[slot] < 1) {
+				// An entry is shifted into this slot, so it has to be examined again.
+				remove(slot);
+			} else {
+				slot++;
+			}
+		}
+
 		overlappedPairs.clear();
-		overlapCounter.clear();
-		
-		for(int i = 0; i < parlist.size(); i++) {
-			Particle par = (Particle) parlist.get(i);
-			BoundingBox box = new BoundingBox(par);
-		
-			if(!boxlist.contains(box)) {
-				boxlist.add(box);
-				
-				axisX.add(new SweepParticle(box, 0, true));
-				axisX.add(new SweepParticle(box, 0, false));
-				axisY.add(new SweepParticle(box, 1, true));
-				axisY.add(new SweepParticle(box, 1, false));
-				//System.out.println("Particles added");
+		for (slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY && counts[slot] > 1) {
+				overlappedPairs.add((int) (keys[slot] >>> 32), (int) keys[slot]);
 			}
 		}
 	}
-	
-	
-	//adding a method for sorting the lists
-	private void sortList(ArrayList<SweepParticle> list) {
-		
-		for(int i = 1; i < list.size(); i++) {
-			
-			SweepParticle sweepPar = list.get(i);
-			double sweepParValue = sweepPar.updateGetValue();
-			
-			int j = i - 1;
-			
-			while(j >= 0 && (list.get(j).updateGetValue() > sweepParValue)) {
-				
-				SweepParticle swapPar = list.get(j);
-				
-				//creating a pair of the possibly overlapping particles
-				Pair<BoundingBox, BoundingBox> pairbox = new Pair<BoundingBox, BoundingBox>(sweepPar.bb, swapPar.bb);
-				
-				if(sweepPar.begin && !swapPar.begin) {
-					
-					//setting them into a list
-					if(overlapCounter.containsKey(pairbox)) {
-						overlapCounter.get(pairbox).overlaps++;
-					}
-					else {
-						OverlapCounter newOverlapCounter = new OverlapCounter();
-						newOverlapCounter.overlaps = 1;
-						overlapCounter.put(pairbox, newOverlapCounter);
-					}
+
+	private static int beginPoint(int particle) {
+		return 2 * particle + 1;
+	}
+
+	private static int endPoint(int particle) {
+		return 2 * particle;
+	}
+
+	private static boolean isBegin(int point) {
+		return (point & 1) == 1;
+	}
+
+	private static int particleOf(int point) {
+		return point >> 1;
+	}
+
+	/**
+	 * Shell sort of the end points followed by a sweep which counts every pair whose boxes
+	 * overlap on this axis. Equal values are ordered as in the arrangement b0 e0 b1 e1 ...
+	 * which insertion sort would keep, so the result is the same as sorting that arrangement
+	 * in run().
+	 */
+	private void rebuildAxis(int[] axis, double[] values, double[] min, double[] max) {
+		for (int i = 0; i < numPoints / 2; i++) {
+			axis[2 * i] = beginPoint(i);
+			axis[2 * i + 1] = endPoint(i);
+		}
+		updateValues(axis, values, min, max);
+
+		int gap = 1;
+		while (gap < numPoints / 3) {
+			gap = 3 * gap + 1;
+		}
+		for (; gap > 0; gap /= 3) {
+			for (int i = gap; i < numPoints; i++) {
+				int point = axis[i];
+				double value = values[i];
+				int j = i;
+				while (j >= gap && comesAfter(axis[j - gap], values[j - gap], point, value)) {
+					axis[j] = axis[j - gap];
+					values[j] = values[j - gap];
+					j -= gap;
 				}
-				if(!sweepPar.begin && swapPar.begin) {
-					if(overlapCounter.containsKey(pairbox)) {
-						overlapCounter.get(pairbox).overlaps--;
-					}
+				axis[j] = point;
+				values[j] = value;
+			}
+		}
+
+		int numActive = 0;
+		for (int k = 0; k < numPoints; k++) {
+			int particle = particleOf(axis[k]);
+			if (isBegin(axis[k])) {
+				for (int a = 0; a < numActive; a++) {
+					increment(particle, active[a]);
 				}
-				
-				list.set(j + 1, swapPar);
-				j = j - 1;
+				activePosition[particle] = numActive;
+				active[numActive++] = particle;
+			} else {
+				int position = activePosition[particle];
+				active[position] = active[--numActive];
+				activePosition[active[position]] = position;
 			}
-			
-			list.set(j + 1, sweepPar);
-			//System.out.println("Particles swapped");
 		}
 	}
-	
-	public void run() {
-		
-		//sorting the axes lists
-		sortList(axisX);
-		sortList(axisY);
-		//System.out.println("Axes sorted");
-		
-		//one needs to look at the counters (similar like with the remove method)
-		Iterator<Entry<Pair<BoundingBox, BoundingBox>, OverlapCounter>> iterator = overlapCounter.entrySet().iterator();
-		
-		while(iterator.hasNext()) {
-			Entry<Pair<BoundingBox, BoundingBox>, OverlapCounter> entry = iterator.next();
-			OverlapCounter counter = entry.getValue();
-			Pair<BoundingBox, BoundingBox> pairbox = entry.getKey();
-			
-			//System.out.println(counter.overlaps);
-			if(counter.overlappedBoolean) {
-				if(counter.overlaps < 2) {
-					overlaps.remove(pairbox);
-					counter.overlappedBoolean = false;
 
+	/**
+	 * Order of the sort in rebuildAxis(). point ^ 1 is the place of the point in the
+	 * arrangement b0 e0 b1 e1 ...
+	 */
+	private static boolean comesAfter(int point1, double value1, int point2, double value2) {
+		if (value1 != value2) {
+			return value1 > value2;
+		}
+		return (point1 ^ 1) > (point2 ^ 1);
+	}
+
+	private void updateBoxes() {
+		for (int i = 0; i < particlelist.size(); i++) {
+			Particle particle = particlelist.get(i);
+			double radius = particle.getRadius();
+			xMin[i] = particle.getX() - radius;
+			xMax[i] = particle.getX() + radius;
+			yMin[i] = particle.getY() - radius;
+			yMax[i] = particle.getY() + radius;
+		}
+	}
+
+	private void updateValues(int[] axis, double[] values, double[] min, double[] max) {
+		for (int k = 0; k < numPoints; k++) {
+			int particle = particleOf(axis[k]);
+			values[k] = isBegin(axis[k]) ? min[particle] : max[particle];
+		}
+	}
+
+	private void sortList(int[] axis, double[] values) {
+
+		for(int i = 1; i < numPoints; i++) {
+
+			int sweepPoint = axis[i];
+			double sweepValue = values[i];
+
+			int j = i - 1;
+
+			while(j >= 0 && values[j] > sweepValue) {
+
+				int swapPoint = axis[j];
+
+				if(isBegin(sweepPoint) && !isBegin(swapPoint)) {
+					increment(particleOf(sweepPoint), particleOf(swapPoint));
 				}
-				else if (counter.overlaps > 1) {
+				if(!isBegin(sweepPoint) && isBegin(swapPoint)) {
+					decrement(particleOf(sweepPoint), particleOf(swapPoint));
 				}
+
+				axis[j + 1] = swapPoint;
+				values[j + 1] = values[j];
+				j = j - 1;
 			}
-			else {
-				if(counter.overlaps > 1) {
-					overlaps.add(pairbox);
-					counter.overlappedBoolean = true;
-				}
+
+			axis[j + 1] = sweepPoint;
+			values[j + 1] = sweepValue;
+		}
+	}
+
+	//----------------------------------------------------------------------------------------------
+	// Hash map of the overlap counts
+	//----------------------------------------------------------------------------------------------
+
+	private static long key(int particle1, int particle2) {
+		if (particle1 < particle2) {
+			return ((long) particle1 << 32) | particle2;
+		} else {
+			return ((long) particle2 << 32) | particle1;
+		}
+	}
+
+	private int hash(long key) {
+		long h = key * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+	}
+
+	/**
+	 * Returns the slot of the key or -1.
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		for (int slot = hash(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return slot;
 			}
-			if(counter.overlaps < 1) {
-				iterator.remove();
+		}
+		return -1;
+	}
+
+	private void increment(int particle1, int particle2) {
+		long key = key(particle1, particle2);
+		int mask = keys.length - 1;
+		int slot = hash(key);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				counts[slot]++;
+				return;
 			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		counts[slot] = 1;
+		size++;
+		if (2 * size > keys.length) {
+			rehash(2 * keys.length);
 		}
 	}
-	
-	public ArrayList<Pair<Particle, Particle>> getOverlappedPairs() {
-		
-		overlappedPairs.clear();
-		
-		for(int i = 0; i < overlaps.size(); i++) {
-			BoundingBox box1 = (BoundingBox) overlaps.get(i).getFirst();
-			BoundingBox box2 = (BoundingBox) overlaps.get(i).getSecond();
-			Pair<Particle, Particle> pairpar = new Pair<Particle, Particle>(box1.particle, box2.particle);
-			overlappedPairs.add(pairpar);
+
+	/**
+	 * Pairs which are not in the map are ignored.
+	 */
+	private void decrement(int particle1, int particle2) {
+		int slot = find(key(particle1, particle2));
+		if (slot >= 0) {
+			counts[slot]--;
 		}
-		return overlappedPairs;
-		
 	}
 
+	/**
+	 * Removes the entry in the given slot. The following entries of the probe sequence
+	 * are shifted back, so no tombstones are needed.
+	 */
+	private void remove(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (keys[next] != EMPTY) {
+			int home = hash(keys[next]);
+			// Move the entry into the hole unless its home lies cyclically in (hole, next].
+			boolean stays = (hole < next) ? (hole < home && home <= next) : (hole < home || home <= next);
+			if (!stays) {
+				keys[hole] = keys[next];
+				counts[hole] = counts[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = EMPTY;
+		size--;
+	}
+
+	private void allocateMap(int capacity) {
+		keys = new long[capacity];
+		counts = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		allocateMap(capacity);
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = hash(oldKeys[i]);
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+				size++;
+			}
+		}
+	}
 }
@@ -0,0 +1,154 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+
+import org.openpixi.pixi.physics.particles.Particle;
+
+/**
+ * Bins the particles into a uniform grid whose bins are at least as wide as the largest
+ * particle diameter. Two overlapping particles are then in the same or in adjacent bins,
+ * so only these have to be compared. The bins are rebuilt in every run with a counting sort,
+ * which costs O(N) no matter how far the particles moved.
+ *
+ * Reports the same pairs as AllParticles (overlap of the bounding squares).
+ */
+public class UniformGrid extends Detector {
+
+	private double minX;
+	private double minY;
+	private double binSize;
+	private int numBinsX;
+	private int numBinsY;
+
+	/** Bin of each particle */
+	private int[] particleBin = new int[0];
+	/** binStart[b] to binStart[b+1]-1 are the entries of bin b in sortedParticles */
+	private int[] binStart = new int[0];
+	/** Particle indices sorted by bin */
+	private int[] sortedParticles = new int[0];
+
+	public UniformGrid(ArrayList<Particle> parlist) {
+		particlelist.addAll(parlist);
+	}
+
+	public void run() {
+		overlappedPairs.clear();
+		int n = particlelist.size();
+		if (n < 2) {
+			return;
+		}
+		build();
+
+		for (int by = 0; by < numBinsY; by++) {
+			for (int bx = 0; bx < numBinsX; bx++) {
+				int bin = by * numBinsX + bx;
+				if (binStart[bin] == binStart[bin + 1]) {
+					continue;
+				}
+				collideWithinBin(bin);
+				// Only half of the neighbours, so that every pair of bins is visited once.
+				if (bx + 1 < numBinsX) {
+					collideBins(bin, bin + 1);
+				}
+				if (by + 1 < numBinsY) {
+					collideBins(bin, bin + numBinsX);
+					if (bx > 0) {
+						collideBins(bin, bin + numBinsX - 1);
+					}
+					if (bx + 1 < numBinsX) {
+						collideBins(bin, bin + numBinsX + 1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines the bin layout from the current positions and sorts the particles into the bins.
+	 */
+	private void build() {
+		int n = particlelist.size();
+		minX = Double.MAX_VALUE;
+		minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		double maxRadius = 0;
+		for (int i = 0; i < n; i++) {
+			Particle p = particlelist.get(i);
+			minX = Math.min(minX, p.getX());
+			minY = Math.min(minY, p.getY());
+			maxX = Math.max(maxX, p.getX());
+			maxY = Math.max(maxY, p.getY());
+			maxRadius = Math.max(maxRadius, p.getRadius());
+		}
+
+		double width = maxX - minX;
+		double height = maxY - minY;
+		// Limit the number of bins to about 3N, otherwise empty bins dominate the cost.
+		binSize = Math.max(2 * maxRadius, Math.sqrt(width * height / n));
+		binSize = Math.max(binSize, Math.max(width, height) / n);
+		if (binSize == 0) {
+			binSize = 1;
+		}
+		numBinsX = (int) (width / binSize) + 1;
+		numBinsY = (int) (height / binSize) + 1;
+		int numBins = numBinsX * numBinsY;
+
+		if (particleBin.length < n) {
+			particleBin = new int[n];
+			sortedParticles = new int[n];
+		}
+		if (binStart.length < numBins + 1) {
+			binStart = new int[numBins + 1];
+		}
+
+		// Counting sort
+		for (int b = 0; b <= numBins; b++) {
+			binStart[b] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			Particle p = particlelist.get(i);
+			int bx = Math.min(numBinsX - 1, (int) ((p.getX() - minX) / binSize));
+			int by = Math.min(numBinsY - 1, (int) ((p.getY() - minY) / binSize));
+			particleBin[i] = by * numBinsX + bx;
+			binStart[particleBin[i] + 1]++;
+		}
+		for (int b = 0; b < numBins; b++) {
+			binStart[b + 1] += binStart[b];
+		}
+		for (int i = 0; i < n; i++) {
+			// binStart[b] temporarily points to the next free entry of bin b
+			sortedParticles[binStart[particleBin[i]]++] = i;
+		}
+		for (int b = numBins; b > 0; b--) {
+			binStart[b] = binStart[b - 1];
+		}
+		binStart[0] = 0;
+	}
+
+	private void collideWithinBin(int bin) {
+		for (int i = binStart[bin]; i < binStart[bin + 1] - 1; i++) {
+			for (int k = i + 1; k < binStart[bin + 1]; k++) {
+				check(sortedParticles[i], sortedParticles[k]);
+			}
+		}
+	}
+
+	private void collideBins(int bin1, int bin2) {
+		for (int i = binStart[bin1]; i < binStart[bin1 + 1]; i++) {
+			for (int k = binStart[bin2]; k < binStart[bin2 + 1]; k++) {
+				check(sortedParticles[i], sortedParticles[k]);
+			}
+		}
+	}
+
+	private void check(int i, int k) {
+		Particle p1 = particlelist.get(i);
+		Particle p2 = particlelist.get(k);
+		double distance = p1.getRadius() + p2.getRadius();
+		if (Math.abs(p1.getX() - p2.getX()) <= distance
+				&& Math.abs(p1.getY() - p2.getY()) <= distance) {
+			overlappedPairs.add(i, k);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.util.NeighborList;
+
+/**
+ * Takes the candidates from Verlet neighbor lists (see NeighborList), which are only
+ * rebuilt after a particle has moved more than half of the skin. In the other runs only
+ * the neighbors of each particle are compared.
+ *
+ * The cutoff of the lists covers the bounding squares of the largest particles, so for
+ * particles in a plane the same pairs as with AllParticles are reported.
+ */
+public class VerletList extends Detector {
+
+	private NeighborList neighborList;
+	private double skinFactor;
+	private SequentialParticleIterator particleIterator = new SequentialParticleIterator();
+
+	public VerletList(ArrayList<Particle> parlist) {
+		this(parlist, 0.5);
+	}
+
+	/**
+	 * @param skinFactor the skin of the lists in units of the cutoff
+	 */
+	public VerletList(ArrayList<Particle> parlist, double skinFactor) {
+		this.skinFactor = skinFactor;
+		reset(parlist);
+	}
+
+	/**
+	 * Starts over with new lists, whose cutoff follows from the largest of the particles.
+	 */
+	@Override
+	public void reset(List<Particle> particles) {
+		super.reset(particles);
+
+		double maxRadius = 0;
+		for (Particle p : particlelist) {
+			maxRadius = Math.max(maxRadius, p.getRadius());
+		}
+		// |dx| and |dy| up to twice the largest radius
+		double cutoff = 2 * Math.sqrt(2) * maxRadius;
+		neighborList = new NeighborList(cutoff, skinFactor * cutoff);
+	}
+
+	public NeighborList getNeighborList() {
+		return neighborList;
+	}
+
+	public void run() {
+		overlappedPairs.clear();
+		neighborList.update(particlelist, particleIterator);
+
+		for (int i = 0; i < particlelist.size(); i++) {
+			Particle p1 = particlelist.get(i);
+			for (int k = neighborList.getStart(i); k < neighborList.getEnd(i); k++) {
+				int j = neighborList.getNeighbor(k);
+				if (j < i) {
+					// Every pair is in both lists.
+					continue;
+				}
+				Particle p2 = particlelist.get(j);
+				double radii = p1.getRadius() + p2.getRadius();
+				if (Math.abs(p1.getX() - p2.getX()) <= radii
+						&& Math.abs(p1.getY() - p2.getY()) <= radii) {
+					overlappedPairs.add(i, j);
+				}
+			}
+		}
+	}
+}
@@ -1,12 +0,0 @@
-package org.openpixi.pixi.physics.collision.util;
-
-public class OverlapCounter {
-	
-	public boolean overlappedBoolean = false;
-	public int overlaps = 0;
-	
-	public OverlapCounter() {
-		
-	}
-
-}
@@ -0,0 +1,55 @@
+package org.openpixi.pixi.physics.collision.util;
+
+/**
+ * Pairs of particle indices which a Detector hands to a CollisionAlgorithm.
+ * The buffer is cleared and refilled by the detector in every run; its arrays only
+ * grow, so a run does not allocate once the capacity suffices.
+ */
+public class PairBuffer {
+
+	private int[] first;
+	private int[] second;
+	private int size;
+
+	public PairBuffer() {
+		this(16);
+	}
+
+	public PairBuffer(int capacity) {
+		first = new int[Math.max(1, capacity)];
+		second = new int[Math.max(1, capacity)];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(int firstIndex, int secondIndex) {
+		if (size == first.length) {
+			int[] newFirst = new int[2 * size];
+			int[] newSecond = new int[2 * size];
+			System.arraycopy(first, 0, newFirst, 0, size);
+			System.arraycopy(second, 0, newSecond, 0, size);
+			first = newFirst;
+			second = newSecond;
+		}
+		first[size] = firstIndex;
+		second[size] = secondIndex;
+		size++;
+	}
+
+	/** Number of pairs */
+	public int size() {
+		return size;
+	}
+
+	/** Index of the first particle of the i-th pair */
+	public int getFirst(int i) {
+		return first[i];
+	}
+
+	/** Index of the second particle of the i-th pair */
+	public int getSecond(int i) {
+		return second[i];
+	}
+}
@@ -0,0 +1,91 @@
+package org.openpixi.pixi.physics.collision.util;
+
+/**
+ * Splits a list of particle pairs into batches in which no particle appears twice, so the
+ * pairs of one batch can be resolved in parallel.
+ *
+ * Greedy coloring: every round scans the pairs which are not yet colored in their original
+ * order and takes a pair if none of its particles was taken in the same round. The batches
+ * depend only on the pairs, not on the number of threads.
+ */
+public class PairColoring {
+
+	/** Pair indices ordered by batch */
+	private int[] order = new int[16];
+	/** Batch b consists of order[batchStart[b]] to order[batchStart[b+1]-1] */
+	private int[] batchStart = new int[16];
+	private int numBatches;
+
+	/** Pairs which are not colored yet */
+	private int[] pending = new int[16];
+	/** Round in which a particle was last taken */
+	private int[] particleRound = new int[0];
+	private int round;
+
+	/**
+	 * @param numParticles the indices of the pairs have to be smaller than this
+	 */
+	public void color(PairBuffer pairs, int numParticles) {
+		int size = pairs.size();
+		if (order.length < size) {
+			order = new int[size];
+			pending = new int[size];
+		}
+		if (particleRound.length < numParticles || round > Integer.MAX_VALUE - size - 1) {
+			particleRound = new int[Math.max(numParticles, particleRound.length)];
+			round = 0;
+		}
+
+		for (int i = 0; i < size; i++) {
+			pending[i] = i;
+		}
+		int remaining = size;
+		int colored = 0;
+		numBatches = 0;
+		batchStart[0] = 0;
+		while (remaining > 0) {
+			round++;
+			int stillPending = 0;
+			for (int k = 0; k < remaining; k++) {
+				int pair = pending[k];
+				int first = pairs.getFirst(pair);
+				int second = pairs.getSecond(pair);
+				if (particleRound[first] != round && particleRound[second] != round) {
+					particleRound[first] = round;
+					particleRound[second] = round;
+					order[colored++] = pair;
+				} else {
+					pending[stillPending++] = pair;
+				}
+			}
+			remaining = stillPending;
+
+			numBatches++;
+			if (numBatches + 1 > batchStart.length) {
+				int[] newBatchStart = new int[2 * batchStart.length];
+				System.arraycopy(batchStart, 0, newBatchStart, 0, batchStart.length);
+				batchStart = newBatchStart;
+			}
+			batchStart[numBatches] = colored;
+		}
+	}
+
+	public int getNumBatches() {
+		return numBatches;
+	}
+
+	/** Position of the first pair of the batch in the order */
+	public int getBatchStart(int batch) {
+		return batchStart[batch];
+	}
+
+	/** Number of pairs in the batch */
+	public int getBatchSize(int batch) {
+		return batchStart[batch + 1] - batchStart[batch];
+	}
+
+	/** Index of the pair at the given position of the order */
+	public int getPair(int position) {
+		return order[position];
+	}
+}
@@ -0,0 +1,183 @@
+package org.openpixi.pixi.physics.fields;
+
+import org.openpixi.pixi.parallel.cellaccess.CellAction;
+import org.openpixi.pixi.parallel.cellaccess.CellIterator;
+import org.openpixi.pixi.physics.grid.Grid;
+
+/**
+ * Digital (1,2,1)/4 binomial filter applied as separable one dimensional passes
+ * along each axis of the grid. Each pass damps the shortest wavelengths (the
+ * Nyquist mode is removed completely) and preserves the total current.
+ *
+ * With compensation enabled a final pass with weights (-n/4, 1+n/2, -n/4)
+ * is applied per axis after the n binomial passes. This restores the long
+ * wavelength part of the spectrum to second order in k while keeping most of
+ * the high frequency damping.
+ *
+ * Like the field solver the filter assumes periodic boundaries.
+ */
+public class BinomialFilter extends CurrentFilter {
+
+	private static final int AXIS_X = 0;
+	private static final int AXIS_Y = 1;
+	private static final int AXIS_Z = 2;
+
+	private int passes;
+	private boolean compensated;
+	private boolean filterCharge;
+
+	private CellIterator cellIterator;
+	private CopyAction copy = new CopyAction();
+	private SmoothAction smooth = new SmoothAction();
+
+	/* These are exposed here for inner classes
+	   since they can not be passed to them as method arguments. */
+	private double[][][] bufferX;
+	private double[][][] bufferY;
+	private double[][][] bufferZ;
+	private boolean current;
+	private int axis;
+	private double centerWeight;
+	private double sideWeight;
+	private int numCellsX;
+	private int numCellsY;
+	private int numCellsZ;
+
+	/**
+	 * @param passes number of binomial passes per axis
+	 * @param compensated whether to append a compensation pass per axis
+	 * @param filterCharge whether the charge density should be filtered as well
+	 * @param cellIterator iterator used for the passes; must not be shared with the grid
+	 */
+	public BinomialFilter(int passes, boolean compensated, boolean filterCharge,
+			CellIterator cellIterator) {
+		if (passes < 0) {
+			throw new RuntimeException("Invalid number of filter passes: " + passes);
+		}
+		this.passes = passes;
+		this.compensated = compensated;
+		this.filterCharge = filterCharge;
+		this.cellIterator = cellIterator;
+	}
+
+	public int getPasses() {
+		return passes;
+	}
+
+	public boolean isCompensated() {
+		return compensated;
+	}
+
+	public boolean isFilteringCharge() {
+		return filterCharge;
+	}
+
+	@Override
+	public void filterCurrent(Grid grid) {
+		current = true;
+		filter(grid);
+	}
+
+	@Override
+	public void filterCharge(Grid grid) {
+		if (filterCharge) {
+			current = false;
+			filter(grid);
+		}
+	}
+
+	private void filter(Grid grid) {
+		if (passes == 0) {
+			return;
+		}
+		prepare(grid);
+		filterAxis(grid, AXIS_X, numCellsX);
+		filterAxis(grid, AXIS_Y, numCellsY);
+		filterAxis(grid, AXIS_Z, numCellsZ);
+	}
+
+	private void filterAxis(Grid grid, int axis, int numCells) {
+		// A single layer of cells is left unchanged by any symmetric stencil.
+		if (numCells < 2) {
+			return;
+		}
+		this.axis = axis;
+		for (int i = 0; i < passes; i++) {
+			pass(grid, 0.5);
+		}
+		if (compensated) {
+			pass(grid, 1 + passes / 2.0);
+		}
+	}
+
+	/**
+	 * One smoothing pass with the stencil ((1-w)/2, w, (1-w)/2).
+	 */
+	private void pass(Grid grid, double weight) {
+		centerWeight = weight;
+		sideWeight = (1 - weight) / 2;
+		cellIterator.execute(grid, copy);
+		cellIterator.execute(grid, smooth);
+	}
+
+	/**
+	 * Adapts the buffers and the iterator to the current size of the grid.
+	 */
+	private void prepare(Grid grid) {
+		if (bufferX == null || grid.getNumCellsX() != numCellsX
+				|| grid.getNumCellsY() != numCellsY || grid.getNumCellsZ() != numCellsZ) {
+			numCellsX = grid.getNumCellsX();
+			numCellsY = grid.getNumCellsY();
+			numCellsZ = grid.getNumCellsZ();
+			bufferX = new double[numCellsX][numCellsY][numCellsZ];
+			bufferY = new double[numCellsX][numCellsY][numCellsZ];
+			bufferZ = new double[numCellsX][numCellsY][numCellsZ];
+			cellIterator.setNormalMode(numCellsX, numCellsY, numCellsZ);
+		}
+	}
+
+	private class CopyAction implements CellAction {
+
+		public void execute(Grid grid, int x, int y, int z) {
+			if (current) {
+				bufferX[x][y][z] = grid.getJx(x, y, z);
+				bufferY[x][y][z] = grid.getJy(x, y, z);
+				bufferZ[x][y][z] = grid.getJz(x, y, z);
+			} else {
+				bufferX[x][y][z] = grid.getRho(x, y, z);
+			}
+		}
+	}
+
+	private class SmoothAction implements CellAction {
+
+		public void execute(Grid grid, int x, int y, int z) {
+			int xl = x, xr = x, yl = y, yr = y, zl = z, zr = z;
+			switch (axis) {
+				case AXIS_X:
+					xl = (x + numCellsX - 1) % numCellsX;
+					xr = (x + 1) % numCellsX;
+					break;
+				case AXIS_Y:
+					yl = (y + numCellsY - 1) % numCellsY;
+					yr = (y + 1) % numCellsY;
+					break;
+				default:
+					zl = (z + numCellsZ - 1) % numCellsZ;
+					zr = (z + 1) % numCellsZ;
+					break;
+			}
+			if (current) {
+				grid.setJx(x, y, z, centerWeight * bufferX[x][y][z]
+						+ sideWeight * (bufferX[xl][yl][zl] + bufferX[xr][yr][zr]));
+				grid.setJy(x, y, z, centerWeight * bufferY[x][y][z]
+						+ sideWeight * (bufferY[xl][yl][zl] + bufferY[xr][yr][zr]));
+				grid.setJz(x, y, z, centerWeight * bufferZ[x][y][z]
+						+ sideWeight * (bufferZ[xl][yl][zl] + bufferZ[xr][yr][zr]));
+			} else {
+				grid.setRho(x, y, z, centerWeight * bufferX[x][y][z]
+						+ sideWeight * (bufferX[xl][yl][zl] + bufferX[xr][yr][zr]));
+			}
+		}
+	}
+}
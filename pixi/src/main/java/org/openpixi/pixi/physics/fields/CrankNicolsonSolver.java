@@ -0,0 +1,70 @@
+package org.openpixi.pixi.physics.fields;
+
+import org.openpixi.pixi.parallel.cellaccess.CellAction;
+import org.openpixi.pixi.physics.grid.Grid;
+
+/**
+ * Field update of the energy conserving implicit PIC scheme (see
+ * org.openpixi.pixi.physics.ImplicitStep). The electric field follows from Ampere's law
+ * without the curl of B,
+ *
+ * E(t+dt) = E(t) - dt/eps0 * (J(t+dt/2) - <J>),
+ *
+ * where J(t+dt/2) is deposited at the midpoint of the particle orbits and the mean
+ * current <J> is subtracted because a periodic grid can not carry a uniform field.
+ * E(t) is read from the stored fields (Grid.storeFields()); B is not changed.
+ */
+public class CrankNicolsonSolver extends FieldSolver {
+
+	private double timeStep;
+	private double meanJx;
+	private double meanJy;
+	private double meanJz;
+	private SolveForE solveForE = new SolveForE();
+
+	@Override
+	public FieldSolver clone() {
+		CrankNicolsonSolver clone = new CrankNicolsonSolver();
+		clone.copyBaseClassFields(this);
+		clone.timeStep = timeStep;
+		return clone;
+	}
+
+	/**
+	 * @param grid before the update: E(t) in the stored fields, J(t+dt/2);
+	 *                 after the update: E(t+dt)
+	 */
+	@Override
+	public void step(Grid grid, double timeStep) {
+		this.timeStep = timeStep;
+
+		int numCells = grid.getNumCellsX() * grid.getNumCellsY() * grid.getNumCellsZ();
+		double sumJx = 0;
+		double sumJy = 0;
+		double sumJz = 0;
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				for (int z = 0; z < grid.getNumCellsZ(); z++) {
+					sumJx += grid.getJx(x, y, z);
+					sumJy += grid.getJy(x, y, z);
+					sumJz += grid.getJz(x, y, z);
+				}
+			}
+		}
+		meanJx = sumJx / numCells;
+		meanJy = sumJy / numCells;
+		meanJz = sumJz / numCells;
+
+		cellIterator.execute(grid, solveForE);
+	}
+
+	private class SolveForE implements CellAction {
+		private double eps0 = 1.0/(4*Math.PI);
+
+		public void execute(Grid grid, int x, int y, int z) {
+			grid.setEx(x, y, z, grid.getExo(x, y, z) - timeStep / eps0 * (grid.getJx(x, y, z) - meanJx));
+			grid.setEy(x, y, z, grid.getEyo(x, y, z) - timeStep / eps0 * (grid.getJy(x, y, z) - meanJy));
+			grid.setEz(x, y, z, grid.getEzo(x, y, z) - timeStep / eps0 * (grid.getJz(x, y, z) - meanJz));
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.openpixi.pixi.physics.fields;
+
+import org.openpixi.pixi.physics.grid.Grid;
+
+/**
+ * Smooths the current (and optionally the charge density) deposited on the grid
+ * before the field solver uses it.
+ * This base class leaves the grid untouched.
+ */
+public class CurrentFilter {
+
+	/**
+	 * Smooths the current densities jx, jy and jz.
+	 */
+	public void filterCurrent(Grid grid) {
+	}
+
+	/**
+	 * Smooths the charge density rho.
+	 */
+	public void filterCharge(Grid grid) {
+	}
+
+}
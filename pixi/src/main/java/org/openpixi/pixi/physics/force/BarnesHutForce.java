@@ -0,0 +1,617 @@
+package org.openpixi.pixi.physics.force;
+
+import java.util.List;
+
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.RangeAction;
+import org.openpixi.pixi.physics.particles.Particle;
+
+/**
+ * Direct Coulomb or gravitational interaction of all particles, approximated with the
+ * Barnes-Hut tree code (Barnes and Hut, Nature 324, 446 (1986)).
+ *
+ * The force on particle i is
+ *
+ * F_i = coupling * s_i * sum_j s_j (r_i - r_j) / (|r_i - r_j|^2 + softening^2)^(3/2),
+ *
+ * where s is the charge (Coulomb, coupling 1/(4 pi eps0)) or the mass (gravity, coupling
+ * -G). A group of distant particles acts as a single source at its center if
+ * size / (distance - offset) &lt; openingAngle, where offset is the distance between the
+ * center and the middle of the cell. An opening angle of 0 gives the exact sum.
+ *
+ * update() builds the tree for the current positions. The particles are sorted along a
+ * Morton curve and the octree is built from the sorted keys; keys and moments are computed
+ * with the particle iterator. The force on a particle is evaluated at its current position by
+ * walking the tree, which costs O(log N) per particle. Without z coordinates the tree
+ * degenerates to a quadtree.
+ *
+ * The particles are found in the tree by their slot (see Particle.getSlot()). The nodes which
+ * contain a particle are always opened for it and it is skipped in its leaf, so it does not
+ * act on itself even if it has moved since update(). Each thread keeps the result of its last
+ * walk, so the force components of a particle at the same position cost a single walk.
+ */
+public class BarnesHutForce implements InteractionForce {
+
+	public enum Interaction {
+		/** The source of a particle is its charge */
+		COULOMB,
+		/** The source of a particle is its mass */
+		GRAVITY
+	}
+
+	/** Maximum number of particles in a leaf */
+	public static final int LEAF_SIZE = 8;
+	/** Bits per dimension of the keys; the depth of the tree is limited to this */
+	private static final int BITS = 21;
+	private static final int RADIX_BITS = 8;
+
+	private Interaction interaction;
+	private double coupling;
+	private double openingAngle;
+	private double softeningSquare;
+
+	/* Particles in key order */
+	private int numParticles;
+	private long[] keys = new long[0];
+	private int[] order = new int[0];
+	private long[] tmpKeys = new long[0];
+	private int[] tmpOrder = new int[0];
+	private Particle[] sortedParticles = new Particle[0];
+	/** Position in key order of the particle with the given slot */
+	private int[] sortedIndexOfSlot = new int[0];
+	private double[] px = new double[0];
+	private double[] py = new double[0];
+	private double[] pz = new double[0];
+	private double[] ps = new double[0];
+
+	/* Bounding cube of the particles */
+	private double originX;
+	private double originY;
+	private double originZ;
+	private double size;
+
+	/* Nodes in pre-order; the subtree of node n consists of the nodes n to skip[n] - 1 */
+	private int numNodes;
+	private int[] skip = new int[0];
+	/** Particles first[n] to last[n] - 1 (in key order) belong to node n */
+	private int[] first = new int[0];
+	private int[] last = new int[0];
+	private double[] nodeSize = new double[0];
+	/** Middle of the cell */
+	private double[] middleX = new double[0];
+	private double[] middleY = new double[0];
+	private double[] middleZ = new double[0];
+	/** Sum of the sources */
+	private double[] strength = new double[0];
+	/** Sum of the absolute values of the sources */
+	private double[] weight = new double[0];
+	/** Center of the sources, weighted with their absolute values */
+	private double[] centerX = new double[0];
+	private double[] centerY = new double[0];
+	private double[] centerZ = new double[0];
+	/** The node acts as a single source beyond this distance (squared) from its center */
+	private double[] openingRadiusSquare = new double[0];
+
+	private int numLeaves;
+	private int[] leaves = new int[0];
+
+	private List<Particle> particles;
+	private ComputeKeys computeKeys = new ComputeKeys();
+	private Gather gather = new Gather();
+	private LeafMoments leafMoments = new LeafMoments();
+
+	/** Number of trees built so far, tells the evaluations of different trees apart */
+	private int numBuilds;
+
+	private ThreadLocal<Evaluation> lastEvaluation = new ThreadLocal<Evaluation>() {
+		@Override
+		protected Evaluation initialValue() {
+			return new Evaluation();
+		}
+	};
+
+	/**
+	 * @param couplingConstant 1/(4 pi eps0) for the Coulomb interaction, -G for gravity
+	 * @param openingAngle between 0 (exact) and 1
+	 * @param softening Plummer softening length
+	 */
+	public BarnesHutForce(Interaction interaction, double couplingConstant, double openingAngle,
+			double softening) {
+		if (openingAngle < 0 || openingAngle > 1) {
+			// Beyond 1 a cell could act as a single source on a particle inside it.
+			throw new RuntimeException("The opening angle has to be between 0 and 1.");
+		}
+		this.interaction = interaction;
+		this.coupling = couplingConstant;
+		this.openingAngle = openingAngle;
+		this.softeningSquare = softening * softening;
+	}
+
+	public double getOpeningAngle() {
+		return openingAngle;
+	}
+
+	/**
+	 * Builds the tree for the current positions.
+	 */
+	public void update(List<Particle> particles, ParticleIterator particleIterator) {
+		this.particles = particles;
+		numParticles = particles.size();
+		ensureParticleCapacity(numParticles);
+		ensureSlotCapacity();
+		numBuilds++;
+		numNodes = 0;
+		numLeaves = 0;
+		if (numParticles == 0) {
+			this.particles = null;
+			return;
+		}
+
+		computeBoundingCube();
+		particleIterator.execute(numParticles, computeKeys);
+		sortByKey();
+		particleIterator.execute(numParticles, gather);
+
+		buildNode(0, numParticles, 0, originX, originY, originZ, size);
+
+		particleIterator.execute(numLeaves, leafMoments);
+		for (int node = numNodes - 1; node >= 0; node--) {
+			if (!isLeaf(node)) {
+				innerMoments(node);
+			}
+		}
+		this.particles = null;
+	}
+
+	/**
+	 * The tree is built from scratch in every update().
+	 */
+	public void invalidate() {
+	}
+
+	private void computeBoundingCube() {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double maxZ = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < numParticles; i++) {
+			Particle p = particles.get(i);
+			minX = Math.min(minX, p.getX());
+			minY = Math.min(minY, p.getY());
+			minZ = Math.min(minZ, p.getZ());
+			maxX = Math.max(maxX, p.getX());
+			maxY = Math.max(maxY, p.getY());
+			maxZ = Math.max(maxZ, p.getZ());
+		}
+		originX = minX;
+		originY = minY;
+		originZ = minZ;
+		size = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+		if (size == 0) {
+			size = 1;
+		}
+	}
+
+	/**
+	 * Least significant digit radix sort of the particle indices by key.
+	 */
+	private void sortByKey() {
+		int mask = (1 << RADIX_BITS) - 1;
+		int[] start = new int[mask + 1];
+		for (int shift = 0; shift < 3 * BITS; shift += RADIX_BITS) {
+			for (int d = 0; d <= mask; d++) {
+				start[d] = 0;
+			}
+			for (int i = 0; i < numParticles; i++) {
+				start[(int) ((keys[i] >>> shift) & mask)]++;
+			}
+			int sum = 0;
+			for (int d = 0; d <= mask; d++) {
+				int count = start[d];
+				start[d] = sum;
+				sum += count;
+			}
+			for (int i = 0; i < numParticles; i++) {
+				int position = start[(int) ((keys[i] >>> shift) & mask)]++;
+				tmpKeys[position] = keys[i];
+				tmpOrder[position] = order[i];
+			}
+			long[] swapKeys = keys;
+			keys = tmpKeys;
+			tmpKeys = swapKeys;
+			int[] swapOrder = order;
+			order = tmpOrder;
+			tmpOrder = swapOrder;
+		}
+	}
+
+	/**
+	 * Adds the node for the particles from to to - 1 and its subtree in pre-order.
+	 */
+	private void buildNode(int from, int to, int level, double x, double y, double z, double cellSize) {
+		int node = numNodes++;
+		ensureNodeCapacity(numNodes);
+		first[node] = from;
+		last[node] = to;
+		nodeSize[node] = cellSize;
+		double half = 0.5 * cellSize;
+		middleX[node] = x + half;
+		middleY[node] = y + half;
+		middleZ[node] = z + half;
+
+		if (to - from > LEAF_SIZE && level < BITS) {
+			int shift = 3 * (BITS - 1 - level);
+			int start = from;
+			while (start < to) {
+				int octant = octant(keys[start], shift);
+				// The keys are sorted, so the octants of the range are ascending.
+				int low = start + 1;
+				int high = to;
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+					if (octant(keys[mid], shift) == octant) {
+						low = mid + 1;
+					} else {
+						high = mid;
+					}
+				}
+				buildNode(start, low, level + 1,
+						x + ((octant >> 2) & 1) * half,
+						y + ((octant >> 1) & 1) * half,
+						z + (octant & 1) * half,
+						half);
+				start = low;
+			}
+		} else {
+			if (numLeaves == leaves.length) {
+				int[] newLeaves = new int[2 * leaves.length + 16];
+				System.arraycopy(leaves, 0, newLeaves, 0, numLeaves);
+				leaves = newLeaves;
+			}
+			leaves[numLeaves++] = node;
+		}
+		skip[node] = numNodes;
+	}
+
+	private static int octant(long key, int shift) {
+		return (int) ((key >>> shift) & 7);
+	}
+
+	private boolean isLeaf(int node) {
+		return skip[node] == node + 1;
+	}
+
+	private void innerMoments(int node) {
+		double s = 0;
+		double w = 0;
+		double x = 0;
+		double y = 0;
+		double z = 0;
+		for (int child = node + 1; child < skip[node]; child = skip[child]) {
+			s += strength[child];
+			w += weight[child];
+			x += weight[child] * centerX[child];
+			y += weight[child] * centerY[child];
+			z += weight[child] * centerZ[child];
+		}
+		setMoments(node, s, w, x, y, z);
+	}
+
+	/**
+	 * @param x, y, z sums of the positions weighted with the absolute values of the sources
+	 */
+	private void setMoments(int node, double s, double w, double x, double y, double z) {
+		strength[node] = s;
+		weight[node] = w;
+		if (w > 0) {
+			centerX[node] = x / w;
+			centerY[node] = y / w;
+			centerZ[node] = z / w;
+		} else {
+			centerX[node] = middleX[node];
+			centerY[node] = middleY[node];
+			centerZ[node] = middleZ[node];
+		}
+		if (openingAngle == 0) {
+			openingRadiusSquare[node] = Double.POSITIVE_INFINITY;
+		} else {
+			double dx = centerX[node] - middleX[node];
+			double dy = centerY[node] - middleY[node];
+			double dz = centerZ[node] - middleZ[node];
+			double radius = nodeSize[node] / openingAngle + Math.sqrt(dx * dx + dy * dy + dz * dz);
+			openingRadiusSquare[node] = radius * radius;
+		}
+	}
+
+	private double source(Particle p) {
+		return interaction == Interaction.COULOMB ? p.getCharge() : p.getMass();
+	}
+
+	/**
+	 * Position of the particle in key order or -1 if it is not in the tree.
+	 */
+	private int sortedIndex(Particle p) {
+		int slot = p.getSlot();
+		if (slot < 0 || slot >= sortedIndexOfSlot.length) {
+			return -1;
+		}
+		int k = sortedIndexOfSlot[slot];
+		return (k < numParticles && sortedParticles[k] == p) ? k : -1;
+	}
+
+	/**
+	 * Sum over the sources s_j (r - r_j) / (|r - r_j|^2 + softening^2)^(3/2)
+	 * without the particle itself.
+	 */
+	private void field(Particle p, Evaluation result) {
+		double x = p.getX();
+		double y = p.getY();
+		double z = p.getZ();
+		int self = sortedIndex(p);
+		double fx = 0;
+		double fy = 0;
+		double fz = 0;
+		int node = 0;
+		while (node < numNodes) {
+			double dx = x - centerX[node];
+			double dy = y - centerY[node];
+			double dz = z - centerZ[node];
+			double distanceSquare = dx * dx + dy * dy + dz * dz;
+			boolean containsSelf = first[node] <= self && self < last[node];
+			if (distanceSquare > openingRadiusSquare[node] && !containsSelf) {
+				double factor = strength[node] / cube(distanceSquare + softeningSquare);
+				fx += factor * dx;
+				fy += factor * dy;
+				fz += factor * dz;
+				node = skip[node];
+			} else if (isLeaf(node)) {
+				for (int k = first[node]; k < last[node]; k++) {
+					if (k == self) {
+						continue;
+					}
+					double kx = x - px[k];
+					double ky = y - py[k];
+					double kz = z - pz[k];
+					double r2 = kx * kx + ky * ky + kz * kz + softeningSquare;
+					if (r2 == 0) {
+						continue;
+					}
+					double factor = ps[k] / cube(r2);
+					fx += factor * kx;
+					fy += factor * ky;
+					fz += factor * kz;
+				}
+				node = skip[node];
+			} else {
+				node++;
+			}
+		}
+		result.forceX = fx;
+		result.forceY = fy;
+		result.forceZ = fz;
+	}
+
+	/** r^3 for the given r^2 */
+	private static double cube(double r2) {
+		return r2 * Math.sqrt(r2);
+	}
+
+	/**
+	 * Walks the tree unless the last walk of this thread was for the same particle at the
+	 * same position in the same tree.
+	 */
+	private Evaluation force(Particle p) {
+		Evaluation result = lastEvaluation.get();
+		if (result.particle == p && result.build == numBuilds
+				&& result.x == p.getX() && result.y == p.getY() && result.z == p.getZ()) {
+			return result;
+		}
+		field(p, result);
+		double factor = coupling * source(p);
+		result.forceX *= factor;
+		result.forceY *= factor;
+		result.forceZ *= factor;
+		result.particle = p;
+		result.build = numBuilds;
+		result.x = p.getX();
+		result.y = p.getY();
+		result.z = p.getZ();
+		return result;
+	}
+
+	public void addComponents(Particle p, ForceComponents components) {
+		Evaluation force = force(p);
+		components.forceX += force.forceX;
+		components.forceY += force.forceY;
+		components.forceZ += force.forceZ;
+		components.positionX += force.forceX;
+		components.positionY += force.forceY;
+	}
+
+	public double getForceX(Particle p) {
+		return force(p).forceX;
+	}
+
+	public double getForceY(Particle p) {
+		return force(p).forceY;
+	}
+
+	public double getForceZ(Particle p) {
+		return force(p).forceZ;
+	}
+
+	public double getPositionComponentofForceX(Particle p) {
+		return force(p).forceX;
+	}
+
+	public double getPositionComponentofForceY(Particle p) {
+		return force(p).forceY;
+	}
+
+	public double getTangentVelocityComponentOfForceX(Particle p) {
+		return 0;
+	}
+
+	public double getTangentVelocityComponentOfForceY(Particle p) {
+		return 0;
+	}
+
+	public double getNormalVelocityComponentofForceX(Particle p) {
+		return 0;
+	}
+
+	public double getNormalVelocityComponentofForceY(Particle p) {
+		return 0;
+	}
+
+	public double getBz(Particle p) {
+		return 0;
+	}
+
+	public double getLinearDragCoefficient(Particle p) {
+		return 0;
+	}
+
+	private void ensureParticleCapacity(int n) {
+		if (keys.length < n) {
+			keys = new long[n];
+			order = new int[n];
+			tmpKeys = new long[n];
+			tmpOrder = new int[n];
+			sortedParticles = new Particle[n];
+			px = new double[n];
+			py = new double[n];
+			pz = new double[n];
+			ps = new double[n];
+		}
+	}
+
+	private void ensureSlotCapacity() {
+		int maxSlot = -1;
+		for (int i = 0; i < numParticles; i++) {
+			int slot = particles.get(i).getSlot();
+			if (slot < 0) {
+				throw new RuntimeException("The particles of the tree code need slots.");
+			}
+			maxSlot = Math.max(maxSlot, slot);
+		}
+		if (sortedIndexOfSlot.length <= maxSlot) {
+			sortedIndexOfSlot = new int[Math.max(maxSlot + 1, 2 * sortedIndexOfSlot.length)];
+		}
+	}
+
+	private void ensureNodeCapacity(int n) {
+		if (skip.length >= n) {
+			return;
+		}
+		int capacity = Math.max(n, 2 * skip.length);
+		skip = copyOf(skip, capacity);
+		first = copyOf(first, capacity);
+		last = copyOf(last, capacity);
+		nodeSize = copyOf(nodeSize, capacity);
+		middleX = copyOf(middleX, capacity);
+		middleY = copyOf(middleY, capacity);
+		middleZ = copyOf(middleZ, capacity);
+		strength = copyOf(strength, capacity);
+		weight = copyOf(weight, capacity);
+		centerX = copyOf(centerX, capacity);
+		centerY = copyOf(centerY, capacity);
+		centerZ = copyOf(centerZ, capacity);
+		openingRadiusSquare = copyOf(openingRadiusSquare, capacity);
+	}
+
+	private static int[] copyOf(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	private static double[] copyOf(double[] array, int length) {
+		double[] copy = new double[length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	/**
+	 * Spreads the lowest 21 bits of v to every third bit.
+	 */
+	private static long spread(long v) {
+		v &= 0x1fffffL;
+		v = (v | v << 32) & 0x1f00000000ffffL;
+		v = (v | v << 16) & 0x1f0000ff0000ffL;
+		v = (v | v << 8) & 0x100f00f00f00f00fL;
+		v = (v | v << 4) & 0x10c30c30c30c30c3L;
+		v = (v | v << 2) & 0x1249249249249249L;
+		return v;
+	}
+
+	private long quantize(double coordinate, double origin) {
+		long cells = 1L << BITS;
+		long index = (long) ((coordinate - origin) / size * cells);
+		return Math.max(0, Math.min(cells - 1, index));
+	}
+
+	/**
+	 * Force on a particle at a position, the result of one walk.
+	 */
+	private static class Evaluation {
+		Particle particle;
+		int build;
+		double x;
+		double y;
+		double z;
+		double forceX;
+		double forceY;
+		double forceZ;
+	}
+
+	private class ComputeKeys implements RangeAction {
+		public void execute(int from, int to) {
+			for (int i = from; i < to; i++) {
+				Particle p = particles.get(i);
+				keys[i] = spread(quantize(p.getX(), originX)) << 2
+						| spread(quantize(p.getY(), originY)) << 1
+						| spread(quantize(p.getZ(), originZ));
+				order[i] = i;
+			}
+		}
+	}
+
+	private class Gather implements RangeAction {
+		public void execute(int from, int to) {
+			for (int k = from; k < to; k++) {
+				Particle p = particles.get(order[k]);
+				sortedParticles[k] = p;
+				sortedIndexOfSlot[p.getSlot()] = k;
+				px[k] = p.getX();
+				py[k] = p.getY();
+				pz[k] = p.getZ();
+				ps[k] = source(p);
+			}
+		}
+	}
+
+	private class LeafMoments implements RangeAction {
+		public void execute(int from, int to) {
+			for (int l = from; l < to; l++) {
+				int node = leaves[l];
+				double s = 0;
+				double w = 0;
+				double x = 0;
+				double y = 0;
+				double z = 0;
+				for (int k = first[node]; k < last[node]; k++) {
+					double a = Math.abs(ps[k]);
+					s += ps[k];
+					w += a;
+					x += a * px[k];
+					y += a * py[k];
+					z += a * pz[k];
+				}
+				setMoments(node, s, w, x, y, z);
+			}
+		}
+	}
+}
@@ -26,6 +26,12 @@ public class CombinedForce implements Force {
 		forces.clear();
 	}
 
+	public void addComponents(Particle p, ForceComponents components) {
+		for (Force f : forces) {
+			f.addComponents(p, components);
+		}
+	}
+
 	public double getForceX(Particle p) {
 		double sum = 0;
 		for (Force f : forces) {
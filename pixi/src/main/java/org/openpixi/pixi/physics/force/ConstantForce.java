@@ -45,6 +45,25 @@ public class ConstantForce implements Force {
 		bz = 0;
 	}
 
+	public void addComponents(Particle p, ForceComponents components) {
+		double mass = p.getMass();
+		double charge = p.getCharge();
+		double vx = p.getVx();
+		double vy = p.getVy();
+		double vz = p.getVz();
+		components.forceX += -drag * vx + mass * gx + charge * ex + charge * ( vy * bz - vz * by );
+		components.forceY += - drag * vy + mass * gy + charge * ey + charge * ( vz * bx - vx * bz );
+		components.forceZ += - drag * vz + mass * gz + charge * ez + charge * ( vx * by - vy * bx );
+		components.positionX += mass * gx + charge * ex;
+		components.positionY += mass * gy + charge * ey;
+		components.tangentVelocityX += - drag * vx;
+		components.tangentVelocityY += - drag * vy;
+		components.normalVelocityX += charge * vy * bz;
+		components.normalVelocityY += - charge * vx * bz;
+		components.bz += bz;
+		components.linearDragCoefficient += drag;
+	}
+
 	public double getForceX(Particle p) {
 		return -drag * p.getVx() + p.getMass() * gx + p.getCharge() * ex +
 				p.getCharge() * ( p.getVy() * bz - p.getVz() * by );
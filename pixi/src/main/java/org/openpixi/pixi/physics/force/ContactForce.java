@@ -0,0 +1,165 @@
+package org.openpixi.pixi.physics.force;
+
+import java.util.List;
+
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.util.NeighborList;
+
+/**
+ * Short range repulsion of overlapping particles (soft spheres): a spring between the
+ * centers pushes two particles apart with
+ *
+ * F = stiffness * (r1 + r2 - distance)
+ *
+ * while they overlap. The partners of a particle are taken from Verlet neighbor lists (see
+ * NeighborList) with the largest diameter as cutoff.
+ *
+ * The particles are found in the lists by their slot (see Particle.getSlot()).
+ */
+public class ContactForce implements InteractionForce {
+
+	private double stiffness;
+	private double skinFactor;
+	private NeighborList neighborList;
+	/** Whether particles were removed or added since the last update() */
+	private boolean invalid;
+	private List<Particle> particles;
+	/** Index in the particle list of each slot */
+	private int[] indexOfSlot = new int[0];
+
+	private static ThreadLocal<double[]> scratch = new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return new double[3];
+		}
+	};
+
+	public ContactForce(double stiffness) {
+		this(stiffness, 0.5);
+	}
+
+	/**
+	 * @param skinFactor the skin of the neighbor lists in units of the cutoff
+	 */
+	public ContactForce(double stiffness, double skinFactor) {
+		this.stiffness = stiffness;
+		this.skinFactor = skinFactor;
+	}
+
+	public NeighborList getNeighborList() {
+		return neighborList;
+	}
+
+	public void update(List<Particle> particles, ParticleIterator particleIterator) {
+		if (neighborList == null || invalid || particles.size() != this.particles.size()) {
+			double maxRadius = 0;
+			for (Particle p : particles) {
+				maxRadius = Math.max(maxRadius, p.getRadius());
+			}
+			if (neighborList == null || neighborList.getCutoff() != 2 * maxRadius) {
+				neighborList = new NeighborList(2 * maxRadius, skinFactor * 2 * maxRadius);
+			} else {
+				neighborList.invalidate();
+			}
+			invalid = false;
+		}
+		this.particles = particles;
+		for (int i = 0; i < particles.size(); i++) {
+			int slot = particles.get(i).getSlot();
+			if (slot >= indexOfSlot.length) {
+				int[] newIndexOfSlot = new int[Math.max(slot + 1, 2 * indexOfSlot.length)];
+				System.arraycopy(indexOfSlot, 0, newIndexOfSlot, 0, indexOfSlot.length);
+				indexOfSlot = newIndexOfSlot;
+			}
+			indexOfSlot[slot] = i;
+		}
+		neighborList.update(particles, particleIterator);
+	}
+
+	/**
+	 * The new particles may be larger, so the next update() chooses the cutoff again.
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	private double[] force(Particle p) {
+		double[] result = scratch.get();
+		result[0] = 0;
+		result[1] = 0;
+		result[2] = 0;
+		if (neighborList == null) {
+			return result;
+		}
+		int i = indexOfSlot[p.getSlot()];
+		for (int k = neighborList.getStart(i); k < neighborList.getEnd(i); k++) {
+			Particle q = particles.get(neighborList.getNeighbor(k));
+			double dx = p.getX() - q.getX();
+			double dy = p.getY() - q.getY();
+			double dz = p.getZ() - q.getZ();
+			double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			double overlap = p.getRadius() + q.getRadius() - distance;
+			if (overlap > 0 && distance > 0) {
+				double factor = stiffness * overlap / distance;
+				result[0] += factor * dx;
+				result[1] += factor * dy;
+				result[2] += factor * dz;
+			}
+		}
+		return result;
+	}
+
+	public void addComponents(Particle p, ForceComponents components) {
+		double[] force = force(p);
+		components.forceX += force[0];
+		components.forceY += force[1];
+		components.forceZ += force[2];
+		components.positionX += force[0];
+		components.positionY += force[1];
+	}
+
+	public double getForceX(Particle p) {
+		return force(p)[0];
+	}
+
+	public double getForceY(Particle p) {
+		return force(p)[1];
+	}
+
+	public double getForceZ(Particle p) {
+		return force(p)[2];
+	}
+
+	public double getPositionComponentofForceX(Particle p) {
+		return force(p)[0];
+	}
+
+	public double getPositionComponentofForceY(Particle p) {
+		return force(p)[1];
+	}
+
+	public double getTangentVelocityComponentOfForceX(Particle p) {
+		return 0;
+	}
+
+	public double getTangentVelocityComponentOfForceY(Particle p) {
+		return 0;
+	}
+
+	public double getNormalVelocityComponentofForceX(Particle p) {
+		return 0;
+	}
+
+	public double getNormalVelocityComponentofForceY(Particle p) {
+		return 0;
+	}
+
+	public double getBz(Particle p) {
+		return 0;
+	}
+
+	public double getLinearDragCoefficient(Particle p) {
+		return 0;
+	}
+}
@@ -97,4 +97,10 @@ public interface Force {
 	 */
 	public double getLinearDragCoefficient(Particle p);
 
+	/**
+	 * Adds all the components above to the given components in a single call.
+	 * The results have to be the same as those of the individual methods.
+	 */
+	public void addComponents(Particle p, ForceComponents components);
+
 }
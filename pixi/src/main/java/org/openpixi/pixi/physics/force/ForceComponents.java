@@ -0,0 +1,75 @@
+package org.openpixi.pixi.physics.force;
+
+import org.openpixi.pixi.physics.particles.Particle;
+
+/**
+ * All components of a force on one particle, as filled in by Force.addComponents().
+ * The fields correspond to the methods of Force with the same meaning.
+ *
+ * Solvers do not create a new instance for every particle but use the scratch instance
+ * of the current thread, see evaluate().
+ */
+public class ForceComponents {
+
+	public double forceX;
+	public double forceY;
+	public double forceZ;
+	public double positionX;
+	public double positionY;
+	public double tangentVelocityX;
+	public double tangentVelocityY;
+	public double normalVelocityX;
+	public double normalVelocityY;
+	public double bz;
+	public double linearDragCoefficient;
+
+	private static ThreadLocal<ForceComponents> scratch = new ThreadLocal<ForceComponents>() {
+		@Override
+		protected ForceComponents initialValue() {
+			return new ForceComponents();
+		}
+	};
+
+	/**
+	 * Evaluates all components of the force in a single call.
+	 * The returned instance is reused by the next call from the same thread.
+	 */
+	public static ForceComponents evaluate(Force f, Particle p) {
+		ForceComponents components = scratch.get();
+		components.clear();
+		f.addComponents(p, components);
+		return components;
+	}
+
+	public void clear() {
+		forceX = 0;
+		forceY = 0;
+		forceZ = 0;
+		positionX = 0;
+		positionY = 0;
+		tangentVelocityX = 0;
+		tangentVelocityY = 0;
+		normalVelocityX = 0;
+		normalVelocityY = 0;
+		bz = 0;
+		linearDragCoefficient = 0;
+	}
+
+	/**
+	 * Adds the components of a force which has no specialised addComponents()
+	 * by calling its methods one by one.
+	 */
+	public void addEach(Force f, Particle p) {
+		forceX += f.getForceX(p);
+		forceY += f.getForceY(p);
+		forceZ += f.getForceZ(p);
+		positionX += f.getPositionComponentofForceX(p);
+		positionY += f.getPositionComponentofForceY(p);
+		tangentVelocityX += f.getTangentVelocityComponentOfForceX(p);
+		tangentVelocityY += f.getTangentVelocityComponentOfForceY(p);
+		normalVelocityX += f.getNormalVelocityComponentofForceX(p);
+		normalVelocityY += f.getNormalVelocityComponentofForceY(p);
+		bz += f.getBz(p);
+		linearDragCoefficient += f.getLinearDragCoefficient(p);
+	}
+}
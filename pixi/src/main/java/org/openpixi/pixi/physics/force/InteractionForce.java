@@ -0,0 +1,26 @@
+package org.openpixi.pixi.physics.force;
+
+import java.util.List;
+
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.physics.particles.Particle;
+
+/**
+ * Force between the particles. It depends on data structures built from all particles,
+ * which update() brings up to date. Simulation calls update() once per step, before the
+ * particles are pushed, for every such force in its combined force.
+ */
+public interface InteractionForce extends Force {
+
+	/**
+	 * Prepares the force for the current positions.
+	 */
+	public void update(List<Particle> particles, ParticleIterator particleIterator);
+
+	/**
+	 * Particles were removed from or added to the list since the last update(), so the
+	 * indices into the list may refer to other particles.
+	 */
+	public void invalidate();
+
+}
@@ -4,6 +4,26 @@ import org.openpixi.pixi.physics.particles.Particle;
 
 public class SimpleGridForce implements Force {
 
+	public void addComponents(Particle p, ForceComponents components) {
+		double charge = p.getCharge();
+		double vx = p.getVx();
+		double vy = p.getVy();
+		double vz = p.getVz();
+		double ex = p.getEx();
+		double ey = p.getEy();
+		double bx = p.getBx();
+		double by = p.getBy();
+		double bz = p.getBz();
+		components.forceX += charge * (ex + vy * bz - vz * by);
+		components.forceY += charge * (ey + vz * bx - vx * bz);
+		components.forceZ += charge * (p.getEz() + vx * by - vy * bx);
+		components.positionX += charge * ex;
+		components.positionY += charge * ey;
+		components.normalVelocityX += charge * vy * bz;
+		components.normalVelocityY += - charge * vx * bz;
+		components.bz += bz;
+	}
+
 	public double getForceX(Particle p) {
 		return p.getCharge() * (p.getEx() + p.getVy() * p.getBz() - p.getVz() * p.getBy());
 	}
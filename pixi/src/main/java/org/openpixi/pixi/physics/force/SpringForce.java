@@ -54,5 +54,9 @@ public class SpringForce implements Force {
 	public double getLinearDragCoefficient(Particle p) {
 		return 0;
 	}
+
+	public void addComponents(Particle p, ForceComponents components) {
+		components.addEach(this, p);
+	}
 	
 }
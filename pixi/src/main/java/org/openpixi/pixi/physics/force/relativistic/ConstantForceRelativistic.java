@@ -2,6 +2,7 @@ package org.openpixi.pixi.physics.force.relativistic;
 
 import org.openpixi.pixi.physics.RelativisticVelocity;
 import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.force.ForceComponents;
 import org.openpixi.pixi.physics.particles.Particle;
 
 public class ConstantForceRelativistic extends ConstantForce {
@@ -31,6 +32,33 @@ public class ConstantForceRelativistic extends ConstantForce {
 		bz = 0;
 	}
 	
+	/**
+	 * Same as the individual methods, but gamma is calculated only once.
+	 */
+	@Override
+	public void addComponents(Particle p, ForceComponents components) {
+		double gamma = relvelocity.calculateGamma(p);
+		
+		//v = u / gamma
+		double vx = p.getVx() / gamma;
+		double vy = p.getVy() / gamma;
+		double vz = p.getVz() / gamma;
+		
+		double mass = p.getMass();
+		double charge = p.getCharge();
+		components.forceX += -drag * vx + mass * gx + charge * ex + charge * ( vy * bz - vz * by );
+		components.forceY += - drag * vy + mass * gy + charge * ey + charge * ( vz * bx - vx * bz );
+		components.forceZ += - drag * vz + mass * gz + charge * ez + charge * ( vx * by - vy * bx );
+		components.positionX += mass * gx + charge * ex;
+		components.positionY += mass * gy + charge * ey;
+		components.tangentVelocityX += - drag * vx;
+		components.tangentVelocityY += - drag * vy;
+		components.normalVelocityX += charge * vy * bz;
+		components.normalVelocityY += - charge * vx * bz;
+		components.bz += bz;
+		components.linearDragCoefficient += drag;
+	}
+	
 	//getting the force in the x - direction
 	@Override
 	public double getForceX(Particle p) {
@@ -3,6 +3,7 @@ package org.openpixi.pixi.physics.force.relativistic;
 import org.openpixi.pixi.physics.RelativisticVelocity;
 import org.openpixi.pixi.physics.Simulation;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.ForceComponents;
 import org.openpixi.pixi.physics.particles.Particle;
 
 public class SimpleGridForceRelativistic implements Force {
@@ -22,6 +23,31 @@ public class SimpleGridForceRelativistic implements Force {
 		relvelocity = new RelativisticVelocity(speedOfLight);
 	}
 
+	/**
+	 * Same as the individual methods, but gamma is calculated only once.
+	 */
+	public void addComponents(Particle p, ForceComponents components) {
+		double gamma = relvelocity.calculateGamma(p);
+		
+		//v = u / gamma
+		double vx = p.getVx() / gamma;
+		double vy = p.getVy() / gamma;
+		double vz = p.getVz() / gamma;
+		
+		double charge = p.getCharge();
+		double bx = p.getBx();
+		double by = p.getBy();
+		double bz = p.getBz();
+		components.forceX += charge * ( p.getEx() + vy * bz - vz * by );
+		components.forceY += charge * ( p.getEy() + vz * bx - vx * bz );
+		components.forceZ += charge * ( p.getEz() + vx * by - vy * bx );
+		components.positionX += charge * p.getEx();
+		components.positionY += charge * p.getEy();
+		components.normalVelocityX += charge * vy * bz;
+		components.normalVelocityY += - charge * vx * bz;
+		components.bz += bz;
+	}
+
 	public double getForceX(Particle p) {
 		double gamma = relvelocity.calculateGamma(p);
 		
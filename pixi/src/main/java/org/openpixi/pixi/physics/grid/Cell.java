@@ -51,6 +51,10 @@ public class Cell implements Serializable {
 		return jx;
 	}
 
+	public void setJx(double jx) {
+		this.jx = jx;
+	}
+
 	/**
 	 * Needs to be synchronized as we expect in the parallel version
 	 * two threads trying to update the field at the same time.
@@ -63,6 +67,10 @@ public class Cell implements Serializable {
 		return jy;
 	}
 
+	public void setJy(double jy) {
+		this.jy = jy;
+	}
+
 	/**
 	 * Needs to be synchronized as we expect in the parallel version
 	 * two threads trying to update the field at the same time.
@@ -75,6 +83,10 @@ public class Cell implements Serializable {
 		return jz;
 	}
 
+	public void setJz(double jz) {
+		this.jz = jz;
+	}
+
 	/**
 	 * Needs to be synchronized as we expect in the parallel version
 	 * two threads trying to update the field at the same time.
@@ -10,9 +10,192 @@ import org.openpixi.pixi.physics.particles.Particle;
  *This algorithm assumes area weighting used in the CloudInCell algorithm.
  *NOTE: On a coarser grid this algorithm will give a lower current compared to a finer grid
  *when the particle travels the same absolute distance in both cases. 
+ *Particles which are removed or added at absorbing or injecting faces deposit no current,
+ *so this algorithm cannot be used with these faces (see SimpleParticleBoundaries).
  */
 public class ChargeConservingCIC extends CloudInCell {
 
+	/**
+	 * Optional cache of the shape factors computed during the deposit
+	 * which are reused by the gather in the next step.
+	 */
+	private ShapeFactorCache shapeFactors;
+
+	public ChargeConservingCIC() {
+	}
+
+	/**
+	 * @param cacheShapeFactors whether the shape factors of the deposit should be reused by the gather
+	 */
+	public ChargeConservingCIC(boolean cacheShapeFactors) {
+		setCacheShapeFactors(cacheShapeFactors);
+	}
+
+	public void setCacheShapeFactors(boolean cacheShapeFactors) {
+		shapeFactors = cacheShapeFactors ? new ShapeFactorCache() : null;
+	}
+
+	/**
+	 * @return the shape factor cache or null if caching is switched off
+	 */
+	public ShapeFactorCache getShapeFactorCache() {
+		return shapeFactors;
+	}
+
+	@Override
+	public void interpolateToParticle(Particle p, Grid g) {
+		if (shapeFactors != null) {
+			double[] entry = shapeFactors.lookup(p, g);
+			if (entry != null) {
+				int o = shapeFactors.offset(p);
+				int i = (int) entry[o + ShapeFactorCache.CELL_X];
+				int j = (int) entry[o + ShapeFactorCache.CELL_Y];
+				double a = entry[o + ShapeFactorCache.FRACTION_X];
+				double c = entry[o + ShapeFactorCache.FRACTION_Y];
+				if (g.getNumCellsZ() > 1) {
+					interpolateToParticle3D(p, g, i, j, (int) entry[o + ShapeFactorCache.CELL_Z],
+							a, c, entry[o + ShapeFactorCache.FRACTION_Z]);
+				} else {
+					interpolateToParticle2D(p, g, i, j, a, c);
+				}
+				return;
+			}
+		}
+		super.interpolateToParticle(p, g);
+	}
+
+	/**
+	 * Interpolates the fields of a two dimensional grid to a particle which is located
+	 * in the cell (i, j), with the shape factors cached by the deposit. Gives the same
+	 * fields as CloudInCell.interpolateToParticle().
+	 * @param a normalized distance to the left cell boundary
+	 * @param c normalized distance to the lower cell boundary
+	 */
+	private void interpolateToParticle2D(Particle p, Grid g, int i, int j, double a, double c) {
+		int nx = g.getNumCellsX();
+		int ny = g.getNumCellsY();
+
+		//The electric field is stored in the middle of the cell edges and the magnetic field
+		//in the middle of the cell. Along such a staggered direction the local origin is
+		//shifted by half a cell: is, js are the indices and as, cs the normalized distances
+		//with respect to the shifted grid.
+		int is = i;
+		double as = a - 0.5;
+		if (a < 0.5) {
+			is--;
+			as += 1;
+		}
+		int js = j;
+		double cs = c - 0.5;
+		if (c < 0.5) {
+			js--;
+			cs += 1;
+		}
+
+		int i0 = (i + nx) % nx;
+		int i1 = (i + 1 + nx) % nx;
+		int is0 = (is + nx) % nx;
+		int is1 = (is + 1 + nx) % nx;
+		int j0 = (j + ny) % ny;
+		int j1 = (j + 1 + ny) % ny;
+		int js0 = (js + ny) % ny;
+		int js1 = (js + 1 + ny) % ny;
+
+		p.setEx(bilinear(g.getEx(is0, j0), g.getEx(is1, j0), g.getEx(is0, j1), g.getEx(is1, j1), as, c));
+		p.setEy(bilinear(g.getEy(i0, js0), g.getEy(i1, js0), g.getEy(i0, js1), g.getEy(i1, js1), a, cs));
+		p.setBz(bilinear(g.getBz(is0, js0), g.getBz(is1, js0), g.getBz(is0, js1), g.getBz(is1, js1), as, cs));
+	}
+
+	/**
+	 * Interpolates the fields of a three dimensional grid to a particle which is located
+	 * in the cell (i, j, k), with the shape factors cached by the deposit.
+	 * @param a normalized distance to the left cell boundary
+	 * @param c normalized distance to the lower cell boundary
+	 * @param e normalized distance to the front cell boundary
+	 */
+	private void interpolateToParticle3D(Particle p, Grid g, int i, int j, int k,
+			double a, double c, double e) {
+		int nx = g.getNumCellsX();
+		int ny = g.getNumCellsY();
+		int nz = g.getNumCellsZ();
+
+		//Shifted local origins for the staggered directions (see interpolateToParticle2D())
+		int is = i;
+		double as = a - 0.5;
+		if (a < 0.5) {
+			is--;
+			as += 1;
+		}
+		int js = j;
+		double cs = c - 0.5;
+		if (c < 0.5) {
+			js--;
+			cs += 1;
+		}
+		int ks = k;
+		double es = e - 0.5;
+		if (e < 0.5) {
+			ks--;
+			es += 1;
+		}
+
+		int i0 = (i + nx) % nx;
+		int i1 = (i + 1 + nx) % nx;
+		int is0 = (is + nx) % nx;
+		int is1 = (is + 1 + nx) % nx;
+		int j0 = (j + ny) % ny;
+		int j1 = (j + 1 + ny) % ny;
+		int js0 = (js + ny) % ny;
+		int js1 = (js + 1 + ny) % ny;
+		int k0 = (k + nz) % nz;
+		int k1 = (k + 1 + nz) % nz;
+		int ks0 = (ks + nz) % nz;
+		int ks1 = (ks + 1 + nz) % nz;
+
+		p.setEx(trilinear(
+				g.getEx(is0, j0, k0), g.getEx(is1, j0, k0), g.getEx(is0, j1, k0), g.getEx(is1, j1, k0),
+				g.getEx(is0, j0, k1), g.getEx(is1, j0, k1), g.getEx(is0, j1, k1), g.getEx(is1, j1, k1),
+				as, c, e));
+		p.setEy(trilinear(
+				g.getEy(i0, js0, k0), g.getEy(i1, js0, k0), g.getEy(i0, js1, k0), g.getEy(i1, js1, k0),
+				g.getEy(i0, js0, k1), g.getEy(i1, js0, k1), g.getEy(i0, js1, k1), g.getEy(i1, js1, k1),
+				a, cs, e));
+		p.setEz(trilinear(
+				g.getEz(i0, j0, ks0), g.getEz(i1, j0, ks0), g.getEz(i0, j1, ks0), g.getEz(i1, j1, ks0),
+				g.getEz(i0, j0, ks1), g.getEz(i1, j0, ks1), g.getEz(i0, j1, ks1), g.getEz(i1, j1, ks1),
+				a, c, es));
+		p.setBx(trilinear(
+				g.getBx(i0, js0, ks0), g.getBx(i1, js0, ks0), g.getBx(i0, js1, ks0), g.getBx(i1, js1, ks0),
+				g.getBx(i0, js0, ks1), g.getBx(i1, js0, ks1), g.getBx(i0, js1, ks1), g.getBx(i1, js1, ks1),
+				a, cs, es));
+		p.setBy(trilinear(
+				g.getBy(is0, j0, ks0), g.getBy(is1, j0, ks0), g.getBy(is0, j1, ks0), g.getBy(is1, j1, ks0),
+				g.getBy(is0, j0, ks1), g.getBy(is1, j0, ks1), g.getBy(is0, j1, ks1), g.getBy(is1, j1, ks1),
+				as, c, es));
+		p.setBz(trilinear(
+				g.getBz(is0, js0, k0), g.getBz(is1, js0, k0), g.getBz(is0, js1, k0), g.getBz(is1, js1, k0),
+				g.getBz(is0, js0, k1), g.getBz(is1, js0, k1), g.getBz(is0, js1, k1), g.getBz(is1, js1, k1),
+				as, cs, e));
+	}
+
+	/**
+	 * Weighs the values at the corners (v00, v10, v01, v11) of a cell
+	 * with the normalized distances a and c.
+	 */
+	private static double bilinear(double v00, double v10, double v01, double v11,
+			double a, double c) {
+		return (v00 * (1 - a) + v10 * a) * (1 - c) + (v01 * (1 - a) + v11 * a) * c;
+	}
+
+	/**
+	 * Three dimensional version of bilinear().
+	 */
+	private static double trilinear(double v000, double v100, double v010, double v110,
+			double v001, double v101, double v011, double v111, double a, double c, double e) {
+		return bilinear(v000, v100, v010, v110, a, c) * (1 - e)
+				+ bilinear(v001, v101, v011, v111, a, c) * e;
+	}
+
 	@Override
 	public void interpolateToGrid(Particle p, Grid g, double tstep) {
 		
@@ -56,6 +239,10 @@ public class ChargeConservingCIC extends CloudInCell {
 		
 		xEnd = (int) Math.floor(deltaX + 0.5);
 		yEnd = (int) Math.floor(deltaY + 0.5);
+
+		/**Normalized distances to the left and lower cell boundary AFTER particle push*/
+		double xFraction = deltaX + 0.5 - xEnd;
+		double yFraction = deltaY + 0.5 - yEnd;
 		
 		deltaX -= x;
 		deltaY -= y;
@@ -84,6 +271,10 @@ public class ChargeConservingCIC extends CloudInCell {
         p.addX(0.5*g.getCellWidth());
         p.addPrevY(0.5*g.getCellHeight());
         p.addY(0.5*g.getCellHeight());
+
+		if (shapeFactors != null) {
+			shapeFactors.store(p, g, xEnd, yEnd, 0, xFraction, yFraction, 0);
+		}
 	}
 
 	/**
@@ -488,6 +679,10 @@ private void interpolateToGrid3D(Particle p, Grid g, double tstep) {
 		xEnd = (int) Math.floor(deltaX);
 		yEnd = (int) Math.floor(deltaY);
 		zEnd = (int) Math.floor(deltaZ);
+
+		if (shapeFactors != null) {
+			shapeFactors.store(p, g, xEnd, yEnd, zEnd, deltaX - xEnd, deltaY - yEnd, deltaZ - zEnd);
+		}
 		
 		deltaX -= x;
 		if(Math.abs(deltaX) > 1) {
@@ -232,6 +232,62 @@ public class CloudInCell implements InterpolatorAlgorithm {
                 //p.setBz(0);
 	}
 
+	/**
+	 * Deposits the current density q*v of a particle in a two dimensional grid with the
+	 * same weights interpolateToParticle() uses for the electric field. Deposit and gather
+	 * are then transposed to each other, so the work done by the field on the particles
+	 * equals the change of the field energy (used by the implicit scheme).
+	 */
+	public void interpolateCurrentDensity(Particle p, Grid g) {
+		int nx = g.getNumCellsX();
+		int ny = g.getNumCellsY();
+		double x = p.getX() / g.getCellWidth();
+		double y = p.getY() / g.getCellHeight();
+		int i = (int) Math.floor(x);
+		int j = (int) Math.floor(y);
+		double a = x - i;
+		double c = y - j;
+
+		//The electric field is stored in the middle of the cell edges. Along such a staggered
+		//direction the local origin is shifted by half a cell: is, js are the indices and as, cs
+		//the normalized distances with respect to the shifted grid.
+		int is = i;
+		double as = a - 0.5;
+		if (a < 0.5) {
+			is--;
+			as += 1;
+		}
+		int js = j;
+		double cs = c - 0.5;
+		if (c < 0.5) {
+			js--;
+			cs += 1;
+		}
+
+		int i0 = (i + nx) % nx;
+		int i1 = (i + 1 + nx) % nx;
+		int is0 = (is + nx) % nx;
+		int is1 = (is + 1 + nx) % nx;
+		int j0 = (j + ny) % ny;
+		int j1 = (j + 1 + ny) % ny;
+		int js0 = (js + ny) % ny;
+		int js1 = (js + 1 + ny) % ny;
+
+		double qOverArea = p.getCharge() / (g.getCellWidth() * g.getCellHeight());
+		double jx = qOverArea * p.getVx();
+		double jy = qOverArea * p.getVy();
+
+		g.addJx(is0, j0, jx * (1 - as) * (1 - c));
+		g.addJx(is1, j0, jx * as * (1 - c));
+		g.addJx(is0, j1, jx * (1 - as) * c);
+		g.addJx(is1, j1, jx * as * c);
+
+		g.addJy(i0, js0, jy * (1 - a) * (1 - cs));
+		g.addJy(i1, js0, jy * a * (1 - cs));
+		g.addJy(i0, js1, jy * (1 - a) * cs);
+		g.addJy(i1, js1, jy * a * cs);
+	}
+
 private void interpolateChargedensity3D(Particle p, Grid g) {
 		
 		/**X index of the grid point that is left from or at the x position of the particle*/
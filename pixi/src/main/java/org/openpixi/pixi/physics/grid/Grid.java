@@ -95,6 +95,10 @@ public class Grid {
 		return cells[index(x)][index(y)][index(z)].getJx();
 	}
 
+	public void setJx(int x, int y, int z, double value) {
+		cells[index(x)][index(y)][index(z)].setJx(value);
+	}
+
 	public void addJx(int x, int y, int z, double value) {
 		cells[index(x)][index(y)][index(z)].addJx(value);
 	}
@@ -111,6 +115,10 @@ public class Grid {
 		return cells[index(x)][index(y)][index(z)].getJy();
 	}
 
+	public void setJy(int x, int y, int z, double value) {
+		cells[index(x)][index(y)][index(z)].setJy(value);
+	}
+
 	public void addJy(int x, int y, int z, double value) {
 		cells[index(x)][index(y)][index(z)].addJy(value);
 	}
@@ -119,6 +127,10 @@ public class Grid {
 		return cells[index(x)][index(y)][index(z)].getJz();
 	}
 
+	public void setJz(int x, int y, int z, double value) {
+		cells[index(x)][index(y)][index(z)].setJz(value);
+	}
+
 	public void addJz(int x, int y, int z, double value) {
 		cells[index(x)][index(y)][index(z)].addJz(value);
 	}
@@ -1,5 +1,6 @@
 package org.openpixi.pixi.physics.grid;
 
+import org.openpixi.pixi.physics.movement.Subcycling;
 import org.openpixi.pixi.physics.particles.Particle;
 
 import java.util.List;
@@ -10,11 +11,24 @@ import java.util.List;
 public abstract class Interpolation {
 
 	protected InterpolatorAlgorithm interpolator;
+	/** Subcycled particles deposit their current with the time step they were pushed with */
+	protected Subcycling subcycling = new Subcycling();
 
 	public Interpolation(InterpolatorAlgorithm interpolator) {
 		this.interpolator = interpolator;
 	}
 
+	public void setSubcycling(Subcycling subcycling) {
+		this.subcycling = subcycling;
+	}
+
+	/**
+	 * Describes how the particles are interpolated (for the log).
+	 */
+	public String getDescription() {
+		return getClass().getSimpleName() + " with " + interpolator.getClass().getSimpleName();
+	}
+
 	public abstract void interpolateToGrid(List<Particle> particles, Grid grid, double tstep);
 
 	public abstract void interpolateToParticle(List<Particle> particles, Grid grid);
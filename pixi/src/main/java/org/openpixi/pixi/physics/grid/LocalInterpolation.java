@@ -54,7 +54,7 @@ public class LocalInterpolation extends Interpolation {
 
 	private class InterpolateToGrid implements ParticleAction {
 		public void execute(Particle particle) {
-			interpolator.interpolateToGrid(particle, grid, timeStep);
+			interpolator.interpolateToGrid(particle, grid, subcycling.getSubcycles(particle) * timeStep);
 		}
 	}
 
@@ -0,0 +1,111 @@
+package org.openpixi.pixi.physics.grid;
+
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.util.SlotArray;
+
+/**
+ * Remembers for every particle the cell index and the fractional offset within the cell
+ * which were computed when the particle's current was deposited. The gather at the
+ * beginning of the next step can then skip the divisions and floors.
+ *
+ * An entry is used by one gather only: the particle is pushed after its gather, so the
+ * entry is dropped when it is read. Nothing moves the particles between the deposit and
+ * the next gather. Particles without a slot (see Particle.getSlot()) are not cached.
+ * invalidateAll() drops all entries at once, e.g. when the slots are assigned anew.
+ */
+public class ShapeFactorCache {
+
+	static final int GENERATION = 0;
+	static final int CELL_X = 1;
+	static final int CELL_Y = 2;
+	static final int CELL_Z = 3;
+	static final int FRACTION_X = 4;
+	static final int FRACTION_Y = 5;
+	static final int FRACTION_Z = 6;
+	private static final int STRIDE = 7;
+
+	private SlotArray entries = new SlotArray(STRIDE, Double.NaN);
+	private volatile int generation;
+	private double cellWidth;
+	private double cellHeight;
+	private double cellDepth;
+
+	/**
+	 * Stores the shape factors of the particle's current position.
+	 */
+	public void store(Particle p, Grid g, int i, int j, int k, double a, double c, double e) {
+		int slot = p.getSlot();
+		if (slot < 0) {
+			return;
+		}
+		if (g.getCellWidth() != cellWidth || g.getCellHeight() != cellHeight
+				|| g.getCellDepth() != cellDepth) {
+			changeGeometry(g);
+		}
+		double[] block = entries.block(slot);
+		int offset = entries.offset(slot);
+		block[offset + CELL_X] = i;
+		block[offset + CELL_Y] = j;
+		block[offset + CELL_Z] = k;
+		block[offset + FRACTION_X] = a;
+		block[offset + FRACTION_Y] = c;
+		block[offset + FRACTION_Z] = e;
+		block[offset + GENERATION] = generation;
+	}
+
+	/**
+	 * Returns the block which holds a valid entry for the particle or null if there is
+	 * none. The entry starts at offset(p) and is dropped from the cache.
+	 */
+	double[] lookup(Particle p, Grid g) {
+		if (g.getCellWidth() != cellWidth || g.getCellHeight() != cellHeight
+				|| g.getCellDepth() != cellDepth) {
+			// The grid was resized since the deposit
+			return null;
+		}
+		int slot = p.getSlot();
+		double[] block = entries.blockOrNull(slot);
+		if (block == null) {
+			return null;
+		}
+		int offset = entries.offset(slot);
+		if (block[offset + GENERATION] != generation) {
+			return null;
+		}
+		block[offset + GENERATION] = Double.NaN;
+		return block;
+	}
+
+	int offset(Particle p) {
+		return entries.offset(p.getSlot());
+	}
+
+	/**
+	 * Drops the entry of a single particle, e.g. after it was moved by hand.
+	 */
+	public void invalidate(Particle p) {
+		double[] block = entries.blockOrNull(p.getSlot());
+		if (block != null) {
+			block[entries.offset(p.getSlot()) + GENERATION] = Double.NaN;
+		}
+	}
+
+	/**
+	 * Drops all the entries.
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+	}
+
+	private synchronized void changeGeometry(Grid g) {
+		if (g.getCellWidth() == cellWidth && g.getCellHeight() == cellHeight
+				&& g.getCellDepth() == cellDepth) {
+			// Another thread was faster
+			return;
+		}
+		cellWidth = g.getCellWidth();
+		cellHeight = g.getCellHeight();
+		cellDepth = g.getCellDepth();
+		generation++;
+	}
+}
@@ -2,10 +2,14 @@ package org.openpixi.pixi.physics.movement;
 
 import org.openpixi.pixi.parallel.particleaccess.ParticleAction;
 import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.RangeAction;
+import org.openpixi.pixi.physics.force.CombinedForce;
 import org.openpixi.pixi.physics.force.Force;
 import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaries;
 import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleBatch;
+import org.openpixi.pixi.physics.solver.BatchSolver;
 import org.openpixi.pixi.physics.solver.Solver;
 import org.openpixi.pixi.physics.grid.Grid;
 
@@ -13,26 +17,55 @@ import java.util.List;
 
 /**
  * Moves and checks the boundary of the particle.
+ *
+ * If the solver implements BatchSolver and can integrate the given force,
+ * the particles are copied into batches and advanced with the batched step.
+ * The batched step only knows the force of the interpolated fields, so push() falls back
+ * to the per-particle step if
+ * - the solver does not implement BatchSolver,
+ * - the force is a CombinedForce with more than one force (e.g. an external field or
+ *   interaction forces besides the grid force),
+ * - the force is another force than the one of BatchSolver.canStep(), or
+ * - a batch contains particles with different subcycles (only this batch falls back).
+ * getPushDescription() tells which way is taken.
+ *
+ * Species with subcycles (see Subcycling) are only pushed every n-th call of push(),
+ * with n times the time step.
+ *
+ * The boundaries are applied to whole ranges of particles (see
+ * ParticleBoundaries.applyOnRange()); absorbed particles are removed at the end of push().
  */
 public class ParticleMover {
 
+	/** Number of particles which are advanced together by a BatchSolver */
+	private static final int BATCH_SIZE = 256;
+
 	/** Solver for the particle equations of motion. */
 	private Solver solver;
 	private ParticleBoundaries boundaries;
 	private ParticleIterator particleIterator;
+	private Subcycling subcycling = new Subcycling();
+	/** Number of calls of push() so far */
+	private int pushCount;
 
 	/* These are set in each iteration to enable the inner classes to read them. */
 	private Force force;
 	private double timeStep;
-	private double boundaryX;
-	private double boundaryY;
-	private double boundaryZ;
+	private List<Particle> particles;
 
 	private Push push = new Push();
-	private Push3D push3D = new Push3D();
+	private BatchPush batchPush = new BatchPush();
 	private Prepare prepare = new Prepare();
 	private Complete complete = new Complete();
 
+	/** Every thread works on its own batch */
+	private ThreadLocal<ParticleBatch> batches = new ThreadLocal<ParticleBatch>() {
+		@Override
+		protected ParticleBatch initialValue() {
+			return new ParticleBatch(BATCH_SIZE);
+		}
+	};
+
 
 	public ParticleBoundaryType getBoundaryType() {
 		return boundaries.getType();
@@ -57,6 +90,11 @@ public class ParticleMover {
 	}
 
 
+	public void setSubcycling(Subcycling subcycling) {
+		this.subcycling = subcycling;
+	}
+
+
 	public void changeBoundaryType(ParticleBoundaryType type) {
 		boundaries.changeType(type);
 	}
@@ -65,14 +103,44 @@ public class ParticleMover {
 	public void push(List<Particle> particles, Force force, Grid g, double timeStep) {
 		this.force = force;
 		this.timeStep = timeStep;
-		this.boundaryX = g.getNumCellsX()*g.getCellWidth();
-		this.boundaryY = g.getNumCellsY()*g.getCellHeight();
-		this.boundaryZ = g.getNumCellsZ()*g.getCellDepth();
-		if(g.getNumCellsZ() == 1) {
-			particleIterator.execute(particles, push);
+		this.particles = particles;
+		if (canStepBatches(force)) {
+			particleIterator.execute(particles.size(), batchPush);
 		} else {
-			particleIterator.execute(particles, push3D);
+			particleIterator.execute(particles.size(), push);
+		}
+		this.particles = null;
+		boundaries.removeAbsorbed(particles);
+		pushCount++;
+	}
+
+
+	/**
+	 * Describes how push() moves the particles under the given force (for the log).
+	 */
+	public String getPushDescription(Force force) {
+		if (canStepBatches(force)) {
+			return "batched " + solver.getClass().getSimpleName();
+		}
+		return solver.getClass().getSimpleName() + " per particle";
+	}
+
+
+	/**
+	 * A combined force which consists of a single force is treated like that force.
+	 */
+	private boolean canStepBatches(Force force) {
+		if (!(solver instanceof BatchSolver)) {
+			return false;
+		}
+		if (force instanceof CombinedForce) {
+			CombinedForce combined = (CombinedForce) force;
+			if (combined.forces.size() != 1) {
+				return false;
+			}
+			force = combined.forces.get(0);
 		}
+		return ((BatchSolver) solver).canStep(force);
 	}
 
 
@@ -90,33 +158,86 @@ public class ParticleMover {
 	}
 
 
-	private class Push implements ParticleAction {
-		public void execute(Particle particle) {
+	private class Push implements RangeAction {
+		public void execute(int from, int to) {
+			if (subcycling.isActive()) {
+				for (int i = from; i < to; i++) {
+					pushSubcycled(i);
+				}
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				Particle particle = particles.get(i);
+				particle.storePosition();
+				solver.step(particle, force, timeStep);
+			}
+			boundaries.applyOnRange(particles, from, to, solver, force, timeStep);
+		}
+
+		/**
+		 * The particles have different time steps, so the boundaries are applied one by one.
+		 */
+		private void pushSubcycled(int i) {
+			Particle particle = particles.get(i);
+			int subcycles = subcycling.getSubcycles(particle);
+			if (pushCount % subcycles != 0) {
+				return;
+			}
 			particle.storePosition();
-			solver.step(particle, force, timeStep);
-			boundaries.applyOnParticleCenter(solver, force, particle, timeStep);
+			solver.step(particle, force, subcycles * timeStep);
+			boundaries.applyOnRange(particles, i, i + 1, solver, force, subcycles * timeStep);
 		}
 	}
-	
-	private class Push3D implements ParticleAction {
-		public void execute(Particle particle) {
-			particle.storePosition();
-			solver.step(particle, force, timeStep);
-			particle.applyPeriodicBoundary(boundaryX, boundaryY, boundaryZ);
+
+
+	/**
+	 * Does the same as Push for a range of particles, BATCH_SIZE particles at a time.
+	 * Batches which contain subcycled particles are pushed one by one.
+	 */
+	private class BatchPush implements RangeAction {
+
+		public void execute(int from, int to) {
+			ParticleBatch batch = batches.get();
+			BatchSolver batchSolver = (BatchSolver) solver;
+			for (int start = from; start < to; start += BATCH_SIZE) {
+				int end = Math.min(to, start + BATCH_SIZE);
+				if (subcycling.isActive() && !isUniform(start, end)) {
+					for (int i = start; i < end; i++) {
+						push.pushSubcycled(i);
+					}
+					continue;
+				}
+				batch.load(particles, start, end, batchSolver.getBatchAttributes());
+				batchSolver.step(batch, timeStep);
+				batch.store(particles, start);
+				boundaries.applyOnRange(particles, start, end, solver, force, timeStep);
+			}
+		}
+
+		/**
+		 * Whether all the particles in the range are pushed in every step.
+		 */
+		private boolean isUniform(int from, int to) {
+			for (int i = from; i < to; i++) {
+				if (subcycling.getSubcycles(particles.get(i)) != 1) {
+					return false;
+				}
+			}
+			return true;
 		}
 	}
 
 
 	private class Prepare implements ParticleAction {
 		public void execute(Particle particle) {
-			solver.prepare(particle, force, timeStep);
+			solver.prepare(particle, force, subcycling.getSubcycles(particle) * timeStep);
 		}
 	}
 
 
 	private class Complete implements ParticleAction {
 		public void execute(Particle particle) {
-			solver.complete(particle, force, timeStep);
+			solver.complete(particle, force, subcycling.getSubcycles(particle) * timeStep);
 		}
 	}
 }
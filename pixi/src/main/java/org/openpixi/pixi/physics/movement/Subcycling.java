@@ -0,0 +1,95 @@
+package org.openpixi.pixi.physics.movement;
+
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.Species;
+import org.openpixi.pixi.physics.particles.SpeciesTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Number of time steps between two pushes of the particles of a species (1 by default).
+ *
+ * A species with n subcycles is pushed only every n-th step, but with n times the time step.
+ * In between, its particles stay at the position of the last push and the current of that
+ * push is deposited with n times the time step in each of the n steps (the current is held).
+ * Summed over the n steps the deposited charge flux equals the one of the long step, so the
+ * deposit stays charge conserving on average.
+ *
+ * The settings hold the subcycles by the constants of the species. Each simulation looks
+ * them up by the index of its SpeciesTable (see forSpecies()).
+ */
+public class Subcycling {
+
+	/** Species with subcycles and their number of subcycles */
+	private List<Species> species = new ArrayList<Species>();
+	private List<Integer> counts = new ArrayList<Integer>();
+	/** Number of subcycles indexed by the species index, empty if not bound to a table */
+	private int[] subcycles = new int[0];
+	private SpeciesTable table;
+	private boolean active;
+
+	public void setSubcycles(Species s, int n) {
+		if (n < 1) {
+			throw new RuntimeException("The number of subcycles has to be at least 1!");
+		}
+		if (table != null) {
+			throw new RuntimeException("The subcycles of a simulation cannot be changed.");
+		}
+		for (int i = 0; i < species.size(); i++) {
+			if (species.get(i).hasSameConstants(s)) {
+				species.remove(i);
+				counts.remove(i);
+				break;
+			}
+		}
+		species.add(s);
+		counts.add(n);
+		active |= n > 1;
+	}
+
+	/**
+	 * Returns a copy which looks the subcycles up by the species index of the table.
+	 * The species with subcycles are registered in the table.
+	 */
+	public Subcycling forSpecies(SpeciesTable table) {
+		Subcycling bound = new Subcycling();
+		bound.species = new ArrayList<Species>(species);
+		bound.counts = new ArrayList<Integer>(counts);
+		bound.active = active;
+		bound.table = table;
+		int[] indices = new int[species.size()];
+		for (int i = 0; i < species.size(); i++) {
+			indices[i] = table.register(species.get(i)).getIndex();
+		}
+		bound.subcycles = new int[table.size()];
+		Arrays.fill(bound.subcycles, 1);
+		for (int i = 0; i < species.size(); i++) {
+			bound.subcycles[indices[i]] = counts.get(i);
+		}
+		return bound;
+	}
+
+	public int getSubcycles(Particle p) {
+		Species s = p.getSpecies();
+		int index = s.getIndex();
+		if (index >= 0 && index < subcycles.length && table.get(index) == s) {
+			return subcycles[index];
+		}
+		// The species is not in the table, e.g. the mass was changed afterwards
+		for (int i = 0; i < species.size(); i++) {
+			if (species.get(i).hasSameConstants(s)) {
+				return counts.get(i);
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Whether any species is pushed less often than every step.
+	 */
+	public boolean isActive() {
+		return active;
+	}
+}
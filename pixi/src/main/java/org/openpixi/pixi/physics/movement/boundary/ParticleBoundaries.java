@@ -1,5 +1,7 @@
 package org.openpixi.pixi.physics.movement.boundary;
 
+import java.util.List;
+
 import org.openpixi.pixi.physics.force.Force;
 import org.openpixi.pixi.physics.particles.Particle;
 import org.openpixi.pixi.physics.solver.Solver;
@@ -31,5 +33,24 @@ public interface ParticleBoundaries {
 	 */
 	void applyOnParticleCenter(Solver solver, Force force, Particle particle, double timeStep);
 
+	/**
+	 * Same as applyOnParticleCenter() for the particles from to to - 1 of the list.
+	 * Can be called for different ranges in parallel.
+	 */
+	void applyOnRange(List<Particle> particles, int from, int to,
+			Solver solver, Force force, double timeStep);
+
+	/**
+	 * Removes the particles which were absorbed by the boundaries since the last call.
+	 * The list must not have changed since applyOnRange(). The order of the remaining
+	 * particles may change. Must not be called in parallel with the other methods.
+	 */
+	void removeAbsorbed(List<Particle> particles);
+
+	/**
+	 * Number of particles removed by the last call of removeAbsorbed().
+	 */
+	int getNumRemoved();
+
 	ParticleBoundaryType getType();
 }
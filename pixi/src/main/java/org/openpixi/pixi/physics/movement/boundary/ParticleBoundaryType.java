@@ -29,6 +29,40 @@ public enum ParticleBoundaryType {
 			return new PeriodicBoundary(xoffset, yoffset);
 		}
 
+		@Override
+		public DoubleBox getParticleBox(Particle p, DoubleBox pbb) {
+			pbb.set(p.getX(), p.getX(), p.getY(), p.getY());
+			return pbb;
+		}
+	},
+
+	/**
+	 * Particles which leave are removed from the simulation.
+	 * Only supported by SimpleParticleBoundaries.
+	 */
+	Absorbing {
+		@Override
+		public ParticleBoundary createBoundary(double xoffset, double yoffset) {
+			throw new RuntimeException("Absorbing boundaries are only supported by SimpleParticleBoundaries.");
+		}
+
+		@Override
+		public DoubleBox getParticleBox(Particle p, DoubleBox pbb) {
+			pbb.set(p.getX(), p.getX(), p.getY(), p.getY());
+			return pbb;
+		}
+	},
+
+	/**
+	 * Absorbing face through which a ParticleInjector brings new particles in.
+	 * Only supported by SimpleParticleBoundaries.
+	 */
+	Injecting {
+		@Override
+		public ParticleBoundary createBoundary(double xoffset, double yoffset) {
+			throw new RuntimeException("Injecting boundaries are only supported by SimpleParticleBoundaries.");
+		}
+
 		@Override
 		public DoubleBox getParticleBox(Particle p, DoubleBox pbb) {
 			pbb.set(p.getX(), p.getX(), p.getY(), p.getY());
@@ -0,0 +1,172 @@
+package org.openpixi.pixi.physics.movement.boundary;
+
+import java.util.List;
+import java.util.Random;
+
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticlePool;
+import org.openpixi.pixi.physics.particles.SpeciesTable;
+
+/**
+ * Injects copies of a template particle through a face of the simulation box at a constant
+ * rate.
+ *
+ * The particles are taken from the particle pool, so that the particles absorbed by the
+ * boundaries are used again. A new particle starts at a random point of the face and is
+ * moved into the box by a random fraction of the distance it travels in one time step, so
+ * that a steady beam is spread evenly instead of arriving in sheets. Fractional numbers of
+ * particles per step are carried over to the next step.
+ *
+ * The injected charge appears without a current, so the charge conserving interpolation
+ * does not see where it came from.
+ */
+public class ParticleInjector {
+
+	private int face;
+	/** Particles per unit of time */
+	private double rate;
+	private Particle template;
+	private Random random;
+
+	private double width;
+	private double height;
+	private double depth;
+	private ParticlePool pool;
+
+	/** Fraction of a particle which is due from previous steps */
+	private double due;
+
+	/**
+	 * @param face one of the faces of SimpleParticleBoundaries
+	 * @param template the velocity has to point into the box
+	 */
+	public ParticleInjector(int face, double rate, Particle template, long seed) {
+		if (face < 0 || face >= SimpleParticleBoundaries.NUM_OF_FACES) {
+			throw new RuntimeException("Invalid face: " + face);
+		}
+		if (rate < 0) {
+			throw new RuntimeException("The injection rate must not be negative.");
+		}
+		if (normalVelocity(face, template) <= 0) {
+			throw new RuntimeException("Injected particles have to move into the simulation area.");
+		}
+		this.face = face;
+		this.rate = rate;
+		this.template = template;
+		this.random = new Random(seed);
+	}
+
+	public int getFace() {
+		return face;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	/**
+	 * @param depth 0 in 2D simulations, then the particles keep the z of the template
+	 */
+	public void initialize(double width, double height, double depth, ParticlePool pool) {
+		if (depth == 0 && face >= SimpleParticleBoundaries.Z_MIN) {
+			throw new RuntimeException("Particles can only be injected in z in 3D simulations.");
+		}
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.pool = pool;
+	}
+
+	/**
+	 * The injected particles share the registered species of the template.
+	 */
+	public void registerSpecies(SpeciesTable table) {
+		table.register(template);
+	}
+
+	/**
+	 * Adds the particles due in this time step to the end of the list.
+	 * @return number of injected particles
+	 */
+	public int inject(List<Particle> particles, double timeStep) {
+		due += rate * timeStep;
+		int count = (int) due;
+		due -= count;
+		double travel = normalVelocity(face, template) * timeStep;
+		for (int n = 0; n < count; n++) {
+			Particle p = pool.acquire();
+			copyTemplate(p);
+
+			double x = random.nextDouble() * width;
+			double y = random.nextDouble() * height;
+			double z = (depth > 0) ? random.nextDouble() * depth : template.getZ();
+			double inside = random.nextDouble() * travel;
+			switch (face) {
+				case SimpleParticleBoundaries.X_MIN:
+					x = inside;
+					break;
+				case SimpleParticleBoundaries.X_MAX:
+					x = width - inside;
+					break;
+				case SimpleParticleBoundaries.Y_MIN:
+					y = inside;
+					break;
+				case SimpleParticleBoundaries.Y_MAX:
+					y = height - inside;
+					break;
+				case SimpleParticleBoundaries.Z_MIN:
+					z = inside;
+					break;
+				default:
+					z = depth - inside;
+			}
+			p.setX(x);
+			p.setY(y);
+			p.setZ(z);
+			p.setPrevX(x);
+			p.setPrevY(y);
+			p.setPrevZ(z);
+			particles.add(p);
+		}
+		return count;
+	}
+
+	/**
+	 * Overwrites everything but the slot and the position.
+	 */
+	private void copyTemplate(Particle p) {
+		p.setSpecies(template.getSpecies());
+		p.setVx(template.getVx());
+		p.setVy(template.getVy());
+		p.setVz(template.getVz());
+		p.setAx(0);
+		p.setAy(0);
+		p.setAz(0);
+		p.setEx(0);
+		p.setEy(0);
+		p.setEz(0);
+		p.setBx(0);
+		p.setBy(0);
+		p.setBz(0);
+	}
+
+	/**
+	 * @return velocity component of the particle pointing into the box through the face
+	 */
+	private static double normalVelocity(int face, Particle p) {
+		switch (face) {
+			case SimpleParticleBoundaries.X_MIN:
+				return p.getVx();
+			case SimpleParticleBoundaries.X_MAX:
+				return -p.getVx();
+			case SimpleParticleBoundaries.Y_MIN:
+				return p.getVy();
+			case SimpleParticleBoundaries.Y_MAX:
+				return -p.getVy();
+			case SimpleParticleBoundaries.Z_MIN:
+				return p.getVz();
+			default:
+				return -p.getVz();
+		}
+	}
+}
@@ -1,27 +1,78 @@
 package org.openpixi.pixi.physics.movement.boundary;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.openpixi.pixi.physics.force.Force;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticlePool;
 import org.openpixi.pixi.physics.solver.Solver;
 import org.openpixi.pixi.physics.util.DoubleBox;
 
 /**
- * Maps the 8 possible boundary regions in 2D to actual boundaries.
+ * Boundaries of a box with a periodic, hardwall, absorbing or injecting boundary on each of
+ * the six faces.
+ *
+ * applyOnRange() first checks all particles of the range with a branch-free test whether
+ * they are inside the box and collects the few which are not in a compacted index list.
+ * Only these are handled face by face:
+ * - periodic: the particle is moved by the size of the box to the opposite side,
+ * - hardwall: the velocity component is turned back into the box (the particle may stay
+ *   outside for a step),
+ * - absorbing and injecting: the particle is removed from the list by the next call of
+ *   removeAbsorbed(). The last particle of the list takes its place, and the removed
+ *   particle is released into the particle pool, if there is one, to be injected again
+ *   (see ParticleInjector).
+ * Simulation resets the collision detector after particles were removed or injected
+ * (see getNumRemoved()), since the indices of its pairs refer to the list.
+ *
+ * Removed and injected particles deposit no current for the step in which they cross the
+ * face. With ChargeConservingCIC the charge of the grid follows from the current, so it
+ * would keep the charge of the removed particles at the face; Simulation therefore only
+ * accepts absorbing and injecting faces in the electrostatic or the implicit mode, where
+ * the charge density is deposited from the particles, or with CloudInCell.
+ *
+ * In 2D there are no faces in z; the z faces only exist if the box has a depth. In 3D
+ * periodic boundaries do not move the previous positions, since the 3D interpolation
+ * accounts for the wrap itself.
  */
 public class SimpleParticleBoundaries implements ParticleBoundaries {
 
-	private BoundaryRegions boundaryRegions;
-	private ParticleBoundary[] regionBoundaryMap =
-			new ParticleBoundary[BoundaryRegions.NUM_OF_REGIONS];
+	public static final int X_MIN = 0;
+	public static final int X_MAX = 1;
+	public static final int Y_MIN = 2;
+	public static final int Y_MAX = 3;
+	public static final int Z_MIN = 4;
+	public static final int Z_MAX = 5;
+	public static final int NUM_OF_FACES = 6;
 
 	private ParticleBoundaryType boundaryType;
-	private DoubleBox simulationArea;
+	private ParticleBoundaryType[] faceTypes = new ParticleBoundaryType[NUM_OF_FACES];
 
-	/**
-	 * Box around the particle which is used to determine
-	 * whether the particle lies outside of the simulation area or not.
-	 */
-	private DoubleBox particleBox = new DoubleBox(0,0,0,0);
+	/* The box, z is unbounded in 2D */
+	private double xmin;
+	private double xmax;
+	private double ymin;
+	private double ymax;
+	private double zmin = Double.NEGATIVE_INFINITY;
+	private double zmax = Double.POSITIVE_INFINITY;
+	/** Whether periodic boundaries also move the previous positions */
+	private boolean shiftPreviousPositions = true;
+
+	/** Indices of the particles which left through an absorbing face */
+	private int[] absorbed = new int[16];
+	private int numAbsorbed;
+	private int numRemoved;
+	/** Receives the removed particles, may be null */
+	private ParticlePool pool;
+
+	/** Indices of the particles of a range which are outside, one list per thread */
+	private ThreadLocal<int[]> escaped = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[64];
+		}
+	};
 
 
 	public ParticleBoundaryType getType() {
@@ -30,44 +81,103 @@ public class SimpleParticleBoundaries implements ParticleBoundaries {
 
 
 	public SimpleParticleBoundaries(DoubleBox simulationArea, ParticleBoundaryType boundaryType) {
-		this.boundaryType = boundaryType;
-		this.simulationArea = simulationArea;
-		boundaryRegions = new BoundaryRegions(simulationArea);
-		createBoundaryMap();
+		xmin = simulationArea.xmin();
+		xmax = simulationArea.xmax();
+		ymin = simulationArea.ymin();
+		ymax = simulationArea.ymax();
+		changeType(boundaryType);
+	}
+
+
+	/**
+	 * Box with faces in z.
+	 */
+	public SimpleParticleBoundaries(DoubleBox simulationArea, double zmin, double zmax,
+			ParticleBoundaryType boundaryType) {
+		this(simulationArea, boundaryType);
+		this.zmin = zmin;
+		this.zmax = zmax;
+		this.shiftPreviousPositions = false;
 	}
 
 
 	/**
 	 * For run-time boundary type switching in interactive version.
+	 * Sets the type of all faces.
 	 */
 	public void changeType(ParticleBoundaryType boundaryType) {
 		this.boundaryType = boundaryType;
-		createBoundaryMap();
+		for (int face = 0; face < NUM_OF_FACES; face++) {
+			faceTypes[face] = boundaryType;
+		}
+	}
+
+
+	public void setFaceType(int face, ParticleBoundaryType type) {
+		faceTypes[face] = type;
 	}
 
 
-	/*
-	 * In 3D case it might be easier to use for cycles for the mapping.
+	public ParticleBoundaryType getFaceType(int face) {
+		return faceTypes[face];
+	}
+
+
+	public void setParticlePool(ParticlePool pool) {
+		this.pool = pool;
+	}
+
+
+	public void applyOnRange(List<Particle> particles, int from, int to,
+			Solver solver, Force force, double timeStep) {
+
+		int[] list = escaped.get();
+		if (list.length < to - from) {
+			list = new int[to - from];
+			escaped.set(list);
+		}
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			Particle p = particles.get(i);
+			double x = p.getX();
+			double y = p.getY();
+			double z = p.getZ();
+			// Non-short-circuit operators: no branches for the particles inside.
+			boolean inside = (x >= xmin) & (x < xmax) & (y >= ymin) & (y < ymax)
+					& (z >= zmin) & (z < zmax);
+			list[count] = i;
+			count += inside ? 0 : 1;
+		}
+		for (int k = 0; k < count; k++) {
+			applyOnEscaped(particles.get(list[k]), list[k], 0, solver, force, timeStep);
+		}
+	}
+
+
+	/**
+	 * Each absorbed particle is replaced by the last particle of the list, so that the cost
+	 * only depends on the number of absorbed particles.
 	 */
-	private void createBoundaryMap() {
-		regionBoundaryMap[BoundaryRegions.X_MIN + BoundaryRegions.Y_MIN] =
-				boundaryType.createBoundary(-simulationArea.xsize(), -simulationArea.ysize());
-		regionBoundaryMap[BoundaryRegions.X_CENTER + BoundaryRegions.Y_MIN] =
-				boundaryType.createBoundary(0, -simulationArea.ysize());
-		regionBoundaryMap[BoundaryRegions.X_MAX + BoundaryRegions.Y_MIN] =
-				boundaryType.createBoundary(simulationArea.xsize(), -simulationArea.ysize());
-		regionBoundaryMap[BoundaryRegions.X_MIN + BoundaryRegions.Y_CENTER] =
-				boundaryType.createBoundary(-simulationArea.xsize(), 0);
-		regionBoundaryMap[BoundaryRegions.X_CENTER + BoundaryRegions.Y_CENTER] =
-				new EmptyBoundary(0, 0);
-		regionBoundaryMap[BoundaryRegions.X_MAX + BoundaryRegions.Y_CENTER] =
-				boundaryType.createBoundary(simulationArea.xsize(), 0);
-		regionBoundaryMap[BoundaryRegions.X_MIN + BoundaryRegions.Y_MAX] =
-				boundaryType.createBoundary(-simulationArea.xsize(), simulationArea.ysize());
-		regionBoundaryMap[BoundaryRegions.X_CENTER + BoundaryRegions.Y_MAX] =
-				boundaryType.createBoundary(0, simulationArea.ysize());
-		regionBoundaryMap[BoundaryRegions.X_MAX + BoundaryRegions.Y_MAX] =
-				boundaryType.createBoundary(simulationArea.xsize(), simulationArea.ysize());
+	public void removeAbsorbed(List<Particle> particles) {
+		// From the back, so that the last particle is never one which is still to be removed.
+		Arrays.sort(absorbed, 0, numAbsorbed);
+		for (int k = numAbsorbed - 1; k >= 0; k--) {
+			int i = absorbed[k];
+			int last = particles.size() - 1;
+			Particle p = particles.get(i);
+			particles.set(i, particles.get(last));
+			particles.remove(last);
+			if (pool != null) {
+				pool.release(p);
+			}
+		}
+		numRemoved = numAbsorbed;
+		numAbsorbed = 0;
+	}
+
+
+	public int getNumRemoved() {
+		return numRemoved;
 	}
 
 
@@ -75,20 +185,119 @@ public class SimpleParticleBoundaries implements ParticleBoundaries {
 			Solver solver, Force force, Particle particle, double timeStep) {
 
 		/*
-		 * Since there can be a large number of particles,
-		 * it is costly to create new bounding box for each particle in each time step;
-		 * thus, we reuse single bounding box.
+		 * The radius only counts at hardwall faces, at the other faces the particle
+		 * leaves with its center.
 		 */
-		boundaryType.getParticleBox(particle, particleBox);
-
-		int region = boundaryRegions.getRegion(particleBox);
-		regionBoundaryMap[region].apply(solver, force, particle, timeStep);
+		double r = particle.getRadius();
+		applyOnEscaped(particle, -1, r, solver, force, timeStep);
 	}
 
 
 	public void applyOnParticleCenter(
 			Solver solver, Force force, Particle particle, double timeStep) {
-		int region = boundaryRegions.getRegion(particle.getX(), particle.getY());
-		regionBoundaryMap[region].apply(solver, force, particle, timeStep);
+		applyOnEscaped(particle, -1, 0, solver, force, timeStep);
+	}
+
+
+	/**
+	 * Applies the boundaries of the faces the particle has crossed.
+	 * @param index index of the particle in the list, -1 if unknown
+	 * @param wallDistance distance from a hardwall face at which the particle is reflected
+	 */
+	private void applyOnEscaped(Particle particle, int index, double wallDistance,
+			Solver solver, Force force, double timeStep) {
+		int faceX = crossedFace(particle.getX(), xmin, xmax, X_MIN, wallDistance);
+		int faceY = crossedFace(particle.getY(), ymin, ymax, Y_MIN, wallDistance);
+		int faceZ = crossedFace(particle.getZ(), zmin, zmax, Z_MIN, wallDistance);
+		if (faceX < 0 && faceY < 0 && faceZ < 0) {
+			return;
+		}
+
+		if (isOpen(faceX) || isOpen(faceY) || isOpen(faceZ)) {
+			if (index < 0) {
+				throw new RuntimeException("Absorbed particles can only be removed after applyOnRange().");
+			}
+			addAbsorbed(index);
+			return;
+		}
+
+		// Since we are modifying the velocity we need to bring it from the half step to whole step.
+		boolean reflect = isType(faceX, ParticleBoundaryType.Hardwall)
+				|| isType(faceY, ParticleBoundaryType.Hardwall)
+				|| isType(faceZ, ParticleBoundaryType.Hardwall);
+		if (reflect) {
+			solver.complete(particle, force, timeStep);
+		}
+
+		if (isType(faceX, ParticleBoundaryType.Hardwall)) {
+			particle.setVx(faceX == X_MIN ? Math.abs(particle.getVx()) : -Math.abs(particle.getVx()));
+		} else if (isType(faceX, ParticleBoundaryType.Periodic)) {
+			double shift = faceX == X_MIN ? xmax - xmin : xmin - xmax;
+			particle.addX(shift);
+			if (shiftPreviousPositions) {
+				particle.addPrevX(shift);
+			}
+		}
+
+		if (isType(faceY, ParticleBoundaryType.Hardwall)) {
+			particle.setVy(faceY == Y_MIN ? Math.abs(particle.getVy()) : -Math.abs(particle.getVy()));
+		} else if (isType(faceY, ParticleBoundaryType.Periodic)) {
+			double shift = faceY == Y_MIN ? ymax - ymin : ymin - ymax;
+			particle.addY(shift);
+			if (shiftPreviousPositions) {
+				particle.addPrevY(shift);
+			}
+		}
+
+		if (isType(faceZ, ParticleBoundaryType.Hardwall)) {
+			particle.setVz(faceZ == Z_MIN ? Math.abs(particle.getVz()) : -Math.abs(particle.getVz()));
+		} else if (isType(faceZ, ParticleBoundaryType.Periodic)) {
+			double shift = faceZ == Z_MIN ? zmax - zmin : zmin - zmax;
+			particle.addZ(shift);
+			if (shiftPreviousPositions) {
+				particle.addPrevZ(shift);
+			}
+		}
+
+		if (reflect) {
+			solver.prepare(particle, force, timeStep);
+		}
+	}
+
+
+	/**
+	 * @return the face (minFace or minFace + 1) which the coordinate has crossed, -1 if none
+	 */
+	private int crossedFace(double coordinate, double min, double max, int minFace,
+			double wallDistance) {
+		double distanceMin = faceTypes[minFace] == ParticleBoundaryType.Hardwall ? wallDistance : 0;
+		double distanceMax = faceTypes[minFace + 1] == ParticleBoundaryType.Hardwall ? wallDistance : 0;
+		if (coordinate - distanceMin < min) {
+			return minFace;
+		} else if (coordinate + distanceMax >= max) {
+			return minFace + 1;
+		}
+		return -1;
+	}
+
+
+	private synchronized void addAbsorbed(int index) {
+		if (numAbsorbed == absorbed.length) {
+			absorbed = Arrays.copyOf(absorbed, 2 * absorbed.length);
+		}
+		absorbed[numAbsorbed++] = index;
+	}
+
+
+	/**
+	 * Whether particles leave the simulation through the face.
+	 */
+	private boolean isOpen(int face) {
+		return isType(face, ParticleBoundaryType.Absorbing) || isType(face, ParticleBoundaryType.Injecting);
+	}
+
+
+	private boolean isType(int face, ParticleBoundaryType type) {
+		return face >= 0 && faceTypes[face] == type;
 	}
 }
@@ -0,0 +1,73 @@
+/*
+ * OpenPixi - Open Particle-In-Cell (PIC) Simulator
+ * Copyright (C) 2012  OpenPixi.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openpixi.pixi.physics.particles;
+
+import java.io.Serializable;
+
+/**
+ * Size of the cells the positions of ParticleMixedPrecision are stored relative to.
+ * One instance is shared by all the particles of a simulation.
+ */
+public class CellGeometry implements Serializable {
+
+	private final double cellWidth;
+	private final double cellHeight;
+	private final double cellDepth;
+
+	/** inverse cell sizes, so that the particles multiply instead of divide */
+	private final double inverseCellWidth;
+	private final double inverseCellHeight;
+	private final double inverseCellDepth;
+
+	public CellGeometry(double cellWidth, double cellHeight, double cellDepth) {
+		if (cellWidth <= 0 || cellHeight <= 0 || cellDepth <= 0) {
+			throw new RuntimeException("The cell sizes have to be positive.");
+		}
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		this.cellDepth = cellDepth;
+		this.inverseCellWidth = 1 / cellWidth;
+		this.inverseCellHeight = 1 / cellHeight;
+		this.inverseCellDepth = 1 / cellDepth;
+	}
+
+	public double getCellWidth() {
+		return cellWidth;
+	}
+
+	public double getCellHeight() {
+		return cellHeight;
+	}
+
+	public double getCellDepth() {
+		return cellDepth;
+	}
+
+	public double getInverseCellWidth() {
+		return inverseCellWidth;
+	}
+
+	public double getInverseCellHeight() {
+		return inverseCellHeight;
+	}
+
+	public double getInverseCellDepth() {
+		return inverseCellDepth;
+	}
+}
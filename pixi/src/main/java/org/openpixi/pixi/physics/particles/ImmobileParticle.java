@@ -1,21 +1,24 @@
 package org.openpixi.pixi.physics.particles;
 
+import java.awt.Color;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 /**
  * A lightweight particle class. It does not move. Perfectly suited for a heavy ion lattice.
  */
 public class ImmobileParticle extends Particle {
-	
+
+	private static final Species DEFAULT_SPECIES = new Species(0, 0, 0, Color.black);
+
 	/** x-coordinate */
 	private double x;
 
 	/** y-coordinate */
 	private double y;
 	
-	/** radius of particle */
-	private double radius;
-	
-	/** electric charge of the particle */
-	private double charge;
+	/** species of the particle, which holds radius and charge */
+	private Species species = DEFAULT_SPECIES;
 	
 	//----------------------------------------------------------------------------------------------
 	// GETTERS
@@ -34,10 +37,13 @@ public class ImmobileParticle extends Particle {
 	public double getPrevY() {return y;}
 	
 	@Override
-	public double getRadius() {return radius;}
+	public double getRadius() {return species.getRadius();}
 	
 	@Override
-	public double getCharge() {return charge;}
+	public double getCharge() {return species.getCharge();}
+
+	@Override
+	public Species getSpecies() {return species;}
 
 	//----------------------------------------------------------------------------------------------
 	// SETTERS
@@ -65,12 +71,17 @@ public class ImmobileParticle extends Particle {
 
 	@Override
 	public void setRadius(double radius) {
-		this.radius = radius;
+		species = new Species(0, species.getCharge(), radius, Color.black);
 	}
 
 	@Override
 	public void setCharge(double charge) {
-		this.charge = charge;
+		species = new Species(0, charge, species.getRadius(), Color.black);
+	}
+
+	@Override
+	public void setSpecies(Species species) {
+		this.species = species;
 	}
 
 	//----------------------------------------------------------------------------------------------
@@ -85,12 +96,20 @@ public class ImmobileParticle extends Particle {
 		Particle p = new ImmobileParticle();
 		p.setX(x);
 		p.setY(y);	
-		p.setRadius(radius);
-		p.setCharge(charge);
+		p.setSpecies(getSpecies());
 		
 		return p;
 	}
 	
+	/**
+	 * The index of the species is only meaningful within the table of the sender, so the
+	 * received particle gets a species which is not registered.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		species = new Species(0, species.getCharge(), species.getRadius(), Color.black);
+	}
+
 	@Override
 	public String toString() {
 		return String.format("[%.3f,%.3f]", x, y);
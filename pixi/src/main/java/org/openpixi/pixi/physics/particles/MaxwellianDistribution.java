@@ -22,6 +22,8 @@ package org.openpixi.pixi.physics.particles;
 import java.util.List;
 import java.util.Random;
 
+import org.openpixi.pixi.physics.util.StreamRandom;
+
 
 public class MaxwellianDistribution {		
 	/** Generates thermal particles that have a maxwellian distribution in 
@@ -30,46 +32,37 @@ public class MaxwellianDistribution {
 	 */
 	public static List<Particle> apply (List<Particle> particles, int startIndex, int endIndex,
 			double thermalVelocityX, double thermalVelocityY, long seed) {
+		return apply(particles, startIndex, endIndex, thermalVelocityX, thermalVelocityY,
+				new StreamRandom(seed, 0));
+	}
+
+	/**
+	 * Each velocity component is the thermal velocity times a standard normal number.
+	 * The normal numbers of the whole range are generated in one batch (Box-Muller).
+	 */
+	public static List<Particle> apply (List<Particle> particles, int startIndex, int endIndex,
+			double thermalVelocityX, double thermalVelocityY, StreamRandom rand) {
 		
-		Random rand = new Random(seed);
-		
-		// Temporary variables used later
-		double rnd1;
-		double rnd2;
-		double rnd3;
-		
-		//0.5 is the mass of the electron that is used later
-		//Factor of 2 comes from the denominator in the exponent of
-		//the Maxwellian distribution.
-		//NOTE: There are no further factors because we are inverting
-		//the cumulative distribution hence the factors cancel
-		
-		/**Velocity normalization in x direction, temperature dependent */
-		double vnormX = Math.sqrt(2) * thermalVelocityX;
-		/**Velocity normalization in x direction, temperature dependent */
-		double vnormY = Math.sqrt(2) * thermalVelocityY;
+		double[] gauss = new double[2 * (endIndex - startIndex)];
+		rand.nextGaussians(gauss, gauss.length);
 		
-		//Generates thermal electrons that are randomly distributed
-		//across the simulation area
-		for (int i = startIndex; i < endIndex; i++) {			
-			do {
-				rnd1 = rand.nextDouble();
-				rnd2 = rand.nextDouble();
-				rnd3 = (rnd1*rnd1 + rnd2*rnd2);
-			} while (rnd3 > 1);
-			
-			rnd3 = Math.sqrt( - Math.log(rnd3) / rnd3 );
-			particles.get(i).setVx( vnormX * rnd1 * rnd3 );
-			particles.get(i).setVy( vnormY * rnd2 * rnd3 );
-		}			
+		for (int i = startIndex; i < endIndex; i++) {
+			int k = 2 * (i - startIndex);
+			particles.get(i).setVx( thermalVelocityX * gauss[k] );
+			particles.get(i).setVy( thermalVelocityY * gauss[k + 1] );
+		}
 			
 		return particles;
 	}
 	
 	public static List<Particle> applyWithCutoff (List<Particle> particles, int startIndex, int endIndex,
 			double thermalVelocityX, double thermalVelocityY, double cutoffVelocity,  long seed) {
-		
-		Random rand = new Random(seed);
+		return applyWithCutoff(particles, startIndex, endIndex, thermalVelocityX, thermalVelocityY,
+				cutoffVelocity, new Random(seed));
+	}
+
+	public static List<Particle> applyWithCutoff (List<Particle> particles, int startIndex, int endIndex,
+			double thermalVelocityX, double thermalVelocityY, double cutoffVelocity, Random rand) {
 		
 		// Temporary variables used later
 		double rnd1;
@@ -23,6 +23,17 @@ import java.io.Serializable;
 
 public abstract class Particle implements Serializable {
 
+	/** Slot of a particle which is not part of a simulation */
+	public static final int NO_SLOT = -1;
+
+	/**
+	 * Index of the particle's entries in per-particle side storage (see SlotArray).
+	 * Unlike the position in the particle list the slot does not change
+	 * while the particle is part of the simulation. The simulation assigns the slots,
+	 * until then it is NO_SLOT.
+	 */
+	private int slot = NO_SLOT;
+
 	//----------------------------------------------------------------------------------------------
 	// GETTERS
 	//----------------------------------------------------------------------------------------------
@@ -70,32 +81,14 @@ public abstract class Particle implements Serializable {
 	public double getBy() {return 0;}
 	
 	public double getBz() {return 0;}
-	
-	public double getPrevBx() {return 0;}
-	
-	public double getPrevBy() {return 0;}
-	
-	public double getPrevBz() {return 0;}
-	
-	public double getPrevPositionComponentForceX() {return 0;}
-	
-	public double getPrevPositionComponentForceY() {return 0;}
-	
-	public double getPrevPositionComponentForceZ() {return 0;}
-	
-	public double getPrevTangentVelocityComponentOfForceX() {return 0;}
-	
-	public double getPrevTangentVelocityComponentOfForceY() {return 0;}
-	
-	public double getPrevTangentVelocityComponentOfForceZ() {return 0;}
-	
-	public double getPrevNormalVelocityComponentOfForceX() {return 0;}
-	
-	public double getPrevNormalVelocityComponentOfForceY() {return 0;}
-	
-	public double getPrevNormalVelocityComponentOfForceZ() {return 0;}
-	
-	public double getPrevLinearDragCoefficient() {return 0;}
+
+	public int getSlot() {return slot;}
+
+	/**
+	 * Shared constants of the particle. Particle classes which keep mass, charge, radius
+	 * and color themselves get a species that is not registered in the SpeciesTable.
+	 */
+	public Species getSpecies() {return new Species(getMass(), getCharge(), getRadius(), getColor());}
 
 	//----------------------------------------------------------------------------------------------
 	// SETTERS
@@ -156,32 +149,10 @@ public abstract class Particle implements Serializable {
 	public void setBy(double By) {}
 
 	public void setBz(double Bz) {}
-	
-	public void setPrevBx(double prevBx) {}
-	
-	public void setPrevBy(double prevBy) {}
-	
-	public void setPrevBz(double prevBz) {}
-
-	public void setPrevPositionComponentForceX(double argument) {}
 
-	public void setPrevPositionComponentForceY(double argument) {}
-	
-	public void setPrevPositionComponentForceZ(double argument) {}
-
-	public void setPrevTangentVelocityComponentOfForceX(double argument) {}
-
-	public void setPrevTangentVelocityComponentOfForceY(double argument) {}
-	
-	public void setPrevTangentVelocityComponentOfForceZ(double argument) {}
-
-	public void setPrevNormalVelocityComponentOfForceX(double argument) {}
-
-	public void setPrevNormalVelocityComponentOfForceY(double argument) {}
-	
-	public void setPrevNormalVelocityComponentOfForceZ(double argument) {}
+	public void setSlot(int slot) {this.slot = slot;}
 
-	public void setPrevLinearDragCoefficient(double argument) {}
+	public void setSpecies(Species species) {}
 
 	//----------------------------------------------------------------------------------------------
 	// UTILITY METHODS
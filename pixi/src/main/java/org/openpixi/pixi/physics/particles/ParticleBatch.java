@@ -0,0 +1,177 @@
+package org.openpixi.pixi.physics.particles;
+
+import java.util.List;
+
+/**
+ * Copy of a contiguous range of particles in primitive arrays (one array per attribute).
+ *
+ * Solvers which implement BatchSolver work directly on these arrays. Their loops do not
+ * call any virtual methods, so the JIT can unroll and vectorize them. The batch is loaded
+ * from the particles before the step and stored back afterwards.
+ *
+ * Only the attributes the solver asks for are copied: x, y, vx, vy, ex, ey and bz always,
+ * the others depending on Z, FIELDS_3D and ACCELERATION. The constants of the species stay
+ * in the batch from one step to the next, as long as the same particle with the same
+ * species is loaded into the same place.
+ */
+public class ParticleBatch {
+
+	/** z and vz are loaded and stored */
+	public static final int Z = 1;
+	/** ez, bx and by are loaded */
+	public static final int FIELDS_3D = 2;
+	/** ax, ay and az are loaded and stored */
+	public static final int ACCELERATION = 4;
+
+	public final double[] x;
+	public final double[] y;
+	public final double[] z;
+
+	public final double[] vx;
+	public final double[] vy;
+	public final double[] vz;
+
+	public final double[] ax;
+	public final double[] ay;
+	public final double[] az;
+
+	public final double[] ex;
+	public final double[] ey;
+	public final double[] ez;
+	public final double[] bx;
+	public final double[] by;
+	public final double[] bz;
+
+	public final double[] charge;
+	public final double[] inverseMass;
+	public final double[] chargeOverMass;
+
+	/** Slots of the particles, see Particle.getSlot() */
+	public final int[] slot;
+
+	/** Particles and species the constants were loaded from */
+	private final Particle[] particle;
+	private final Species[] species;
+
+	/** Number of particles currently held by the batch */
+	private int size;
+	/** Attributes which were loaded (see load()) */
+	private int attributes;
+
+	public ParticleBatch(int capacity) {
+		x = new double[capacity];
+		y = new double[capacity];
+		z = new double[capacity];
+		vx = new double[capacity];
+		vy = new double[capacity];
+		vz = new double[capacity];
+		ax = new double[capacity];
+		ay = new double[capacity];
+		az = new double[capacity];
+		ex = new double[capacity];
+		ey = new double[capacity];
+		ez = new double[capacity];
+		bx = new double[capacity];
+		by = new double[capacity];
+		bz = new double[capacity];
+		charge = new double[capacity];
+		inverseMass = new double[capacity];
+		chargeOverMass = new double[capacity];
+		slot = new int[capacity];
+		particle = new Particle[capacity];
+		species = new Species[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return x.length;
+	}
+
+	/**
+	 * Copies the particles with the indices from (inclusive) to to (exclusive) into the batch.
+	 * @param attributes the optional attributes the solver needs (see BatchSolver.getBatchAttributes())
+	 */
+	public void load(List<Particle> particles, int from, int to, int attributes) {
+		if (to - from > capacity()) {
+			throw new IllegalArgumentException("Batch can hold at most " + capacity() + " particles!");
+		}
+		size = to - from;
+		this.attributes = attributes;
+		for (int i = 0; i < size; i++) {
+			Particle p = particles.get(from + i);
+			x[i] = p.getX();
+			y[i] = p.getY();
+			vx[i] = p.getVx();
+			vy[i] = p.getVy();
+			ex[i] = p.getEx();
+			ey[i] = p.getEy();
+			bz[i] = p.getBz();
+			slot[i] = p.getSlot();
+			Species s = p.getSpecies();
+			if (particle[i] != p || species[i] != s) {
+				particle[i] = p;
+				species[i] = s;
+				charge[i] = s.getCharge();
+				inverseMass[i] = s.getInverseMass();
+				chargeOverMass[i] = s.getChargeOverMass();
+			}
+		}
+		if ((attributes & Z) != 0) {
+			for (int i = 0; i < size; i++) {
+				Particle p = particles.get(from + i);
+				z[i] = p.getZ();
+				vz[i] = p.getVz();
+			}
+		}
+		if ((attributes & FIELDS_3D) != 0) {
+			for (int i = 0; i < size; i++) {
+				Particle p = particles.get(from + i);
+				ez[i] = p.getEz();
+				bx[i] = p.getBx();
+				by[i] = p.getBy();
+			}
+		}
+		if ((attributes & ACCELERATION) != 0) {
+			for (int i = 0; i < size; i++) {
+				Particle p = particles.get(from + i);
+				ax[i] = p.getAx();
+				ay[i] = p.getAy();
+				az[i] = p.getAz();
+			}
+		}
+	}
+
+	/**
+	 * Writes positions, velocities and (if requested) accelerations back to the particles the
+	 * batch was loaded from. The fields, charges and masses are not touched by the solvers.
+	 * The position before the step becomes the previous position (see Particle.storePosition()).
+	 */
+	public void store(List<Particle> particles, int from) {
+		for (int i = 0; i < size; i++) {
+			Particle p = particles.get(from + i);
+			p.storePosition();
+			p.setX(x[i]);
+			p.setY(y[i]);
+			p.setVx(vx[i]);
+			p.setVy(vy[i]);
+		}
+		if ((attributes & Z) != 0) {
+			for (int i = 0; i < size; i++) {
+				Particle p = particles.get(from + i);
+				p.setZ(z[i]);
+				p.setVz(vz[i]);
+			}
+		}
+		if ((attributes & ACCELERATION) != 0) {
+			for (int i = 0; i < size; i++) {
+				Particle p = particles.get(from + i);
+				p.setAx(ax[i]);
+				p.setAy(ay[i]);
+				p.setAz(az[i]);
+			}
+		}
+	}
+}
@@ -165,9 +165,7 @@ public class ParticleFactory {
 			p.setRadius(radius);
 		} else {
 			p = new ParticleFull();
-			p.setMass(mass);
-			p.setCharge(charge);
-			p.setRadius(radius);
+			p.setSpecies(new Species(mass, charge, radius, null));
 		}
 		
 		return p;
@@ -20,6 +20,8 @@ package org.openpixi.pixi.physics.particles;
 
 
 import java.awt.Color;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 
@@ -34,11 +36,8 @@ public class ParticleFull extends Particle {
 	/** z-coordinate */
 	private double z;
 
-	/** radius of particle */
-	private double radius;
-
-	/** color of particle (for display only) */
-	private Color color;
+	/** species of the particle, which holds mass, charge, radius and color */
+	private Species species = Species.DEFAULT;
 
 	/** velocity in x-direction */
 	private double vx;
@@ -58,12 +57,6 @@ public class ParticleFull extends Particle {
 	/** acceleration in z-direction */
 	private double az;
 
-	/** mass of the particle */
-	private double mass;
-
-	/** electric charge of the particle */
-	private double charge;
-
 	/**previous x position of particle*/
 	private double prevX;
 	/**previous y position of particle*/
@@ -78,45 +71,6 @@ public class ParticleFull extends Particle {
 	private double Bx;
 	private double By;
 	private double Bz;
-	
-	/**previous position component of the force in x - direction used in Boris & BorisDamped*/
-	private double prevpositionComponentForceX;
-	
-	/**previous position component of the force in y - direction used in Boris & BorisDamped*/
-	private double prevpositionComponentForceY;
-	
-	/**previous position component of the force in z - direction used in Boris & BorisDamped*/
-	private double prevpositionComponentForceZ;
-
-	/**previous tangent velocity component of the force in x - direction used in Boris*/
-	private double prevtangentVelocityComponentOfForceX;
-
-	/**previous tangent velocity component of the force in y - direction used in Boris*/
-	private double prevtangentVelocityComponentOfForceY;
-	
-	/**previous tangent velocity component of the force in z - direction used in Boris*/
-	private double prevtangentVelocityComponentOfForceZ;
-	
-	/**previous normal velocity component of the force in x - direction used in LeapFrogDamped*/
-	private double prevnormalVelocityComponentOfForceX;
-
-	/**previous normal velocity component of the force in y - direction used in LeapFrogDamped*/
-	private double prevnormalVelocityComponentOfForceY;
-	
-	/**previous normal velocity component of the force in z - direction used in LeapFrogDamped*/
-	private double prevnormalVelocityComponentOfForceZ;
-	
-	/**previous magnetic field in x - direction used in Boris & BorisDamped*/
-	private double prevBx;
-	
-	/**previous magnetic field in y - direction used in Boris & BorisDamped*/
-	private double prevBy;
-
-	/**previous magnetic field in z - direction used in Boris & BorisDamped*/
-	private double prevBz;
-	
-	/**previous linear drag coefficient used in BorisDamped*/
-	private double prevLinearDragCoefficient;
 
 	public double getX() {
 		return x;
@@ -154,20 +108,28 @@ public class ParticleFull extends Particle {
 		this.z += z;
 	}
 
+	public Species getSpecies() {
+		return species;
+	}
+
+	public void setSpecies(Species species) {
+		this.species = species;
+	}
+
 	public double getRadius() {
-		return radius;
+		return species.getRadius();
 	}
 
 	public void setRadius(double radius) {
-		this.radius = radius;
+		species = new Species(species.getMass(), species.getCharge(), radius, species.getColor());
 	}
 
 	public Color getColor() {
-		return this.color;
+		return species.getColor();
 	}
 
 	public void setColor(Color color) {
-		this.color = color;
+		species = new Species(species.getMass(), species.getCharge(), species.getRadius(), color);
 	}
 
 	public double getVx() {
@@ -219,19 +181,19 @@ public class ParticleFull extends Particle {
 	}
 
 	public double getMass() {
-		return mass;
+		return species.getMass();
 	}
 
 	public void setMass(double mass) {
-		this.mass = mass;
+		species = new Species(mass, species.getCharge(), species.getRadius(), species.getColor());
 	}
 
 	public double getCharge() {
-		return charge;
+		return species.getCharge();
 	}
 
 	public void setCharge(double charge) {
-		this.charge = charge;
+		species = new Species(species.getMass(), charge, species.getRadius(), species.getColor());
 	}
 
 	public double getPrevX() {
@@ -318,111 +280,6 @@ public class ParticleFull extends Particle {
 		this.Bz = Bz;
 	}
 
-	public double getPrevPositionComponentForceX() {
-		return prevpositionComponentForceX;
-	}
-
-	public void setPrevPositionComponentForceX(double prevpositionComponentForceX) {
-		this.prevpositionComponentForceX = prevpositionComponentForceX;
-	}
-	
-	public double getPrevPositionComponentForceY() {
-		return prevpositionComponentForceY;
-	}
-
-	public void setPrevPositionComponentForceY(double prevpositionComponentForceY) {
-		this.prevpositionComponentForceY = prevpositionComponentForceY;
-	}
-
-	public double getPrevPositionComponentForceZ() {
-		return prevpositionComponentForceZ;
-	}
-
-	public void setPrevPositionComponentForceZ(double prevpositionComponentForceZ) {
-		this.prevpositionComponentForceZ = prevpositionComponentForceZ;
-	}
-	
-	public double getPrevTangentVelocityComponentOfForceX() {
-		return prevtangentVelocityComponentOfForceX;
-	}
-
-	public void setPrevTangentVelocityComponentOfForceX(double prevtangentVelocityComponentOfForceX) {
-		this.prevtangentVelocityComponentOfForceX = prevtangentVelocityComponentOfForceX;
-	}
-
-	public double getPrevTangentVelocityComponentOfForceY() {
-		return prevtangentVelocityComponentOfForceY;
-	}
-
-	public void setPrevTangentVelocityComponentOfForceY(double prevtangentVelocityComponentOfForceY) {
-		this.prevtangentVelocityComponentOfForceY = prevtangentVelocityComponentOfForceY;
-	}
-	
-	public double getPrevTangentVelocityComponentOfForceZ() {
-		return prevtangentVelocityComponentOfForceZ;
-	}
-
-	public void setPrevTangentVelocityComponentOfForceZ(double prevtangentVelocityComponentOfForceZ) {
-		this.prevtangentVelocityComponentOfForceZ = prevtangentVelocityComponentOfForceZ;
-	}
-	
-	public double getPrevNormalVelocityComponentOfForceX() {
-		return prevnormalVelocityComponentOfForceX;
-	}
-
-	public void setPrevNormalVelocityComponentOfForceX(double prevnormalVelocityComponentOfForceX) {
-		this.prevnormalVelocityComponentOfForceX = prevnormalVelocityComponentOfForceX;
-	}
-
-	public double getPrevNormalVelocityComponentOfForceY() {
-		return prevnormalVelocityComponentOfForceY;
-	}
-
-	public void setPrevNormalVelocityComponentOfForceY(double prevnormalVelocityComponentOfForceY) {
-		this.prevnormalVelocityComponentOfForceY = prevnormalVelocityComponentOfForceY;
-	}
-	
-	public double getPrevNormalVelocityComponentOfForceZ() {
-		return prevnormalVelocityComponentOfForceZ;
-	}
-
-	public void setPrevNormalVelocityComponentOfForceZ(double prevnormalVelocityComponentOfForceZ) {
-		this.prevnormalVelocityComponentOfForceZ = prevnormalVelocityComponentOfForceZ;
-	}
-	
-	public double getPrevBz() {
-		return prevBz;
-	}
-
-	public void setPrevBz(double prevBz) {
-		this.prevBz = prevBz;
-	}
-	
-	public double getPrevBx() {
-		return prevBx;
-	}
-
-	public void setPrevBx(double prevBx) {
-		this.prevBx = prevBx;
-	}
-	
-	public double getPrevBy() {
-		return prevBy;
-	}
-
-	public void setPrevBy(double prevBy) {
-		this.prevBy = prevBy;
-	}
-	
-	public double getPrevLinearDragCoefficient() {
-		return prevLinearDragCoefficient;
-	}
-
-	public void setPrevLinearDragCoefficient(double prevLinearDragCoefficient) {
-		this.prevLinearDragCoefficient = prevLinearDragCoefficient;
-	}
-
-
 	/** Empty constructor */
 	public ParticleFull() {
 	}
@@ -433,16 +290,13 @@ public class ParticleFull extends Particle {
 		p.setX(x);
 		p.setY(y);
 		p.setZ(z);
-		p.setRadius(radius);
-		p.setColor(color);
+		p.setSpecies(getSpecies());
 		p.setVx(vx);
 		p.setVy(vy);
 		p.setVz(vz);
 		p.setAx(ax);
 		p.setAy(ay);
 		p.setAz(az);
-		p.setMass(mass);
-		p.setCharge(charge);
 		p.setPrevX(prevX);
 		p.setPrevY(prevY);
 		p.setPrevZ(prevZ);
@@ -452,20 +306,19 @@ public class ParticleFull extends Particle {
 		p.setBx(Bx);
 		p.setBy(By);
 		p.setBz(Bz);
-		p.setPrevPositionComponentForceX(prevpositionComponentForceX);
-		p.setPrevPositionComponentForceY(prevpositionComponentForceY);
-		p.setPrevPositionComponentForceY(prevpositionComponentForceZ);
-		p.setPrevTangentVelocityComponentOfForceX(prevtangentVelocityComponentOfForceX);
-		p.setPrevTangentVelocityComponentOfForceY(prevtangentVelocityComponentOfForceY);
-		p.setPrevTangentVelocityComponentOfForceY(prevtangentVelocityComponentOfForceZ);
-		p.setPrevBz(prevBx);
-		p.setPrevBz(prevBy);
-		p.setPrevBz(prevBz);
-		p.setPrevLinearDragCoefficient(prevLinearDragCoefficient);
 		
 		return p;
 	}
 
+	/**
+	 * The index of the species is only meaningful within the table of the sender, so the
+	 * received particle gets a species which is not registered.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		species = new Species(species.getMass(), species.getCharge(), species.getRadius(),
+				species.getColor());
+	}
 
 	public void storePosition() {
 		prevX = x;
@@ -479,7 +332,6 @@ public class ParticleFull extends Particle {
 		z = (z + boundaryZ) % boundaryZ;
 	}
 
-
 	@Override
 	public String toString() {
 		return String.format("[%.3f,%.3f]", x, y, z);
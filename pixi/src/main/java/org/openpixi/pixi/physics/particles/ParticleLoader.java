@@ -22,34 +22,143 @@ package org.openpixi.pixi.physics.particles;
 import java.util.List;
 import java.util.ArrayList;
 
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.RangeAction;
+import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
+import org.openpixi.pixi.physics.util.StreamRandom;
+
 /**
  * Iterates through the particle factories creating the appropriate amount of particles of
  * a specify type. Then modifies the positions and velocities of these particle groups according
  * to the specified position and velocity distributions. 
+ *
+ * The particles of a factory are split into chunks of CHUNK_SIZE particles. Each chunk draws
+ * its random numbers from its own StreamRandom, derived from the seed of the factory and the
+ * index of the chunk. The chunks are distributed over the threads of the particle iterator,
+ * and the result does not depend on the number of threads.
  */
 public class ParticleLoader {
+
+	/** Number of consecutive particles which share one random stream */
+	public static final int CHUNK_SIZE = 4096;
+
+	private ParticleIterator particleIterator;
+
+	public ParticleLoader() {
+		this(new SequentialParticleIterator());
+	}
+
+	public ParticleLoader(ParticleIterator particleIterator) {
+		this.particleIterator = particleIterator;
+	}
 	
 	public List<Particle> load(List<ParticleFactory> particleFactories, double simulationWidth,
 			double simulationHeight, int numCellsX, int numCellsY) throws IllegalArgumentException {
 		
-		 List<Particle> particles = new ArrayList<Particle>();
+		 List<Particle> particles = createParticles(particleFactories);
 		 /** Starting index of a block of similar particles in the particle list */
 		 int index = 0;
 		 
 		 for(ParticleFactory f : particleFactories) {
-			 for(int i = 0; i < f.getNumberOfInstances(); i++) {
-				 particles.add(f.createParticle());				 
+			 if (f.getPositionDistribution() == ParticleFactory.PositionDistribution.CONSTANT_SPACING) {
+				 // Not random, but depends on the whole range of the factory.
+				 ConstantSpacingDistribution.apply(particles, index, index + f.getNumberOfInstances(),
+						 0, simulationWidth, 0, simulationHeight);
 			 }
-			 
+			 particleIterator.execute(numberOfChunks(f),
+					 new Chunks2D(particles, f, index, simulationWidth, simulationHeight));
+			 index += f.getNumberOfInstances();
+		 }
+		 
+		 return particles;
+	}
+	
+	public List<Particle> load(List<ParticleFactory> particleFactories, double simulationWidth,
+			double simulationHeight, double simulationDepth) throws IllegalArgumentException {
+		
+		 List<Particle> particles = createParticles(particleFactories);
+		 /** Starting index of a block of similar particles in the particle list */
+		 int index = 0;
+		 
+		 for(ParticleFactory f : particleFactories) {
+			 particleIterator.execute(numberOfChunks(f),
+					 new Chunks3D(particles, f, index, simulationWidth, simulationHeight, simulationDepth));
+			 index += f.getNumberOfInstances();
+		 }
+		 
+		 return particles;
+	}
+
+	private List<Particle> createParticles(List<ParticleFactory> particleFactories) {
+		int total = 0;
+		for (ParticleFactory f : particleFactories) {
+			total += f.getNumberOfInstances();
+		}
+		List<Particle> particles = new ArrayList<Particle>(total);
+		for (ParticleFactory f : particleFactories) {
+			for (int i = 0; i < f.getNumberOfInstances(); i++) {
+				particles.add(f.createParticle());
+			}
+		}
+		return particles;
+	}
+
+	private static int numberOfChunks(ParticleFactory f) {
+		return (f.getNumberOfInstances() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	/**
+	 * Applies the distributions of one factory to a range of its chunks.
+	 */
+	private abstract static class Chunks implements RangeAction {
+
+		protected final List<Particle> particles;
+		protected final ParticleFactory f;
+		/** Index of the first particle of the factory */
+		private final int index;
+
+		Chunks(List<Particle> particles, ParticleFactory f, int index) {
+			this.particles = particles;
+			this.f = f;
+			this.index = index;
+		}
+
+		public void execute(int fromChunk, int toChunk) {
+			int end = index + f.getNumberOfInstances();
+			for (int chunk = fromChunk; chunk < toChunk; chunk++) {
+				int start = index + chunk * CHUNK_SIZE;
+				apply(start, Math.min(end, start + CHUNK_SIZE),
+						new StreamRandom(f.getSeedForRandom1(), chunk),
+						new StreamRandom(f.getSeedForRandom2(), chunk));
+			}
+		}
+
+		protected abstract void apply(int start, int end,
+				StreamRandom positionRandom, StreamRandom velocityRandom);
+	}
+
+	private static class Chunks2D extends Chunks {
+
+		private final double simulationWidth;
+		private final double simulationHeight;
+
+		Chunks2D(List<Particle> particles, ParticleFactory f, int index,
+				double simulationWidth, double simulationHeight) {
+			super(particles, f, index);
+			this.simulationWidth = simulationWidth;
+			this.simulationHeight = simulationHeight;
+		}
+
+		protected void apply(int start, int end,
+				StreamRandom positionRandom, StreamRandom velocityRandom) {
 			 switch(f.getPositionDistribution()) {
 				case RANDOM: {
-			 		RandomPositionDistribution.apply(particles, index, index + f.getNumberOfInstances(), 
-			 				0, simulationHeight, 0, simulationWidth, f.getSeedForRandom1());
+			 		RandomPositionDistribution.apply(particles, start, end, 
+			 				0, simulationHeight, 0, simulationWidth, positionRandom);
 			 		break;
 			 	}
 			 	case CONSTANT_SPACING: {
-			 		ConstantSpacingDistribution.apply(particles, index, index + f.getNumberOfInstances(),
-			 				0, simulationWidth, 0, simulationHeight);
+			 		// Applied to the whole range of the factory in load().
 			 		break;
 			 	}
 				default: {
@@ -64,60 +173,58 @@ public class ParticleLoader {
 			 		break;
 			 	}
 			 	case CONSTANT: {
-			 		ConstantVelocityDistribution.apply(particles, index, index + f.getNumberOfInstances(), 
+			 		ConstantVelocityDistribution.apply(particles, start, end, 
 			 				f.getVelocityParameter1(), f.getVelocityParameter2());
 			 		break;
 			 	}
 			 	case RANDOM: {
-			 		RandomVelocityDistribution.apply(particles, index, index + f.getNumberOfInstances(), 
+			 		RandomVelocityDistribution.apply(particles, start, end, 
 			 				f.getVelocityParameter1(), f.getVelocityParameter2(), f.getVelocityParameter3(), 
-			 				f.getSeedForRandom2());
+			 				velocityRandom);
+			 		break;
 			 	}
 			 	case MAXWELLIAN: {
-			 		MaxwellianDistribution.apply(particles, index, index + f.getNumberOfInstances(),
-			 				f.getVelocityParameter1(), f.getVelocityParameter2(), f.getSeedForRandom2());
+			 		MaxwellianDistribution.apply(particles, start, end,
+			 				f.getVelocityParameter1(), f.getVelocityParameter2(), velocityRandom);
 			 		break;
 			 	}
 			 	case MAXWELLIAN_WITH_CUTOFF: {
-			 		MaxwellianDistribution.applyWithCutoff(particles, index, 
-			 				index + f.getNumberOfInstances(), f.getVelocityParameter1(), 
-			 				f.getVelocityParameter2(), f.getVelocityParameter3(), f.getSeedForRandom2());
+			 		MaxwellianDistribution.applyWithCutoff(particles, start, end,
+			 				f.getVelocityParameter1(), f.getVelocityParameter2(),
+			 				f.getVelocityParameter3(), velocityRandom);
 			 		break;
 			 	}
 				default: {
 					throw new IllegalArgumentException("Can't yet handle " + f.getVelocityDistribution());
 				}
 			 }
-			 
-			 index += f.getNumberOfInstances();
-			 f = null;
-		 }
-		 
-		 return particles;
+		}
 	}
-	
-	public List<Particle> load(List<ParticleFactory> particleFactories, double simulationWidth,
-			double simulationHeight, double simulationDepth) throws IllegalArgumentException {
-		
-		 List<Particle> particles = new ArrayList<Particle>();
-		 /** Starting index of a block of similar particles in the particle list */
-		 int index = 0;
-		 
-		 for(ParticleFactory f : particleFactories) {
-			 for(int i = 0; i < f.getNumberOfInstances(); i++) {
-				 particles.add(f.createParticle());				 
-			 }
-			 
+
+	private static class Chunks3D extends Chunks {
+
+		private final double simulationWidth;
+		private final double simulationHeight;
+		private final double simulationDepth;
+
+		Chunks3D(List<Particle> particles, ParticleFactory f, int index,
+				double simulationWidth, double simulationHeight, double simulationDepth) {
+			super(particles, f, index);
+			this.simulationWidth = simulationWidth;
+			this.simulationHeight = simulationHeight;
+			this.simulationDepth = simulationDepth;
+		}
+
+		protected void apply(int start, int end,
+				StreamRandom positionRandom, StreamRandom velocityRandom) {
 			 switch(f.getPositionDistribution()) {
 				case RANDOM: {
-			 		RandomPositionDistribution.apply(particles, index, index + f.getNumberOfInstances(), 
-			 				0, simulationHeight, 0, simulationWidth, 0, simulationDepth, f.getSeedForRandom1());
+			 		RandomPositionDistribution.apply(particles, start, end, 
+			 				0, simulationHeight, 0, simulationWidth, 0, simulationDepth, positionRandom);
 			 		break;
 			 	}
 			 	case CONSTANT_SPACING: {
-			 		/*ConstantSpacingDistribution.apply(particles, index, index + f.getNumberOfInstances(),
-			 				0, simulationWidth, 0, simulationHeight);
-			 				*/
+			 		// Not implemented in three dimensions.
 			 		break;
 			 	}
 				default: {
@@ -131,41 +238,22 @@ public class ParticleLoader {
 			 		// If the particle has a velocity variable this SHOULD NOT BE USED!
 			 		break;
 			 	}
-			 	case CONSTANT: {
-			 		/*ConstantVelocityDistribution.apply(particles, index, index + f.getNumberOfInstances(), 
-			 				f.getVelocityParameter1(), f.getVelocityParameter2());
-			 				*/
-			 		break;
-			 	}
 			 	case RANDOM: {
-			 		RandomVelocityDistribution.apply(particles, index, index + f.getNumberOfInstances(), 
-			 				f.getVelocityParameter1(), f.getVelocityParameter2(), f.getVelocityParameter3(), f.getVelocityWidth(),
-			 				f.getSeedForRandom2());
-			 	}
-			 	case MAXWELLIAN: {
-			 		/*MaxwellianDistribution.apply(particles, index, index + f.getNumberOfInstances(),
-			 				f.getVelocityParameter1(), f.getVelocityParameter2(), f.getSeedForRandom2());
-			 				*/
+			 		RandomVelocityDistribution.apply(particles, start, end, 
+			 				f.getVelocityParameter1(), f.getVelocityParameter2(), f.getVelocityParameter3(),
+			 				f.getVelocityWidth(), velocityRandom);
 			 		break;
 			 	}
+			 	case CONSTANT:
+			 	case MAXWELLIAN:
 			 	case MAXWELLIAN_WITH_CUTOFF: {
-			 		/*MaxwellianDistribution.applyWithCutoff(particles, index, 
-			 				index + f.getNumberOfInstances(), f.getVelocityParameter1(), 
-			 				f.getVelocityParameter2(), f.getVelocityParameter3(), f.getSeedForRandom2());
-			 				*/
+			 		// Not implemented in three dimensions.
 			 		break;
 			 	}
 				default: {
 					throw new IllegalArgumentException("Can't yet handle " + f.getVelocityDistribution());
 				}
 			 }
-			 
-			 index += f.getNumberOfInstances();
-			 f = null;
-		 }
-		 
-		 return particles;
+		}
 	}
-	
-
 }
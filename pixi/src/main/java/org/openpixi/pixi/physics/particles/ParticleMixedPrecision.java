@@ -0,0 +1,425 @@
+/*
+ * OpenPixi - Open Particle-In-Cell (PIC) Simulator
+ * Copyright (C) 2012  OpenPixi.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openpixi.pixi.physics.particles;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+/**
+ * Particle which keeps its dynamic attributes in single precision.
+ *
+ * A position is stored as the index of the cell the particle is in plus a float offset
+ * within that cell (in units of the cell size). Hence, the accuracy of the position is
+ * relative to the cell and does not degrade far away from the origin. The cell sizes are
+ * held by a CellGeometry which all the particles of a simulation share. Velocities,
+ * accelerations and the interpolated fields are plain floats. Mass, charge, radius and
+ * color are shared through the Species.
+ *
+ * The getters and setters still work with doubles, so the solvers, the interpolation and
+ * the grid (which accumulates the current in double) do not have to know about it.
+ */
+public class ParticleMixedPrecision extends Particle {
+
+	/** size of the cells the positions are stored relative to, shared by all the particles */
+	private final CellGeometry geometry;
+
+	/** index of the cell in x-direction */
+	private int cellX;
+	/** index of the cell in y-direction */
+	private int cellY;
+	/** index of the cell in z-direction */
+	private int cellZ;
+
+	/** position within the cell in x-direction, between 0 and 1 */
+	private float offsetX;
+	/** position within the cell in y-direction, between 0 and 1 */
+	private float offsetY;
+	/** position within the cell in z-direction, between 0 and 1 */
+	private float offsetZ;
+
+	/** previous position, stored like the current one */
+	private int prevCellX;
+	private int prevCellY;
+	private int prevCellZ;
+	private float prevOffsetX;
+	private float prevOffsetY;
+	private float prevOffsetZ;
+
+	private float vx;
+	private float vy;
+	private float vz;
+
+	private float ax;
+	private float ay;
+	private float az;
+
+	private float Ex;
+	private float Ey;
+	private float Ez;
+	private float Bx;
+	private float By;
+	private float Bz;
+
+	/** species of the particle, which holds mass, charge, radius and color */
+	private Species species = Species.DEFAULT;
+
+	public ParticleMixedPrecision(CellGeometry geometry) {
+		this.geometry = geometry;
+	}
+
+	/**
+	 * Creates a single precision copy of an arbitrary particle.
+	 */
+	public ParticleMixedPrecision(Particle p, CellGeometry geometry) {
+		this(geometry);
+		setX(p.getX());
+		setY(p.getY());
+		setZ(p.getZ());
+		setPrevX(p.getPrevX());
+		setPrevY(p.getPrevY());
+		setPrevZ(p.getPrevZ());
+		setSpecies(p.getSpecies());
+		setVx(p.getVx());
+		setVy(p.getVy());
+		setVz(p.getVz());
+		setAx(p.getAx());
+		setAy(p.getAy());
+		setAz(p.getAz());
+		setEx(p.getEx());
+		setEy(p.getEy());
+		setEz(p.getEz());
+		setBx(p.getBx());
+		setBy(p.getBy());
+		setBz(p.getBz());
+		setSlot(p.getSlot());
+	}
+
+	//----------------------------------------------------------------------------------------------
+	// POSITION
+	//----------------------------------------------------------------------------------------------
+
+	public double getX() {
+		return (cellX + (double) offsetX) * geometry.getCellWidth();
+	}
+
+	public void setX(double x) {
+		double s = x * geometry.getInverseCellWidth();
+		cellX = (int) Math.floor(s);
+		offsetX = (float) (s - cellX);
+	}
+
+	/**
+	 * Only a particle which leaves its cell needs the floor.
+	 */
+	public void addX(double x) {
+		double s = offsetX + x * geometry.getInverseCellWidth();
+		if (s >= 0 && s < 1) {
+			offsetX = (float) s;
+		} else {
+			int shift = (int) Math.floor(s);
+			cellX += shift;
+			offsetX = (float) (s - shift);
+		}
+	}
+
+	public double getY() {
+		return (cellY + (double) offsetY) * geometry.getCellHeight();
+	}
+
+	public void setY(double y) {
+		double s = y * geometry.getInverseCellHeight();
+		cellY = (int) Math.floor(s);
+		offsetY = (float) (s - cellY);
+	}
+
+	public void addY(double y) {
+		double s = offsetY + y * geometry.getInverseCellHeight();
+		if (s >= 0 && s < 1) {
+			offsetY = (float) s;
+		} else {
+			int shift = (int) Math.floor(s);
+			cellY += shift;
+			offsetY = (float) (s - shift);
+		}
+	}
+
+	public double getZ() {
+		return (cellZ + (double) offsetZ) * geometry.getCellDepth();
+	}
+
+	public void setZ(double z) {
+		double s = z * geometry.getInverseCellDepth();
+		cellZ = (int) Math.floor(s);
+		offsetZ = (float) (s - cellZ);
+	}
+
+	public void addZ(double z) {
+		double s = offsetZ + z * geometry.getInverseCellDepth();
+		if (s >= 0 && s < 1) {
+			offsetZ = (float) s;
+		} else {
+			int shift = (int) Math.floor(s);
+			cellZ += shift;
+			offsetZ = (float) (s - shift);
+		}
+	}
+
+	public double getPrevX() {
+		return (prevCellX + (double) prevOffsetX) * geometry.getCellWidth();
+	}
+
+	public void setPrevX(double prevX) {
+		double s = prevX * geometry.getInverseCellWidth();
+		prevCellX = (int) Math.floor(s);
+		prevOffsetX = (float) (s - prevCellX);
+	}
+
+	public void addPrevX(double x) {
+		double s = prevOffsetX + x * geometry.getInverseCellWidth();
+		if (s >= 0 && s < 1) {
+			prevOffsetX = (float) s;
+		} else {
+			int shift = (int) Math.floor(s);
+			prevCellX += shift;
+			prevOffsetX = (float) (s - shift);
+		}
+	}
+
+	public double getPrevY() {
+		return (prevCellY + (double) prevOffsetY) * geometry.getCellHeight();
+	}
+
+	public void setPrevY(double prevY) {
+		double s = prevY * geometry.getInverseCellHeight();
+		prevCellY = (int) Math.floor(s);
+		prevOffsetY = (float) (s - prevCellY);
+	}
+
+	public void addPrevY(double y) {
+		double s = prevOffsetY + y * geometry.getInverseCellHeight();
+		if (s >= 0 && s < 1) {
+			prevOffsetY = (float) s;
+		} else {
+			int shift = (int) Math.floor(s);
+			prevCellY += shift;
+			prevOffsetY = (float) (s - shift);
+		}
+	}
+
+	public double getPrevZ() {
+		return (prevCellZ + (double) prevOffsetZ) * geometry.getCellDepth();
+	}
+
+	public void setPrevZ(double prevZ) {
+		double s = prevZ * geometry.getInverseCellDepth();
+		prevCellZ = (int) Math.floor(s);
+		prevOffsetZ = (float) (s - prevCellZ);
+	}
+
+	public void addPrevZ(double z) {
+		double s = prevOffsetZ + z * geometry.getInverseCellDepth();
+		if (s >= 0 && s < 1) {
+			prevOffsetZ = (float) s;
+		} else {
+			int shift = (int) Math.floor(s);
+			prevCellZ += shift;
+			prevOffsetZ = (float) (s - shift);
+		}
+	}
+
+	//----------------------------------------------------------------------------------------------
+	// OTHER ATTRIBUTES
+	//----------------------------------------------------------------------------------------------
+
+	public Species getSpecies() {
+		return species;
+	}
+
+	public void setSpecies(Species species) {
+		this.species = species;
+	}
+
+	public double getRadius() {
+		return species.getRadius();
+	}
+
+	public void setRadius(double radius) {
+		species = new Species(species.getMass(), species.getCharge(), radius, species.getColor());
+	}
+
+	public Color getColor() {
+		return species.getColor();
+	}
+
+	public void setColor(Color color) {
+		species = new Species(species.getMass(), species.getCharge(), species.getRadius(), color);
+	}
+
+	public double getVx() {
+		return vx;
+	}
+
+	public void setVx(double vx) {
+		this.vx = (float) vx;
+	}
+
+	public double getVy() {
+		return vy;
+	}
+
+	public void setVy(double vy) {
+		this.vy = (float) vy;
+	}
+
+	public double getVz() {
+		return vz;
+	}
+
+	public void setVz(double vz) {
+		this.vz = (float) vz;
+	}
+
+	public double getAx() {
+		return ax;
+	}
+
+	public void setAx(double ax) {
+		this.ax = (float) ax;
+	}
+
+	public double getAy() {
+		return ay;
+	}
+
+	public void setAy(double ay) {
+		this.ay = (float) ay;
+	}
+
+	public double getAz() {
+		return az;
+	}
+
+	public void setAz(double az) {
+		this.az = (float) az;
+	}
+
+	public double getMass() {
+		return species.getMass();
+	}
+
+	public void setMass(double mass) {
+		species = new Species(mass, species.getCharge(), species.getRadius(), species.getColor());
+	}
+
+	public double getCharge() {
+		return species.getCharge();
+	}
+
+	public void setCharge(double charge) {
+		species = new Species(species.getMass(), charge, species.getRadius(), species.getColor());
+	}
+
+	public double getEx() {
+		return Ex;
+	}
+
+	public void setEx(double Ex) {
+		this.Ex = (float) Ex;
+	}
+
+	public double getEy() {
+		return Ey;
+	}
+
+	public void setEy(double Ey) {
+		this.Ey = (float) Ey;
+	}
+
+	public double getEz() {
+		return Ez;
+	}
+
+	public void setEz(double Ez) {
+		this.Ez = (float) Ez;
+	}
+
+	public double getBx() {
+		return Bx;
+	}
+
+	public void setBx(double Bx) {
+		this.Bx = (float) Bx;
+	}
+
+	public double getBy() {
+		return By;
+	}
+
+	public void setBy(double By) {
+		this.By = (float) By;
+	}
+
+	public double getBz() {
+		return Bz;
+	}
+
+	public void setBz(double Bz) {
+		this.Bz = (float) Bz;
+	}
+
+	//----------------------------------------------------------------------------------------------
+	// UTILITY METHODS
+	//----------------------------------------------------------------------------------------------
+
+	@Override
+	public Particle copy() {
+		return new ParticleMixedPrecision(this, geometry);
+	}
+
+	public void storePosition() {
+		prevCellX = cellX;
+		prevCellY = cellY;
+		prevCellZ = cellZ;
+		prevOffsetX = offsetX;
+		prevOffsetY = offsetY;
+		prevOffsetZ = offsetZ;
+	}
+
+	public void applyPeriodicBoundary(double boundaryX, double boundaryY, double boundaryZ) {
+		setX((getX() + boundaryX) % boundaryX);
+		setY((getY() + boundaryY) % boundaryY);
+		setZ((getZ() + boundaryZ) % boundaryZ);
+	}
+
+	/**
+	 * The index of the species is only meaningful within the table of the sender, so the
+	 * received particle gets a species which is not registered.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		species = new Species(species.getMass(), species.getCharge(), species.getRadius(),
+				species.getColor());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[%.3f,%.3f]", getX(), getY());
+	}
+}
@@ -0,0 +1,67 @@
+package org.openpixi.pixi.physics.particles;
+
+/**
+ * Free particles together with their slots (see Particle.getSlot()).
+ *
+ * Particles which are removed from the simulation are released into the pool and handed
+ * out again to new particles, so that a steady number of particles neither allocates new
+ * objects nor lets the per-slot side storage grow. A new particle is only created if the
+ * pool is empty; it gets the next slot which was never used.
+ */
+public class ParticlePool {
+
+	private Particle[] free = new Particle[16];
+	private int numFree;
+	private int nextSlot;
+
+	/**
+	 * @param firstFreeSlot slot of the first particle which is created by the pool,
+	 *                      all lower slots belong to the particles of the simulation
+	 */
+	public ParticlePool(int firstFreeSlot) {
+		this.nextSlot = firstFreeSlot;
+	}
+
+	public int getNumFree() {
+		return numFree;
+	}
+
+	/**
+	 * @return a recycled particle with its old values or a new particle with a new slot
+	 */
+	public Particle acquire() {
+		if (numFree > 0) {
+			Particle p = free[--numFree];
+			free[numFree] = null;
+			return p;
+		}
+		Particle p = new ParticleFull();
+		p.setSlot(nextSlot++);
+		return p;
+	}
+
+	/**
+	 * Slot for a particle which was not created by the pool, e.g. one which arrives from
+	 * another node of a distributed simulation. The recycled particle is dropped.
+	 */
+	public int acquireSlot() {
+		if (numFree > 0) {
+			int slot = free[--numFree].getSlot();
+			free[numFree] = null;
+			return slot;
+		}
+		return nextSlot++;
+	}
+
+	/**
+	 * The particle must not be in the simulation any more.
+	 */
+	public void release(Particle p) {
+		if (numFree == free.length) {
+			Particle[] newFree = new Particle[2 * free.length];
+			System.arraycopy(free, 0, newFree, 0, numFree);
+			free = newFree;
+		}
+		free[numFree++] = p;
+	}
+}
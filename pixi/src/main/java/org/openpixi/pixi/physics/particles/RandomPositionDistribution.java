@@ -28,8 +28,13 @@ public class RandomPositionDistribution {
 	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
 			double startX, double endX, double startY, double endY, double startZ, double endZ,
 			long seed) {
-		
-		Random rand = new Random(seed);
+		return apply(particles, startIndex, endIndex, startX, endX, startY, endY, startZ, endZ,
+				new Random(seed));
+	}
+
+	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
+			double startX, double endX, double startY, double endY, double startZ, double endZ,
+			Random rand) {
 		
 		for(int i = startIndex; i < endIndex; i++) {			
 			 particles.get(i).setX(rand.nextDouble() * (endX - startX) + startX);
@@ -43,8 +48,12 @@ public class RandomPositionDistribution {
 	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
 			double startX, double endX, double startY, double endY,
 			long seed) {
-		
-		Random rand = new Random(seed);
+		return apply(particles, startIndex, endIndex, startX, endX, startY, endY, new Random(seed));
+	}
+
+	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
+			double startX, double endX, double startY, double endY,
+			Random rand) {
 		
 		for(int i = startIndex; i < endIndex; i++) {			
 			 particles.get(i).setX(rand.nextDouble() * (endX - startX) + startX);
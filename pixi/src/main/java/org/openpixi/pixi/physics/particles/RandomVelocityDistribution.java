@@ -28,8 +28,13 @@ public class RandomVelocityDistribution {
 	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
 			double minVelocityX, double minVelocityY, double maxVelocity,
 			long seed) {
-		
-		Random rand = new Random(seed);
+		return apply(particles, startIndex, endIndex, minVelocityX, minVelocityY, maxVelocity,
+				new Random(seed));
+	}
+
+	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
+			double minVelocityX, double minVelocityY, double maxVelocity,
+			Random rand) {
 		
 		// Temporary variables used later
 		double rnd1;
@@ -59,8 +64,13 @@ public class RandomVelocityDistribution {
 	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
 			double avVelocityX, double avVelocityY, double avVelocityZ, double VelocityWidth,
 			long seed) {
-		
-		Random rand = new Random(seed);
+		return apply(particles, startIndex, endIndex, avVelocityX, avVelocityY, avVelocityZ,
+				VelocityWidth, new Random(seed));
+	}
+
+	public static List<Particle> apply(List<Particle> particles, int startIndex, int endIndex,
+			double avVelocityX, double avVelocityY, double avVelocityZ, double VelocityWidth,
+			Random rand) {
 		
 		// Temporary variables used later
 		double rnd1;
@@ -0,0 +1,110 @@
+/*
+ * OpenPixi - Open Particle-In-Cell (PIC) Simulator
+ * Copyright (C) 2012  OpenPixi.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openpixi.pixi.physics.particles;
+
+import java.awt.Color;
+import java.io.Serializable;
+
+/**
+ * Constants shared by all the particles of one kind.
+ * Instances are immutable. The particles of a simulation share the instances which are
+ * registered in its SpeciesTable.
+ */
+public class Species implements Serializable {
+
+	/** Species of freshly created particles (everything zero, no color), it cannot be registered */
+	public static final Species DEFAULT = new Species(0, 0, 0, null);
+
+	/** index in the SpeciesTable of the simulation or -1 if the species is not registered */
+	private final int index;
+
+	private final double mass;
+	private final double charge;
+	private final double radius;
+	/** color of the particles (for display only) */
+	private final Color color;
+
+	/** charge / mass, precomputed for the solvers */
+	private final double chargeOverMass;
+	/** 1 / mass, precomputed for the solvers */
+	private final double inverseMass;
+
+	Species(int index, double mass, double charge, double radius, Color color) {
+		this.index = index;
+		this.mass = mass;
+		this.charge = charge;
+		this.radius = radius;
+		this.color = color;
+		this.chargeOverMass = charge / mass;
+		this.inverseMass = 1 / mass;
+	}
+
+	/**
+	 * Creates a species which is not registered in the SpeciesTable.
+	 */
+	public Species(double mass, double charge, double radius, Color color) {
+		this(-1, mass, charge, radius, color);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public double getMass() {
+		return mass;
+	}
+
+	public double getCharge() {
+		return charge;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public Color getColor() {
+		return color;
+	}
+
+	public double getChargeOverMass() {
+		return chargeOverMass;
+	}
+
+	public double getInverseMass() {
+		return inverseMass;
+	}
+
+	/**
+	 * Whether both species describe the same kind of particle (the index is ignored).
+	 */
+	public boolean hasSameConstants(Species other) {
+		return Double.doubleToLongBits(mass) == Double.doubleToLongBits(other.mass)
+				&& Double.doubleToLongBits(charge) == Double.doubleToLongBits(other.charge)
+				&& Double.doubleToLongBits(radius) == Double.doubleToLongBits(other.radius)
+				&& (color == null ? other.color == null : color.equals(other.color));
+	}
+
+	int constantsHashCode() {
+		long bits = Double.doubleToLongBits(mass);
+		bits = 31 * bits + Double.doubleToLongBits(charge);
+		bits = 31 * bits + Double.doubleToLongBits(radius);
+		int hash = (int) (bits ^ (bits >>> 32));
+		return 31 * hash + (color == null ? 0 : color.hashCode());
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * OpenPixi - Open Particle-In-Cell (PIC) Simulator
+ * Copyright (C) 2012  OpenPixi.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openpixi.pixi.physics.particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The species in use by one simulation. Every combination of constants is registered only
+ * once, so the particles which were set up one attribute at a time end up sharing the same
+ * species, and the index of a species can be used to look up per-species settings.
+ *
+ * The species are registered while the simulation is set up (see Simulation), afterwards
+ * the table is only read. Particles keep a reference to their species, so the hot paths do
+ * not look up the table.
+ */
+public class SpeciesTable {
+
+	private Species[] species = new Species[0];
+	private Map<Integer, List<Species>> byConstants = new HashMap<Integer, List<Species>>();
+
+	public Species get(int index) {
+		return species[index];
+	}
+
+	public int size() {
+		return species.length;
+	}
+
+	/**
+	 * Returns the registered species with the same constants as the given one.
+	 * It is registered if needed.
+	 */
+	public Species register(Species s) {
+		if (s.getIndex() >= 0 && s.getIndex() < species.length && species[s.getIndex()] == s) {
+			return s;
+		}
+		if (!(s.getMass() > 0)) {
+			throw new RuntimeException("The mass of a particle has to be positive: " + s.getMass());
+		}
+		Integer hash = s.constantsHashCode();
+		List<Species> bucket = byConstants.get(hash);
+		if (bucket == null) {
+			bucket = new ArrayList<Species>(1);
+			byConstants.put(hash, bucket);
+		}
+		for (Species registered : bucket) {
+			if (registered.hasSameConstants(s)) {
+				return registered;
+			}
+		}
+
+		Species registered = new Species(species.length,
+				s.getMass(), s.getCharge(), s.getRadius(), s.getColor());
+		species = Arrays.copyOf(species, species.length + 1);
+		species[registered.getIndex()] = registered;
+		bucket.add(registered);
+		return registered;
+	}
+
+	/**
+	 * Gives the particle the registered species with its constants. Immobile particles are
+	 * not pushed and keep their massless species.
+	 */
+	public void register(Particle p) {
+		if (!(p instanceof ImmobileParticle)) {
+			p.setSpecies(register(p.getSpecies()));
+		}
+	}
+}
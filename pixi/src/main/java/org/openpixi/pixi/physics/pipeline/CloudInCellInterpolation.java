@@ -0,0 +1,54 @@
+package org.openpixi.pixi.physics.pipeline;
+
+import org.openpixi.pixi.physics.grid.CloudInCell;
+import org.openpixi.pixi.physics.grid.Grid;
+import org.openpixi.pixi.physics.grid.Interpolation;
+import org.openpixi.pixi.physics.particles.Particle;
+
+import java.util.List;
+
+/**
+ * Sequential interpolation which is bound to CloudInCell, see PipelineBuilder.
+ */
+public class CloudInCellInterpolation extends Interpolation {
+
+	private final CloudInCell cic;
+
+	public CloudInCellInterpolation(CloudInCell cic) {
+		super(cic);
+		this.cic = cic;
+	}
+
+	@Override
+	public void interpolateToGrid(List<Particle> particles, Grid grid, double timeStep) {
+		grid.resetCurrent();
+		int n = particles.size();
+		if (subcycling.isActive()) {
+			for (int i = 0; i < n; i++) {
+				Particle p = particles.get(i);
+				cic.interpolateToGrid(p, grid, subcycling.getSubcycles(p) * timeStep);
+			}
+		} else {
+			for (int i = 0; i < n; i++) {
+				cic.interpolateToGrid(particles.get(i), grid, timeStep);
+			}
+		}
+	}
+
+	@Override
+	public void interpolateToParticle(List<Particle> particles, Grid grid) {
+		int n = particles.size();
+		for (int i = 0; i < n; i++) {
+			cic.interpolateToParticle(particles.get(i), grid);
+		}
+	}
+
+	@Override
+	public void interpolateChargedensity(List<Particle> particles, Grid grid) {
+		grid.resetCharge();
+		int n = particles.size();
+		for (int i = 0; i < n; i++) {
+			cic.interpolateChargedensity(particles.get(i), grid);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package org.openpixi.pixi.physics.pipeline;
+
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.grid.ChargeConservingCIC;
+import org.openpixi.pixi.physics.grid.CloudInCell;
+import org.openpixi.pixi.physics.grid.Interpolation;
+import org.openpixi.pixi.physics.grid.InterpolatorAlgorithm;
+import org.openpixi.pixi.physics.grid.LocalInterpolation;
+
+/**
+ * Picks the implementation of the per-particle interpolation stages of a simulation step.
+ *
+ * LocalInterpolation reaches the interpolator through the ParticleIterator, a ParticleAction
+ * and the InterpolatorAlgorithm interface. Once several implementations have passed these
+ * call sites (e.g. because the UI switched them), the JIT stops inlining there. For the common
+ * interpolators the builder returns a class which loops over the particles itself and holds
+ * the interpolator with its concrete type. Its call sites only ever see that one class.
+ *
+ * The push is specialised by ParticleMover, which uses the batched step of the solver
+ * where possible (see BatchSolver).
+ */
+public class PipelineBuilder {
+
+	public static Interpolation createInterpolation(Settings settings) {
+		InterpolatorAlgorithm interpolator = settings.getInterpolator();
+		if (settings.getNumOfThreads() == 1) {
+			if (interpolator.getClass() == ChargeConservingCIC.class) {
+				return new ChargeConservingCICInterpolation((ChargeConservingCIC) interpolator);
+			}
+			if (interpolator.getClass() == CloudInCell.class) {
+				return new CloudInCellInterpolation((CloudInCell) interpolator);
+			}
+		}
+		return new LocalInterpolation(interpolator, settings.getParticleIterator());
+	}
+}
@@ -0,0 +1,156 @@
+package org.openpixi.pixi.physics.solver;
+
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.particles.Particle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wraps a solver and splits the step of strongly magnetized particles into substeps.
+ *
+ * The number of substeps k of a particle is chosen such that the particle gyrates by at
+ * most maxGyrophase per substep, using the cyclotron frequency |q*B|/m (for relativistic
+ * particles this overestimates the frequency, so the estimate is on the safe side). Bz is
+ * the one the force reports, Bx and By are the fields gathered at the particle (the forces
+ * only know Bz). Only Force.getBz() is called, the full force is evaluated by the wrapped
+ * solver. Particles which need only one substep are passed to the wrapped solver unchanged.
+ * For the others the velocity is completed to the full time, k steps with dt/k are taken
+ * and the velocity is prepared again for dt. The fields stay the ones gathered at the
+ * beginning of the step.
+ *
+ * The number of particles pushed with each k is counted (see getSubstepHistogram()). Every
+ * thread counts in its own array, the arrays are summed up when the histogram is read.
+ */
+public class AdaptiveSubstepping implements Solver {
+
+	private Solver solver;
+	/** Maximum gyration angle per substep */
+	private double maxGyrophase;
+	private int maxSubsteps;
+	/** Number of pushes with k substeps at index k, one array per thread */
+	private final List<long[]> histograms = new ArrayList<long[]>();
+	private final ThreadLocal<long[]> histogram = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			long[] counts = new long[maxSubsteps + 1];
+			synchronized (histograms) {
+				histograms.add(counts);
+			}
+			return counts;
+		}
+	};
+
+	public AdaptiveSubstepping(Solver solver, double maxGyrophase, int maxSubsteps) {
+		if (maxGyrophase <= 0) {
+			throw new RuntimeException("The maximum gyration angle per substep has to be positive!");
+		}
+		if (maxSubsteps < 1) {
+			throw new RuntimeException("The maximum number of substeps has to be at least 1!");
+		}
+		this.solver = solver;
+		this.maxGyrophase = maxGyrophase;
+		this.maxSubsteps = maxSubsteps;
+	}
+
+	public Solver getSolver() {
+		return solver;
+	}
+
+	/**
+	 * Number of substeps the particle needs under the given force.
+	 */
+	public int getSubsteps(Particle p, Force f, double dt) {
+		double bx = p.getBx();
+		double by = p.getBy();
+		double bz = f.getBz(p);
+		double b = Math.sqrt(bx * bx + by * by + bz * bz);
+		double cyclotronFrequency = Math.abs(p.getSpecies().getChargeOverMass()) * b;
+		double substeps = Math.ceil(cyclotronFrequency * Math.abs(dt) / maxGyrophase);
+		if (substeps <= 1) {
+			return 1;
+		}
+		return (int) Math.min(substeps, maxSubsteps);
+	}
+
+	/**
+	 * @param p before the update: as required by the wrapped solver for dt;
+	 *                 after the update: as left by the wrapped solver for dt
+	 */
+	public void step(Particle p, Force f, double dt) {
+		int substeps = getSubsteps(p, f, dt);
+		histogram.get()[substeps]++;
+		if (substeps == 1) {
+			solver.step(p, f, dt);
+			return;
+		}
+
+		double substep = dt / substeps;
+		solver.complete(p, f, dt);
+		solver.prepare(p, f, substep);
+		for (int i = 0; i < substeps; i++) {
+			solver.step(p, f, substep);
+		}
+		solver.complete(p, f, substep);
+		solver.prepare(p, f, dt);
+	}
+
+	public void prepare(Particle p, Force f, double dt) {
+		solver.prepare(p, f, dt);
+	}
+
+	public void complete(Particle p, Force f, double dt) {
+		solver.complete(p, f, dt);
+	}
+
+	/**
+	 * Must not be called while particles are pushed.
+	 * @return number of pushes with k substeps at index k (index 0 is unused)
+	 */
+	public long[] getSubstepHistogram() {
+		long[] counts = new long[maxSubsteps + 1];
+		synchronized (histograms) {
+			for (long[] threadCounts : histograms) {
+				for (int k = 0; k < counts.length; k++) {
+					counts[k] += threadCounts[k];
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Must not be called while particles are pushed.
+	 */
+	public void resetSubstepHistogram() {
+		synchronized (histograms) {
+			for (long[] threadCounts : histograms) {
+				Arrays.fill(threadCounts, 0);
+			}
+		}
+	}
+
+	/**
+	 * Describes the distribution of the substep counts (for the log).
+	 */
+	public String getSubstepDescription() {
+		long[] counts = getSubstepHistogram();
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		StringBuilder description = new StringBuilder();
+		for (int k = 1; k < counts.length; k++) {
+			if (counts[k] == 0) {
+				continue;
+			}
+			if (description.length() > 0) {
+				description.append(", ");
+			}
+			description.append(k).append(": ").append(counts[k]);
+			description.append(String.format(" (%.1f%%)", 100.0 * counts[k] / total));
+		}
+		return description.toString();
+	}
+}
@@ -0,0 +1,29 @@
+package org.openpixi.pixi.physics.solver;
+
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.particles.ParticleBatch;
+
+/**
+ * Solver which can also advance a whole batch of particles stored in primitive arrays.
+ * The batched step only knows the force of the interpolated fields; for any other force
+ * the per-particle step of Solver is used.
+ */
+public interface BatchSolver extends Solver {
+
+	/**
+	 * Returns true if step(ParticleBatch, double) moves the particles exactly as
+	 * step(Particle, Force, double) would with the given force.
+	 */
+	public boolean canStep(Force f);
+
+	/**
+	 * Optional attributes of ParticleBatch which the batched step needs besides x, y, vx,
+	 * vy, ex, ey and bz, e.g. ParticleBatch.Z | ParticleBatch.FIELDS_3D.
+	 */
+	public int getBatchAttributes();
+
+	/**
+	 * Advances all the particles of the batch by one time step.
+	 */
+	public void step(ParticleBatch batch, double step);
+}
@@ -21,12 +21,28 @@ package org.openpixi.pixi.physics.solver;
 
 import org.openpixi.pixi.physics.*;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.ForceComponents;
+import org.openpixi.pixi.physics.force.SimpleGridForce;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleBatch;
+import org.openpixi.pixi.physics.particles.Species;
+import org.openpixi.pixi.physics.util.SlotArray;
 
 /**The calculation is due to Boris and the equations((7) - (10)) can be found here:
  * http://ptsg.eecs.berkeley.edu/publications/Verboncoeur2005IOP.pdf
  */
-public class Boris implements Solver{
+public class Boris implements BatchSolver{
+
+	/** Indices of the values remembered for complete() */
+	private static final int POSITION_FORCE_X = 0;
+	private static final int POSITION_FORCE_Y = 1;
+	private static final int TANGENT_FORCE_X = 2;
+	private static final int TANGENT_FORCE_Y = 3;
+	private static final int BZ = 4;
+	private static final int HISTORY_SIZE = 5;
+
+	/** Values remembered for complete(), indexed by particle slot */
+	private SlotArray history = new SlotArray(HISTORY_SIZE, 0);
 	
 	public Boris()
 	{
@@ -42,25 +58,30 @@ public class Boris implements Solver{
 	 */
 	public void step(Particle p, Force f, double step) {
 
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getBz = f.getBz(p);
-		double getTangentVelocityComponentOfForceX = f.getTangentVelocityComponentOfForceX(p);
-		double getTangentVelocityComponentOfForceY = f.getTangentVelocityComponentOfForceY(p);
-		double getMass = p.getMass();
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getBz = force.bz;
+		double getTangentVelocityComponentOfForceX = force.tangentVelocityX;
+		double getTangentVelocityComponentOfForceY = force.tangentVelocityY;
+		Species species = p.getSpecies();
 		
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevBz(getBz);
-		p.setPrevTangentVelocityComponentOfForceX(getTangentVelocityComponentOfForceX);
-		p.setPrevTangentVelocityComponentOfForceY(getTangentVelocityComponentOfForceY);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), BZ, getBz);
+		history.set(p.getSlot(), TANGENT_FORCE_X, getTangentVelocityComponentOfForceX);
+		history.set(p.getSlot(), TANGENT_FORCE_Y, getTangentVelocityComponentOfForceY);
+
+		double halfStepOverMass = 0.5 * step * species.getInverseMass();
+		double stepOverMass = step * species.getInverseMass();
+		double halfStepChargeOverMass = 0.5 * step * species.getChargeOverMass();
 
-		double vxminus = p.getVx() + getPositionComponentofForceX * step / (2.0 * getMass);
+		double vxminus = p.getVx() + getPositionComponentofForceX * halfStepOverMass;
 		
-		double vyminus = p.getVy() + getPositionComponentofForceY * step / (2.0 * getMass);
+		double vyminus = p.getVy() + getPositionComponentofForceY * halfStepOverMass;
 		
-		double t_z = p.getCharge() * getBz * step / (2.0 * getMass);   //t vector
+		double t_z = halfStepChargeOverMass * getBz;   //t vector
 		
 		double s_z = 2 * t_z / (1 + t_z * t_z);               //s vector
 		
@@ -70,12 +91,71 @@ public class Boris implements Solver{
 		double vxplus = vxminus + vyprime * s_z;
 		double vyplus = vyminus - vxprime * s_z;
 		
-		p.setVx(vxplus + getPositionComponentofForceX * step / (2.0 * getMass) + getTangentVelocityComponentOfForceX * step / getMass);
-		p.setVy(vyplus + getPositionComponentofForceY * step / (2.0 * getMass) + getTangentVelocityComponentOfForceY * step / getMass);
+		p.setVx(vxplus + getPositionComponentofForceX * halfStepOverMass + getTangentVelocityComponentOfForceX * stepOverMass);
+		p.setVy(vyplus + getPositionComponentofForceY * halfStepOverMass + getTangentVelocityComponentOfForceY * stepOverMass);
 		
 		p.setX(p.getX() + p.getVx() * step);
 		p.setY(p.getY() + p.getVy() * step);
 	}	
+
+	public boolean canStep(Force f) {
+		return f.getClass() == SimpleGridForce.class;
+	}
+
+	public int getBatchAttributes() {
+		return 0;
+	}
+
+	/**
+	 * Same as step(Particle, Force, double) with a SimpleGridForce, for all particles of the batch.
+	 * The position component of the force is q * E and the tangent component vanishes.
+	 */
+	public void step(ParticleBatch batch, double step) {
+		int n = batch.size();
+		double[] x = batch.x;
+		double[] y = batch.y;
+		double[] vx = batch.vx;
+		double[] vy = batch.vy;
+		double[] ex = batch.ex;
+		double[] ey = batch.ey;
+		double[] bz = batch.bz;
+		double[] charge = batch.charge;
+		double[] inverseMass = batch.inverseMass;
+		double[] chargeOverMass = batch.chargeOverMass;
+
+		// remember for complete()
+		for (int i = 0; i < n; i++) {
+			int slot = batch.slot[i];
+			double[] block = history.block(slot);
+			int offset = history.offset(slot);
+			block[offset + POSITION_FORCE_X] = charge[i] * ex[i];
+			block[offset + POSITION_FORCE_Y] = charge[i] * ey[i];
+			block[offset + BZ] = bz[i];
+			block[offset + TANGENT_FORCE_X] = 0;
+			block[offset + TANGENT_FORCE_Y] = 0;
+		}
+
+		for (int i = 0; i < n; i++) {
+			double positionForceX = charge[i] * ex[i];
+			double positionForceY = charge[i] * ey[i];
+			double halfStepOverMass = 0.5 * step * inverseMass[i];
+
+			double vxminus = vx[i] + positionForceX * halfStepOverMass;
+			double vyminus = vy[i] + positionForceY * halfStepOverMass;
+
+			double t_z = 0.5 * step * chargeOverMass[i] * bz[i];
+			double s_z = 2 * t_z / (1 + t_z * t_z);
+
+			double vxprime = vxminus + vyminus * t_z;
+			double vyprime = vyminus - vxminus * t_z;
+
+			vx[i] = vxminus + vyprime * s_z + positionForceX * halfStepOverMass;
+			vy[i] = vyminus - vxprime * s_z + positionForceY * halfStepOverMass;
+
+			x[i] += vx[i] * step;
+			y[i] += vy[i] * step;
+		}
+	}
 	
 	/**
 	 * prepare method for bringing the velocity in the desired half step
@@ -84,27 +164,32 @@ public class Boris implements Solver{
 	 */
 	public void prepare(Particle p, Force f, double dt)
 	{
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getBz = f.getBz(p);
-		double getTangentVelocityComponentOfForceX = f.getTangentVelocityComponentOfForceX(p);
-		double getTangentVelocityComponentOfForceY = f.getTangentVelocityComponentOfForceY(p);
-		double getMass = p.getMass();
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getBz = force.bz;
+		double getTangentVelocityComponentOfForceX = force.tangentVelocityX;
+		double getTangentVelocityComponentOfForceY = force.tangentVelocityY;
+		Species species = p.getSpecies();
 		
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevBz(getBz);
-		p.setPrevTangentVelocityComponentOfForceX(getTangentVelocityComponentOfForceX);
-		p.setPrevTangentVelocityComponentOfForceY(getTangentVelocityComponentOfForceY);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), BZ, getBz);
+		history.set(p.getSlot(), TANGENT_FORCE_X, getTangentVelocityComponentOfForceX);
+		history.set(p.getSlot(), TANGENT_FORCE_Y, getTangentVelocityComponentOfForceY);
 
 		double step = -0.5 * dt;
 		
-		double vxminus = p.getVx() + getPositionComponentofForceX * step / (2.0 * getMass) + getTangentVelocityComponentOfForceX * step / getMass;
+		double halfStepOverMass = 0.5 * step * species.getInverseMass();
+		double stepOverMass = step * species.getInverseMass();
+		double halfStepChargeOverMass = 0.5 * step * species.getChargeOverMass();
+
+		double vxminus = p.getVx() + getPositionComponentofForceX * halfStepOverMass + getTangentVelocityComponentOfForceX * stepOverMass;
 		
-		double vyminus = p.getVy() + getPositionComponentofForceY * step / (2.0 * getMass) + getTangentVelocityComponentOfForceY * step / getMass;
+		double vyminus = p.getVy() + getPositionComponentofForceY * halfStepOverMass + getTangentVelocityComponentOfForceY * stepOverMass;
 		
-		double t_z = p.getCharge() * getBz * step / (2.0 * getMass);   //t vector
+		double t_z = halfStepChargeOverMass * getBz;   //t vector
 		
 		double s_z = 2 * t_z / (1 + t_z * t_z);               //s vector
 		
@@ -114,8 +199,8 @@ public class Boris implements Solver{
 		double vxplus = vxminus + vyprime * s_z;
 		double vyplus = vyminus - vxprime * s_z;
 		
-		p.setVx(vxplus + getPositionComponentofForceX * step / (2.0 * getMass));
-		p.setVy(vyplus + getPositionComponentofForceY * step / (2.0 * getMass));
+		p.setVx(vxplus + getPositionComponentofForceX * halfStepOverMass);
+		p.setVy(vyplus + getPositionComponentofForceY * halfStepOverMass);
 		
 	}
 
@@ -126,16 +211,20 @@ public class Boris implements Solver{
 	 */
 	public void complete(Particle p, Force f, double dt)
 	{
-		double getPrevPositionComponentForceX = p.getPrevPositionComponentForceX();
-		double getPrevPositionComponentForceY = p.getPrevPositionComponentForceY();
-		double getMass = p.getMass();
+		double getPrevPositionComponentForceX = history.get(p.getSlot(), POSITION_FORCE_X);
+		double getPrevPositionComponentForceY = history.get(p.getSlot(), POSITION_FORCE_Y);
+		Species species = p.getSpecies();
 		
 		dt = dt * 0.5;
-		double vxminus = p.getVx() + getPrevPositionComponentForceX * dt / (2.0 * getMass);
+		double halfStepOverMass = 0.5 * dt * species.getInverseMass();
+		double stepOverMass = dt * species.getInverseMass();
+		double halfStepChargeOverMass = 0.5 * dt * species.getChargeOverMass();
+
+		double vxminus = p.getVx() + getPrevPositionComponentForceX * halfStepOverMass;
 		
-		double vyminus = p.getVy() + getPrevPositionComponentForceY * dt / (2.0 * getMass);
+		double vyminus = p.getVy() + getPrevPositionComponentForceY * halfStepOverMass;
 		
-		double t_z = p.getCharge() * p.getPrevBz() * dt / (2.0 * getMass);   //t vector
+		double t_z = halfStepChargeOverMass * history.get(p.getSlot(), BZ);   //t vector
 		
 		double s_z = 2 * t_z / (1 + t_z * t_z);               //s vector
 		
@@ -145,7 +234,7 @@ public class Boris implements Solver{
 		double vxplus = vxminus + vyprime * s_z;
 		double vyplus = vyminus - vxprime * s_z;
 		
-		p.setVx(vxplus + getPrevPositionComponentForceX * dt / (2.0 * getMass) + p.getPrevTangentVelocityComponentOfForceX() * dt / getMass);
-		p.setVy(vyplus + getPrevPositionComponentForceY * dt / (2.0 * getMass) + p.getPrevTangentVelocityComponentOfForceY() * dt / getMass);
+		p.setVx(vxplus + getPrevPositionComponentForceX * halfStepOverMass + history.get(p.getSlot(), TANGENT_FORCE_X) * stepOverMass);
+		p.setVy(vyplus + getPrevPositionComponentForceY * halfStepOverMass + history.get(p.getSlot(), TANGENT_FORCE_Y) * stepOverMass);
 	}
 }
@@ -21,12 +21,24 @@ package org.openpixi.pixi.physics.solver;
 
 import org.openpixi.pixi.physics.*;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.ForceComponents;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.util.SlotArray;
 
 /**The calculation is due to Boris and the equations((7) - (10)) can be found here:
  * http://ptsg.eecs.berkeley.edu/publications/Verboncoeur2005IOP.pdf
  */
 public class BorisDamped implements Solver{
+
+	/** Indices of the values remembered for complete() */
+	private static final int POSITION_FORCE_X = 0;
+	private static final int POSITION_FORCE_Y = 1;
+	private static final int BZ = 2;
+	private static final int LINEAR_DRAG = 3;
+	private static final int HISTORY_SIZE = 4;
+
+	/** Values remembered for complete(), indexed by particle slot */
+	private SlotArray history = new SlotArray(HISTORY_SIZE, 0);
 	
 	public BorisDamped()
 	{
@@ -42,17 +54,18 @@ public class BorisDamped implements Solver{
 	 */
 	public void step(Particle p, Force f, double step) {
 
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getBz = f.getBz(p);
-		double getLinearDragCoefficient = f.getLinearDragCoefficient(p);
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getBz = force.bz;
+		double getLinearDragCoefficient = force.linearDragCoefficient;
 		double getMass = p.getMass();
 		
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevBz(getBz);
-		p.setPrevLinearDragCoefficient(getLinearDragCoefficient);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), BZ, getBz);
+		history.set(p.getSlot(), LINEAR_DRAG, getLinearDragCoefficient);
 		
 		//help coefficients for the dragging
 		double help1_coef = 1 - getLinearDragCoefficient * step / (2 * getMass);
@@ -91,17 +104,18 @@ public class BorisDamped implements Solver{
 	 */
 	public void prepare(Particle p, Force f, double dt)
 	{	
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getBz = f.getBz(p);
-		double getLinearDragCoefficient = f.getLinearDragCoefficient(p);
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getBz = force.bz;
+		double getLinearDragCoefficient = force.linearDragCoefficient;
 		double getMass = p.getMass();
 		
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevBz(getBz);
-		p.setPrevLinearDragCoefficient(getLinearDragCoefficient);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), BZ, getBz);
+		history.set(p.getSlot(), LINEAR_DRAG, getLinearDragCoefficient);
 		
 		double step = - dt * 0.5;
 		
@@ -139,9 +153,9 @@ public class BorisDamped implements Solver{
 	 */
 	public void complete(Particle p, Force f, double dt)
 	{
-		double getPrevPositionComponentForceX = p.getPrevPositionComponentForceX();
-		double getPrevPositionComponentForceY = p.getPrevPositionComponentForceY();
-		double getPrevLinearDragCoefficient = p.getPrevLinearDragCoefficient();
+		double getPrevPositionComponentForceX = history.get(p.getSlot(), POSITION_FORCE_X);
+		double getPrevPositionComponentForceY = history.get(p.getSlot(), POSITION_FORCE_Y);
+		double getPrevLinearDragCoefficient = history.get(p.getSlot(), LINEAR_DRAG);
 		double getMass = p.getMass();
 		
 		double step = dt * 0.5;
@@ -153,7 +167,7 @@ public class BorisDamped implements Solver{
 		double vxminus = help1_coef * p.getVx() / help2_coef + getPrevPositionComponentForceX * step / (2.0 * getMass * help2_coef);
 		double vyminus = help1_coef * p.getVy() / help2_coef + getPrevPositionComponentForceY * step / (2.0 * getMass * help2_coef);
 		
-		double t_z = p.getCharge() * p.getPrevBz() * step / (2.0 * getMass * help2_coef);   //t vector
+		double t_z = p.getCharge() * history.get(p.getSlot(), BZ) * step / (2.0 * getMass * help2_coef);   //t vector
 		
 		double s_z = 2 * t_z / (1 + t_z * t_z);               //s vector
 		
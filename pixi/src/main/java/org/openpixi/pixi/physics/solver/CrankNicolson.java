@@ -0,0 +1,108 @@
+package org.openpixi.pixi.physics.solver;
+
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.util.SlotArray;
+
+/**
+ * Implicit midpoint (Crank-Nicolson) orbit of the energy conserving implicit PIC scheme
+ * (see org.openpixi.pixi.physics.ImplicitStep):
+ *
+ * x(t+dt) = x(t) + v(t+dt/2)*dt,  v(t+dt) = v(t) + F(x(t+dt/2), v(t+dt/2))*dt/m
+ *
+ * with x(t+dt/2) = (x(t) + x(t+dt))/2 and v(t+dt/2) = (v(t) + v(t+dt))/2. The equations are
+ * implicit, so step() only performs one fixed point iteration. Between two iterations the
+ * particle holds the midpoint position and velocity and the fields have to be interpolated
+ * to that position. Position and velocity are stored at the same time, so prepare() and
+ * complete() do nothing.
+ */
+public class CrankNicolson implements Solver {
+
+	/** Indices of the values remembered by storeState() */
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int Z = 2;
+	private static final int VX = 3;
+	private static final int VY = 4;
+	private static final int VZ = 5;
+	private static final int STATE_SIZE = 6;
+
+	/** Position and velocity at the beginning of the step, indexed by particle slot */
+	private SlotArray state = new SlotArray(STATE_SIZE, 0);
+
+	/**
+	 * Remembers x(t) and v(t) of the particle.
+	 */
+	public void storeState(Particle p) {
+		int slot = p.getSlot();
+		state.set(slot, X, p.getX());
+		state.set(slot, Y, p.getY());
+		state.set(slot, Z, p.getZ());
+		state.set(slot, VX, p.getVx());
+		state.set(slot, VY, p.getVy());
+		state.set(slot, VZ, p.getVz());
+	}
+
+	/**
+	 * Initial guess of the iteration: v(t+dt/2) = v(t).
+	 * @param p after the call: x(t) + v(t)*dt/2, v(t)
+	 */
+	public void start(Particle p, double dt) {
+		int slot = p.getSlot();
+		p.setVx(state.get(slot, VX));
+		p.setVy(state.get(slot, VY));
+		p.setVz(state.get(slot, VZ));
+		setMidpointPosition(p, dt);
+	}
+
+	/**
+	 * One fixed point iteration of the midpoint orbit.
+	 * @param p before the update: current estimate of x(t+dt/2), v(t+dt/2)
+	 *                 and the fields at that position;
+	 *                 after the update: improved estimate of x(t+dt/2), v(t+dt/2)
+	 */
+	public void step(Particle p, Force f, double dt) {
+		int slot = p.getSlot();
+		double halfStepOverMass = 0.5 * dt * p.getSpecies().getInverseMass();
+
+		// v(t+dt/2) = v(t) + F(x(t+dt/2), v(t+dt/2))*dt/(2m)
+		double vx = state.get(slot, VX) + f.getForceX(p) * halfStepOverMass;
+		double vy = state.get(slot, VY) + f.getForceY(p) * halfStepOverMass;
+		double vz = state.get(slot, VZ) + f.getForceZ(p) * halfStepOverMass;
+		p.setVx(vx);
+		p.setVy(vy);
+		p.setVz(vz);
+		setMidpointPosition(p, dt);
+	}
+
+	/**
+	 * Completes the step once the iteration has converged.
+	 * @param p before the update: x(t+dt/2), v(t+dt/2);
+	 *                 after the update: x(t+dt), v(t+dt) with the previous position x(t)
+	 */
+	public void finish(Particle p, double dt) {
+		int slot = p.getSlot();
+		p.setPrevX(state.get(slot, X));
+		p.setPrevY(state.get(slot, Y));
+		p.setPrevZ(state.get(slot, Z));
+		p.setX(state.get(slot, X) + p.getVx() * dt);
+		p.setY(state.get(slot, Y) + p.getVy() * dt);
+		p.setZ(state.get(slot, Z) + p.getVz() * dt);
+		p.setVx(2 * p.getVx() - state.get(slot, VX));
+		p.setVy(2 * p.getVy() - state.get(slot, VY));
+		p.setVz(2 * p.getVz() - state.get(slot, VZ));
+	}
+
+	private void setMidpointPosition(Particle p, double dt) {
+		int slot = p.getSlot();
+		p.setX(state.get(slot, X) + 0.5 * dt * p.getVx());
+		p.setY(state.get(slot, Y) + 0.5 * dt * p.getVy());
+		p.setZ(state.get(slot, Z) + 0.5 * dt * p.getVz());
+	}
+
+	public void prepare(Particle p, Force f, double dt) {
+	}
+
+	public void complete(Particle p, Force f, double dt) {
+	}
+}
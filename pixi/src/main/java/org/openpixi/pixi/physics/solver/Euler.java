@@ -39,9 +39,10 @@ public class Euler implements Solver {
 	 */
 	public void step(Particle p, Force f, double step)
 	{
+		double inverseMass = p.getSpecies().getInverseMass();
 		//a(t) = F(v(t), x(t)) / m
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
+		p.setAx(f.getForceX(p) * inverseMass);
+		p.setAy(f.getForceY(p) * inverseMass);
 
 		// x(t+dt) = x(t) + v(t)*dt
 		p.setX(p.getX() + p.getVx() * step);
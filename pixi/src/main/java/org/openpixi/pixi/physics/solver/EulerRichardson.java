@@ -52,9 +52,10 @@ public class EulerRichardson implements Solver{
 		double vxstart = p.getVx();
 		double vystart = p.getVy();
 		
+		double inverseMass = p.getSpecies().getInverseMass();
 		//a(t) = F(v(t), x(t)) / m
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
+		p.setAx(f.getForceX(p) * inverseMass);
+		p.setAy(f.getForceY(p) * inverseMass);
 		
 		//starting the Euler-Richardson algorithm (the equations correspond with the ones on the above mentioned website)
 		//v(t + dt / 2) = v(t) + a(t) * dt / 2
@@ -66,8 +67,8 @@ public class EulerRichardson implements Solver{
 		p.setY(p.getY() + p.getVy() * step / 2); 
 		
 		//a(t + dt / 2) = F(v(t + dt / 2), x(t + dt / 2)) / m
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
+		p.setAx(f.getForceX(p) * inverseMass);
+		p.setAy(f.getForceY(p) * inverseMass);
 		
 		//x(t + dt) = x(t) + v(t + dt / 2) * dt
 		p.setX(xstart + p.getVx() * step);
@@ -45,10 +45,11 @@ public class LeapFrog implements Solver{
 		p.setX(p.getX() + p.getVx() * dt);
 		p.setY(p.getY() + p.getVy() * dt);
 
+		double inverseMass = p.getSpecies().getInverseMass();
 		// a(t+dt) = F(v(t+dt/2), x(t+dt)) / m
 		// WARNING: Force is evaluated at two different times t+dt/2 and t+dt!
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
+		p.setAx(f.getForceX(p) * inverseMass);
+		p.setAy(f.getForceY(p) * inverseMass);
 
 		// v(t+3*dt/2) = v(t+dt/2) + a(t+dt)*dt
 		p.setVx(p.getVx() + p.getAx() * dt);
@@ -62,9 +63,10 @@ public class LeapFrog implements Solver{
 	 */
 	public void prepare(Particle p, Force f, double dt)
 	{
+		double inverseMass = p.getSpecies().getInverseMass();
 		//a(t) = F(v(t), x(t)) / m
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
+		p.setAx(f.getForceX(p) * inverseMass);
+		p.setAy(f.getForceY(p) * inverseMass);
 		
 		//v(t + dt / 2) = v(t) + a(t)*dt / 2
 		p.setVx(p.getVx() + p.getAx() * dt / 2);
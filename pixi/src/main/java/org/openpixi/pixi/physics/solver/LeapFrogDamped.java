@@ -20,7 +20,9 @@ package org.openpixi.pixi.physics.solver;
 
 import org.openpixi.pixi.physics.*;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.ForceComponents;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.util.SlotArray;
 
 /**This class represents the LeapFrog algorithm and the equations that are used one can be find here:
  * http://phycomp.technion.ac.il/~david/thesis/node34.html
@@ -28,6 +30,17 @@ import org.openpixi.pixi.physics.particles.Particle;
  * http://www.artcompsci.org/vol_1/v1_web/node34.html#leapfrog-step2
  */
 public class LeapFrogDamped implements Solver{
+
+	/** Indices of the values remembered for complete() */
+	private static final int POSITION_FORCE_X = 0;
+	private static final int POSITION_FORCE_Y = 1;
+	private static final int NORMAL_FORCE_X = 2;
+	private static final int NORMAL_FORCE_Y = 3;
+	private static final int LINEAR_DRAG = 4;
+	private static final int HISTORY_SIZE = 5;
+
+	/** Values remembered for complete(), indexed by particle slot */
+	private SlotArray history = new SlotArray(HISTORY_SIZE, 0);
 	
 	public LeapFrogDamped()
 	{
@@ -42,19 +55,20 @@ public class LeapFrogDamped implements Solver{
 	 */
 	public void step(Particle p, Force f, double dt) {
 		
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getNormalVelocityComponentofForceX = f.getNormalVelocityComponentofForceX(p);
-		double getNormalVelocityComponentofForceY = f.getNormalVelocityComponentofForceY(p);
-		double getLinearDragCoefficient = f.getLinearDragCoefficient(p);
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getNormalVelocityComponentofForceX = force.normalVelocityX;
+		double getNormalVelocityComponentofForceY = force.normalVelocityY;
+		double getLinearDragCoefficient = force.linearDragCoefficient;
 		double getMass = p.getMass();
 	
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevNormalVelocityComponentOfForceX(getNormalVelocityComponentofForceX);
-		p.setPrevNormalVelocityComponentOfForceY(getNormalVelocityComponentofForceY);	
-		p.setPrevLinearDragCoefficient(getLinearDragCoefficient);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), NORMAL_FORCE_X, getNormalVelocityComponentofForceX);
+		history.set(p.getSlot(), NORMAL_FORCE_Y, getNormalVelocityComponentofForceY);
+		history.set(p.getSlot(), LINEAR_DRAG, getLinearDragCoefficient);
 		
 		//help coefficients for the dragging
 		double help1_coef = 1 - getLinearDragCoefficient * dt / (2 * getMass);
@@ -82,19 +96,20 @@ public class LeapFrogDamped implements Solver{
 	 */
 	public void prepare(Particle p, Force f, double dt)
 	{
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getNormalVelocityComponentofForceX = f.getNormalVelocityComponentofForceX(p);
-		double getNormalVelocityComponentofForceY = f.getNormalVelocityComponentofForceY(p);
-		double getLinearDragCoefficient = f.getLinearDragCoefficient(p);
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getNormalVelocityComponentofForceX = force.normalVelocityX;
+		double getNormalVelocityComponentofForceY = force.normalVelocityY;
+		double getLinearDragCoefficient = force.linearDragCoefficient;
 		double getMass = p.getMass();
 		
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevNormalVelocityComponentOfForceX(getNormalVelocityComponentofForceX);
-		p.setPrevNormalVelocityComponentOfForceY(getNormalVelocityComponentofForceY);
-		p.setPrevLinearDragCoefficient(getLinearDragCoefficient);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), NORMAL_FORCE_X, getNormalVelocityComponentofForceX);
+		history.set(p.getSlot(), NORMAL_FORCE_Y, getNormalVelocityComponentofForceY);
+		history.set(p.getSlot(), LINEAR_DRAG, getLinearDragCoefficient);
 		
 		dt = - dt * 0.5;
 		
@@ -103,8 +118,8 @@ public class LeapFrogDamped implements Solver{
 		double help2_coef = 1 + getLinearDragCoefficient * dt / (2 * getMass);
 		
 		//a(t) = F(v(t), x(t)) / m
-		p.setAx((f.getPositionComponentofForceX(p) + f.getNormalVelocityComponentofForceX(p)) / getMass);
-		p.setAy((f.getPositionComponentofForceY(p) + f.getNormalVelocityComponentofForceY(p)) / getMass);
+		p.setAx((getPositionComponentofForceX + getNormalVelocityComponentofForceX) / getMass);
+		p.setAy((getPositionComponentofForceY + getNormalVelocityComponentofForceY) / getMass);
 		
 		//v(t - dt / 2) = v(t) - a(t)*dt / 2
 		p.setVx((p.getVx() * help1_coef + p.getAx() * dt) / help2_coef);
@@ -117,7 +132,7 @@ public class LeapFrogDamped implements Solver{
 	 */
 	public void complete(Particle p, Force f, double dt)
 	{
-		double getPrevLinearDragCoefficient = p.getPrevLinearDragCoefficient();
+		double getPrevLinearDragCoefficient = history.get(p.getSlot(), LINEAR_DRAG);
 		double getMass = p.getMass();
 		
 		dt = dt * 0.5;
@@ -125,8 +140,8 @@ public class LeapFrogDamped implements Solver{
 		double help1_coef = 1 - getPrevLinearDragCoefficient * dt / (2 * getMass);
 		double help2_coef = 1 + getPrevLinearDragCoefficient * dt / (2 * getMass);
 		
-		p.setAx((p.getPrevPositionComponentForceX() + p.getPrevNormalVelocityComponentOfForceX()) / getMass);
-		p.setAy((p.getPrevPositionComponentForceY() + p.getPrevNormalVelocityComponentOfForceY()) / getMass);
+		p.setAx((history.get(p.getSlot(), POSITION_FORCE_X) + history.get(p.getSlot(), NORMAL_FORCE_X)) / getMass);
+		p.setAy((history.get(p.getSlot(), POSITION_FORCE_Y) + history.get(p.getSlot(), NORMAL_FORCE_Y)) / getMass);
 		
 		//v(t) = v(t - dt /2) + a(t)*dt / 2
 		p.setVx((p.getVx() * help1_coef + p.getAx() * dt) / help2_coef);
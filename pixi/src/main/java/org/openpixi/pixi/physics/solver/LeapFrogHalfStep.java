@@ -48,10 +48,11 @@ public class LeapFrogHalfStep implements Solver{
 		p.setX(p.getX() + p.getVx() * dt);
 		p.setY(p.getY() + p.getVy() * dt);
 
+		double inverseMass = p.getSpecies().getInverseMass();
 		// a(t+dt) = F(v(t+dt/2), x(t+dt)) / m
 		// WARNING: Force is evaluated at two different times t+dt/2 and t+dt!
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
+		p.setAx(f.getForceX(p) * inverseMass);
+		p.setAy(f.getForceY(p) * inverseMass);
 
 		// v(t+dt) = v(t+dt/2) + a(t+dt)*dt/2
 		p.setVx(p.getVx() + p.getAx() * dt / 2.0);
@@ -20,13 +20,15 @@ package org.openpixi.pixi.physics.solver;
 
 import org.openpixi.pixi.physics.*;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.SimpleGridForce;
 import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleBatch;
 
 /**This class represents the simple Semi Implicit Euler algorithm.
  * For more information: 
  * http://en.wikipedia.org/wiki/Semi-implicit_Euler_method
  */
-public class SemiImplicitEuler implements Solver {
+public class SemiImplicitEuler implements BatchSolver {
 	
 	public SemiImplicitEuler()
 	{
@@ -40,9 +42,10 @@ public class SemiImplicitEuler implements Solver {
 	 */
 	public void step(Particle p, Force f, double step)
 	{
+		double inverseMass = p.getSpecies().getInverseMass();
 		//a(t) = F(v(t), x(t)) / m
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
+		p.setAx(f.getForceX(p) * inverseMass);
+		p.setAy(f.getForceY(p) * inverseMass);
 		
 		// v(t+dt) = v(t) + a(t)*dt
 		p.setVx(p.getVx() + p.getAx() * step);
@@ -54,6 +57,49 @@ public class SemiImplicitEuler implements Solver {
 		
 	}
 
+	public boolean canStep(Force f) {
+		return f.getClass() == SimpleGridForce.class;
+	}
+
+	public int getBatchAttributes() {
+		return ParticleBatch.Z | ParticleBatch.FIELDS_3D | ParticleBatch.ACCELERATION;
+	}
+
+	/**
+	 * Same as step(Particle, Force, double) with a SimpleGridForce, for all particles of the batch.
+	 */
+	public void step(ParticleBatch batch, double step) {
+		int n = batch.size();
+		double[] x = batch.x;
+		double[] y = batch.y;
+		double[] vx = batch.vx;
+		double[] vy = batch.vy;
+		double[] vz = batch.vz;
+		double[] ax = batch.ax;
+		double[] ay = batch.ay;
+		double[] ex = batch.ex;
+		double[] ey = batch.ey;
+		double[] bx = batch.bx;
+		double[] by = batch.by;
+		double[] bz = batch.bz;
+		double[] charge = batch.charge;
+		double[] inverseMass = batch.inverseMass;
+
+		for (int i = 0; i < n; i++) {
+			//a(t) = F(v(t), x(t)) / m
+			ax[i] = charge[i] * (ex[i] + vy[i] * bz[i] - vz[i] * by[i]) * inverseMass[i];
+			ay[i] = charge[i] * (ey[i] + vz[i] * bx[i] - vx[i] * bz[i]) * inverseMass[i];
+
+			// v(t+dt) = v(t) + a(t)*dt
+			vx[i] += ax[i] * step;
+			vy[i] += ay[i] * step;
+
+			// x(t+dt) = x(t) + v(t+dt)*dt
+			x[i] += vx[i] * step;
+			y[i] += vy[i] * step;
+		}
+	}
+
 	public void prepare(Particle p, Force f, double step) {
 	}
 
@@ -21,13 +21,28 @@ package org.openpixi.pixi.physics.solver.relativistic;
 
 import org.openpixi.pixi.physics.*;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.ForceComponents;
+import org.openpixi.pixi.physics.force.relativistic.SimpleGridForceRelativistic;
 import org.openpixi.pixi.physics.particles.Particle;
-import org.openpixi.pixi.physics.solver.Solver;
+import org.openpixi.pixi.physics.particles.ParticleBatch;
+import org.openpixi.pixi.physics.particles.Species;
+import org.openpixi.pixi.physics.solver.BatchSolver;
+import org.openpixi.pixi.physics.util.SlotArray;
 
 /**The calculation is due to Boris and the equations((7) - (10)) can be found here:
  * http://ptsg.eecs.berkeley.edu/publications/Verboncoeur2005IOP.pdf
  */
-public class BorisRelativistic implements Solver{
+public class BorisRelativistic implements BatchSolver{
+
+	/** Indices of the values remembered for complete() */
+	private static final int POSITION_FORCE_X = 0;
+	private static final int POSITION_FORCE_Y = 1;
+	private static final int TANGENT_FORCE_X = 2;
+	private static final int TANGENT_FORCE_Y = 3;
+	private static final int HISTORY_SIZE = 4;
+
+	/** Values remembered for complete(), indexed by particle slot */
+	private SlotArray history = new SlotArray(HISTORY_SIZE, 0);
 	
 	RelativisticVelocity relvelocity;
 	
@@ -46,29 +61,33 @@ public class BorisRelativistic implements Solver{
 	 */
 	public void step(Particle p, Force f, double step) {
 
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getBz = f.getBz(p);
-		double getTangentVelocityComponentOfForceX = f.getTangentVelocityComponentOfForceX(p);
-		double getTangentVelocityComponentOfForceY = f.getTangentVelocityComponentOfForceY(p);
-		double getMass = p.getMass();
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getBz = force.bz;
+		double getTangentVelocityComponentOfForceX = force.tangentVelocityX;
+		double getTangentVelocityComponentOfForceY = force.tangentVelocityY;
+		Species species = p.getSpecies();
 		
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevBz(getBz);
-		p.setPrevTangentVelocityComponentOfForceX(getTangentVelocityComponentOfForceX);
-		p.setPrevTangentVelocityComponentOfForceY(getTangentVelocityComponentOfForceY);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), TANGENT_FORCE_X, getTangentVelocityComponentOfForceX);
+		history.set(p.getSlot(), TANGENT_FORCE_Y, getTangentVelocityComponentOfForceY);
 		
 		//calculating u(t + dt / 2). Although getV() and setV() are used, the represent the relativistic momentum, i.e. v->u
-		double uxminus = p.getVx() + getPositionComponentofForceX * step / (2.0 * getMass);
+		double halfStepOverMass = 0.5 * step * species.getInverseMass();
+		double stepOverMass = step * species.getInverseMass();
+		double halfStepChargeOverMass = 0.5 * step * species.getChargeOverMass();
+
+		double uxminus = p.getVx() + getPositionComponentofForceX * halfStepOverMass;
 		
-		double uyminus = p.getVy() + getPositionComponentofForceY * step / (2.0 * getMass);
+		double uyminus = p.getVy() + getPositionComponentofForceY * halfStepOverMass;
 		
 		//gamma(t)
 		double gamma = relvelocity.calculateGamma(uxminus, uyminus);
 		
-		double t_z = p.getCharge() * getBz * step / (2.0 * getMass * gamma);   //t vector
+		double t_z = halfStepChargeOverMass * getBz / gamma;   //t vector
 		
 		double s_z = 2 * t_z / (1 + t_z * t_z);               //s vector
 		
@@ -78,8 +97,8 @@ public class BorisRelativistic implements Solver{
 		double uxplus = uxminus + uyprime * s_z;
 		double uyplus = uyminus - uxprime * s_z;
 		
-		p.setVx(uxplus + getPositionComponentofForceX * step / (2.0 * getMass) + getTangentVelocityComponentOfForceX * step / getMass);
-		p.setVy(uyplus + getPositionComponentofForceY * step / (2.0 * getMass) + getTangentVelocityComponentOfForceY * step / getMass);
+		p.setVx(uxplus + getPositionComponentofForceX * halfStepOverMass + getTangentVelocityComponentOfForceX * stepOverMass);
+		p.setVy(uyplus + getPositionComponentofForceY * halfStepOverMass + getTangentVelocityComponentOfForceY * stepOverMass);
 		
 		//calculating gamma(t + dt / 2)
 		gamma = relvelocity.calculateGamma(p);
@@ -88,6 +107,72 @@ public class BorisRelativistic implements Solver{
 		p.setX(p.getX() + p.getVx() * step / gamma);
 		p.setY(p.getY() + p.getVy() * step / gamma);
 	}	
+
+	public boolean canStep(Force f) {
+		return f.getClass() == SimpleGridForceRelativistic.class;
+	}
+
+	public int getBatchAttributes() {
+		return ParticleBatch.Z;
+	}
+
+	/**
+	 * Same as step(Particle, Force, double) with a SimpleGridForceRelativistic,
+	 * for all particles of the batch.
+	 * The position component of the force is q * E and the tangent component vanishes.
+	 */
+	public void step(ParticleBatch batch, double step) {
+		int n = batch.size();
+		double[] x = batch.x;
+		double[] y = batch.y;
+		double[] vx = batch.vx;
+		double[] vy = batch.vy;
+		double[] vz = batch.vz;
+		double[] ex = batch.ex;
+		double[] ey = batch.ey;
+		double[] bz = batch.bz;
+		double[] charge = batch.charge;
+		double[] inverseMass = batch.inverseMass;
+		double[] chargeOverMass = batch.chargeOverMass;
+
+		// remember for complete()
+		for (int i = 0; i < n; i++) {
+			int slot = batch.slot[i];
+			double[] block = history.block(slot);
+			int offset = history.offset(slot);
+			block[offset + POSITION_FORCE_X] = charge[i] * ex[i];
+			block[offset + POSITION_FORCE_Y] = charge[i] * ey[i];
+			block[offset + TANGENT_FORCE_X] = 0;
+			block[offset + TANGENT_FORCE_Y] = 0;
+		}
+
+		for (int i = 0; i < n; i++) {
+			double positionForceX = charge[i] * ex[i];
+			double positionForceY = charge[i] * ey[i];
+			double halfStepOverMass = 0.5 * step * inverseMass[i];
+
+			double uxminus = vx[i] + positionForceX * halfStepOverMass;
+			double uyminus = vy[i] + positionForceY * halfStepOverMass;
+
+			//gamma(t)
+			double gamma = relvelocity.calculateGamma(uxminus, uyminus);
+
+			double t_z = 0.5 * step * chargeOverMass[i] * bz[i] / gamma;
+			double s_z = 2 * t_z / (1 + t_z * t_z);
+
+			double uxprime = uxminus + uyminus * t_z;
+			double uyprime = uyminus - uxminus * t_z;
+
+			vx[i] = uxminus + uyprime * s_z + positionForceX * halfStepOverMass;
+			vy[i] = uyminus - uxprime * s_z + positionForceY * halfStepOverMass;
+
+			//gamma(t + dt / 2)
+			gamma = relvelocity.calculateGamma(vx[i], vy[i], vz[i]);
+
+			x[i] += vx[i] * step / gamma;
+			y[i] += vy[i] * step / gamma;
+		}
+	}
 	
 	/**
 	 * prepare method for bringing the velocity in the desired half step
@@ -96,31 +181,35 @@ public class BorisRelativistic implements Solver{
 	 */
 	public void prepare(Particle p, Force f, double dt)
 	{	
-		double getPositionComponentofForceX = f.getPositionComponentofForceX(p);
-		double getPositionComponentofForceY = f.getPositionComponentofForceY(p);
-		double getBz = f.getBz(p);
-		double getTangentVelocityComponentOfForceX = f.getTangentVelocityComponentOfForceX(p);
-		double getTangentVelocityComponentOfForceY = f.getTangentVelocityComponentOfForceY(p);
-		double getMass = p.getMass();
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		double getPositionComponentofForceX = force.positionX;
+		double getPositionComponentofForceY = force.positionY;
+		double getBz = force.bz;
+		double getTangentVelocityComponentOfForceX = force.tangentVelocityX;
+		double getTangentVelocityComponentOfForceY = force.tangentVelocityY;
+		Species species = p.getSpecies();
 		
 		// remember for complete()
-		p.setPrevPositionComponentForceX(getPositionComponentofForceX);
-		p.setPrevPositionComponentForceY(getPositionComponentofForceY);
-		p.setPrevBz(getBz);
-		p.setPrevTangentVelocityComponentOfForceX(getTangentVelocityComponentOfForceX);
-		p.setPrevTangentVelocityComponentOfForceY(getTangentVelocityComponentOfForceY);
+		history.set(p.getSlot(), POSITION_FORCE_X, getPositionComponentofForceX);
+		history.set(p.getSlot(), POSITION_FORCE_Y, getPositionComponentofForceY);
+		history.set(p.getSlot(), TANGENT_FORCE_X, getTangentVelocityComponentOfForceX);
+		history.set(p.getSlot(), TANGENT_FORCE_Y, getTangentVelocityComponentOfForceY);
 		
 		double step = - dt * 0.5;
 		
 		//calculating u(t + dt / 2). Although getV() and setV() are used, the represent the relativistic momentum, i.e. v->u
-		double uxminus = p.getVx() + getPositionComponentofForceX * step / (2.0 * getMass) + getTangentVelocityComponentOfForceX * step / getMass;
+		double halfStepOverMass = 0.5 * step * species.getInverseMass();
+		double stepOverMass = step * species.getInverseMass();
+		double halfStepChargeOverMass = 0.5 * step * species.getChargeOverMass();
+
+		double uxminus = p.getVx() + getPositionComponentofForceX * halfStepOverMass + getTangentVelocityComponentOfForceX * stepOverMass;
 		
-		double uyminus = p.getVy() + getPositionComponentofForceY * step / (2.0 * getMass) + getTangentVelocityComponentOfForceY * step / getMass;
+		double uyminus = p.getVy() + getPositionComponentofForceY * halfStepOverMass + getTangentVelocityComponentOfForceY * stepOverMass;
 		
 		//gamma(t)
 		double gamma = relvelocity.calculateGamma(uxminus, uyminus);
 		
-		double t_z = p.getCharge() * getBz * step / (2.0 * getMass * gamma);   //t vector
+		double t_z = halfStepChargeOverMass * getBz / gamma;   //t vector
 		
 		double s_z = 2 * t_z / (1 + t_z * t_z);               //s vector
 		
@@ -130,8 +219,8 @@ public class BorisRelativistic implements Solver{
 		double uxplus = uxminus + uyprime * s_z;
 		double uyplus = uyminus - uxprime * s_z;
 		
-		p.setVx(uxplus + getPositionComponentofForceX * step / (2.0 * getMass));
-		p.setVy(uyplus + getPositionComponentofForceY * step / (2.0 * getMass));
+		p.setVx(uxplus + getPositionComponentofForceX * halfStepOverMass);
+		p.setVy(uyplus + getPositionComponentofForceY * halfStepOverMass);
 	}
 
 	/**
@@ -141,18 +230,22 @@ public class BorisRelativistic implements Solver{
 	 */
 	public void complete(Particle p, Force f, double dt)
 	{
-		double getPrevPositionComponentForceX = p.getPrevPositionComponentForceX();
-		double getPrevPositionComponentForceY = p.getPrevPositionComponentForceY();
-		double getMass = p.getMass();
+		double getPrevPositionComponentForceX = history.get(p.getSlot(), POSITION_FORCE_X);
+		double getPrevPositionComponentForceY = history.get(p.getSlot(), POSITION_FORCE_Y);
+		Species species = p.getSpecies();
 		
 		dt = dt * 0.5;
-		double uxminus = p.getVx() + getPrevPositionComponentForceX * dt / (2.0 * getMass);
+		double halfStepOverMass = 0.5 * dt * species.getInverseMass();
+		double stepOverMass = dt * species.getInverseMass();
+		double halfStepChargeOverMass = 0.5 * dt * species.getChargeOverMass();
+
+		double uxminus = p.getVx() + getPrevPositionComponentForceX * halfStepOverMass;
 		
-		double uyminus = p.getVy() + getPrevPositionComponentForceY * dt / (2.0 * getMass);
+		double uyminus = p.getVy() + getPrevPositionComponentForceY * halfStepOverMass;
 		
 		//gamma(t)
 		double gamma = relvelocity.calculateGamma(uxminus, uyminus);
-		double t_z = p.getCharge() * f.getBz(p) * dt / (2.0 * getMass * gamma);   //t vector
+		double t_z = halfStepChargeOverMass * f.getBz(p) / gamma;   //t vector
 		
 		double s_z = 2 * t_z / (1 + t_z * t_z);               //s vector
 		
@@ -162,7 +255,7 @@ public class BorisRelativistic implements Solver{
 		double uxplus = uxminus + uyprime * s_z;
 		double uyplus = uyminus - uxprime * s_z;
 		
-		p.setVx(uxplus + getPrevPositionComponentForceX * dt / (2.0 * getMass) + p.getPrevTangentVelocityComponentOfForceX() * dt / getMass);
-		p.setVy(uyplus + getPrevPositionComponentForceY * dt / (2.0 * getMass) + p.getPrevTangentVelocityComponentOfForceY() * dt / getMass);
+		p.setVx(uxplus + getPrevPositionComponentForceX * halfStepOverMass + history.get(p.getSlot(), TANGENT_FORCE_X) * stepOverMass);
+		p.setVy(uyplus + getPrevPositionComponentForceY * halfStepOverMass + history.get(p.getSlot(), TANGENT_FORCE_Y) * stepOverMass);
 	}
 }
@@ -0,0 +1,128 @@
+/*
+ * OpenPixi - Open Particle-In-Cell (PIC) Simulator
+ * Copyright (C) 2012  OpenPixi.org
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.openpixi.pixi.physics.solver.relativistic;
+
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.solver.Solver;
+
+/**
+ * Relativistic Boris algorithm in three dimensions, see equations (7) - (10) of
+ * http://ptsg.eecs.berkeley.edu/publications/Verboncoeur2005IOP.pdf
+ *
+ * Unlike BorisRelativistic, the velocity is rotated about the full magnetic field and all
+ * three components of position and momentum are updated. The electric and magnetic fields
+ * are read directly from the particle (as interpolated from the grid), hence the force
+ * passed to the methods is ignored. Simulation therefore rejects any force other than the
+ * one of the grid.
+ */
+public class BorisRelativistic3D implements Solver {
+
+	/** 1 / c^2 */
+	private double inverseSpeedOfLightSquared;
+
+	public BorisRelativistic3D(double c)
+	{
+		inverseSpeedOfLightSquared = 1 / (c * c);
+	}
+
+	/**
+	 * Warning: the velocity is stored half a time step before of the position.
+	 * @param p before the update: x(t), u(t-dt/2);
+	 *                 after the update: x(t+dt), u(t+dt/2)
+	 *                 u(t) is the relativistic momentum
+	 */
+	public void step(Particle p, Force f, double step) {
+		rotate(p, step);
+
+		double ux = p.getVx();
+		double uy = p.getVy();
+		double uz = p.getVz();
+
+		// x(t+dt) = x(t) + u(t+dt/2) * dt / gamma(t+dt/2)
+		double stepOverGamma = step / Math.sqrt(1 + (ux * ux + uy * uy + uz * uz) * inverseSpeedOfLightSquared);
+		p.setX(p.getX() + ux * stepOverGamma);
+		p.setY(p.getY() + uy * stepOverGamma);
+		p.setZ(p.getZ() + uz * stepOverGamma);
+	}
+
+	/**
+	 * prepare method for bringing the velocity in the desired half step
+	 * @param p before the update: u(t);
+	 *                 after the update: u(t-dt/2)
+	 */
+	public void prepare(Particle p, Force f, double dt) {
+		rotate(p, -0.5 * dt);
+	}
+
+	/**
+	 * complete method for bringing the velocity in the desired half step
+	 * @param p before the update: u(t-dt/2);
+	 *                 after the update: u(t)
+	 */
+	public void complete(Particle p, Force f, double dt) {
+		rotate(p, 0.5 * dt);
+	}
+
+	/**
+	 * Half acceleration by E, rotation about B and another half acceleration by E.
+	 * Gamma is evaluated once, after the first half acceleration.
+	 */
+	private void rotate(Particle p, double step) {
+		double halfStepChargeOverMass = 0.5 * step * p.getSpecies().getChargeOverMass();
+
+		double epsx = halfStepChargeOverMass * p.getEx();
+		double epsy = halfStepChargeOverMass * p.getEy();
+		double epsz = halfStepChargeOverMass * p.getEz();
+
+		double uxminus = p.getVx() + epsx;
+		double uyminus = p.getVy() + epsy;
+		double uzminus = p.getVz() + epsz;
+
+		//gamma(t)
+		double inverseGamma = 1 / Math.sqrt(1
+				+ (uxminus * uxminus + uyminus * uyminus + uzminus * uzminus) * inverseSpeedOfLightSquared);
+
+		//t vector
+		double tx = halfStepChargeOverMass * p.getBx() * inverseGamma;
+		double ty = halfStepChargeOverMass * p.getBy() * inverseGamma;
+		double tz = halfStepChargeOverMass * p.getBz() * inverseGamma;
+
+		//s vector
+		double sFactor = 2 / (1 + tx * tx + ty * ty + tz * tz);
+		double sx = sFactor * tx;
+		double sy = sFactor * ty;
+		double sz = sFactor * tz;
+
+		// u' = u- + u- x t
+		double uxprime = uxminus + uyminus * tz - uzminus * ty;
+		double uyprime = uyminus + uzminus * tx - uxminus * tz;
+		double uzprime = uzminus + uxminus * ty - uyminus * tx;
+
+		// u+ = u- + u' x s
+		double uxplus = uxminus + uyprime * sz - uzprime * sy;
+		double uyplus = uyminus + uzprime * sx - uxprime * sz;
+		double uzplus = uzminus + uxprime * sy - uyprime * sx;
+
+		p.setVx(uxplus + epsx);
+		p.setVy(uyplus + epsy);
+		p.setVz(uzplus + epsz);
+	}
+}
@@ -20,15 +20,18 @@ package org.openpixi.pixi.physics.solver.relativistic;
 
 import org.openpixi.pixi.physics.*;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.ForceComponents;
+import org.openpixi.pixi.physics.force.relativistic.SimpleGridForceRelativistic;
 import org.openpixi.pixi.physics.particles.Particle;
-import org.openpixi.pixi.physics.solver.Solver;
+import org.openpixi.pixi.physics.particles.ParticleBatch;
+import org.openpixi.pixi.physics.solver.BatchSolver;
 
 /**This class represents the LeapFrog algorithm and the equations that are used one can be find here:
  * http://phycomp.technion.ac.il/~david/thesis/node34.html
  * and also here:
  * http://www.artcompsci.org/vol_1/v1_web/node34.html#leapfrog-step2
  */
-public class LeapFrogRelativistic implements Solver{
+public class LeapFrogRelativistic implements BatchSolver{
 	
 	RelativisticVelocity relvelocity;
 	
@@ -53,11 +56,13 @@ public class LeapFrogRelativistic implements Solver{
 		p.setY(p.getY() + p.getVy() * dt / gamma);
 		p.setZ(p.getZ() + p.getVz() * dt / gamma);
 
+		double inverseMass = p.getSpecies().getInverseMass();
 		// a(t+dt) = F(u(t+dt/2), x(t+dt)) / m
 		// WARNING: Force is evaluated at two different times t+dt/2 and t+dt!
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
-		p.setAz(f.getForceZ(p) / p.getMass());
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		p.setAx(force.forceX * inverseMass);
+		p.setAy(force.forceY * inverseMass);
+		p.setAz(force.forceZ * inverseMass);
 
 		// u(t+3*dt/2) = u(t+dt/2) + a(t+dt)*dt
 		p.setVx(p.getVx() + p.getAx() * dt);
@@ -65,6 +70,61 @@ public class LeapFrogRelativistic implements Solver{
 		p.setVz(p.getVz() + p.getAz() * dt);
 		
 	}
+
+	public boolean canStep(Force f) {
+		return f.getClass() == SimpleGridForceRelativistic.class;
+	}
+
+	public int getBatchAttributes() {
+		return ParticleBatch.Z | ParticleBatch.FIELDS_3D | ParticleBatch.ACCELERATION;
+	}
+
+	/**
+	 * Same as step(Particle, Force, double) with a SimpleGridForceRelativistic,
+	 * for all particles of the batch.
+	 */
+	public void step(ParticleBatch batch, double dt) {
+		int n = batch.size();
+		double[] x = batch.x;
+		double[] y = batch.y;
+		double[] z = batch.z;
+		double[] vx = batch.vx;
+		double[] vy = batch.vy;
+		double[] vz = batch.vz;
+		double[] ax = batch.ax;
+		double[] ay = batch.ay;
+		double[] az = batch.az;
+		double[] ex = batch.ex;
+		double[] ey = batch.ey;
+		double[] ez = batch.ez;
+		double[] bx = batch.bx;
+		double[] by = batch.by;
+		double[] bz = batch.bz;
+		double[] charge = batch.charge;
+		double[] inverseMass = batch.inverseMass;
+
+		for (int i = 0; i < n; i++) {
+			double gamma = relvelocity.calculateGamma(vx[i], vy[i], vz[i]);
+
+			// x(t+dt) = x(t) + c(t+dt/2) * dt / gamma
+			x[i] += vx[i] * dt / gamma;
+			y[i] += vy[i] * dt / gamma;
+			z[i] += vz[i] * dt / gamma;
+
+			// a(t+dt) = F(u(t+dt/2), x(t+dt)) / m with v = u / gamma
+			double velx = vx[i] / gamma;
+			double vely = vy[i] / gamma;
+			double velz = vz[i] / gamma;
+			ax[i] = charge[i] * (ex[i] + vely * bz[i] - velz * by[i]) * inverseMass[i];
+			ay[i] = charge[i] * (ey[i] + velz * bx[i] - velx * bz[i]) * inverseMass[i];
+			az[i] = charge[i] * (ez[i] + velx * by[i] - vely * bx[i]) * inverseMass[i];
+
+			// u(t+3*dt/2) = u(t+dt/2) + a(t+dt)*dt
+			vx[i] += ax[i] * dt;
+			vy[i] += ay[i] * dt;
+			vz[i] += az[i] * dt;
+		}
+	}
 	/**
 	 * prepare method for bringing the velocity in the desired half step
 	 * @param p before the update: v(t);
@@ -72,10 +132,12 @@ public class LeapFrogRelativistic implements Solver{
 	 */
 	public void prepare(Particle p, Force f, double dt)
 	{
+		double inverseMass = p.getSpecies().getInverseMass();
 		//a(t) = F(v(t), x(t)) / m
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
-		p.setAz(f.getForceZ(p) / p.getMass());
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		p.setAx(force.forceX * inverseMass);
+		p.setAy(force.forceY * inverseMass);
+		p.setAz(force.forceZ * inverseMass);
 		
 		//v(t + dt / 2) = v(t) + a(t)*dt / 2
 		p.setVx(p.getVx() + p.getAx() * dt);
@@ -20,6 +20,7 @@ package org.openpixi.pixi.physics.solver.relativistic;
 
 import org.openpixi.pixi.physics.*;
 import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.ForceComponents;
 import org.openpixi.pixi.physics.particles.Particle;
 import org.openpixi.pixi.physics.solver.Solver;
 
@@ -46,10 +47,12 @@ public class SemiImplicitEulerRelativistic implements Solver {
 	 */
 	public void step(Particle p, Force f, double step)
 	{
+		double inverseMass = p.getSpecies().getInverseMass();
 		//a(t) = F(u(t), x(t)) / m
-		p.setAx(f.getForceX(p) / p.getMass());
-		p.setAy(f.getForceY(p) / p.getMass());
-		p.setAz(f.getForceZ(p) / p.getMass());
+		ForceComponents force = ForceComponents.evaluate(f, p);
+		p.setAx(force.forceX * inverseMass);
+		p.setAy(force.forceY * inverseMass);
+		p.setAz(force.forceZ * inverseMass);
 		
 		// u(t+dt) = u(t) + a(t)*dt
 		p.setVx(p.getVx() + p.getAx() * step);
@@ -0,0 +1,290 @@
+package org.openpixi.pixi.physics.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openpixi.pixi.parallel.particleaccess.ParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.RangeAction;
+import org.openpixi.pixi.physics.particles.Particle;
+
+/**
+ * Verlet neighbor lists: for every particle the particles within cutoff + skin.
+ *
+ * As long as no particle has moved more than skin / 2 since the lists were built, every
+ * pair which is now closer than the cutoff is still in the lists, so update() only rebuilds
+ * the lists after larger moves. The lists are built with a grid of cells which are at least
+ * cutoff + skin wide, and stored in compressed rows: the neighbors of particle i are
+ * getNeighbor(getStart(i)) to getNeighbor(getEnd(i) - 1), in ascending order. Every pair
+ * appears in the lists of both particles.
+ *
+ * The particles are referred to by their index in the list given to update(); the order of
+ * this list must not change between updates unless invalidate() is called.
+ */
+public class NeighborList {
+
+	private double cutoff;
+	private double skin;
+
+	private int numParticles;
+	private int numRebuilds;
+	/** Whether the lists have to be rebuilt by the next update() */
+	private boolean invalid = true;
+
+	/** Neighbors of particle i are neighbors[start[i]] to neighbors[start[i+1]-1] */
+	private int[] start = new int[1];
+	private int[] neighbors = new int[0];
+
+	/** Positions at the last rebuild */
+	private double[] builtX = new double[0];
+	private double[] builtY = new double[0];
+	private double[] builtZ = new double[0];
+
+	/* Cells of the last rebuild */
+	private double minX;
+	private double minY;
+	private double minZ;
+	private double cellSize;
+	private int numCellsX;
+	private int numCellsY;
+	private int numCellsZ;
+	private int[] particleCell = new int[0];
+	/** cellStart[c] to cellStart[c+1]-1 are the entries of cell c in sortedParticles */
+	private int[] cellStart = new int[0];
+	private int[] sortedParticles = new int[0];
+
+	private CountNeighbors countNeighbors = new CountNeighbors();
+	private FillNeighbors fillNeighbors = new FillNeighbors();
+
+	public NeighborList(double cutoff, double skin) {
+		this.cutoff = cutoff;
+		this.skin = skin;
+	}
+
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	public double getSkin() {
+		return skin;
+	}
+
+	/** Number of times the lists were built */
+	public int getNumRebuilds() {
+		return numRebuilds;
+	}
+
+	public int getStart(int i) {
+		return start[i];
+	}
+
+	public int getEnd(int i) {
+		return start[i + 1];
+	}
+
+	public int getNeighbor(int k) {
+		return neighbors[k];
+	}
+
+	/**
+	 * The next update() rebuilds the lists. Has to be called when particles were removed
+	 * from or added to the list, since the number of particles can stay the same while the
+	 * indices refer to other particles.
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	/**
+	 * Rebuilds the lists if a particle has moved more than skin / 2 since the last rebuild,
+	 * if the number of particles changed or if the lists were invalidated.
+	 * @return whether the lists were rebuilt
+	 */
+	public boolean update(List<Particle> particles, ParticleIterator particleIterator) {
+		if (invalid || particles.size() != numParticles || hasMoved(particles)) {
+			rebuild(particles, particleIterator);
+			return true;
+		}
+		return false;
+	}
+
+	private boolean hasMoved(List<Particle> particles) {
+		double limit = 0.25 * skin * skin;
+		for (int i = 0; i < numParticles; i++) {
+			Particle p = particles.get(i);
+			double dx = p.getX() - builtX[i];
+			double dy = p.getY() - builtY[i];
+			double dz = p.getZ() - builtZ[i];
+			if (dx * dx + dy * dy + dz * dz > limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void rebuild(List<Particle> particles, ParticleIterator particleIterator) {
+		numParticles = particles.size();
+		if (builtX.length < numParticles) {
+			builtX = new double[numParticles];
+			builtY = new double[numParticles];
+			builtZ = new double[numParticles];
+			particleCell = new int[numParticles];
+			sortedParticles = new int[numParticles];
+		}
+		if (start.length < numParticles + 1) {
+			start = new int[numParticles + 1];
+		}
+		for (int i = 0; i < numParticles; i++) {
+			Particle p = particles.get(i);
+			builtX[i] = p.getX();
+			builtY[i] = p.getY();
+			builtZ[i] = p.getZ();
+		}
+		sortIntoCells();
+
+		// Count, then fill the rows, so that both passes can run in parallel.
+		particleIterator.execute(numParticles, countNeighbors);
+		int sum = 0;
+		for (int i = 0; i < numParticles; i++) {
+			int count = start[i];
+			start[i] = sum;
+			sum += count;
+		}
+		start[numParticles] = sum;
+		if (neighbors.length < sum) {
+			neighbors = new int[sum + sum / 4];
+		}
+		particleIterator.execute(numParticles, fillNeighbors);
+		numRebuilds++;
+		invalid = false;
+	}
+
+	/**
+	 * Counting sort of the particles by cell.
+	 */
+	private void sortIntoCells() {
+		minX = Double.MAX_VALUE;
+		minY = Double.MAX_VALUE;
+		minZ = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		double maxZ = -Double.MAX_VALUE;
+		for (int i = 0; i < numParticles; i++) {
+			minX = Math.min(minX, builtX[i]);
+			minY = Math.min(minY, builtY[i]);
+			minZ = Math.min(minZ, builtZ[i]);
+			maxX = Math.max(maxX, builtX[i]);
+			maxY = Math.max(maxY, builtY[i]);
+			maxZ = Math.max(maxZ, builtZ[i]);
+		}
+		if (numParticles == 0) {
+			minX = maxX = minY = maxY = minZ = maxZ = 0;
+		}
+
+		// Cells have to be at least cutoff + skin wide. Limit their number to the order
+		// of the number of particles in sparse systems.
+		double width = maxX - minX;
+		double height = maxY - minY;
+		double depth = maxZ - minZ;
+		cellSize = cutoff + skin;
+		if (cellSize <= 0) {
+			// Only particles at the same position are neighbors, so any positive size will do.
+			double extent = Math.max(width, Math.max(height, depth));
+			cellSize = (extent > 0) ? extent / (numParticles + 1) : 1;
+		}
+		while ((double) numCells(width) * numCells(height) * numCells(depth) > 2. * numParticles + 8) {
+			cellSize *= 2;
+		}
+		numCellsX = numCells(width);
+		numCellsY = numCells(height);
+		numCellsZ = numCells(depth);
+
+		int total = numCellsX * numCellsY * numCellsZ;
+		if (cellStart.length < total + 1) {
+			cellStart = new int[total + 1];
+		}
+		for (int c = 0; c <= total; c++) {
+			cellStart[c] = 0;
+		}
+		for (int i = 0; i < numParticles; i++) {
+			int x = cellIndex(builtX[i] - minX, numCellsX);
+			int y = cellIndex(builtY[i] - minY, numCellsY);
+			int z = cellIndex(builtZ[i] - minZ, numCellsZ);
+			particleCell[i] = (z * numCellsY + y) * numCellsX + x;
+			cellStart[particleCell[i] + 1]++;
+		}
+		for (int c = 0; c < total; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		for (int i = 0; i < numParticles; i++) {
+			// cellStart[c] temporarily points to the next free entry of cell c
+			sortedParticles[cellStart[particleCell[i]]++] = i;
+		}
+		for (int c = total; c > 0; c--) {
+			cellStart[c] = cellStart[c - 1];
+		}
+		cellStart[0] = 0;
+	}
+
+	private int numCells(double extent) {
+		return Math.max(1, (int) (extent / cellSize));
+	}
+
+	private int cellIndex(double offset, int numCells) {
+		return Math.min(numCells - 1, (int) (offset / cellSize));
+	}
+
+	/**
+	 * Visits the particles within cutoff + skin of particle i. Counts them if row is
+	 * negative, otherwise writes them from the start of the row.
+	 * @return number of neighbors
+	 */
+	private int visitNeighbors(int i, int row) {
+		double radiusSquare = (cutoff + skin) * (cutoff + skin);
+		int cell = particleCell[i];
+		int cx = cell % numCellsX;
+		int cy = (cell / numCellsX) % numCellsY;
+		int cz = cell / (numCellsX * numCellsY);
+		int count = 0;
+		for (int z = Math.max(0, cz - 1); z <= Math.min(numCellsZ - 1, cz + 1); z++) {
+			for (int y = Math.max(0, cy - 1); y <= Math.min(numCellsY - 1, cy + 1); y++) {
+				for (int x = Math.max(0, cx - 1); x <= Math.min(numCellsX - 1, cx + 1); x++) {
+					int c = (z * numCellsY + y) * numCellsX + x;
+					for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+						int j = sortedParticles[k];
+						if (j == i) {
+							continue;
+						}
+						double dx = builtX[i] - builtX[j];
+						double dy = builtY[i] - builtY[j];
+						double dz = builtZ[i] - builtZ[j];
+						if (dx * dx + dy * dy + dz * dz <= radiusSquare) {
+							if (row >= 0) {
+								neighbors[row + count] = j;
+							}
+							count++;
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private class CountNeighbors implements RangeAction {
+		public void execute(int from, int to) {
+			for (int i = from; i < to; i++) {
+				start[i] = visitNeighbors(i, -1);
+			}
+		}
+	}
+
+	private class FillNeighbors implements RangeAction {
+		public void execute(int from, int to) {
+			for (int i = from; i < to; i++) {
+				int count = visitNeighbors(i, start[i]);
+				// Ascending order, independent of the layout of the cells
+				Arrays.sort(neighbors, start[i], start[i] + count);
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.openpixi.pixi.physics.util;
+
+import java.util.Arrays;
+
+/**
+ * Side storage of a fixed number of doubles per particle slot (see Particle.getSlot()).
+ *
+ * The values are kept in blocks of primitive arrays which are allocated on first write
+ * and never moved afterwards. Consequently, several threads can write to different
+ * slots at the same time, even while new blocks are being allocated.
+ */
+public class SlotArray {
+
+	private static final int BLOCK_BITS = 10;
+	private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	/** Number of doubles stored per slot */
+	private final int stride;
+	/** Value of the entries which were not written yet */
+	private final double initialValue;
+	private volatile double[][] blocks = new double[0][];
+
+	public SlotArray(int stride, double initialValue) {
+		this.stride = stride;
+		this.initialValue = initialValue;
+	}
+
+	public int getStride() {
+		return stride;
+	}
+
+	/**
+	 * Returns the block holding the given slot; the block is created if needed.
+	 * The values of the slot start at offset(slot).
+	 */
+	public double[] block(int slot) {
+		int b = slot >>> BLOCK_BITS;
+		double[][] blocks = this.blocks;
+		if (b < blocks.length && blocks[b] != null) {
+			return blocks[b];
+		}
+		if (slot < 0) {
+			throw new RuntimeException("The particle has no slot, see Particle.getSlot().");
+		}
+		return allocate(b);
+	}
+
+	/**
+	 * Returns the block holding the given slot or null if nothing was written to the block yet
+	 * (always null for negative slots).
+	 */
+	public double[] blockOrNull(int slot) {
+		int b = slot >>> BLOCK_BITS;
+		double[][] blocks = this.blocks;
+		if (b < blocks.length) {
+			return blocks[b];
+		}
+		return null;
+	}
+
+	public int offset(int slot) {
+		return (slot & BLOCK_MASK) * stride;
+	}
+
+	public double get(int slot, int index) {
+		double[] block = blockOrNull(slot);
+		if (block == null) {
+			return initialValue;
+		}
+		return block[offset(slot) + index];
+	}
+
+	public void set(int slot, int index, double value) {
+		block(slot)[offset(slot) + index] = value;
+	}
+
+	/**
+	 * Resets all the slots to the initial value. Must not run concurrently with writes.
+	 */
+	public void clear() {
+		for (double[] block : blocks) {
+			if (block != null) {
+				Arrays.fill(block, initialValue);
+			}
+		}
+	}
+
+	private synchronized double[] allocate(int b) {
+		double[][] blocks = this.blocks;
+		if (b >= blocks.length) {
+			blocks = Arrays.copyOf(blocks, Math.max(b + 1, 2 * blocks.length));
+		}
+		if (blocks[b] == null) {
+			double[] block = new double[BLOCK_SIZE * stride];
+			Arrays.fill(block, initialValue);
+			blocks[b] = block;
+		}
+		this.blocks = blocks;
+		return blocks[b];
+	}
+}
@@ -0,0 +1,101 @@
+package org.openpixi.pixi.physics.util;
+
+import java.util.Random;
+
+/**
+ * Counter based random number generator. The n-th number of the stream (seed, stream) is a
+ * hash (the SplitMix64 finalizer) of key + n * GOLDEN_GAMMA, where the key is derived from
+ * seed and stream. The streams of different stream indices are therefore independent and
+ * can be generated by different threads without any coordination, which makes parallel
+ * initialization independent of the number of threads.
+ *
+ * Extends java.util.Random so that it can be passed to code which expects a Random.
+ * Unlike java.util.Random it is not thread safe; every thread should use its own stream.
+ */
+public class StreamRandom extends Random {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+	private long state;
+	private double nextGaussian;
+	private boolean haveNextGaussian;
+
+	public StreamRandom(long seed, long stream) {
+		super(0);
+		setStream(seed, stream);
+	}
+
+	/**
+	 * Continues with the stream (seed, stream) from its start, so that one instance can be
+	 * reused for many streams.
+	 */
+	public void setStream(long seed, long stream) {
+		state = mix64(mix64(seed) ^ mix64(stream * GOLDEN_GAMMA + GOLDEN_GAMMA));
+		haveNextGaussian = false;
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		// Called by the constructor of Random; the state is set in our constructor.
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Box-Muller transform. The second value of each pair is kept for the next call.
+	 */
+	@Override
+	public double nextGaussian() {
+		if (haveNextGaussian) {
+			haveNextGaussian = false;
+			return nextGaussian;
+		}
+		double radius = Math.sqrt(-2 * Math.log(1 - nextDouble()));
+		double angle = 2 * Math.PI * nextDouble();
+		nextGaussian = radius * Math.sin(angle);
+		haveNextGaussian = true;
+		return radius * Math.cos(angle);
+	}
+
+	/**
+	 * Fills values[0] to values[count-1] with standard normal numbers. The uniform numbers
+	 * are drawn in one pass and transformed pairwise (Box-Muller) in a second, branch free pass.
+	 */
+	public void nextGaussians(double[] values, int count) {
+		int even = count & ~1;
+		for (int i = 0; i < even; i++) {
+			values[i] = nextDouble();
+		}
+		for (int i = 0; i < even; i += 2) {
+			double radius = Math.sqrt(-2 * Math.log(1 - values[i]));
+			double angle = 2 * Math.PI * values[i + 1];
+			values[i] = radius * Math.cos(angle);
+			values[i + 1] = radius * Math.sin(angle);
+		}
+		if (even < count) {
+			double radius = Math.sqrt(-2 * Math.log(1 - nextDouble()));
+			values[even] = radius * Math.cos(2 * Math.PI * nextDouble());
+		}
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -23,6 +23,7 @@ import java.io.FileNotFoundException;
 import org.openpixi.pixi.physics.Debug;
 import org.openpixi.pixi.physics.Settings;
 import org.openpixi.pixi.physics.Simulation;
+import org.openpixi.pixi.physics.solver.AdaptiveSubstepping;
 import org.openpixi.pixi.diagnostics.DiagnosticsScheduler;
 import org.openpixi.pixi.ui.util.*;
 import org.openpixi.pixi.ui.util.yaml.YamlParser;
@@ -81,12 +82,18 @@ public class MainBatch {
 		//simulation = InitialConditions.initOneTest3D(0.01,1);
 		//simulation = InitialConditions.initInterpolationTest3D(0.01,1);
 		//simulation = InitialConditions.initWaveTest(1);
+		System.out.println("Step: " + simulation.getStepDescription());
 
 		while (simulation.continues()) {
 			// advance the simulation by one step
 			simulation.step();
 		}
 
+		if (simulation.getParticleSolver() instanceof AdaptiveSubstepping) {
+			System.out.println("Substeps: "
+					+ ((AdaptiveSubstepping) simulation.getParticleSolver()).getSubstepDescription());
+		}
+
 		//simulation.close();
 	}
 }
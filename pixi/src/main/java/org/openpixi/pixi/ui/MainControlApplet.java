@@ -127,13 +127,17 @@ public class MainControlApplet extends JApplet {
 	String[] collisionsString = {
 			"No collisions",
 			"All particles",
-			"Sweep & Prune"
+			"Sweep & Prune",
+			"Uniform grid",
+			"AABB tree (3D)",
+			"Verlet lists"
 	};
 
 	String[] collisionalgorithmString = {
 			"Simple collision",
 			"With vectors",
-			"With matrices"
+			"With matrices",
+			"Elastic 3D"
 	};
 
 
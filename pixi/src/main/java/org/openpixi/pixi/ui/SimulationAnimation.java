@@ -14,12 +14,16 @@ import org.openpixi.pixi.physics.InitialConditions;
 import org.openpixi.pixi.physics.Settings;
 import org.openpixi.pixi.physics.Simulation;
 import org.openpixi.pixi.physics.collision.algorithms.CollisionAlgorithm;
+import org.openpixi.pixi.physics.collision.algorithms.ElasticCollision3D;
 import org.openpixi.pixi.physics.collision.algorithms.MatrixTransformation;
 import org.openpixi.pixi.physics.collision.algorithms.SimpleCollision;
 import org.openpixi.pixi.physics.collision.algorithms.VectorTransformation;
 import org.openpixi.pixi.physics.collision.detectors.AllParticles;
+import org.openpixi.pixi.physics.collision.detectors.BoundingVolumeHierarchy;
 import org.openpixi.pixi.physics.collision.detectors.Detector;
 import org.openpixi.pixi.physics.collision.detectors.SweepAndPrune;
+import org.openpixi.pixi.physics.collision.detectors.UniformGrid;
+import org.openpixi.pixi.physics.collision.detectors.VerletList;
 import org.openpixi.pixi.physics.force.CombinedForce;
 import org.openpixi.pixi.physics.force.ConstantForce;
 import org.openpixi.pixi.physics.force.Force;
@@ -326,6 +330,15 @@ public class SimulationAnimation {
 		case 2:
 			s.detector = new SweepAndPrune(s.particles);
 			break;
+		case 3:
+			s.detector = new UniformGrid(s.particles);
+			break;
+		case 4:
+			s.detector = new BoundingVolumeHierarchy(s.particles);
+			break;
+		case 5:
+			s.detector = new VerletList(s.particles);
+			break;
 		}
 	}
 
@@ -340,6 +353,9 @@ public class SimulationAnimation {
 		case 2:
 			s.collisionalgorithm = new MatrixTransformation();
 			break;
+		case 3:
+			s.collisionalgorithm = new ElasticCollision3D();
+			break;
 		}
 	}
 
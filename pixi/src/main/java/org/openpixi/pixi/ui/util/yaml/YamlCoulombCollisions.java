@@ -0,0 +1,30 @@
+package org.openpixi.pixi.ui.util.yaml;
+
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.collision.algorithms.CoulombCollision;
+
+/**
+ * Settings of the binary Coulomb collisions. Uses the grid of the settings
+ * at the time this is applied.
+ */
+public class YamlCoulombCollisions {
+	/** Coulomb logarithm lnLambda, scales the collision frequency */
+	public Double coulombLog;
+	/** Seed of the random pairing and scattering */
+	public Long seed;
+
+	public void applyTo(Settings settings) {
+		double coulombLog = 10;
+		long seed = 0;
+
+		if (this.coulombLog != null) {
+			coulombLog = this.coulombLog;
+		}
+
+		if (this.seed != null) {
+			seed = this.seed;
+		}
+
+		settings.setCollisionResolver(new CoulombCollision(settings, coulombLog, seed));
+	}
+}
@@ -0,0 +1,26 @@
+package org.openpixi.pixi.ui.util.yaml;
+
+import org.openpixi.pixi.physics.Settings;
+
+/**
+ * Settings of the digital filter which smooths the deposited current.
+ */
+public class YamlFilter {
+	public Integer passes;
+	public Boolean compensated;
+	public Boolean charge;
+
+	public void applyTo(Settings settings) {
+		if (passes != null) {
+			settings.setFilterPasses(passes);
+		}
+
+		if (compensated != null) {
+			settings.setFilterCompensated(compensated);
+		}
+
+		if (charge != null) {
+			settings.setFilterCharge(charge);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package org.openpixi.pixi.ui.util.yaml;
+
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.ParticleInjector;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * Injects copies of a particle through a face, which becomes an injecting boundary.
+ */
+public class YamlInjection {
+	/** "xmin", "xmax", "ymin", "ymax", "zmin" or "zmax" */
+	public String face;
+	/** Particles per unit of time */
+	public Double rate;
+	/** Position is ignored, the velocity has to point into the simulation area */
+	public YamlParticle particle;
+	/** Seed of the positions on the face; without a seed they differ from run to run */
+	public Long seed;
+
+	public void applyTo(Settings settings) {
+		long seed = System.nanoTime();
+
+		if (face == null || rate == null || particle == null) {
+			throw new RuntimeException("Injection needs a face, a rate and a particle in YAML file.");
+		}
+
+		if (this.seed != null) {
+			seed = this.seed;
+		}
+
+		ParticleFull p = particle.getParticle();
+		particle.applySubcycles(settings, p);
+
+		int face = YamlParticleBoundaries.getFace(this.face);
+		settings.setParticleBoundaryFace(face, ParticleBoundaryType.Injecting);
+		settings.addParticleInjector(new ParticleInjector(face, rate, p, seed));
+	}
+}
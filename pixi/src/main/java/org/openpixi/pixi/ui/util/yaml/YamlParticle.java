@@ -17,14 +17,26 @@ public class YamlParticle {
 	public Double m;
 	public Double q;
 	public String color;
+	/** The species of the particle is pushed only every n-th time step */
+	public Integer subcycles;
 
 	public void applyTo(Settings settings) {
 
 		ParticleFull p = getParticle();
+		applySubcycles(settings, p);
 
 		settings.addParticle(p);
 	}
 
+	/**
+	 * Sets the subcycles of the particle's species if they were specified.
+	 */
+	public void applySubcycles(Settings settings, ParticleFull p) {
+		if (subcycles != null) {
+			settings.setSubcycles(p.getSpecies(), subcycles);
+		}
+	}
+
 	/**
 	 * Creates a new particle and applies the settings from the
 	 * YAML document to it.
@@ -0,0 +1,52 @@
+package org.openpixi.pixi.ui.util.yaml;
+
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.SimpleParticleBoundaries;
+
+/**
+ * Particle boundaries of single faces: "periodic", "hardwall" or "absorbing".
+ */
+public class YamlParticleBoundaries {
+	public String xmin;
+	public String xmax;
+	public String ymin;
+	public String ymax;
+	public String zmin;
+	public String zmax;
+
+	public void applyTo(Settings settings) {
+		String[] types = {xmin, xmax, ymin, ymax, zmin, zmax};
+		for (int face = 0; face < SimpleParticleBoundaries.NUM_OF_FACES; face++) {
+			if (types[face] != null) {
+				settings.setParticleBoundaryFace(face, getType(types[face]));
+			}
+		}
+	}
+
+	private static ParticleBoundaryType getType(String type) {
+		if (type.equals("periodic")) {
+			return ParticleBoundaryType.Periodic;
+		} else if (type.equals("hardwall")) {
+			return ParticleBoundaryType.Hardwall;
+		} else if (type.equals("absorbing")) {
+			return ParticleBoundaryType.Absorbing;
+		} else {
+			throw new RuntimeException("Unknown particle boundary specified in YAML file.");
+		}
+	}
+
+	/**
+	 * @param face "xmin", "xmax", "ymin", "ymax", "zmin" or "zmax"
+	 * @return the face constant of SimpleParticleBoundaries
+	 */
+	static int getFace(String face) {
+		String[] names = {"xmin", "xmax", "ymin", "ymax", "zmin", "zmax"};
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(face)) {
+				return i;
+			}
+		}
+		throw new RuntimeException("Unknown face specified in YAML file.");
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Random;
 
 import org.openpixi.pixi.physics.Settings;
 import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.util.StreamRandom;
 
 public class YamlParticleStream {
 	public YamlParticle particle;
@@ -23,8 +24,12 @@ public class YamlParticleStream {
 	public Double randomGaussVy;
 	public Double randomGaussVz;
 	public Integer number;
-
-	private Random random = new Random();
+	/**
+	 * Seed of the random modifications. Particle i of the stream uses the random
+	 * stream (seed, i), so the result does not depend on the order of creation.
+	 * Without a seed the modifications differ from run to run.
+	 */
+	public Long seed;
 
 	/**
 	 * Creates a stream of particles. The particle is copied
@@ -38,6 +43,7 @@ public class YamlParticleStream {
 		double dy = 0;
 		double dz = 0;
 		double number = 0;
+		long seed = System.nanoTime();
 
 		if (this.dx != null) {
 			dx = this.dx;
@@ -55,8 +61,13 @@ public class YamlParticleStream {
 			number = this.number;
 		}
 
+		if (this.seed != null) {
+			seed = this.seed;
+		}
+
 		if (this.particle != null) {
 			p = particle.getParticle();
+			particle.applySubcycles(settings, p);
 
 			double x = p.getX();
 			double y = p.getY();
@@ -67,13 +78,13 @@ public class YamlParticleStream {
 				p.setX(x + i * dx);
 				p.setY(y + i * dy);
 				p.setZ(z + i * dz);
-				applyRandomModifications(p);
+				applyRandomModifications(p, new StreamRandom(seed, i));
 				settings.addParticle(p);
 			}
 		}
 	}
 
-	private void applyRandomModifications(ParticleFull p) {
+	private void applyRandomModifications(ParticleFull p, Random random) {
 		if (this.randomX != null) {
 			p.addX(random.nextDouble() * this.randomX);
 		}
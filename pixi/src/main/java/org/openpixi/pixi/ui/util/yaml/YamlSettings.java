@@ -8,6 +8,9 @@ import org.openpixi.pixi.physics.fields.EmptyPoissonSolver;
 import org.openpixi.pixi.physics.fields.PoissonSolverFFTPeriodic;
 import org.openpixi.pixi.physics.fields.SimpleSolver;
 import org.openpixi.pixi.physics.grid.ChargeConservingCIC;
+import org.openpixi.pixi.physics.solver.relativistic.BorisRelativistic;
+import org.openpixi.pixi.physics.solver.relativistic.BorisRelativistic3D;
+import org.openpixi.pixi.physics.solver.relativistic.LeapFrogRelativistic;
 
 /**
  * Generic settings class into which the YAML parser parses
@@ -21,8 +24,20 @@ public class YamlSettings {
 	public Integer gridCellsY;
 	public Integer gridCellsZ;
 	public String poissonsolver;
+	public String particlesolver;
+	public Boolean cacheShapeFactors;
+	public Boolean mixedPrecision;
+	public Boolean electrostatic;
+	public Boolean implicit;
+	public Boolean parallelCollisions;
 	public List<YamlParticle> particles;
 	public List<YamlParticleStream> streams;
+	public YamlFilter filter;
+	public YamlSubstepping substepping;
+	public YamlCoulombCollisions coulombCollisions;
+	public YamlTreeForce treeForce;
+	public YamlParticleBoundaries particleBoundaries;
+	public List<YamlInjection> injections;
 	public YamlOutput output;
 
 	public void applyTo(Settings settings) {
@@ -63,6 +78,29 @@ public class YamlSettings {
 			settings.setGridCellsZ(gridCellsZ);
 		}
 
+		if (cacheShapeFactors != null) {
+			if (!(settings.getInterpolator() instanceof ChargeConservingCIC)) {
+				throw new RuntimeException("Shape factors can only be cached by the charge conserving CIC interpolator.");
+			}
+			((ChargeConservingCIC) settings.getInterpolator()).setCacheShapeFactors(cacheShapeFactors);
+		}
+
+		if (mixedPrecision != null) {
+			settings.setMixedPrecision(mixedPrecision);
+		}
+
+		if (electrostatic != null) {
+			settings.setElectrostatic(electrostatic);
+		}
+
+		if (implicit != null) {
+			settings.setImplicit(implicit);
+		}
+
+		if (parallelCollisions != null) {
+			settings.setParallelCollisions(parallelCollisions);
+		}
+
 		if (poissonsolver != null) {
 			if (poissonsolver.equals("fft")) {
 				settings.setPoissonSolver(new PoissonSolverFFTPeriodic());
@@ -73,6 +111,44 @@ public class YamlSettings {
 			}
 		}
 
+		if (particlesolver != null) {
+			if (particlesolver.equals("leapfrog")) {
+				settings.setParticleSolver(new LeapFrogRelativistic(settings.getSpeedOfLight()));
+			} else if (particlesolver.equals("boris")) {
+				settings.setParticleSolver(new BorisRelativistic(settings.getSpeedOfLight()));
+			} else if (particlesolver.equals("boris3d")) {
+				settings.setParticleSolver(new BorisRelativistic3D(settings.getSpeedOfLight()));
+			} else {
+				throw new RuntimeException("Unknown particle solver specified in YAML file.");
+			}
+		}
+
+		if (substepping != null) {
+			substepping.applyTo(settings);
+		}
+
+		if (filter != null) {
+			filter.applyTo(settings);
+		}
+
+		if (coulombCollisions != null) {
+			coulombCollisions.applyTo(settings);
+		}
+
+		if (treeForce != null) {
+			treeForce.applyTo(settings);
+		}
+
+		if (particleBoundaries != null) {
+			particleBoundaries.applyTo(settings);
+		}
+
+		if (injections != null) {
+			for (YamlInjection i : injections) {
+				i.applyTo(settings);
+			}
+		}
+
 		if (particles != null) {
 			for (YamlParticle p : particles) {
 				p.applyTo(settings);
@@ -0,0 +1,29 @@
+package org.openpixi.pixi.ui.util.yaml;
+
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.solver.AdaptiveSubstepping;
+
+/**
+ * Settings of the adaptive orbit substepping in strong magnetic fields.
+ * Wraps the particle solver which is set at the time this is applied.
+ */
+public class YamlSubstepping {
+	public Double maxGyrophase;
+	public Integer maxSubsteps;
+
+	public void applyTo(Settings settings) {
+		double phase = 0.3;
+		int substeps = 16;
+
+		if (maxGyrophase != null) {
+			phase = maxGyrophase;
+		}
+
+		if (maxSubsteps != null) {
+			substeps = maxSubsteps;
+		}
+
+		settings.setParticleSolver(
+				new AdaptiveSubstepping(settings.getParticleSolver(), phase, substeps));
+	}
+}
@@ -0,0 +1,46 @@
+package org.openpixi.pixi.ui.util.yaml;
+
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.force.BarnesHutForce;
+
+/**
+ * Direct particle-particle force computed with the Barnes-Hut tree code.
+ */
+public class YamlTreeForce {
+	/** "coulomb" or "gravity" */
+	public String interaction;
+	/** Between 0 (exact) and 1 */
+	public Double openingAngle;
+	/** Plummer softening length */
+	public Double softening;
+	/** Only used for gravity */
+	public Double gravitationalConstant;
+
+	public void applyTo(Settings settings) {
+		double openingAngle = 0.5;
+		double softening = 0;
+		double gravitationalConstant = 1;
+
+		if (this.openingAngle != null) {
+			openingAngle = this.openingAngle;
+		}
+
+		if (this.softening != null) {
+			softening = this.softening;
+		}
+
+		if (this.gravitationalConstant != null) {
+			gravitationalConstant = this.gravitationalConstant;
+		}
+
+		if (interaction == null || interaction.equals("coulomb")) {
+			settings.addForce(new BarnesHutForce(BarnesHutForce.Interaction.COULOMB,
+					1 / (4 * Math.PI * settings.getEps0()), openingAngle, softening));
+		} else if (interaction.equals("gravity")) {
+			settings.addForce(new BarnesHutForce(BarnesHutForce.Interaction.GRAVITY,
+					-gravitationalConstant, openingAngle, softening));
+		} else {
+			throw new RuntimeException("Unknown tree force interaction specified in YAML file.");
+		}
+	}
+}
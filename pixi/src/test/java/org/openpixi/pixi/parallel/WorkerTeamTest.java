@@ -0,0 +1,77 @@
+package org.openpixi.pixi.parallel;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import junit.framework.TestCase;
+
+public class WorkerTeamTest extends TestCase {
+
+	public WorkerTeamTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Every member has to execute every action exactly once and run() may only
+	 * return after all of them are done.
+	 */
+	public void testEveryMemberExecutesEveryAction() {
+		final int numOfThreads = 4;
+		final int numOfActions = 1000;
+		final AtomicIntegerArray counts = new AtomicIntegerArray(numOfThreads);
+		WorkerTeam team = new WorkerTeam(numOfThreads);
+
+		for (int i = 0; i < numOfActions; i++) {
+			team.run(new TeamAction() {
+				public void execute(int threadIdx, int numOfThreads) {
+					counts.incrementAndGet(threadIdx);
+				}
+			});
+			for (int t = 0; t < numOfThreads; t++) {
+				assertEquals(i + 1, counts.get(t));
+			}
+		}
+		team.terminate();
+	}
+
+	/**
+	 * Values written before sync() have to be visible to all members after it.
+	 */
+	public void testSyncSeparatesPhases() {
+		final int numOfThreads = 3;
+		final int[] values = new int[numOfThreads];
+		final int[] sums = new int[numOfThreads];
+		final WorkerTeam team = new WorkerTeam(numOfThreads);
+
+		team.run(new TeamAction() {
+			public void execute(int threadIdx, int numOfThreads) {
+				values[threadIdx] = threadIdx + 1;
+				team.sync(threadIdx);
+				for (int i = 0; i < numOfThreads; i++) {
+					sums[threadIdx] += values[i];
+				}
+			}
+		});
+
+		for (int t = 0; t < numOfThreads; t++) {
+			assertEquals(6, sums[t]);
+		}
+		team.terminate();
+	}
+
+	public void testFailureIsRethrown() {
+		WorkerTeam team = new WorkerTeam(2);
+		try {
+			team.run(new TeamAction() {
+				public void execute(int threadIdx, int numOfThreads) {
+					if (threadIdx == 1) {
+						throw new IllegalStateException();
+					}
+				}
+			});
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		team.terminate();
+	}
+}
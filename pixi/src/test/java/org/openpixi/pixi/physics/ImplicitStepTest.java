@@ -0,0 +1,98 @@
+package org.openpixi.pixi.physics;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.grid.Grid;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+public class ImplicitStepTest extends TestCase {
+
+	private double eps0 = 1.0/(4*Math.PI);
+
+	public ImplicitStepTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * A Langmuir oscillation with a time step of five inverse plasma frequencies,
+	 * where the explicit scheme is unstable. The total energy has to be conserved.
+	 */
+	public void testEnergyIsConservedForLargeTimeStep() throws Exception {
+		Simulation s = createSimulation(50);
+		double initialEnergy = totalEnergy(s);
+
+		for (int step = 0; step < 20; step++) {
+			s.step();
+			assertEquals(initialEnergy, totalEnergy(s), 1.e-6 * initialEnergy);
+		}
+	}
+
+	/**
+	 * The field energy has to be exchanged with the kinetic energy, the oscillation
+	 * must not be damped away in a single step.
+	 */
+	public void testFieldIsGenerated() throws Exception {
+		Simulation s = createSimulation(5);
+		double initialEnergy = totalEnergy(s);
+
+		s.step();
+		assertTrue(fieldEnergy(s.grid) > 1.e-3 * initialEnergy);
+	}
+
+	/**
+	 * Electrons with a sinusoidal velocity perturbation in front of immobile ions.
+	 * The plasma frequency is 0.1.
+	 */
+	private Simulation createSimulation(double timeStep) {
+		Settings stt = new Settings();
+		stt.setRelativistic(false);
+		stt.setBoundary(GeneralBoundaryType.Periodic);
+		stt.setSimulationWidth(16);
+		stt.setSimulationHeight(2);
+		stt.setGridCellsX(16);
+		stt.setGridCellsY(2);
+		stt.setGridCellsZ(1);
+		stt.setTimeStep(timeStep);
+		stt.setImplicit(true);
+
+		int numOfParticles = 256;
+		for (int i = 0; i < numOfParticles; i++) {
+			double x = 16.0 * (i + 0.5) / numOfParticles;
+			double y = (i % 4 + 0.5) / 2;
+
+			Particle electron = new ParticleFull();
+			electron.setX(x);
+			electron.setY(y);
+			electron.setVx(0.01 * Math.sin(2 * Math.PI * x / 16));
+			electron.setMass(1);
+			electron.setCharge(-0.01);
+			stt.addParticle(electron);
+
+			Particle ion = new ParticleFull();
+			ion.setX(x);
+			ion.setY(y);
+			ion.setMass(1.e20);
+			ion.setCharge(0.01);
+			stt.addParticle(ion);
+		}
+		return new Simulation(stt);
+	}
+
+	private double totalEnergy(Simulation s) {
+		double kinetic = 0;
+		for (Particle p : s.particles) {
+			kinetic += 0.5 * p.getMass() * (p.getVx() * p.getVx() + p.getVy() * p.getVy());
+		}
+		return kinetic + fieldEnergy(s.grid);
+	}
+
+	private double fieldEnergy(Grid grid) {
+		double sum = 0;
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				sum += grid.getEx(x, y) * grid.getEx(x, y) + grid.getEy(x, y) * grid.getEy(x, y);
+			}
+		}
+		return 0.5 * eps0 * sum * grid.getCellWidth() * grid.getCellHeight();
+	}
+}
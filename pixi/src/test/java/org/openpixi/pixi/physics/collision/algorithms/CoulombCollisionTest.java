@@ -0,0 +1,188 @@
+package org.openpixi.pixi.physics.collision.algorithms;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.WorkerTeam;
+import org.openpixi.pixi.parallel.particleaccess.ParallelParticleIterator;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.collision.util.PairBuffer;
+import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.particles.ImmobileParticle;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.particles.Species;
+import org.openpixi.pixi.physics.solver.EmptySolver;
+
+/**
+ * Tests the binary Coulomb collisions.
+ */
+public class CoulombCollisionTest extends TestCase {
+
+	private static final double TIME_STEP = 1.e-5;
+
+	public CoulombCollisionTest(String testName) {
+		super(testName);
+	}
+
+	public void testConservation() {
+		List<Particle> particles = createParticles(0, 1, 4);
+		double[] before = momentumAndEnergy(particles);
+		collide(particles, 20, 1);
+		double[] after = momentumAndEnergy(particles);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(before[i], after[i], 1.e-10 * before[3]);
+		}
+		assertEquals(before[3], after[3], 1.e-12 * before[3]);
+	}
+
+	public void testIndependentOfThreadCount() {
+		List<Particle> reference = createParticles(1, 1, 1);
+		collide(reference, 5, 1);
+		for (int numOfThreads = 2; numOfThreads <= 3; numOfThreads++) {
+			List<Particle> particles = createParticles(1, 1, 1);
+			collide(particles, 5, numOfThreads);
+			for (int i = 0; i < reference.size(); i++) {
+				assertEquals(reference.get(i).getVx(), particles.get(i).getVx(), 0);
+				assertEquals(reference.get(i).getVy(), particles.get(i).getVy(), 0);
+				assertEquals(reference.get(i).getVz(), particles.get(i).getVz(), 0);
+			}
+		}
+	}
+
+	/**
+	 * A temperature anisotropy has to relax.
+	 */
+	public void testIsotropization() {
+		List<Particle> particles = createParticles(2, 1, 1);
+		double initialAnisotropy = anisotropy(particles);
+		assertTrue(initialAnisotropy > 0.5);
+		collide(particles, 100, 1);
+		assertTrue(anisotropy(particles) < 0.5 * initialAnisotropy);
+	}
+
+	/**
+	 * Five particles of one species and two of another in a single cell: the first species
+	 * forms a triplet and a pair, the second a pair, and each of the five collides with one
+	 * of the two. The immobile particle does not take part.
+	 */
+	public void testSpeciesArePairedSeparately() {
+		Species light = new Species(1, -1, 0.1, null);
+		Species heavy = new Species(10, 1, 0.1, null);
+		Random random = new Random(3);
+		List<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 8; i++) {
+			Particle p = (i == 7) ? new ImmobileParticle() : new ParticleFull();
+			if (i < 7) {
+				p.setSpecies(i < 5 ? light : heavy);
+			}
+			p.setX(random.nextDouble());
+			p.setY(random.nextDouble());
+			p.setVx(random.nextGaussian());
+			particles.add(p);
+		}
+
+		Settings settings = createSettings();
+		settings.setGridCellsX(1);
+		settings.setGridCellsY(1);
+		CoulombCollision collision = new CoulombCollision(settings, 10, 42);
+		final IdentityHashMap<Particle, Integer> collisions = new IdentityHashMap<Particle, Integer>();
+		EmptySolver countingSolver = new EmptySolver() {
+			@Override
+			public void complete(Particle p, Force f, double step) {
+				Integer count = collisions.get(p);
+				collisions.put(p, count == null ? 1 : count + 1);
+			}
+		};
+		collision.collide(new PairBuffer(), particles, new ConstantForce(), countingSolver, TIME_STEP);
+
+		int lightCollisions = 0;
+		for (int i = 0; i < 5; i++) {
+			lightCollisions += collisions.get(particles.get(i));
+		}
+		// triplet 3 * 2, pair 2 * 1, one collision with the heavy species each
+		assertEquals(13, lightCollisions);
+		// pair 2 * 1, five collisions with the light species
+		assertEquals(7, collisions.get(particles.get(5)) + collisions.get(particles.get(6)));
+		assertFalse(collisions.containsKey(particles.get(7)));
+	}
+
+	private void collide(List<Particle> particles, int steps, int numOfThreads) {
+		Settings settings = createSettings();
+		CoulombCollision collision = new CoulombCollision(settings, 10, 42);
+		PairBuffer pairs = new PairBuffer();
+		WorkerTeam team = numOfThreads > 1 ? new WorkerTeam(numOfThreads) : null;
+		for (int step = 0; step < steps; step++) {
+			if (team == null) {
+				collision.collide(pairs, particles, new ConstantForce(), new EmptySolver(), TIME_STEP);
+			} else {
+				collision.collide(pairs, particles, new ConstantForce(), new EmptySolver(), TIME_STEP,
+						new ParallelParticleIterator(team));
+			}
+		}
+		if (team != null) {
+			team.terminate();
+		}
+	}
+
+	private Settings createSettings() {
+		Settings settings = new Settings();
+		settings.setGridStep(1);
+		settings.setGridCellsX(4);
+		settings.setGridCellsY(4);
+		settings.setGridCellsZ(1);
+		return settings;
+	}
+
+	/**
+	 * Half of the particles have the first mass, half the second. The velocity spread
+	 * in x is larger than in y and z.
+	 */
+	private List<Particle> createParticles(long seed, double mass1, double mass2) {
+		Random random = new Random(seed);
+		List<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 1601; i++) {
+			ParticleFull p = new ParticleFull();
+			double mass = (i % 2 == 0) ? mass1 : mass2;
+			p.setSpecies(new Species(mass, -1, 0.1, null));
+			p.setX(4 * random.nextDouble());
+			p.setY(4 * random.nextDouble());
+			p.setZ(random.nextDouble());
+			p.setVx(random.nextGaussian());
+			p.setVy(0.3 * random.nextGaussian());
+			p.setVz(0.3 * random.nextGaussian());
+			particles.add(p);
+		}
+		return particles;
+	}
+
+	private double[] momentumAndEnergy(List<Particle> particles) {
+		double[] result = new double[4];
+		for (Particle p : particles) {
+			result[0] += p.getMass() * p.getVx();
+			result[1] += p.getMass() * p.getVy();
+			result[2] += p.getMass() * p.getVz();
+			result[3] += 0.5 * p.getMass()
+					* (p.getVx() * p.getVx() + p.getVy() * p.getVy() + p.getVz() * p.getVz());
+		}
+		return result;
+	}
+
+	/**
+	 * 1 - T_perp / T_parallel
+	 */
+	private double anisotropy(List<Particle> particles) {
+		double parallel = 0;
+		double perpendicular = 0;
+		for (Particle p : particles) {
+			parallel += p.getVx() * p.getVx();
+			perpendicular += 0.5 * (p.getVy() * p.getVy() + p.getVz() * p.getVz());
+		}
+		return 1 - perpendicular / parallel;
+	}
+}
@@ -0,0 +1,107 @@
+package org.openpixi.pixi.physics.collision.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.WorkerTeam;
+import org.openpixi.pixi.parallel.particleaccess.ParallelParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
+import org.openpixi.pixi.physics.collision.detectors.AllParticles;
+import org.openpixi.pixi.physics.collision.util.PairBuffer;
+import org.openpixi.pixi.physics.collision.util.PairColoring;
+import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.solver.EmptySolver;
+
+/**
+ * Tests the resolution of collisions in conflict free batches.
+ */
+public class ParallelCollisionTest extends TestCase {
+
+	public ParallelCollisionTest(String testName) {
+		super(testName);
+	}
+
+	public void testColoring() {
+		ArrayList<Particle> particles = createParticles(0);
+		AllParticles detector = new AllParticles(particles);
+		detector.run();
+		PairBuffer pairs = detector.getOverlappedPairs();
+		assertTrue(pairs.size() > 50);
+
+		PairColoring coloring = new PairColoring();
+		coloring.color(pairs, particles.size());
+		assertTrue(coloring.getNumBatches() > 1);
+
+		boolean[] pairSeen = new boolean[pairs.size()];
+		for (int batch = 0; batch < coloring.getNumBatches(); batch++) {
+			boolean[] particleSeen = new boolean[particles.size()];
+			for (int k = 0; k < coloring.getBatchSize(batch); k++) {
+				int pair = coloring.getPair(coloring.getBatchStart(batch) + k);
+				assertFalse(pairSeen[pair]);
+				pairSeen[pair] = true;
+				assertFalse(particleSeen[pairs.getFirst(pair)]);
+				assertFalse(particleSeen[pairs.getSecond(pair)]);
+				particleSeen[pairs.getFirst(pair)] = true;
+				particleSeen[pairs.getSecond(pair)] = true;
+			}
+		}
+		for (int pair = 0; pair < pairs.size(); pair++) {
+			assertTrue(pairSeen[pair]);
+		}
+	}
+
+	public void testIndependentOfThreadCount() {
+		List<Particle> reference = collide(createParticles(1), 1);
+		for (int numOfThreads = 2; numOfThreads <= 4; numOfThreads++) {
+			List<Particle> particles = collide(createParticles(1), numOfThreads);
+			for (int i = 0; i < reference.size(); i++) {
+				assertEquals(reference.get(i).getX(), particles.get(i).getX(), 0);
+				assertEquals(reference.get(i).getY(), particles.get(i).getY(), 0);
+				assertEquals(reference.get(i).getVx(), particles.get(i).getVx(), 0);
+				assertEquals(reference.get(i).getVy(), particles.get(i).getVy(), 0);
+			}
+		}
+	}
+
+	private List<Particle> collide(ArrayList<Particle> particles, int numOfThreads) {
+		AllParticles detector = new AllParticles(particles);
+		SimpleCollision algorithm = new SimpleCollision();
+		WorkerTeam team = null;
+		for (int step = 0; step < 5; step++) {
+			detector.run();
+			if (numOfThreads == 1) {
+				algorithm.collide(detector.getOverlappedPairs(), particles, new ConstantForce(),
+						new EmptySolver(), 1, new SequentialParticleIterator());
+			} else {
+				if (team == null) {
+					team = new WorkerTeam(numOfThreads);
+				}
+				algorithm.collide(detector.getOverlappedPairs(), particles, new ConstantForce(),
+						new EmptySolver(), 1, new ParallelParticleIterator(team));
+			}
+		}
+		if (team != null) {
+			team.terminate();
+		}
+		return particles;
+	}
+
+	private ArrayList<Particle> createParticles(long seed) {
+		Random random = new Random(seed);
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 400; i++) {
+			Particle p = new ParticleFull();
+			p.setX(40 * random.nextDouble());
+			p.setY(40 * random.nextDouble());
+			p.setVx(random.nextGaussian());
+			p.setVy(random.nextGaussian());
+			p.setRadius(1);
+			particles.add(p);
+		}
+		return particles;
+	}
+}
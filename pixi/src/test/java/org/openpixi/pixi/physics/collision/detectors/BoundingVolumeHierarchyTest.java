@@ -0,0 +1,125 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.collision.algorithms.ElasticCollision3D;
+import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.solver.EmptySolver;
+
+/**
+ * The tree has to report the same pairs as a brute force 3D check while the particles move.
+ */
+public class BoundingVolumeHierarchyTest extends TestCase {
+
+	public BoundingVolumeHierarchyTest(String testName) {
+		super(testName);
+	}
+
+	public void testSamePairsAsBruteForce() {
+		ArrayList<Particle> particles = createParticles(1, 500, 25);
+
+		BoundingVolumeHierarchy detector = new BoundingVolumeHierarchy(particles);
+		for (int step = 0; step < 30; step++) {
+			detector.run();
+
+			Set<String> expected = bruteForce(particles);
+			assertTrue(expected.size() > 0);
+			assertEquals(expected.size(), detector.getOverlappedPairs().size());
+			assertEquals(expected, DetectorTestCommon.pairIndices(detector.getOverlappedPairs()));
+
+			// Small and large steps, so that only some leaves are inserted again.
+			for (Particle p : particles) {
+				double factor = (step % 2 == 0) ? 0.05 : 1;
+				p.setX(p.getX() + factor * p.getVx());
+				p.setY(p.getY() + factor * p.getVy());
+				p.setZ(p.getZ() + factor * p.getVz());
+			}
+		}
+	}
+
+	public void testBalanced() {
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		// Particles on a line are the worst case for an unbalanced tree.
+		for (int i = 0; i < 1024; i++) {
+			Particle p = new ParticleFull();
+			p.setX(i);
+			p.setRadius(0.1);
+			particles.add(p);
+		}
+		BoundingVolumeHierarchy detector = new BoundingVolumeHierarchy(particles);
+		detector.run();
+		assertEquals(0, detector.getOverlappedPairs().size());
+		assertTrue(detector.getHeight() < 30);
+	}
+
+	public void testElasticCollision3DConservation() {
+		ArrayList<Particle> particles = createParticles(2, 300, 15);
+		double[] before = momentumAndEnergy(particles);
+
+		BoundingVolumeHierarchy detector = new BoundingVolumeHierarchy(particles);
+		ElasticCollision3D algorithm = new ElasticCollision3D();
+		detector.run();
+		assertTrue(detector.getOverlappedPairs().size() > 0);
+		algorithm.collide(detector.getOverlappedPairs(), particles, new ConstantForce(),
+				new EmptySolver(), 1);
+
+		double[] after = momentumAndEnergy(particles);
+		for (int i = 0; i < 4; i++) {
+			assertEquals(before[i], after[i], 1.e-10 * before[3]);
+		}
+		assertFalse(before[3] == 0);
+	}
+
+	private ArrayList<Particle> createParticles(long seed, int count, double size) {
+		Random random = new Random(seed);
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < count; i++) {
+			Particle p = new ParticleFull();
+			p.setX(size * random.nextDouble());
+			p.setY(size * random.nextDouble());
+			p.setZ(size * random.nextDouble());
+			p.setVx(random.nextGaussian());
+			p.setVy(random.nextGaussian());
+			p.setVz(random.nextGaussian());
+			p.setRadius(0.5 + 0.25 * random.nextInt(3));
+			p.setMass(1 + random.nextInt(2));
+			particles.add(p);
+		}
+		return particles;
+	}
+
+	private Set<String> bruteForce(ArrayList<Particle> particles) {
+		Set<String> result = new HashSet<String>();
+		for (int i = 0; i < particles.size(); i++) {
+			Particle p1 = particles.get(i);
+			for (int k = i + 1; k < particles.size(); k++) {
+				Particle p2 = particles.get(k);
+				double radii = p1.getRadius() + p2.getRadius();
+				if (Math.abs(p1.getX() - p2.getX()) <= radii
+						&& Math.abs(p1.getY() - p2.getY()) <= radii
+						&& Math.abs(p1.getZ() - p2.getZ()) <= radii) {
+					result.add(i + "-" + k);
+				}
+			}
+		}
+		return result;
+	}
+
+	private double[] momentumAndEnergy(ArrayList<Particle> particles) {
+		double[] result = new double[4];
+		for (Particle p : particles) {
+			result[0] += p.getMass() * p.getVx();
+			result[1] += p.getMass() * p.getVy();
+			result[2] += p.getMass() * p.getVz();
+			result[3] += 0.5 * p.getMass()
+					* (p.getVx() * p.getVx() + p.getVy() * p.getVy() + p.getVz() * p.getVz());
+		}
+		return result;
+	}
+}
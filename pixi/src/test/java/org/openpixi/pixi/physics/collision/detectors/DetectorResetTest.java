@@ -0,0 +1,144 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.Simulation;
+import org.openpixi.pixi.physics.collision.algorithms.SimpleCollision;
+import org.openpixi.pixi.physics.collision.util.PairBuffer;
+import org.openpixi.pixi.physics.fields.SimpleSolver;
+import org.openpixi.pixi.physics.grid.GridTestCommon;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.ParticleInjector;
+import org.openpixi.pixi.physics.movement.boundary.SimpleParticleBoundaries;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * The detectors have to follow the particle list of the simulation when particles are
+ * removed or added.
+ */
+public class DetectorResetTest extends TestCase {
+
+	private static final int NUM_OF_DETECTORS = 5;
+
+	public DetectorResetTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * After a swap with the last particle and an added particle the detector reports the
+	 * same pairs as a new one.
+	 */
+	public void testResetAgreesWithNewDetector() {
+		for (int type = 0; type < NUM_OF_DETECTORS; type++) {
+			ArrayList<Particle> particles = createParticles(50);
+			Detector detector = createDetector(type, particles);
+			detector.run();
+
+			particles.set(3, particles.remove(particles.size() - 1));
+			particles.set(10, particles.remove(particles.size() - 1));
+			Particle large = createParticle(5, 5);
+			large.setRadius(2);
+			particles.add(large);
+			detector.reset(particles);
+			assertEquals(particles, detector.getParticles());
+			assertEquals(0, detector.getOverlappedPairs().size());
+
+			detector.run();
+			Detector reference = createDetector(type, particles);
+			reference.run();
+			assertEquals(DetectorTestCommon.pairIndices(reference.getOverlappedPairs()),
+					DetectorTestCommon.pairIndices(detector.getOverlappedPairs()));
+		}
+	}
+
+	/**
+	 * Particles leave through an absorbing face and enter through an injecting face while
+	 * a pair of particles collides. The pairs have to refer to the particles of the simulation.
+	 */
+	public void testAbsorbingFacesWithCollisions() throws Exception {
+		for (int type = 0; type < NUM_OF_DETECTORS; type++) {
+			Settings stt = GridTestCommon.getCommonSettings();
+			stt.setGridCellsZ(1);
+			stt.setGridSolver(new SimpleSolver());
+			stt.setElectrostatic(true);
+			stt.setTimeStep(1);
+			stt.setParticleBoundaryFace(SimpleParticleBoundaries.X_MIN, ParticleBoundaryType.Injecting);
+			stt.setParticleBoundaryFace(SimpleParticleBoundaries.X_MAX, ParticleBoundaryType.Absorbing);
+			Particle template = createParticle(0, 0);
+			template.setVx(0.5);
+			template.setRadius(0.1);
+			stt.addParticleInjector(new ParticleInjector(SimpleParticleBoundaries.X_MIN, 1, template, 0));
+
+			// The particle in front leaves in the first step and the last takes its place.
+			Particle leaving = createParticle(9.9, 2);
+			leaving.setVx(2);
+			stt.addParticle(leaving);
+			stt.addParticle(createParticle(5, 8));
+			stt.addParticle(createParticle(8, 5));
+			stt.addParticle(createParticle(8.1, 5));
+			Simulation s = new Simulation(stt);
+			Particle first = s.particles.get(2);
+			Particle second = s.particles.get(3);
+			s.detector = createDetector(type, s.particles);
+			s.collisionalgorithm = new SimpleCollision();
+
+			s.step();
+			assertEquals(s.particles, s.detector.getParticles());
+			assertEquals(second, s.particles.get(0));
+			PairBuffer pairs = s.detector.getOverlappedPairs();
+			assertEquals(1, pairs.size());
+			Set<Particle> pair = new HashSet<Particle>();
+			pair.add(s.particles.get(pairs.getFirst(0)));
+			pair.add(s.particles.get(pairs.getSecond(0)));
+			assertTrue(pair.contains(first));
+			assertTrue(pair.contains(second));
+
+			for (int step = 0; step < 3; step++) {
+				s.step();
+				assertEquals(s.particles, s.detector.getParticles());
+			}
+			assertTrue(s.particles.size() > 3);
+		}
+	}
+
+	private Detector createDetector(int type, ArrayList<Particle> particles) {
+		switch (type) {
+		case 0:
+			return new AllParticles(particles);
+		case 1:
+			return new SweepAndPrune(particles);
+		case 2:
+			return new UniformGrid(particles);
+		case 3:
+			return new BoundingVolumeHierarchy(particles);
+		default:
+			return new VerletList(particles);
+		}
+	}
+
+	private ArrayList<Particle> createParticles(int n) {
+		Random random = new Random(0);
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < n; i++) {
+			particles.add(createParticle(10 * random.nextDouble(), 10 * random.nextDouble()));
+		}
+		return particles;
+	}
+
+	private Particle createParticle(double x, double y) {
+		Particle p = new ParticleFull();
+		p.setX(x);
+		p.setY(y);
+		p.setPrevX(x);
+		p.setPrevY(y);
+		p.setRadius(0.5);
+		p.setMass(1);
+		return p;
+	}
+}
@@ -0,0 +1,26 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.openpixi.pixi.physics.collision.util.PairBuffer;
+
+/**
+ * Helpers which are shared by the tests of the detectors.
+ */
+public class DetectorTestCommon {
+
+	/**
+	 * The pairs as "i-k" with the smaller index first, so that detectors which report the
+	 * pairs in a different order or orientation can be compared.
+	 */
+	public static Set<String> pairIndices(PairBuffer pairs) {
+		Set<String> result = new HashSet<String>();
+		for (int n = 0; n < pairs.size(); n++) {
+			int i = pairs.getFirst(n);
+			int k = pairs.getSecond(n);
+			result.add(Math.min(i, k) + "-" + Math.max(i, k));
+		}
+		return result;
+	}
+}
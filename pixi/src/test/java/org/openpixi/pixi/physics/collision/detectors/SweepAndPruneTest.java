@@ -0,0 +1,101 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * Sweep and prune has to report the same pairs as the brute force detector
+ * while the particles move.
+ */
+public class SweepAndPruneTest extends TestCase {
+
+	public SweepAndPruneTest(String testName) {
+		super(testName);
+	}
+
+	public void testSamePairsAsAllParticles() {
+		Random random = new Random(1);
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 300; i++) {
+			Particle p = new ParticleFull();
+			p.setX(60 * random.nextDouble());
+			p.setY(60 * random.nextDouble());
+			p.setVx(random.nextGaussian());
+			p.setVy(random.nextGaussian());
+			p.setRadius(0.5 + 0.5 * random.nextInt(3));
+			particles.add(p);
+		}
+
+		SweepAndPrune detector = new SweepAndPrune(particles);
+		AllParticles reference = new AllParticles(particles);
+		for (int step = 0; step < 30; step++) {
+			reference.run();
+			detector.run();
+
+			Set<String> expected = DetectorTestCommon.pairIndices(reference.getOverlappedPairs());
+			assertTrue(expected.size() > 0);
+			assertEquals(expected.size(), reference.getOverlappedPairs().size());
+			assertEquals(expected.size(), detector.getOverlappedPairs().size());
+			assertEquals(expected, DetectorTestCommon.pairIndices(detector.getOverlappedPairs()));
+
+			// Large steps, so that the lists are far from sorted.
+			for (Particle p : particles) {
+				p.setX(p.getX() + p.getVx());
+				p.setY(p.getY() + p.getVy());
+			}
+		}
+	}
+
+	/**
+	 * Particles are removed by swapping in the last one and new particles are added, more
+	 * than fit into the arrays of the detector. After a reset the pairs refer to the new list.
+	 */
+	public void testResetAfterRemovalAndInjection() {
+		Random random = new Random(2);
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 100; i++) {
+			particles.add(createParticle(random));
+		}
+
+		SweepAndPrune detector = new SweepAndPrune(particles);
+		for (int step = 0; step < 10; step++) {
+			detector.run();
+
+			for (int n = 0; n < 10; n++) {
+				int i = random.nextInt(particles.size());
+				particles.set(i, particles.get(particles.size() - 1));
+				particles.remove(particles.size() - 1);
+			}
+			for (int n = 0; n < 30; n++) {
+				particles.add(createParticle(random));
+			}
+			for (Particle p : particles) {
+				p.setX(p.getX() + p.getVx());
+				p.setY(p.getY() + p.getVy());
+			}
+			detector.reset(particles);
+			detector.run();
+
+			AllParticles reference = new AllParticles(particles);
+			reference.run();
+			Set<String> expected = DetectorTestCommon.pairIndices(reference.getOverlappedPairs());
+			assertTrue(expected.size() > 0);
+			assertEquals(expected, DetectorTestCommon.pairIndices(detector.getOverlappedPairs()));
+		}
+	}
+
+	private Particle createParticle(Random random) {
+		Particle p = new ParticleFull();
+		p.setX(40 * random.nextDouble());
+		p.setY(40 * random.nextDouble());
+		p.setVx(random.nextGaussian());
+		p.setVy(random.nextGaussian());
+		p.setRadius(0.5 + 0.5 * random.nextInt(3));
+		return p;
+	}
+}
@@ -0,0 +1,54 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * The uniform grid has to find the same pairs as the brute force detector.
+ */
+public class UniformGridTest extends TestCase {
+
+	public UniformGridTest(String testName) {
+		super(testName);
+	}
+
+	public void testSamePairsAsAllParticles() {
+		Random random = new Random(0);
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 500; i++) {
+			Particle p = new ParticleFull();
+			p.setX(100 * random.nextDouble());
+			p.setY(50 * random.nextDouble());
+			p.setRadius(0.5 + 0.5 * random.nextInt(3));
+			particles.add(p);
+		}
+		// Particles far away and on top of each other
+		for (int i = 0; i < 3; i++) {
+			Particle p = new ParticleFull();
+			p.setX(1000);
+			p.setY(-200);
+			p.setRadius(1);
+			particles.add(p);
+		}
+
+		AllParticles reference = new AllParticles(particles);
+		reference.run();
+		UniformGrid grid = new UniformGrid(particles);
+		grid.run();
+
+		Set<String> expected = DetectorTestCommon.pairIndices(reference.getOverlappedPairs());
+		Set<String> actual = DetectorTestCommon.pairIndices(grid.getOverlappedPairs());
+		assertTrue(expected.size() > 3);
+		assertEquals(reference.getOverlappedPairs().size(), grid.getOverlappedPairs().size());
+		assertEquals(expected, actual);
+
+		// A second run must not accumulate pairs.
+		grid.run();
+		assertEquals(expected, DetectorTestCommon.pairIndices(grid.getOverlappedPairs()));
+	}
+}
@@ -0,0 +1,72 @@
+package org.openpixi.pixi.physics.collision.detectors;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * The Verlet lists have to report the same pairs as the brute force detector
+ * while the particles move slowly.
+ */
+public class VerletListTest extends TestCase {
+
+	public VerletListTest(String testName) {
+		super(testName);
+	}
+
+	public void testSamePairsAsAllParticles() {
+		Random random = new Random(1);
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 300; i++) {
+			Particle p = new ParticleFull();
+			p.setX(60 * random.nextDouble());
+			p.setY(60 * random.nextDouble());
+			p.setVx(0.1 * random.nextGaussian());
+			p.setVy(0.1 * random.nextGaussian());
+			p.setRadius(0.5 + 0.5 * random.nextInt(3));
+			particles.add(p);
+		}
+
+		VerletList detector = new VerletList(particles);
+		AllParticles reference = new AllParticles(particles);
+		int steps = 30;
+		for (int step = 0; step < steps; step++) {
+			reference.run();
+			detector.run();
+
+			Set<String> expected = DetectorTestCommon.pairIndices(reference.getOverlappedPairs());
+			assertTrue(expected.size() > 0);
+			assertEquals(expected.size(), detector.getOverlappedPairs().size());
+			assertEquals(expected, DetectorTestCommon.pairIndices(detector.getOverlappedPairs()));
+
+			for (Particle p : particles) {
+				p.setX(p.getX() + p.getVx());
+				p.setY(p.getY() + p.getVy());
+			}
+		}
+		assertTrue(detector.getNeighborList().getNumRebuilds() < steps / 2);
+	}
+
+	/**
+	 * With the default radius of zero only particles at the same position are reported.
+	 */
+	public void testZeroRadius() {
+		ArrayList<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 3; i++) {
+			particles.add(new ParticleFull());
+		}
+		particles.get(2).setX(1);
+
+		VerletList detector = new VerletList(particles);
+		AllParticles reference = new AllParticles(particles);
+		detector.run();
+		reference.run();
+		assertEquals(1, detector.getOverlappedPairs().size());
+		assertEquals(DetectorTestCommon.pairIndices(reference.getOverlappedPairs()),
+				DetectorTestCommon.pairIndices(detector.getOverlappedPairs()));
+	}
+}
@@ -0,0 +1,120 @@
+package org.openpixi.pixi.physics.fields;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.cellaccess.SequentialCellIterator;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.grid.Grid;
+
+public class BinomialFilterTest extends TestCase {
+
+	private double ACCURACY_LIMIT = 1.e-12;
+
+	public BinomialFilterTest(String testName) {
+		super(testName);
+	}
+
+	private Grid createGrid() {
+		Settings stt = new Settings();
+		stt.setGridCellsX(8);
+		stt.setGridCellsY(8);
+		stt.setGridCellsZ(1);
+		return new Grid(stt);
+	}
+
+	/**
+	 * The filter only redistributes the current, the total has to stay the same.
+	 */
+	public void testCurrentIsConserved() {
+		Grid grid = createGrid();
+		grid.addJx(3, 4, 0, 2.0);
+		grid.addJy(0, 7, 0, -1.0);
+		grid.addJz(7, 0, 0, 0.5);
+
+		new BinomialFilter(3, true, false, new SequentialCellIterator()).filterCurrent(grid);
+
+		assertEquals(2.0, sumJx(grid), ACCURACY_LIMIT);
+		assertEquals(-1.0, sumJy(grid), ACCURACY_LIMIT);
+		assertEquals(0.5, sumJz(grid), ACCURACY_LIMIT);
+	}
+
+	/**
+	 * A single binomial pass per axis spreads a point current with the weights
+	 * (1,2,1)/4 x (1,2,1)/4.
+	 */
+	public void testPointCurrent() {
+		Grid grid = createGrid();
+		grid.addJx(4, 4, 0, 16.0);
+
+		new BinomialFilter(1, false, false, new SequentialCellIterator()).filterCurrent(grid);
+
+		assertEquals(4.0, grid.getJx(4, 4, 0), ACCURACY_LIMIT);
+		assertEquals(2.0, grid.getJx(3, 4, 0), ACCURACY_LIMIT);
+		assertEquals(2.0, grid.getJx(4, 5, 0), ACCURACY_LIMIT);
+		assertEquals(1.0, grid.getJx(5, 5, 0), ACCURACY_LIMIT);
+		assertEquals(0.0, grid.getJx(6, 4, 0), ACCURACY_LIMIT);
+	}
+
+	/**
+	 * The shortest resolvable wavelength is removed by a single binomial pass.
+	 */
+	public void testNyquistModeIsRemoved() {
+		Grid grid = createGrid();
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				grid.addJy(x, y, 0, (x % 2 == 0) ? 1 : -1);
+			}
+		}
+
+		new BinomialFilter(1, true, false, new SequentialCellIterator()).filterCurrent(grid);
+
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				assertEquals(0.0, grid.getJy(x, y, 0), ACCURACY_LIMIT);
+			}
+		}
+	}
+
+	/**
+	 * The charge density is only filtered on request.
+	 */
+	public void testChargeFiltering() {
+		Grid grid = createGrid();
+		grid.addRho(2, 2, 0, 1.0);
+
+		new BinomialFilter(1, false, false, new SequentialCellIterator()).filterCharge(grid);
+		assertEquals(1.0, grid.getRho(2, 2, 0), ACCURACY_LIMIT);
+
+		new BinomialFilter(1, false, true, new SequentialCellIterator()).filterCharge(grid);
+		assertEquals(0.25, grid.getRho(2, 2, 0), ACCURACY_LIMIT);
+	}
+
+	private double sumJx(Grid grid) {
+		double sum = 0;
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				sum += grid.getJx(x, y, 0);
+			}
+		}
+		return sum;
+	}
+
+	private double sumJy(Grid grid) {
+		double sum = 0;
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				sum += grid.getJy(x, y, 0);
+			}
+		}
+		return sum;
+	}
+
+	private double sumJz(Grid grid) {
+		double sum = 0;
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				sum += grid.getJz(x, y, 0);
+			}
+		}
+		return sum;
+	}
+}
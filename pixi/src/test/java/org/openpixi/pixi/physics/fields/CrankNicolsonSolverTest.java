@@ -0,0 +1,33 @@
+package org.openpixi.pixi.physics.fields;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.grid.Grid;
+import org.openpixi.pixi.physics.grid.GridTestCommon;
+
+public class CrankNicolsonSolverTest extends TestCase {
+
+	double ACCURACY_LIMIT = 1.e-12;
+
+	public CrankNicolsonSolverTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * The grid steps a clone of the solver of the settings, which has to use its own
+	 * time step and mean current.
+	 */
+	public void testClonedSolver() {
+		Settings stt = GridTestCommon.getCommonSettings();
+		stt.setGridSolver(new CrankNicolsonSolver());
+		Grid grid = new Grid(stt);
+		grid.addJx(3, 3, 1);
+		grid.updateGrid(0.5);
+
+		double eps0 = 1.0 / (4 * Math.PI);
+		double meanJx = 1.0 / (grid.getNumCellsX() * grid.getNumCellsY() * grid.getNumCellsZ());
+		assertEquals(-0.5 / eps0 * (1 - meanJx), grid.getEx(3, 3), ACCURACY_LIMIT);
+		assertEquals(0.5 / eps0 * meanJx, grid.getEx(0, 0), ACCURACY_LIMIT);
+		assertEquals(0.0, grid.getEy(3, 3), ACCURACY_LIMIT);
+	}
+}
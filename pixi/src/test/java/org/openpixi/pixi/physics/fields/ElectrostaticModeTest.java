@@ -0,0 +1,99 @@
+package org.openpixi.pixi.physics.fields;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.Simulation;
+import org.openpixi.pixi.physics.grid.Grid;
+import org.openpixi.pixi.physics.grid.GridTestCommon;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.SimpleParticleBoundaries;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+public class ElectrostaticModeTest extends TestCase {
+
+	private double ACCURACY_LIMIT = 1.e-12;
+
+	public ElectrostaticModeTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * After a step E has to be the solution of the Poisson equation for the
+	 * charge density at the new particle positions, and B has to stay zero.
+	 */
+	public void testFieldsFollowFromChargeDensity() throws Exception {
+		Simulation s = new Simulation(createSettings());
+		for (int step = 0; step < 5; step++) {
+			s.step();
+		}
+		assertFieldsFollowFromChargeDensity(s);
+	}
+
+	/**
+	 * A particle which is absorbed at a face leaves no charge behind: the field after the
+	 * step is the one of the remaining particles.
+	 */
+	public void testAbsorbedParticleLeavesNoCharge() throws Exception {
+		Settings stt = createSettings();
+		stt.setParticleBoundaryFace(SimpleParticleBoundaries.X_MAX, ParticleBoundaryType.Absorbing);
+		Particle leaving = new ParticleFull();
+		leaving.setX(9.9);
+		leaving.setY(5);
+		leaving.setVx(2);
+		leaving.setMass(1);
+		leaving.setCharge(1);
+		stt.addParticle(leaving);
+		Simulation s = new Simulation(stt);
+
+		s.step();
+		assertEquals(20, s.particles.size());
+		assertFieldsFollowFromChargeDensity(s);
+	}
+
+	private void assertFieldsFollowFromChargeDensity(Simulation s) {
+		Grid grid = s.grid;
+		int numCellsX = grid.getNumCellsX();
+		int numCellsY = grid.getNumCellsY();
+		double[][] ex = new double[numCellsX][numCellsY];
+		double[][] ey = new double[numCellsX][numCellsY];
+		for (int x = 0; x < numCellsX; x++) {
+			for (int y = 0; y < numCellsY; y++) {
+				ex[x][y] = grid.getEx(x, y);
+				ey[x][y] = grid.getEy(x, y);
+				assertEquals(0.0, grid.getBz(x, y), 0.0);
+			}
+		}
+
+		s.getInterpolation().interpolateChargedensity(s.particles, grid);
+		new PoissonSolverFFTPeriodic().solve(grid);
+		for (int x = 0; x < numCellsX; x++) {
+			for (int y = 0; y < numCellsY; y++) {
+				assertEquals(grid.getEx(x, y), ex[x][y], ACCURACY_LIMIT);
+				assertEquals(grid.getEy(x, y), ey[x][y], ACCURACY_LIMIT);
+			}
+		}
+	}
+
+	private Settings createSettings() {
+		Settings stt = GridTestCommon.getCommonSettings();
+		stt.setGridCellsZ(1);
+		stt.setGridSolver(new SimpleSolver());
+		stt.setElectrostatic(true);
+
+		Random random = new Random(1);
+		for (int i = 0; i < 20; i++) {
+			Particle p = new ParticleFull();
+			p.setX(10 * random.nextDouble());
+			p.setY(10 * random.nextDouble());
+			p.setVx(0.2 * random.nextDouble() - 0.1);
+			p.setVy(0.2 * random.nextDouble() - 0.1);
+			p.setMass(1);
+			p.setCharge(i % 2 == 0 ? 0.1 : -0.1);
+			stt.addParticle(p);
+		}
+		return stt;
+	}
+}
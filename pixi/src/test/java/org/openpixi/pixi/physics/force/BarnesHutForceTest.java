@@ -0,0 +1,169 @@
+package org.openpixi.pixi.physics.force;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.WorkerTeam;
+import org.openpixi.pixi.parallel.particleaccess.ParallelParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * Compares the tree code with the direct sum.
+ */
+public class BarnesHutForceTest extends TestCase {
+
+	private static final double SOFTENING = 0.01;
+
+	public BarnesHutForceTest(String testName) {
+		super(testName);
+	}
+
+	public void testExactWithoutApproximation() {
+		List<Particle> particles = createParticles(0, 300);
+		BarnesHutForce force = new BarnesHutForce(BarnesHutForce.Interaction.COULOMB, 2, 0, SOFTENING);
+		force.update(particles, new SequentialParticleIterator());
+		for (Particle p : particles) {
+			double[] expected = directSum(particles, p, BarnesHutForce.Interaction.COULOMB, 2);
+			double scale = Math.abs(expected[0]) + Math.abs(expected[1]) + Math.abs(expected[2]);
+			assertEquals(expected[0], force.getForceX(p), 1.e-10 * scale);
+			assertEquals(expected[1], force.getForceY(p), 1.e-10 * scale);
+			assertEquals(expected[2], force.getForceZ(p), 1.e-10 * scale);
+		}
+	}
+
+	public void testApproximation() {
+		List<Particle> particles = createParticles(1, 2000);
+		BarnesHutForce force = new BarnesHutForce(BarnesHutForce.Interaction.GRAVITY, -1, 0.5, SOFTENING);
+		force.update(particles, new SequentialParticleIterator());
+
+		double error = 0;
+		double norm = 0;
+		for (int i = 0; i < particles.size(); i += 10) {
+			Particle p = particles.get(i);
+			double[] expected = directSum(particles, p, BarnesHutForce.Interaction.GRAVITY, -1);
+			ForceComponents components = ForceComponents.evaluate(force, p);
+			error += square(components.forceX - expected[0]) + square(components.forceY - expected[1])
+					+ square(components.forceZ - expected[2]);
+			norm += square(expected[0]) + square(expected[1]) + square(expected[2]);
+		}
+		assertTrue(Math.sqrt(error / norm) < 0.01);
+	}
+
+	public void testIndependentOfThreadCount() {
+		List<Particle> particles = createParticles(2, 3000);
+		BarnesHutForce reference = new BarnesHutForce(BarnesHutForce.Interaction.COULOMB, 1, 0.7, SOFTENING);
+		reference.update(particles, new SequentialParticleIterator());
+
+		WorkerTeam team = new WorkerTeam(3);
+		BarnesHutForce force = new BarnesHutForce(BarnesHutForce.Interaction.COULOMB, 1, 0.7, SOFTENING);
+		force.update(particles, new ParallelParticleIterator(team));
+		team.terminate();
+
+		for (Particle p : particles) {
+			assertEquals(reference.getForceX(p), force.getForceX(p), 0);
+			assertEquals(reference.getForceY(p), force.getForceY(p), 0);
+			assertEquals(reference.getForceZ(p), force.getForceZ(p), 0);
+		}
+	}
+
+	/**
+	 * Only the moved particle is charged, so the exact force on it vanishes. Its old
+	 * position must not act on it through a distant node.
+	 */
+	public void testNoSelfForceAfterMove() {
+		List<Particle> particles = createParticles(3, 200);
+		for (Particle p : particles) {
+			p.setCharge(0);
+		}
+		Particle moved = particles.get(17);
+		moved.setCharge(1);
+		BarnesHutForce force = new BarnesHutForce(BarnesHutForce.Interaction.COULOMB, 1, 0.5, SOFTENING);
+		force.update(particles, new SequentialParticleIterator());
+
+		moved.setX(moved.getX() + 100);
+		assertEquals(0, force.getForceX(moved), 0);
+		assertEquals(0, force.getForceY(moved), 0);
+		assertEquals(0, force.getForceZ(moved), 0);
+	}
+
+	/**
+	 * The components share one walk per position; a move gives a new walk.
+	 */
+	public void testComponentsFollowPosition() {
+		List<Particle> particles = createParticles(4, 500);
+		BarnesHutForce force = new BarnesHutForce(BarnesHutForce.Interaction.COULOMB, 1, 0.5, SOFTENING);
+		BarnesHutForce reference = new BarnesHutForce(BarnesHutForce.Interaction.COULOMB, 1, 0.5, SOFTENING);
+		force.update(particles, new SequentialParticleIterator());
+		reference.update(particles, new SequentialParticleIterator());
+
+		Particle p = particles.get(5);
+		double forceX = force.getForceX(p);
+		assertEquals(forceX, force.getPositionComponentofForceX(p), 0);
+		p.setY(p.getY() + 0.3);
+		assertEquals(reference.getForceY(p), force.getForceY(p), 0);
+		assertEquals(reference.getForceX(p), force.getForceX(p), 0);
+		assertTrue(forceX != force.getForceX(p));
+	}
+
+	public void testInvalidOpeningAngle() {
+		try {
+			new BarnesHutForce(BarnesHutForce.Interaction.GRAVITY, -1, 1.5, 0);
+			fail();
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Clustered particles with charges of both signs.
+	 */
+	private List<Particle> createParticles(long seed, int count) {
+		Random random = new Random(seed);
+		List<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < count; i++) {
+			Particle p = new ParticleFull();
+			p.setSlot(i);
+			double cluster = 10 * random.nextInt(3);
+			p.setX(cluster + random.nextGaussian());
+			p.setY(cluster + random.nextGaussian());
+			p.setZ(random.nextGaussian());
+			p.setMass(1 + random.nextDouble());
+			p.setCharge(random.nextBoolean() ? 1 : -1);
+			particles.add(p);
+		}
+		return particles;
+	}
+
+	private double[] directSum(List<Particle> particles, Particle p,
+			BarnesHutForce.Interaction interaction, double coupling) {
+		double[] result = new double[3];
+		for (Particle q : particles) {
+			if (q == p) {
+				continue;
+			}
+			double dx = p.getX() - q.getX();
+			double dy = p.getY() - q.getY();
+			double dz = p.getZ() - q.getZ();
+			double r2 = dx * dx + dy * dy + dz * dz + SOFTENING * SOFTENING;
+			double factor;
+			if (interaction == BarnesHutForce.Interaction.COULOMB) {
+				factor = coupling * p.getCharge() * q.getCharge();
+			} else {
+				factor = coupling * p.getMass() * q.getMass();
+			}
+			factor /= r2 * Math.sqrt(r2);
+			result[0] += factor * dx;
+			result[1] += factor * dy;
+			result[2] += factor * dz;
+		}
+		return result;
+	}
+
+	private static double square(double x) {
+		return x * x;
+	}
+}
@@ -0,0 +1,107 @@
+package org.openpixi.pixi.physics.force;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+public class ContactForceTest extends TestCase {
+
+	public ContactForceTest(String testName) {
+		super(testName);
+	}
+
+	public void testPair() {
+		List<Particle> particles = new ArrayList<Particle>();
+		particles.add(createParticle(0, 0, 1, 0));
+		particles.add(createParticle(1.5, 0, 1, 1));
+		ContactForce force = new ContactForce(2);
+		force.update(particles, new SequentialParticleIterator());
+
+		assertEquals(-1.0, force.getForceX(particles.get(0)), 1.e-12);
+		assertEquals(1.0, force.getForceX(particles.get(1)), 1.e-12);
+		assertEquals(0.0, force.getForceY(particles.get(1)), 1.e-12);
+	}
+
+	/**
+	 * The forces of all pairs cancel.
+	 */
+	public void testNewtonsThirdLaw() {
+		Random random = new Random(0);
+		List<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 500; i++) {
+			particles.add(createParticle(20 * random.nextDouble(), 20 * random.nextDouble(),
+					0.5 + 0.5 * random.nextDouble(), i));
+		}
+		ContactForce force = new ContactForce(1);
+		force.update(particles, new SequentialParticleIterator());
+
+		double sumX = 0;
+		double sumY = 0;
+		double magnitude = 0;
+		for (Particle p : particles) {
+			ForceComponents components = ForceComponents.evaluate(force, p);
+			sumX += components.forceX;
+			sumY += components.forceY;
+			magnitude += Math.abs(components.forceX) + Math.abs(components.forceY);
+		}
+		assertTrue(magnitude > 0);
+		assertEquals(0, sumX, 1.e-10 * magnitude);
+		assertEquals(0, sumY, 1.e-10 * magnitude);
+	}
+
+	/**
+	 * The second particle is removed by moving the last one into its place, and a larger
+	 * one is added. Every index keeps about its position, so only invalidate() tells the
+	 * force that the lists and the cutoff are out of date.
+	 */
+	public void testSwapWithLastRemoval() {
+		List<Particle> particles = new ArrayList<Particle>();
+		particles.add(createParticle(0, 0, 1, 0));
+		particles.add(createParticle(5, 0, 1, 1));
+		particles.add(createParticle(9, 0, 1, 2));
+		particles.add(createParticle(5.2, 0, 1, 3));
+		ContactForce force = new ContactForce(2);
+		force.update(particles, new SequentialParticleIterator());
+
+		particles.set(1, particles.remove(particles.size() - 1));
+		particles.add(createParticle(5.4, 0, 3, 4));
+		force.invalidate();
+		force.update(particles, new SequentialParticleIterator());
+
+		// overlap 3 + 1 - 3.6 with the new particle
+		assertEquals(0.8, force.getForceX(particles.get(2)), 1.e-12);
+		assertEquals(0.0, force.getForceX(particles.get(0)), 1.e-12);
+	}
+
+	/**
+	 * Particles without a radius have no contact, the lists must not loop over cells
+	 * of zero size.
+	 */
+	public void testZeroRadius() {
+		List<Particle> particles = new ArrayList<Particle>();
+		particles.add(createParticle(0, 0, 0, 0));
+		particles.add(createParticle(1, 2, 0, 1));
+		particles.add(createParticle(1, 2, 0, 2));
+		ContactForce force = new ContactForce(2);
+		force.update(particles, new SequentialParticleIterator());
+
+		for (Particle p : particles) {
+			assertEquals(0.0, force.getForceX(p), 0.0);
+			assertEquals(0.0, force.getForceY(p), 0.0);
+		}
+	}
+
+	private Particle createParticle(double x, double y, double radius, int slot) {
+		Particle p = new ParticleFull();
+		p.setX(x);
+		p.setY(y);
+		p.setRadius(radius);
+		p.setSlot(slot);
+		return p;
+	}
+}
@@ -0,0 +1,96 @@
+package org.openpixi.pixi.physics.force;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.force.relativistic.ConstantForceRelativistic;
+import org.openpixi.pixi.physics.force.relativistic.SimpleGridForceRelativistic;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * The specialised addComponents() have to give the same values as the individual methods.
+ */
+public class ForceComponentsTest extends TestCase {
+
+	double ACCURACY_LIMIT = 1.e-15;
+	Random random = new Random(0);
+
+	public ForceComponentsTest(String testName) {
+		super(testName);
+	}
+
+	public void testSimpleGridForce() {
+		compareComponents(new SimpleGridForce());
+	}
+
+	public void testSimpleGridForceRelativistic() {
+		compareComponents(new SimpleGridForceRelativistic(3));
+	}
+
+	public void testConstantForce() {
+		compareComponents(fillConstantForce(new ConstantForce()));
+	}
+
+	public void testConstantForceRelativistic() {
+		compareComponents(fillConstantForce(new ConstantForceRelativistic(3)));
+	}
+
+	public void testCombinedForce() {
+		CombinedForce f = new CombinedForce();
+		f.add(new SimpleGridForce());
+		f.add(fillConstantForce(new ConstantForce()));
+		f.add(new SpringForce());
+		compareComponents(f);
+	}
+
+	private ConstantForce fillConstantForce(ConstantForce f) {
+		f.gx = random.nextDouble();
+		f.gy = random.nextDouble();
+		f.gz = random.nextDouble();
+		f.drag = random.nextDouble();
+		f.ex = random.nextDouble();
+		f.ey = random.nextDouble();
+		f.ez = random.nextDouble();
+		f.bx = random.nextDouble();
+		f.by = random.nextDouble();
+		f.bz = random.nextDouble();
+		return f;
+	}
+
+	private void compareComponents(Force f) {
+		for (int i = 0; i < 10; i++) {
+			Particle p = createParticle();
+			ForceComponents c = ForceComponents.evaluate(f, p);
+			assertEquals(f.getForceX(p), c.forceX, ACCURACY_LIMIT);
+			assertEquals(f.getForceY(p), c.forceY, ACCURACY_LIMIT);
+			assertEquals(f.getForceZ(p), c.forceZ, ACCURACY_LIMIT);
+			assertEquals(f.getPositionComponentofForceX(p), c.positionX, ACCURACY_LIMIT);
+			assertEquals(f.getPositionComponentofForceY(p), c.positionY, ACCURACY_LIMIT);
+			assertEquals(f.getTangentVelocityComponentOfForceX(p), c.tangentVelocityX, ACCURACY_LIMIT);
+			assertEquals(f.getTangentVelocityComponentOfForceY(p), c.tangentVelocityY, ACCURACY_LIMIT);
+			assertEquals(f.getNormalVelocityComponentofForceX(p), c.normalVelocityX, ACCURACY_LIMIT);
+			assertEquals(f.getNormalVelocityComponentofForceY(p), c.normalVelocityY, ACCURACY_LIMIT);
+			assertEquals(f.getBz(p), c.bz, ACCURACY_LIMIT);
+			assertEquals(f.getLinearDragCoefficient(p), c.linearDragCoefficient, ACCURACY_LIMIT);
+		}
+	}
+
+	private Particle createParticle() {
+		Particle p = new ParticleFull();
+		p.setMass(1 + random.nextDouble());
+		p.setCharge(random.nextDouble() - 0.5);
+		p.setX(100 * random.nextDouble());
+		p.setY(100 * random.nextDouble());
+		p.setVx(random.nextDouble() - 0.5);
+		p.setVy(random.nextDouble() - 0.5);
+		p.setVz(random.nextDouble() - 0.5);
+		p.setEx(random.nextDouble());
+		p.setEy(random.nextDouble());
+		p.setEz(random.nextDouble());
+		p.setBx(random.nextDouble());
+		p.setBy(random.nextDouble());
+		p.setBz(random.nextDouble());
+		return p;
+	}
+}
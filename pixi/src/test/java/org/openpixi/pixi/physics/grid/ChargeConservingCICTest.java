@@ -5,6 +5,8 @@ import org.openpixi.pixi.physics.Settings;
 import org.openpixi.pixi.physics.Simulation;
 import org.openpixi.pixi.physics.fields.SimpleSolver;
 import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.SimpleParticleBoundaries;
 import org.openpixi.pixi.physics.particles.Particle;
 import org.openpixi.pixi.physics.particles.ParticleFull;
 
@@ -126,6 +128,26 @@ public class ChargeConservingCICTest extends TestCase {
 		testMove(5.2, 9.3, 5.2, 10.6, charge, "org/openpixi/pixi/distributed/movement/boundary");
 	}
 	
+	/**
+	 * Absorbed particles deposit no current, so the charge conserving current would leave
+	 * their charge on the grid. The simulation only accepts the other interpolator.
+	 */
+	public void testOpenFacesAreRejected() {
+		Settings stt = GridTestCommon.getCommonSettings();
+		stt.setGridSolver(new SimpleSolver());
+		stt.setParticleBoundaryFace(SimpleParticleBoundaries.X_MAX, ParticleBoundaryType.Absorbing);
+		stt.setInterpolator(new ChargeConservingCIC());
+		try {
+			new Simulation(stt);
+			fail();
+		} catch (RuntimeException e) {
+			// expected
+		}
+
+		stt.setInterpolator(new CloudInCell());
+		new Simulation(stt);
+	}
+
 	/**
 	 * THIS TEST IS CURRENTLY DISABLED! (it does not test the right thing)
 	 */
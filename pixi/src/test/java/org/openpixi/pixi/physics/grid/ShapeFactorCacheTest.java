@@ -0,0 +1,135 @@
+package org.openpixi.pixi.physics.grid;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+public class ShapeFactorCacheTest extends TestCase {
+
+	double ACCURACY_LIMIT = 1.e-14;
+	Random random = new Random(0);
+
+	public ShapeFactorCacheTest(String testName) {
+		super(testName);
+	}
+
+	public void testCachedGather2D() {
+		testCachedGather(1);
+	}
+
+	public void testCachedGather3D() {
+		testCachedGather(6);
+	}
+
+	/**
+	 * After the deposit the cached gather has to give the same fields as the normal one.
+	 * The entry is used only once, since the particle is pushed after the gather.
+	 */
+	private void testCachedGather(int numCellsZ) {
+		Settings stt = GridTestCommon.getCommonSettings();
+		stt.setGridCellsZ(numCellsZ);
+		Grid grid = new Grid(stt);
+		fillRandomFields(grid);
+
+		ChargeConservingCIC cached = new ChargeConservingCIC(true);
+		CloudInCell reference = new CloudInCell();
+
+		for (int i = 0; i < 100; i++) {
+			Particle p = createParticle(i, grid);
+			Particle q = p.copy();
+
+			cached.interpolateToGrid(p, grid, stt.getTimeStep());
+			cached.interpolateToParticle(p, grid);
+			reference.interpolateToParticle(q, grid);
+			assertFields(q, p);
+
+			// The push moves the particle after the gather
+			p.addX(0.3 * grid.getCellWidth());
+			q.addX(0.3 * grid.getCellWidth());
+			cached.interpolateToParticle(p, grid);
+			reference.interpolateToParticle(q, grid);
+			assertFields(q, p);
+		}
+	}
+
+	public void testInvalidateAll() {
+		Settings stt = GridTestCommon.getCommonSettings();
+		Grid grid = new Grid(stt);
+		fillRandomFields(grid);
+		ChargeConservingCIC cached = new ChargeConservingCIC(true);
+		CloudInCell reference = new CloudInCell();
+
+		Particle p = createParticle(0, grid);
+		cached.interpolateToGrid(p, grid, stt.getTimeStep());
+		cached.getShapeFactorCache().invalidateAll();
+
+		// Another particle with the same slot, e.g. in a new simulation
+		Particle q = createParticle(0, grid);
+		Particle r = q.copy();
+		cached.interpolateToParticle(q, grid);
+		reference.interpolateToParticle(r, grid);
+		assertFields(r, q);
+	}
+
+	/**
+	 * Particles which are not part of a simulation have no slot and are not cached.
+	 */
+	public void testParticlesWithoutSlot() {
+		Settings stt = GridTestCommon.getCommonSettings();
+		Grid grid = new Grid(stt);
+		fillRandomFields(grid);
+		ChargeConservingCIC cached = new ChargeConservingCIC(true);
+		CloudInCell reference = new CloudInCell();
+
+		Particle p = createParticle(Particle.NO_SLOT, grid);
+		Particle q = createParticle(Particle.NO_SLOT, grid);
+		Particle r = q.copy();
+		cached.interpolateToGrid(p, grid, stt.getTimeStep());
+		cached.interpolateToGrid(q, grid, stt.getTimeStep());
+		cached.interpolateToParticle(q, grid);
+		reference.interpolateToParticle(r, grid);
+		assertFields(r, q);
+	}
+
+	private Particle createParticle(int slot, Grid grid) {
+		Particle p = new ParticleFull();
+		p.setSlot(slot);
+		p.setCharge(1);
+		p.setX(2 + random.nextDouble() * 5 * grid.getCellWidth());
+		p.setY(2 + random.nextDouble() * 5 * grid.getCellHeight());
+		if (grid.getNumCellsZ() > 1) {
+			p.setZ(2 + random.nextDouble() * 3 * grid.getCellDepth());
+		}
+		p.setPrevX(p.getX() - 0.1);
+		p.setPrevY(p.getY() + 0.1);
+		p.setPrevZ(p.getZ());
+		return p;
+	}
+
+	private void fillRandomFields(Grid grid) {
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				for (int z = 0; z < grid.getNumCellsZ(); z++) {
+					grid.setEx(x, y, z, random.nextDouble());
+					grid.setEy(x, y, z, random.nextDouble());
+					grid.setEz(x, y, z, random.nextDouble());
+					grid.setBx(x, y, z, random.nextDouble());
+					grid.setBy(x, y, z, random.nextDouble());
+					grid.setBz(x, y, z, random.nextDouble());
+				}
+			}
+		}
+	}
+
+	private void assertFields(Particle expected, Particle actual) {
+		assertEquals(expected.getEx(), actual.getEx(), ACCURACY_LIMIT);
+		assertEquals(expected.getEy(), actual.getEy(), ACCURACY_LIMIT);
+		assertEquals(expected.getEz(), actual.getEz(), ACCURACY_LIMIT);
+		assertEquals(expected.getBx(), actual.getBx(), ACCURACY_LIMIT);
+		assertEquals(expected.getBy(), actual.getBy(), ACCURACY_LIMIT);
+		assertEquals(expected.getBz(), actual.getBz(), ACCURACY_LIMIT);
+	}
+}
@@ -0,0 +1,100 @@
+package org.openpixi.pixi.physics.movement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.force.SimpleGridForce;
+import org.openpixi.pixi.physics.grid.Grid;
+import org.openpixi.pixi.physics.movement.boundary.ParticleBoundaryType;
+import org.openpixi.pixi.physics.movement.boundary.SimpleParticleBoundaries;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.solver.Boris;
+import org.openpixi.pixi.physics.util.DoubleBox;
+
+public class SubcyclingTest extends TestCase {
+
+	double ACCURACY_LIMIT = 1.e-14;
+	double TIME_STEP = 0.1;
+	int SUBCYCLES = 4;
+
+	public SubcyclingTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * The ion is pushed once every SUBCYCLES steps with the longer time step,
+	 * the electron in every step.
+	 */
+	public void testSubcycledSpeciesIsPushedEveryNthStep() {
+		Settings settings = new Settings();
+		Grid grid = new Grid(settings);
+
+		Particle electron = createParticle(0, 1, -1);
+		Particle ion = createParticle(1, 100, 1);
+		Particle reference = ion.copy();
+		reference.setSlot(0);
+
+		Subcycling subcycling = new Subcycling();
+		subcycling.setSubcycles(ion.getSpecies(), SUBCYCLES);
+		assertTrue(subcycling.isActive());
+		assertEquals(1, subcycling.getSubcycles(electron));
+		assertEquals(SUBCYCLES, subcycling.getSubcycles(ion));
+
+		ParticleMover mover = createMover(grid);
+		mover.setSubcycling(subcycling);
+		List<Particle> particles = new ArrayList<Particle>();
+		particles.add(electron);
+		particles.add(ion);
+
+		ParticleMover referenceMover = createMover(grid);
+		List<Particle> referenceParticles = new ArrayList<Particle>();
+		referenceParticles.add(reference);
+
+		SimpleGridForce force = new SimpleGridForce();
+		for (int step = 0; step < 2 * SUBCYCLES; step++) {
+			double electronX = electron.getX();
+			double ionX = ion.getX();
+			mover.push(particles, force, grid, TIME_STEP);
+
+			assertTrue(electron.getX() != electronX);
+			if (step % SUBCYCLES == 0) {
+				referenceMover.push(referenceParticles, force, grid, SUBCYCLES * TIME_STEP);
+				assertEquals(reference.getX(), ion.getX(), ACCURACY_LIMIT);
+				assertEquals(reference.getY(), ion.getY(), ACCURACY_LIMIT);
+				assertEquals(reference.getVx(), ion.getVx(), ACCURACY_LIMIT);
+				assertEquals(reference.getVy(), ion.getVy(), ACCURACY_LIMIT);
+			} else {
+				assertEquals(ionX, ion.getX(), 0);
+			}
+		}
+	}
+
+	private ParticleMover createMover(Grid grid) {
+		return new ParticleMover(
+				new Boris(),
+				new SimpleParticleBoundaries(
+						new DoubleBox(0, grid.getNumCellsX() * grid.getCellWidth(),
+								0, grid.getNumCellsY() * grid.getCellHeight()),
+						ParticleBoundaryType.Periodic),
+				new SequentialParticleIterator());
+	}
+
+	private Particle createParticle(int slot, double mass, double charge) {
+		Particle p = new ParticleFull();
+		p.setSlot(slot);
+		p.setMass(mass);
+		p.setCharge(charge);
+		p.setX(3.3 * p.getSlot() + 1);
+		p.setY(2.2);
+		p.setVx(0.1);
+		p.setVy(0.2);
+		p.setEx(0.3);
+		p.setEy(0.4);
+		p.setBz(0.5);
+		return p;
+	}
+}
@@ -0,0 +1,79 @@
+package org.openpixi.pixi.physics.movement.boundary;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.particles.ParticlePool;
+import org.openpixi.pixi.physics.solver.EmptySolver;
+import org.openpixi.pixi.physics.util.DoubleBox;
+
+/**
+ * A beam through an injecting and an absorbing face.
+ */
+public class ParticleInjectorTest extends TestCase {
+
+	public ParticleInjectorTest(String testName) {
+		super(testName);
+	}
+
+	public void testSteadyBeam() {
+		SimpleParticleBoundaries boundaries = new SimpleParticleBoundaries(
+				new DoubleBox(0, 10, 0, 5), ParticleBoundaryType.Periodic);
+		boundaries.setFaceType(SimpleParticleBoundaries.X_MIN, ParticleBoundaryType.Injecting);
+		boundaries.setFaceType(SimpleParticleBoundaries.X_MAX, ParticleBoundaryType.Absorbing);
+		ParticlePool pool = new ParticlePool(0);
+		boundaries.setParticlePool(pool);
+
+		Particle template = new ParticleFull();
+		template.setVx(1);
+		template.setCharge(2);
+		ParticleInjector injector = new ParticleInjector(SimpleParticleBoundaries.X_MIN, 2.5, template, 1);
+		injector.initialize(10, 5, 0, pool);
+
+		List<Particle> particles = new ArrayList<Particle>();
+		double dt = 0.4;
+		for (int step = 0; step < 100; step++) {
+			for (Particle p : particles) {
+				p.addX(p.getVx() * dt);
+			}
+			boundaries.applyOnRange(particles, 0, particles.size(), new EmptySolver(), new ConstantForce(), dt);
+			boundaries.removeAbsorbed(particles);
+			injector.inject(particles, dt);
+
+			for (Particle p : particles) {
+				assertTrue(p.getX() >= 0 && p.getX() < 10);
+				assertTrue(p.getY() >= 0 && p.getY() < 5);
+				assertEquals(2.0, p.getCharge());
+			}
+		}
+		// rate * width / vx
+		assertEquals(25, particles.size(), 1);
+
+		// The slots of the absorbed particles are used again.
+		Set<Integer> slots = new HashSet<Integer>();
+		int maxSlot = 0;
+		for (Particle p : particles) {
+			slots.add(p.getSlot());
+			maxSlot = Math.max(maxSlot, p.getSlot());
+		}
+		assertEquals(particles.size(), slots.size());
+		assertTrue(maxSlot < 30);
+	}
+
+	public void testVelocityIntoTheBox() {
+		Particle template = new ParticleFull();
+		template.setVx(1);
+		try {
+			new ParticleInjector(SimpleParticleBoundaries.X_MAX, 1, template, 0);
+			fail();
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.openpixi.pixi.physics.movement.boundary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticlePool;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.solver.EmptySolver;
+import org.openpixi.pixi.physics.util.DoubleBox;
+
+public class SimpleParticleBoundariesTest extends TestCase {
+
+	public SimpleParticleBoundariesTest(String testName) {
+		super(testName);
+	}
+
+	public void testPeriodic() {
+		SimpleParticleBoundaries boundaries = createBoundaries(ParticleBoundaryType.Periodic);
+		List<Particle> particles = new ArrayList<Particle>();
+		Particle inside = createParticle(particles, 5, 5, 5);
+		Particle corner = createParticle(particles, 10.5, -0.5, 5);
+		Particle back = createParticle(particles, 5, 5, 20.5);
+
+		apply(boundaries, particles);
+		assertEquals(3, particles.size());
+		assertPosition(inside, 5, 5, 5);
+		assertPosition(corner, 0.5, 9.5, 5);
+		assertPosition(back, 5, 5, 0.5);
+	}
+
+	public void testHardwall() {
+		SimpleParticleBoundaries boundaries = createBoundaries(ParticleBoundaryType.Hardwall);
+		List<Particle> particles = new ArrayList<Particle>();
+		Particle p = createParticle(particles, -0.5, 5, 21);
+		p.setVx(-1);
+		p.setVy(2);
+		p.setVz(3);
+
+		apply(boundaries, particles);
+		assertPosition(p, -0.5, 5, 21);
+		assertEquals(1.0, p.getVx());
+		assertEquals(2.0, p.getVy());
+		assertEquals(-3.0, p.getVz());
+	}
+
+	public void testAbsorbingFace() {
+		SimpleParticleBoundaries boundaries = createBoundaries(ParticleBoundaryType.Periodic);
+		boundaries.setFaceType(SimpleParticleBoundaries.Z_MAX, ParticleBoundaryType.Absorbing);
+		List<Particle> particles = new ArrayList<Particle>();
+		Particle first = createParticle(particles, 5, 5, 5);
+		createParticle(particles, 5, 5, 20.5);
+		Particle wrapped = createParticle(particles, 5, 5, -0.5);
+		createParticle(particles, 11, 5, 21);
+		Particle last = createParticle(particles, 1, 2, 3);
+
+		apply(boundaries, particles);
+		// The last particles take the places of the absorbed ones.
+		assertEquals(3, particles.size());
+		assertEquals(2, boundaries.getNumRemoved());
+		assertSame(first, particles.get(0));
+		assertSame(last, particles.get(1));
+		assertSame(wrapped, particles.get(2));
+		assertPosition(wrapped, 5, 5, 19.5);
+	}
+
+	public void testAbsorbedParticlesAreReleased() {
+		SimpleParticleBoundaries boundaries = createBoundaries(ParticleBoundaryType.Hardwall);
+		boundaries.setFaceType(SimpleParticleBoundaries.X_MIN, ParticleBoundaryType.Injecting);
+		ParticlePool pool = new ParticlePool(2);
+		boundaries.setParticlePool(pool);
+		List<Particle> particles = new ArrayList<Particle>();
+		Particle absorbed = createParticle(particles, -0.5, 5, 5);
+		absorbed.setSlot(0);
+		createParticle(particles, 5, 5, 5).setSlot(1);
+
+		apply(boundaries, particles);
+		assertEquals(1, particles.size());
+		assertEquals(1, particles.get(0).getSlot());
+		assertEquals(1, pool.getNumFree());
+		assertSame(absorbed, pool.acquire());
+		assertEquals(2, pool.acquire().getSlot());
+	}
+
+	/**
+	 * Without depth there are no faces in z.
+	 */
+	public void testNoFacesIn2D() {
+		SimpleParticleBoundaries boundaries = new SimpleParticleBoundaries(
+				new DoubleBox(0, 10, 0, 10), ParticleBoundaryType.Absorbing);
+		List<Particle> particles = new ArrayList<Particle>();
+		createParticle(particles, 5, 5, -100);
+		apply(boundaries, particles);
+		assertEquals(1, particles.size());
+	}
+
+	private SimpleParticleBoundaries createBoundaries(ParticleBoundaryType type) {
+		return new SimpleParticleBoundaries(new DoubleBox(0, 10, 0, 10), 0, 20, type);
+	}
+
+	private void apply(SimpleParticleBoundaries boundaries, List<Particle> particles) {
+		boundaries.applyOnRange(particles, 0, particles.size(), new EmptySolver(), new ConstantForce(), 1);
+		boundaries.removeAbsorbed(particles);
+	}
+
+	private Particle createParticle(List<Particle> particles, double x, double y, double z) {
+		Particle p = new ParticleFull();
+		p.setX(x);
+		p.setY(y);
+		p.setZ(z);
+		particles.add(p);
+		return p;
+	}
+
+	private void assertPosition(Particle p, double x, double y, double z) {
+		assertEquals(x, p.getX(), 1.e-12);
+		assertEquals(y, p.getY(), 1.e-12);
+		assertEquals(z, p.getZ(), 1.e-12);
+	}
+}
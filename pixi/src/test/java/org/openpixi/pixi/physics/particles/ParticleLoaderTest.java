@@ -0,0 +1,96 @@
+package org.openpixi.pixi.physics.particles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.WorkerTeam;
+import org.openpixi.pixi.parallel.particleaccess.ParallelParticleIterator;
+import org.openpixi.pixi.physics.particles.ParticleFactory.PositionDistribution;
+import org.openpixi.pixi.physics.particles.ParticleFactory.VelocityDistribution;
+import org.openpixi.pixi.physics.util.StreamRandom;
+
+/**
+ * The initialization has to give the same particles for any number of threads.
+ */
+public class ParticleLoaderTest extends TestCase {
+
+	public ParticleLoaderTest(String testName) {
+		super(testName);
+	}
+
+	public void testIndependentOfThreadCount() {
+		List<ParticleFactory> factories = new ArrayList<ParticleFactory>();
+		int number = 3 * ParticleLoader.CHUNK_SIZE + 17;
+		factories.add(new ParticleFactory(number, 1, 1, 1,
+				PositionDistribution.RANDOM, VelocityDistribution.MAXWELLIAN,
+				0.1, 0.2, 0, false, 1, 2));
+		factories.add(new ParticleFactory(number, 1, -1, 1,
+				PositionDistribution.RANDOM, VelocityDistribution.MAXWELLIAN_WITH_CUTOFF,
+				0.1, 0.1, 0.5, false, 3, 4));
+
+		List<Particle> reference = new ParticleLoader().load(factories, 100, 50, 10, 5);
+		for (int numOfThreads = 2; numOfThreads <= 4; numOfThreads++) {
+			WorkerTeam team = new WorkerTeam(numOfThreads);
+			List<Particle> particles = new ParticleLoader(new ParallelParticleIterator(team))
+					.load(factories, 100, 50, 10, 5);
+			team.terminate();
+
+			assertEquals(reference.size(), particles.size());
+			for (int i = 0; i < reference.size(); i++) {
+				Particle expected = reference.get(i);
+				Particle actual = particles.get(i);
+				assertEquals(expected.getX(), actual.getX(), 0);
+				assertEquals(expected.getY(), actual.getY(), 0);
+				assertEquals(expected.getVx(), actual.getVx(), 0);
+				assertEquals(expected.getVy(), actual.getVy(), 0);
+			}
+		}
+	}
+
+	public void testMaxwellianMoments() {
+		List<ParticleFactory> factories = new ArrayList<ParticleFactory>();
+		factories.add(new ParticleFactory(100000, 1, 1, 1,
+				PositionDistribution.RANDOM, VelocityDistribution.MAXWELLIAN,
+				0.3, 0.1, 0, false, 5, 6));
+		List<Particle> particles = new ParticleLoader().load(factories, 10, 10, 1, 1);
+
+		double meanX = 0;
+		double meanY = 0;
+		double varianceX = 0;
+		double varianceY = 0;
+		for (Particle p : particles) {
+			meanX += p.getVx();
+			meanY += p.getVy();
+			varianceX += p.getVx() * p.getVx();
+			varianceY += p.getVy() * p.getVy();
+		}
+		int n = particles.size();
+		assertEquals(0, meanX / n, 0.01);
+		assertEquals(0, meanY / n, 0.01);
+		assertEquals(0.09, varianceX / n, 0.003);
+		assertEquals(0.01, varianceY / n, 0.0003);
+	}
+
+	public void testStreamsDiffer() {
+		StreamRandom a = new StreamRandom(1, 0);
+		StreamRandom b = new StreamRandom(1, 1);
+		StreamRandom c = new StreamRandom(1, 0);
+		for (int i = 0; i < 100; i++) {
+			long value = a.nextLong();
+			assertTrue(value != b.nextLong());
+			assertEquals(value, c.nextLong());
+		}
+	}
+
+	public void testSetStreamStartsOver() {
+		StreamRandom a = new StreamRandom(1, 5);
+		StreamRandom b = new StreamRandom(2, 0);
+		// leaves the second number of a Gaussian pair behind
+		b.nextGaussian();
+		b.setStream(1, 5);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(a.nextGaussian(), b.nextGaussian(), 0);
+		}
+	}
+}
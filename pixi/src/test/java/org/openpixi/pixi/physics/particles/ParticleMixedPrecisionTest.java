@@ -0,0 +1,102 @@
+package org.openpixi.pixi.physics.particles;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.Simulation;
+import org.openpixi.pixi.physics.grid.GridTestCommon;
+
+/**
+ * Compares the mixed precision mode with the double precision one.
+ */
+public class ParticleMixedPrecisionTest extends TestCase {
+
+	public ParticleMixedPrecisionTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Positions are stored relative to the cell, so they have to be accurate
+	 * to single precision of the cell size even far away from the origin.
+	 */
+	public void testPositionAccuracy() {
+		Random random = new Random(0);
+		double cellSize = 0.25;
+		Particle p = new ParticleMixedPrecision(
+				new CellGeometry(cellSize, cellSize, cellSize));
+		for (int i = 0; i < 1000; i++) {
+			double x = 1.e5 * random.nextDouble();
+			double y = -1.e5 * random.nextDouble();
+			p.setX(x);
+			p.setY(y);
+			p.setZ(x);
+			assertEquals(x, p.getX(), 1.e-7 * cellSize);
+			assertEquals(y, p.getY(), 1.e-7 * cellSize);
+			assertEquals(x, p.getZ(), 1.e-7 * cellSize);
+
+			p.storePosition();
+			p.addX(0.1);
+			assertEquals(x, p.getPrevX(), 1.e-7 * cellSize);
+			assertEquals(x + 0.1, p.getX(), 1.e-7 * cellSize);
+			p.addY(-0.3);
+			assertEquals(y - 0.3, p.getY(), 1.e-7 * cellSize);
+		}
+	}
+
+	/**
+	 * Runs the same simulation in double and in mixed precision.
+	 * The trajectories and the current have to agree to single precision.
+	 */
+	public void testSimulationAccuracy() {
+		Simulation reference = createSimulation(false);
+		Simulation mixed = createSimulation(true);
+		assertTrue(mixed.particles.get(0) instanceof ParticleMixedPrecision);
+
+		for (int step = 0; step < 50; step++) {
+			advance(reference);
+			advance(mixed);
+		}
+
+		for (int i = 0; i < reference.particles.size(); i++) {
+			Particle expected = reference.particles.get(i);
+			Particle actual = mixed.particles.get(i);
+			assertEquals(expected.getX(), actual.getX(), 1.e-4);
+			assertEquals(expected.getY(), actual.getY(), 1.e-4);
+			assertEquals(expected.getVx(), actual.getVx(), 1.e-4);
+			assertEquals(expected.getVy(), actual.getVy(), 1.e-4);
+		}
+		for (int x = 0; x < reference.grid.getNumCellsX(); x++) {
+			for (int y = 0; y < reference.grid.getNumCellsY(); y++) {
+				assertEquals(reference.grid.getJx(x, y), mixed.grid.getJx(x, y), 1.e-4);
+				assertEquals(reference.grid.getJy(x, y), mixed.grid.getJy(x, y), 1.e-4);
+			}
+		}
+	}
+
+	private Simulation createSimulation(boolean mixedPrecision) {
+		Settings stt = GridTestCommon.getCommonSettings();
+		stt.setGridCellsZ(1);
+		stt.setMixedPrecision(mixedPrecision);
+
+		Random random = new Random(1);
+		for (int i = 0; i < 20; i++) {
+			Particle p = new ParticleFull();
+			p.setX(10 * random.nextDouble());
+			p.setY(10 * random.nextDouble());
+			p.setVx(0.2 * random.nextDouble() - 0.1);
+			p.setVy(0.2 * random.nextDouble() - 0.1);
+			p.setMass(1);
+			p.setCharge(i % 2 == 0 ? 0.1 : -0.1);
+			stt.addParticle(p);
+		}
+		return new Simulation(stt);
+	}
+
+	private void advance(Simulation s) {
+		s.getInterpolation().interpolateToParticle(s.particles, s.grid);
+		s.particlePush();
+		s.getInterpolation().interpolateToGrid(s.particles, s.grid, s.tstep);
+		s.grid.updateGrid(s.tstep);
+	}
+}
@@ -0,0 +1,115 @@
+package org.openpixi.pixi.physics.particles;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+public class SpeciesTableTest extends TestCase {
+
+	public SpeciesTableTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Particles set up one attribute at a time have to end up with the same species.
+	 */
+	public void testParticlesShareSpecies() {
+		Particle p1 = createParticle(2, -1, 0.5, Color.red);
+		Particle p2 = createParticle(2, -1, 0.5, Color.red);
+		Particle p3 = createParticle(2, +1, 0.5, Color.red);
+
+		// The setters do not register anything
+		assertEquals(-1, p1.getSpecies().getIndex());
+
+		SpeciesTable table = new SpeciesTable();
+		table.register(p1);
+		table.register(p2);
+		table.register(p3);
+		assertEquals(2, table.size());
+		assertSame(p1.getSpecies(), p2.getSpecies());
+		assertNotSame(p1.getSpecies(), p3.getSpecies());
+		assertSame(p1.getSpecies(), table.get(p1.getSpecies().getIndex()));
+		assertEquals(2.0, p1.getMass());
+		assertEquals(-1.0, p1.getCharge());
+		assertEquals(0.5, p1.getRadius());
+		assertEquals(Color.red, p1.getColor());
+		assertEquals(-0.5, p1.getSpecies().getChargeOverMass());
+		assertEquals(0.5, p1.getSpecies().getInverseMass());
+
+		// Changing a constant of one particle must not affect the others
+		p2.setMass(4);
+		assertEquals(2.0, p1.getMass());
+		assertEquals(4.0, p2.getMass());
+		assertSame(p1.getSpecies(), p1.copy().getSpecies());
+	}
+
+	/**
+	 * Every simulation has its own table.
+	 */
+	public void testTablesAreIndependent() {
+		SpeciesTable first = new SpeciesTable();
+		SpeciesTable second = new SpeciesTable();
+		first.register(new Species(1, 1, 0, null));
+		Species s = second.register(new Species(2, 1, 0, null));
+		assertEquals(1, first.size());
+		assertEquals(0, s.getIndex());
+		assertEquals(2.0, second.get(0).getMass());
+	}
+
+	/**
+	 * A particle without mass would be accelerated infinitely.
+	 */
+	public void testRejectsNonPositiveMass() {
+		SpeciesTable table = new SpeciesTable();
+		try {
+			table.register(new ParticleFull());
+			fail();
+		} catch (RuntimeException e) {
+			// expected
+		}
+		try {
+			table.register(new Species(-1, 1, 0, null));
+			fail();
+		} catch (RuntimeException e) {
+			// expected
+		}
+		assertEquals(0, table.size());
+
+		// Immobile particles are not pushed
+		table.register(new ImmobileParticle());
+		assertEquals(0, table.size());
+	}
+
+	/**
+	 * The index is only valid within one table, so serialization has to transfer the constants.
+	 */
+	public void testSerialization() throws Exception {
+		Particle p = createParticle(3, 1, 0.25, Color.blue);
+		new SpeciesTable().register(p);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(p);
+		out.close();
+		Particle q = (Particle) new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertEquals(-1, q.getSpecies().getIndex());
+		assertTrue(p.getSpecies().hasSameConstants(q.getSpecies()));
+		assertEquals(3.0, q.getMass());
+		assertEquals(Color.blue, q.getColor());
+	}
+
+	private Particle createParticle(double mass, double charge, double radius, Color color) {
+		Particle p = new ParticleFull();
+		p.setMass(mass);
+		p.setCharge(charge);
+		p.setRadius(radius);
+		p.setColor(color);
+		return p;
+	}
+}
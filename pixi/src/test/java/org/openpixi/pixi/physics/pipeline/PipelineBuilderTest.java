@@ -0,0 +1,77 @@
+package org.openpixi.pixi.physics.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.grid.ChargeConservingCIC;
+import org.openpixi.pixi.physics.grid.CloudInCell;
+import org.openpixi.pixi.physics.grid.Grid;
+import org.openpixi.pixi.physics.grid.GridTestCommon;
+import org.openpixi.pixi.physics.grid.Interpolation;
+import org.openpixi.pixi.physics.grid.LocalInterpolation;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+public class PipelineBuilderTest extends TestCase {
+
+	double ACCURACY_LIMIT = 1.e-14;
+	Random random = new Random(0);
+
+	public PipelineBuilderTest(String testName) {
+		super(testName);
+	}
+
+	public void testSpecialisationIsPickedForOneThread() {
+		Settings settings = GridTestCommon.getCommonSettings();
+		settings.setInterpolator(new ChargeConservingCIC());
+		assertTrue(PipelineBuilder.createInterpolation(settings)
+				instanceof ChargeConservingCICInterpolation);
+		settings.setInterpolator(new CloudInCell());
+		assertTrue(PipelineBuilder.createInterpolation(settings) instanceof CloudInCellInterpolation);
+
+		settings.setNumOfThreads(2);
+		assertTrue(PipelineBuilder.createInterpolation(settings) instanceof LocalInterpolation);
+		settings.terminateThreads();
+	}
+
+	/**
+	 * The specialised interpolation has to deposit the same current and charge
+	 * as LocalInterpolation.
+	 */
+	public void testAgreesWithLocalInterpolation() {
+		Settings settings = GridTestCommon.getCommonSettings();
+		settings.setInterpolator(new ChargeConservingCIC());
+		Interpolation specialised = PipelineBuilder.createInterpolation(settings);
+		Interpolation local = new LocalInterpolation(
+				settings.getInterpolator(), settings.getParticleIterator());
+
+		List<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < 20; i++) {
+			Particle p = new ParticleFull();
+			p.setCharge(random.nextDouble() - 0.5);
+			p.setX(2 + 6 * random.nextDouble());
+			p.setY(2 + 6 * random.nextDouble());
+			p.setPrevX(p.getX() + 0.4 * (random.nextDouble() - 0.5));
+			p.setPrevY(p.getY() + 0.4 * (random.nextDouble() - 0.5));
+			particles.add(p);
+		}
+
+		Grid grid = new Grid(settings);
+		Grid referenceGrid = new Grid(settings);
+		specialised.interpolateToGrid(particles, grid, settings.getTimeStep());
+		local.interpolateToGrid(particles, referenceGrid, settings.getTimeStep());
+		specialised.interpolateChargedensity(particles, grid);
+		local.interpolateChargedensity(particles, referenceGrid);
+
+		for (int x = 0; x < grid.getNumCellsX(); x++) {
+			for (int y = 0; y < grid.getNumCellsY(); y++) {
+				assertEquals(referenceGrid.getJx(x, y), grid.getJx(x, y), ACCURACY_LIMIT);
+				assertEquals(referenceGrid.getJy(x, y), grid.getJy(x, y), ACCURACY_LIMIT);
+				assertEquals(referenceGrid.getRho(x, y), grid.getRho(x, y), ACCURACY_LIMIT);
+			}
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package org.openpixi.pixi.physics.solver;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+public class AdaptiveSubsteppingTest extends TestCase {
+
+	double TIME_STEP = 2;
+	int STEPS = 5;
+
+	public AdaptiveSubsteppingTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * A gyration with two radians per step is far off with a single Boris step,
+	 * the substeps have to bring it close to the resolved orbit.
+	 */
+	public void testGyrationIsResolved() {
+		ConstantForce f = new ConstantForce();
+		f.bz = 1;
+
+		Particle reference = createParticle(1);
+		push(new Boris(), reference, f, TIME_STEP / 1000, 1000 * STEPS);
+
+		Particle coarse = createParticle(1);
+		push(new Boris(), coarse, f, TIME_STEP, STEPS);
+
+		Particle substepped = createParticle(1);
+		AdaptiveSubstepping solver = new AdaptiveSubstepping(new Boris(), 0.1, 100);
+		assertEquals(20, solver.getSubsteps(substepped, f, TIME_STEP));
+		push(solver, substepped, f, TIME_STEP, STEPS);
+
+		double coarseError = distance(reference, coarse);
+		double substeppedError = distance(reference, substepped);
+		assertTrue(coarseError > 0.1);
+		assertTrue(substeppedError < 1.e-2);
+	}
+
+	/**
+	 * Weakly magnetized particles take the plain step, the others are limited by maxSubsteps.
+	 */
+	public void testSubstepsAreCounted() {
+		ConstantForce f = new ConstantForce();
+		f.bz = 1;
+		Particle slow = createParticle(0.01);
+		Particle fast = createParticle(1);
+		Particle veryFast = createParticle(100);
+
+		AdaptiveSubstepping solver = new AdaptiveSubstepping(new Boris(), 0.5, 8);
+		assertEquals(1, solver.getSubsteps(slow, f, TIME_STEP));
+		assertEquals(4, solver.getSubsteps(fast, f, TIME_STEP));
+		assertEquals(8, solver.getSubsteps(veryFast, f, TIME_STEP));
+
+		solver.step(slow, f, TIME_STEP);
+		solver.step(slow, f, TIME_STEP);
+		solver.step(fast, f, TIME_STEP);
+		solver.step(veryFast, f, TIME_STEP);
+		long[] histogram = solver.getSubstepHistogram();
+		assertEquals(2, histogram[1]);
+		assertEquals(1, histogram[4]);
+		assertEquals(1, histogram[8]);
+
+		solver.resetSubstepHistogram();
+		assertEquals(0, solver.getSubstepHistogram()[1]);
+	}
+
+	/**
+	 * The magnetic field in the plane gyrates the particle as well.
+	 */
+	public void testInPlaneFieldIsCounted() {
+		ConstantForce f = new ConstantForce();
+		Particle p = createParticle(1);
+		p.setBx(0.6);
+		p.setBy(0.8);
+
+		AdaptiveSubstepping solver = new AdaptiveSubstepping(new Boris(), 0.5, 8);
+		assertEquals(4, solver.getSubsteps(p, f, TIME_STEP));
+	}
+
+	/**
+	 * The counts of all the threads end up in the histogram.
+	 */
+	public void testHistogramOfSeveralThreads() throws InterruptedException {
+		final ConstantForce f = new ConstantForce();
+		f.bz = 1;
+		final AdaptiveSubstepping solver = new AdaptiveSubstepping(new Boris(), 0.5, 8);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final int slot = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					Particle p = createParticle(1);
+					p.setSlot(slot);
+					for (int step = 0; step < 100; step++) {
+						solver.step(p, f, TIME_STEP);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(400, solver.getSubstepHistogram()[4]);
+	}
+
+	private Particle createParticle(double charge) {
+		Particle p = new ParticleFull();
+		p.setSlot(0);
+		p.setX(0);
+		p.setY(0);
+		p.setVx(1);
+		p.setVy(0);
+		p.setMass(1);
+		p.setCharge(charge);
+		return p;
+	}
+
+	private void push(Solver solver, Particle p, ConstantForce f, double step, int steps) {
+		solver.prepare(p, f, step);
+		for (int i = 0; i < steps; i++) {
+			solver.step(p, f, step);
+		}
+		solver.complete(p, f, step);
+	}
+
+	private double distance(Particle a, Particle b) {
+		return Math.hypot(a.getX() - b.getX(), a.getY() - b.getY());
+	}
+}
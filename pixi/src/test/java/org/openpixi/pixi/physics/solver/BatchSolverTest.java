@@ -0,0 +1,142 @@
+package org.openpixi.pixi.physics.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.force.Force;
+import org.openpixi.pixi.physics.force.SimpleGridForce;
+import org.openpixi.pixi.physics.force.relativistic.SimpleGridForceRelativistic;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleBatch;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+import org.openpixi.pixi.physics.solver.relativistic.BorisRelativistic;
+import org.openpixi.pixi.physics.solver.relativistic.LeapFrogRelativistic;
+
+/**
+ * The batched step has to move the particles exactly like the per-particle step.
+ */
+public class BatchSolverTest extends TestCase {
+
+	double ACCURACY_LIMIT = 1.e-14;
+	Random random = new Random(0);
+
+	public BatchSolverTest(String testName) {
+		super(testName);
+	}
+
+	public void testBoris() {
+		compareSteps(new Boris(), new Boris(), new SimpleGridForce());
+	}
+
+	public void testSemiImplicitEuler() {
+		compareSteps(new SemiImplicitEuler(), new SemiImplicitEuler(), new SimpleGridForce());
+	}
+
+	public void testBorisRelativistic() {
+		compareSteps(new BorisRelativistic(3), new BorisRelativistic(3),
+				new SimpleGridForceRelativistic(3));
+	}
+
+	public void testLeapFrogRelativistic() {
+		compareSteps(new LeapFrogRelativistic(3), new LeapFrogRelativistic(3),
+				new SimpleGridForceRelativistic(3));
+	}
+
+	public void testCanStep() {
+		assertTrue(new Boris().canStep(new SimpleGridForce()));
+		assertFalse(new Boris().canStep(new SimpleGridForceRelativistic(3)));
+		assertTrue(new LeapFrogRelativistic(3).canStep(new SimpleGridForceRelativistic(3)));
+		assertFalse(new LeapFrogRelativistic(3).canStep(new SimpleGridForce()));
+	}
+
+	/**
+	 * The constants stay in the batch between steps, but have to follow a change of species.
+	 */
+	public void testConstantsFollowSpecies() {
+		List<Particle> particles = new ArrayList<Particle>();
+		particles.add(createParticle(0));
+		ParticleBatch batch = new ParticleBatch(1);
+		batch.load(particles, 0, 1, 0);
+		assertEquals(particles.get(0).getCharge(), batch.charge[0]);
+
+		particles.get(0).setCharge(2);
+		batch.load(particles, 0, 1, 0);
+		assertEquals(2.0, batch.charge[0]);
+
+		particles.set(0, createParticle(0));
+		batch.load(particles, 0, 1, 0);
+		assertEquals(particles.get(0).getCharge(), batch.charge[0]);
+		assertEquals(particles.get(0).getSpecies().getInverseMass(), batch.inverseMass[0]);
+	}
+
+	private void compareSteps(BatchSolver batchSolver, Solver referenceSolver, Force force) {
+		double step = 0.1;
+		List<Particle> particles = new ArrayList<Particle>();
+		List<Particle> reference = new ArrayList<Particle>();
+		for (int i = 0; i < 10; i++) {
+			Particle p = createParticle(i);
+			Particle q = p.copy();
+			q.setSlot(i);
+			particles.add(p);
+			reference.add(q);
+		}
+
+		ParticleBatch batch = new ParticleBatch(4);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			for (int from = 0; from < particles.size(); from += batch.capacity()) {
+				int to = Math.min(particles.size(), from + batch.capacity());
+				batch.load(particles, from, to, batchSolver.getBatchAttributes());
+				batchSolver.step(batch, step);
+				batch.store(particles, from);
+			}
+			for (Particle p : reference) {
+				referenceSolver.step(p, force, step);
+			}
+		}
+
+		for (int i = 0; i < particles.size(); i++) {
+			assertParticle(reference.get(i), particles.get(i));
+		}
+
+		// complete() has to find the values remembered by the batched step
+		for (int i = 0; i < particles.size(); i++) {
+			batchSolver.complete(particles.get(i), force, step);
+			referenceSolver.complete(reference.get(i), force, step);
+			assertParticle(reference.get(i), particles.get(i));
+		}
+	}
+
+	private Particle createParticle(int slot) {
+		Particle p = new ParticleFull();
+		p.setSlot(slot);
+		p.setMass(1 + random.nextDouble());
+		p.setCharge(random.nextDouble() - 0.5);
+		p.setX(random.nextDouble());
+		p.setY(random.nextDouble());
+		p.setZ(random.nextDouble());
+		p.setVx(random.nextDouble() - 0.5);
+		p.setVy(random.nextDouble() - 0.5);
+		p.setVz(random.nextDouble() - 0.5);
+		p.setEx(random.nextDouble());
+		p.setEy(random.nextDouble());
+		p.setEz(random.nextDouble());
+		p.setBx(random.nextDouble());
+		p.setBy(random.nextDouble());
+		p.setBz(random.nextDouble());
+		return p;
+	}
+
+	private void assertParticle(Particle expected, Particle actual) {
+		assertEquals(expected.getX(), actual.getX(), ACCURACY_LIMIT);
+		assertEquals(expected.getY(), actual.getY(), ACCURACY_LIMIT);
+		assertEquals(expected.getZ(), actual.getZ(), ACCURACY_LIMIT);
+		assertEquals(expected.getVx(), actual.getVx(), ACCURACY_LIMIT);
+		assertEquals(expected.getVy(), actual.getVy(), ACCURACY_LIMIT);
+		assertEquals(expected.getVz(), actual.getVz(), ACCURACY_LIMIT);
+		assertEquals(expected.getAx(), actual.getAx(), ACCURACY_LIMIT);
+		assertEquals(expected.getAy(), actual.getAy(), ACCURACY_LIMIT);
+		assertEquals(expected.getAz(), actual.getAz(), ACCURACY_LIMIT);
+	}
+}
@@ -50,6 +50,8 @@ public class SolverTest extends TestCase {
 	 */
 	public void testPrepareComplete() {
 		Particle p = new ParticleFull();
+		// The solvers keep their history in the slot of the particle
+		p.setSlot(0);
 		ConstantForce f = new ConstantForce();
 		double step = 1.0;
 
@@ -95,6 +97,8 @@ public class SolverTest extends TestCase {
 	 */
 	public void testCompareWithEuler() {
 		Particle p = new ParticleFull();
+		// The solvers keep their history in the slot of the particle
+		p.setSlot(0);
 		ConstantForce f = new ConstantForce();
 		double step = 0.00001d;
 		Solver solver2 = new Euler();
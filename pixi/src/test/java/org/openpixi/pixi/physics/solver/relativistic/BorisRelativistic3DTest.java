@@ -0,0 +1,134 @@
+package org.openpixi.pixi.physics.solver.relativistic;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.physics.Settings;
+import org.openpixi.pixi.physics.Simulation;
+import org.openpixi.pixi.physics.fields.SimpleSolver;
+import org.openpixi.pixi.physics.force.ConstantForce;
+import org.openpixi.pixi.physics.force.relativistic.SimpleGridForceRelativistic;
+import org.openpixi.pixi.physics.grid.GridTestCommon;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * Unit test for BorisRelativistic3D.
+ */
+public class BorisRelativistic3DTest extends TestCase {
+
+	double ACCURACY_LIMIT = 1.e-12;
+	double SPEED_OF_LIGHT = 3;
+	Random random = new Random(0);
+
+	public BorisRelativistic3DTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * With the magnetic field along z and no motion in z the result has to agree
+	 * with the two dimensional BorisRelativistic.
+	 */
+	public void testAgreesWithBorisRelativistic() {
+		BorisRelativistic3D solver = new BorisRelativistic3D(SPEED_OF_LIGHT);
+		BorisRelativistic reference = new BorisRelativistic(SPEED_OF_LIGHT);
+		SimpleGridForceRelativistic force = new SimpleGridForceRelativistic(SPEED_OF_LIGHT);
+
+		for (int i = 0; i < 10; i++) {
+			Particle p = createParticle();
+			p.setVz(0);
+			p.setEz(0);
+			p.setBx(0);
+			p.setBy(0);
+			Particle q = p.copy();
+			q.setSlot(0);
+
+			for (int step = 0; step < 5; step++) {
+				solver.step(p, force, 0.1);
+				reference.step(q, force, 0.1);
+			}
+
+			assertEquals(q.getX(), p.getX(), ACCURACY_LIMIT);
+			assertEquals(q.getY(), p.getY(), ACCURACY_LIMIT);
+			assertEquals(q.getZ(), p.getZ(), ACCURACY_LIMIT);
+			assertEquals(q.getVx(), p.getVx(), ACCURACY_LIMIT);
+			assertEquals(q.getVy(), p.getVy(), ACCURACY_LIMIT);
+			assertEquals(0, p.getVz(), ACCURACY_LIMIT);
+		}
+	}
+
+	/**
+	 * A pure magnetic field in an arbitrary direction must not change the magnitude
+	 * of the momentum.
+	 */
+	public void testMagneticRotationConservesMomentum() {
+		BorisRelativistic3D solver = new BorisRelativistic3D(SPEED_OF_LIGHT);
+		Particle p = createParticle();
+		p.setEx(0);
+		p.setEy(0);
+		p.setEz(0);
+		double u2 = p.getVx() * p.getVx() + p.getVy() * p.getVy() + p.getVz() * p.getVz();
+
+		for (int step = 0; step < 100; step++) {
+			solver.step(p, null, 0.1);
+		}
+
+		assertEquals(u2, p.getVx() * p.getVx() + p.getVy() * p.getVy() + p.getVz() * p.getVz(),
+				ACCURACY_LIMIT);
+	}
+
+	/**
+	 * Test if prepare and complete return to the same initial conditions
+	 */
+	public void testPrepareComplete() {
+		BorisRelativistic3D solver = new BorisRelativistic3D(SPEED_OF_LIGHT);
+		Particle p = createParticle();
+		Particle pcopy = p.copy();
+
+		solver.prepare(p, null, 0.1);
+		solver.complete(p, null, 0.1);
+
+		assertEquals(pcopy.getVx(), p.getVx(), ACCURACY_LIMIT);
+		assertEquals(pcopy.getVy(), p.getVy(), ACCURACY_LIMIT);
+		assertEquals(pcopy.getVz(), p.getVz(), ACCURACY_LIMIT);
+	}
+
+	/**
+	 * The fields are taken from the particle, so other forces must not be accepted.
+	 */
+	public void testOtherForcesAreRejected() {
+		Settings stt = GridTestCommon.getCommonSettings();
+		stt.setGridSolver(new SimpleSolver());
+		stt.setRelativistic(true);
+		stt.setParticleSolver(new BorisRelativistic3D(stt.getSpeedOfLight()));
+		new Simulation(stt);
+
+		stt.addForce(new ConstantForce());
+		try {
+			new Simulation(stt);
+			fail("BorisRelativistic3D must not accept a constant force.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	private Particle createParticle() {
+		Particle p = new ParticleFull();
+		p.setSlot(0);
+		p.setMass(1 + random.nextDouble());
+		p.setCharge(random.nextDouble() - 0.5);
+		p.setX(random.nextDouble());
+		p.setY(random.nextDouble());
+		p.setZ(random.nextDouble());
+		p.setVx(random.nextDouble() - 0.5);
+		p.setVy(random.nextDouble() - 0.5);
+		p.setVz(random.nextDouble() - 0.5);
+		p.setEx(random.nextDouble());
+		p.setEy(random.nextDouble());
+		p.setEz(random.nextDouble());
+		p.setBx(random.nextDouble());
+		p.setBy(random.nextDouble());
+		p.setBz(random.nextDouble());
+		return p;
+	}
+}
@@ -0,0 +1,109 @@
+package org.openpixi.pixi.physics.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.openpixi.pixi.parallel.WorkerTeam;
+import org.openpixi.pixi.parallel.particleaccess.ParallelParticleIterator;
+import org.openpixi.pixi.parallel.particleaccess.SequentialParticleIterator;
+import org.openpixi.pixi.physics.particles.Particle;
+import org.openpixi.pixi.physics.particles.ParticleFull;
+
+/**
+ * The lists have to contain every pair within the cutoff while the particles move,
+ * and must not be rebuilt in every step.
+ */
+public class NeighborListTest extends TestCase {
+
+	private static final double CUTOFF = 1.5;
+	private static final double SKIN = 0.5;
+
+	public NeighborListTest(String testName) {
+		super(testName);
+	}
+
+	public void testContainsPairsWithinCutoff() {
+		Random random = new Random(0);
+		List<Particle> particles = createParticles(random, 1000);
+		NeighborList list = new NeighborList(CUTOFF, SKIN);
+
+		int steps = 40;
+		for (int step = 0; step < steps; step++) {
+			list.update(particles, new SequentialParticleIterator());
+			for (int i = 0; i < particles.size(); i++) {
+				boolean[] neighbor = new boolean[particles.size()];
+				for (int k = list.getStart(i); k < list.getEnd(i); k++) {
+					neighbor[list.getNeighbor(k)] = true;
+					if (k > list.getStart(i)) {
+						assertTrue(list.getNeighbor(k - 1) < list.getNeighbor(k));
+					}
+				}
+				for (int j = 0; j < particles.size(); j++) {
+					if (j != i && distance(particles.get(i), particles.get(j)) <= CUTOFF) {
+						assertTrue(neighbor[j]);
+					}
+				}
+			}
+			for (Particle p : particles) {
+				p.setX(p.getX() + 0.01 * random.nextGaussian());
+				p.setY(p.getY() + 0.01 * random.nextGaussian());
+				p.setZ(p.getZ() + 0.01 * random.nextGaussian());
+			}
+		}
+		assertTrue(list.getNumRebuilds() > 1);
+		assertTrue(list.getNumRebuilds() < steps / 2);
+	}
+
+	/**
+	 * Without a move the lists are only rebuilt after invalidate().
+	 */
+	public void testInvalidate() {
+		List<Particle> particles = createParticles(new Random(2), 100);
+		NeighborList list = new NeighborList(CUTOFF, SKIN);
+		assertTrue(list.update(particles, new SequentialParticleIterator()));
+		assertFalse(list.update(particles, new SequentialParticleIterator()));
+		list.invalidate();
+		assertTrue(list.update(particles, new SequentialParticleIterator()));
+		assertEquals(2, list.getNumRebuilds());
+	}
+
+	public void testIndependentOfThreadCount() {
+		List<Particle> particles = createParticles(new Random(1), 2000);
+		NeighborList reference = new NeighborList(CUTOFF, SKIN);
+		reference.rebuild(particles, new SequentialParticleIterator());
+
+		WorkerTeam team = new WorkerTeam(3);
+		NeighborList list = new NeighborList(CUTOFF, SKIN);
+		list.rebuild(particles, new ParallelParticleIterator(team));
+		team.terminate();
+
+		for (int i = 0; i < particles.size(); i++) {
+			assertEquals(reference.getStart(i), list.getStart(i));
+			assertEquals(reference.getEnd(i), list.getEnd(i));
+			for (int k = list.getStart(i); k < list.getEnd(i); k++) {
+				assertEquals(reference.getNeighbor(k), list.getNeighbor(k));
+			}
+		}
+	}
+
+	private List<Particle> createParticles(Random random, int count) {
+		List<Particle> particles = new ArrayList<Particle>();
+		for (int i = 0; i < count; i++) {
+			Particle p = new ParticleFull();
+			p.setX(20 * random.nextDouble());
+			p.setY(20 * random.nextDouble());
+			p.setZ(5 * random.nextDouble());
+			particles.add(p);
+		}
+		return particles;
+	}
+
+	private double distance(Particle p1, Particle p2) {
+		double dx = p1.getX() - p2.getX();
+		double dy = p1.getY() - p2.getY();
+		double dz = p1.getZ() - p2.getZ();
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+}